@@ -0,0 +1,17 @@
+@echo off
+rem Launches Sebucha from the compiled classes in bin\.
+rem JAVAFX_LIB must point at the lib folder of a JavaFX SDK.
+rem
+rem The first run records the classes loaded during startup into sebucha.jsa
+rem (AppCDS, JDK 19+); later runs map that archive instead of loading and
+rem verifying the classes again. Delete sebucha.jsa after updating the JDK.
+cd /d "%~dp0"
+if "%JAVAFX_LIB%"=="" (
+  echo Set JAVAFX_LIB to the JavaFX SDK lib folder
+  exit /b 1
+)
+
+java -XX:+AutoCreateSharedArchive -XX:SharedArchiveFile=sebucha.jsa ^
+  --module-path "bin;%JAVAFX_LIB%;Forprinting;icons;sqlite_jdbc" ^
+  --add-modules org.xerial.sqlitejdbc ^
+  -m Sebucha/model.Main %*
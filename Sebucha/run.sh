@@ -0,0 +1,15 @@
+#!/bin/sh
+# Launches Sebucha from the compiled classes in bin/.
+# JAVAFX_LIB must point at the lib folder of a JavaFX SDK.
+#
+# The first run records the classes loaded during startup into sebucha.jsa
+# (AppCDS, JDK 19+); later runs map that archive instead of loading and
+# verifying the classes again. Delete sebucha.jsa after updating the JDK.
+cd "$(dirname "$0")"
+: "${JAVAFX_LIB:?set JAVAFX_LIB to the JavaFX SDK lib folder}"
+
+exec java \
+  -XX:+AutoCreateSharedArchive -XX:SharedArchiveFile=sebucha.jsa \
+  --module-path "bin:$JAVAFX_LIB:Forprinting:icons:sqlite_jdbc" \
+  --add-modules org.xerial.sqlitejdbc \
+  -m Sebucha/model.Main "$@"
@@ -1,6 +1,7 @@
 package controller;
 
 import javafx.application.Platform;
+import javafx.concurrent.Task;
 
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -16,9 +17,17 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.Label;
 import javafx.stage.Stage;
+import model.DataVersions;
+import model.ManagedView;
+import model.OrderArchive;
+import model.DatabaseSnapshots;
+import model.OrderService;
+import model.SceneManager;
 import model.SqliteConnection;
+import model.UserSession;
 import java.io.IOException;
 import java.net.URL;
 import java.sql.Connection;
@@ -35,7 +44,7 @@ import java.util.ResourceBundle;
 //and charts (best sellers, recent income). Also handles navigation and a 
 //2-Step Verification that clears order data and resets the dashboard.
  
-public class DashboardController implements Initializable {
+public class DashboardController implements Initializable, ManagedView {
 
     // Navigation buttons
     @FXML private Button dashboardbutton;
@@ -44,6 +53,9 @@ public class DashboardController implements Initializable {
     @FXML private Button recentorderbutton;
     @FXML private Button logoutbutton;
     @FXML private Button ResetButton;
+    @FXML private Button kitchenbutton;
+    @FXML private Button performancebutton;
+    @FXML private Button archivebutton;
 
     // Dashboard data labels
     @FXML private Label today_income;
@@ -62,6 +74,11 @@ public class DashboardController implements Initializable {
     // Used for formatting currency and numbers
     private final DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
 
+    // Orders version and time of the last load; the metrics also depend on the clock
+    private long loadedOrdersVersion = -1;
+    private long loadedAtMillis;
+    private static final long MAX_METRICS_AGE_MILLIS = 5 * 60 * 1000;
+
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
         connection = SqliteConnection.Connector();
@@ -73,7 +90,11 @@ public class DashboardController implements Initializable {
         setupCharts();
 
         // Adjust window properties after UI loads
+        // No scene yet when the page is preloaded in the background
         Platform.runLater(() -> {
+            if (dashboardbutton.getScene() == null) {
+                return;
+            }
             Stage stage = (Stage) dashboardbutton.getScene().getWindow();
             stage.setResizable(false);
             stage.centerOnScreen();
@@ -151,7 +172,8 @@ public class DashboardController implements Initializable {
             "• All order records\n" +
             "• All order items\n" +
             "• Dashboard revenue and statistics\n" +
-            "• Recent order history\n\n"
+            "• Recent order history\n\n" +
+            "Archived years in " + OrderArchive.getDirectory().toAbsolutePath() + " are kept.\n"
         );
 
         ButtonType continueButton = new ButtonType("Continue");
@@ -168,7 +190,7 @@ public class DashboardController implements Initializable {
             secondConfirmation.setContentText(
                 "This will:\n\n" +
                 "🗑️ Delete all orders and order items\n" +
-                "📊 Reset dashboard to ₱0.00\n" +
+                "📊 Reset today's figures to ₱0.00 (total income keeps archived years)\n" +
                 "📈 Clear charts and statistics\n" +
                 "📋 Empty recent orders table\n\n" 
             );
@@ -183,7 +205,8 @@ public class DashboardController implements Initializable {
                 performCompleteReset();
                 showAlert(
                     "Reset Complete",
-                    "All order data has been permanently deleted.\n" +
+                    "All live order data has been permanently deleted.\n" +
+                    "Archived years in " + OrderArchive.getDirectory().toAbsolutePath() + " were kept.\n" +
                     "Dashboard has been cleared and is ready for new orders.",
                     AlertType.INFORMATION
                 );
@@ -199,58 +222,21 @@ public class DashboardController implements Initializable {
     
     // reset all orders and order items
     private void performCompleteReset() {
-        Connection connection = null;
-
         try {
-            connection = SqliteConnection.Connector();
-            connection.setAutoCommit(false);
+            // Close the shift first, so its Z report keeps the sales about to be deleted
+            OrderService.getInstance().closeShift(UserSession.getInstance().getUsername());
 
-            // Delete all order items 
-            String deleteOrderItemsQuery = "DELETE FROM order_items";
-            PreparedStatement deleteItemsStatement = connection.prepareStatement(deleteOrderItemsQuery);
-            int itemsDeleted = deleteItemsStatement.executeUpdate();
-
-            // Delete all orders
-            String deleteOrdersQuery = "DELETE FROM orders";
-            PreparedStatement deleteOrdersStatement = connection.prepareStatement(deleteOrdersQuery);
-            int ordersDeleted = deleteOrdersStatement.executeUpdate();
-
-            try {
-                PreparedStatement resetSequence = connection.prepareStatement(
-                    "DELETE FROM sqlite_sequence WHERE name IN ('orders', 'order_items')"
-                );
-                resetSequence.executeUpdate();
-                resetSequence.close();
-            } catch (SQLException e) {
-                System.out.println("Note: sqlite_sequence table not found or not needed.");
-            }
-
-            connection.commit();
+            int ordersDeleted = OrderService.getInstance().deleteAllOrders();
+            DataVersions.ordersChanged();
 
             System.out.println("=== COMPLETE RESET PERFORMED ===");
             System.out.println("Orders deleted: " + ordersDeleted);
-            System.out.println("Order items deleted: " + itemsDeleted);
             System.out.println("Dashboard reset successfully.");
             System.out.println("===============================");
 
         } catch (SQLException e) {
-            try {
-                if (connection != null) connection.rollback();
-            } catch (SQLException rollbackEx) {
-                rollbackEx.printStackTrace();
-            }
             showAlert("Reset Failed", "An error occurred during reset: " + e.getMessage(), AlertType.ERROR);
             e.printStackTrace();
-        } finally {
-           
-            try {
-                if (connection != null) {
-                    connection.setAutoCommit(true);
-                    connection.close();
-                }
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
         }
     }
 
@@ -258,6 +244,8 @@ public class DashboardController implements Initializable {
 
     // Loads all dashboard metrics and charts
     private void loadDashboardData() {
+        loadedOrdersVersion = DataVersions.getOrdersVersion();
+        loadedAtMillis = System.currentTimeMillis();
         loadTodayIncomeFromRecentOrders();
         loadProductsSoldFromRecentOrders();
         loadTotalIncomeFromRecentOrders();
@@ -318,17 +306,21 @@ public class DashboardController implements Initializable {
         }
     }
 
-    // Loads all-time income from the orders table
+    // Loads all-time income from the orders table and every archived year
     private void loadTotalIncomeFromRecentOrders() {
         Connection connection = null;
         try {
             connection = SqliteConnection.Connector();
-            String query = "SELECT SUM(total_amount) as total_revenue FROM orders";
-
-            PreparedStatement statement = connection.prepareStatement(query);
-            ResultSet resultSet = statement.executeQuery();
-
-            double totalIncome = resultSet.next() ? resultSet.getDouble("total_revenue") : 0.0;
+            double totalIncome = 0.0;
+            for (String schema : OrderArchive.sources(null, null, false)) {
+                OrderArchive.attach(connection, schema);
+                String query = "SELECT SUM(total_amount) as total_revenue FROM " + schema + ".orders";
+
+                try (PreparedStatement statement = connection.prepareStatement(query);
+                     ResultSet resultSet = statement.executeQuery()) {
+                    totalIncome += resultSet.next() ? resultSet.getDouble("total_revenue") : 0.0;
+                }
+            }
             total_income.setText("₱ " + decimalFormat.format(totalIncome));
 
         } catch (SQLException e) {
@@ -447,13 +439,148 @@ public class DashboardController implements Initializable {
         loadDashboardData();
     }
 
+    // The page is cached; reload when orders changed or the time-window metrics are getting old
+    @Override
+    public void onShow() {
+        performancebutton.setVisible(UserSession.getInstance().isAdmin());
+        archivebutton.setVisible(UserSession.getInstance().isAdmin());
+        if (loadedOrdersVersion != DataVersions.getOrdersVersion()
+                || System.currentTimeMillis() - loadedAtMillis > MAX_METRICS_AGE_MILLIS) {
+            loadDashboardData();
+        }
+    }
+
+    // Archives old orders or takes a snapshot now (admins only); both run in the background
+    @FXML
+    private void handleArchiveButton(ActionEvent event) {
+        if (!UserSession.getInstance().isAdmin()) {
+            return;
+        }
+        Alert choice = new Alert(AlertType.CONFIRMATION);
+        choice.setTitle("Order History");
+        choice.setHeaderText("Archive old orders or back up the database");
+        choice.setContentText(
+            "Archive moves finished orders older than the chosen age into " + OrderArchive.getDirectory().toAbsolutePath() +
+            ". Reports and exports still include them; the Dashboard and Recent Orders show live orders only.\n\n" +
+            "Snapshot writes a copy of the database to " + DatabaseSnapshots.getDirectory().toAbsolutePath() + " now."
+        );
+        ButtonType archiveButton = new ButtonType("Archive...");
+        ButtonType snapshotButton = new ButtonType("Snapshot Now");
+        ButtonType cancelButton = new ButtonType("Cancel", ButtonType.CANCEL.getButtonData());
+        choice.getButtonTypes().setAll(archiveButton, snapshotButton, cancelButton);
+
+        Optional<ButtonType> result = choice.showAndWait();
+        if (!result.isPresent() || result.get() == cancelButton) {
+            return;
+        }
+
+        Task<String> task;
+        if (result.get() == archiveButton) {
+            ChoiceDialog<Integer> ageDialog = new ChoiceDialog<>(OrderArchive.DEFAULT_MONTHS, 3, 6, 12, 24, 36);
+            ageDialog.setTitle("Archive Orders");
+            ageDialog.setHeaderText("Archive finished orders older than how many months?");
+            ageDialog.setContentText("Months:");
+            Optional<Integer> months = ageDialog.showAndWait();
+            if (!months.isPresent()) {
+                return;
+            }
+            task = new Task<>() {
+                @Override
+                protected String call() throws Exception {
+                    int moved = OrderArchive.archiveOlderThan(months.get(), count -> updateMessage("Archived " + count + " orders"));
+                    return moved == 0 ? "No finished orders older than " + months.get() + " months."
+                        : "Archived " + moved + " orders into " + OrderArchive.getDirectory().toAbsolutePath() + ".";
+                }
+            };
+        } else {
+            task = new Task<>() {
+                @Override
+                protected String call() throws Exception {
+                    return "Snapshot written to " + DatabaseSnapshots.snapshot().toAbsolutePath() + ".";
+                }
+            };
+        }
+
+        archivebutton.setDisable(true);
+        task.setOnSucceeded(done -> {
+            archivebutton.setDisable(false);
+            showAlert("Order History", task.getValue(), AlertType.INFORMATION);
+            loadDashboardData();
+        });
+        task.setOnFailed(failed -> {
+            archivebutton.setDisable(false);
+            task.getException().printStackTrace();
+            showAlert("Order History", "Failed: " + task.getException().getMessage(), AlertType.ERROR);
+        });
+        Thread thread = new Thread(task, "order-archive");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // X/Z reports for the current shift
+    @FXML
+    private void handleShiftButton(ActionEvent event) {
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/fxml/ShiftReport.fxml"));
+            Parent root = loader.load();
+
+            Stage shiftStage = new Stage();
+            shiftStage.setTitle("Shift Report");
+            shiftStage.setScene(new Scene(root));
+            shiftStage.show();
+        } catch (IOException e) {
+            showAlert("Error", "Could not open the shift report: " + e.getMessage(), AlertType.ERROR);
+            e.printStackTrace();
+        }
+    }
+
+    // Opens the kitchen display in its own window so it can sit on a second screen
+    @FXML
+    private void handleKitchenButton(ActionEvent event) {
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/fxml/KitchenDisplay.fxml"));
+            Parent root = loader.load();
+            KitchenDisplayController controller = loader.getController();
+
+            Stage kitchenStage = new Stage();
+            kitchenStage.setTitle("Kitchen");
+            kitchenStage.setScene(new Scene(root));
+            controller.setStage(kitchenStage);
+            kitchenStage.show();
+        } catch (IOException e) {
+            showAlert("Error", "Could not open the kitchen display: " + e.getMessage(), AlertType.ERROR);
+            e.printStackTrace();
+        }
+    }
+
+    // Opens the metrics window (admins only)
+    @FXML
+    private void handlePerformanceButton(ActionEvent event) {
+        if (!UserSession.getInstance().isAdmin()) {
+            return;
+        }
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/fxml/PerformancePanel.fxml"));
+            Parent root = loader.load();
+            PerformancePanelController controller = loader.getController();
+
+            Stage panelStage = new Stage();
+            panelStage.setTitle("Performance");
+            panelStage.setScene(new Scene(root));
+            panelStage.setResizable(false);
+            panelStage.initOwner(performancebutton.getScene().getWindow());
+            controller.setStage(panelStage);
+            panelStage.show();
+        } catch (IOException e) {
+            showAlert("Error", "Could not open the performance panel: " + e.getMessage(), AlertType.ERROR);
+            e.printStackTrace();
+        }
+    }
+
     // Helper to switch scenes
     private void loadScene(ActionEvent event, String fxmlPath) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource(fxmlPath));
         Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-        stage.setTitle("Sebucha Order Management System");
-        stage.setScene(new Scene(root));
-        stage.show();
+        SceneManager.getInstance().show(stage, fxmlPath);
     }
 
     //Show alerts
@@ -0,0 +1,313 @@
+package controller;
+
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.stage.Stage;
+import model.Product;
+import model.RecipeBook;
+import model.SqliteConnection;
+
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.DecimalFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/*
+ * Ingredients on hand and the recipe of each product. Receiving an ingredient
+ * or saving a recipe recounts how many of each product the ingredients can make,
+ * which is the stock the Order page sells from.
+ */
+public class IngredientsController implements Initializable {
+
+    private static final String SELECT_PRODUCTS = "SELECT id, name, category, stock FROM products ORDER BY category, name";
+
+    @FXML private TableView<RecipeBook.Ingredient> ingredientsTable;
+    @FXML private TableColumn<RecipeBook.Ingredient, String> ingredientNameColumn;
+    @FXML private TableColumn<RecipeBook.Ingredient, String> ingredientUnitColumn;
+    @FXML private TableColumn<RecipeBook.Ingredient, String> ingredientStockColumn;
+    @FXML private TextField ingredientNameField;
+    @FXML private TextField ingredientUnitField;
+    @FXML private TextField amountField;
+    @FXML private Button addIngredientButton;
+    @FXML private Button receiveButton;
+
+    @FXML private ComboBox<Product> productComboBox;
+    @FXML private TableView<Line> recipeTable;
+    @FXML private TableColumn<Line, String> lineIngredientColumn;
+    @FXML private TableColumn<Line, Double> lineQuantityColumn;
+    @FXML private ComboBox<RecipeBook.Ingredient> lineIngredientComboBox;
+    @FXML private TextField lineQuantityField;
+    @FXML private Button setLineButton;
+    @FXML private Button removeLineButton;
+    @FXML private Button saveRecipeButton;
+    @FXML private Label makesLabel;
+    @FXML private Button closeButton;
+
+    private final ObservableList<RecipeBook.Ingredient> ingredients = FXCollections.observableArrayList();
+    private final ObservableList<Line> lines = FXCollections.observableArrayList();
+    private final DecimalFormat amountFormat = new DecimalFormat("#,##0.##");
+
+    @Override
+    public void initialize(URL url, ResourceBundle rb) {
+        ingredientNameColumn.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getName()));
+        ingredientUnitColumn.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getUnit()));
+        ingredientStockColumn.setCellValueFactory(cell -> new SimpleStringProperty(amountFormat.format(cell.getValue().getStock())));
+        ingredientsTable.setItems(ingredients);
+
+        lineIngredientColumn.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().ingredient.toString()));
+        lineQuantityColumn.setCellValueFactory(cell -> new SimpleObjectProperty<>(cell.getValue().quantity));
+        recipeTable.setItems(lines);
+        recipeTable.getSelectionModel().selectedItemProperty().addListener((observable, oldLine, line) -> {
+            if (line != null) {
+                lineIngredientComboBox.setValue(line.ingredient);
+                lineQuantityField.setText(amountFormat.format(line.quantity));
+            }
+        });
+
+        lineIngredientComboBox.setItems(ingredients);
+        productComboBox.setConverter(new javafx.util.StringConverter<>() {
+            @Override
+            public String toString(Product product) {
+                return product == null ? "" : product.getName() + " (" + product.getCategory() + ")";
+            }
+
+            @Override
+            public Product fromString(String text) {
+                return null;
+            }
+        });
+        productComboBox.valueProperty().addListener((observable, oldProduct, product) -> loadRecipe(product));
+
+        loadIngredients();
+        loadProducts();
+    }
+
+    @FXML
+    private void handleAddIngredient() {
+        String name = ingredientNameField.getText().trim();
+        String unit = ingredientUnitField.getText().trim();
+        if (name.isEmpty() || unit.isEmpty()) {
+            showAlert("Add Ingredient", "Enter a name and the unit it is counted in (g, ml, pcs).", Alert.AlertType.WARNING);
+            return;
+        }
+        Double stock = amountField.getText().trim().isEmpty() ? Double.valueOf(0) : parseAmount(amountField, "Amount");
+        if (stock == null) {
+            return;
+        }
+        try {
+            RecipeBook.getInstance().addIngredient(name, unit, stock);
+            ingredientNameField.clear();
+            ingredientUnitField.clear();
+            amountField.clear();
+            loadIngredients();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            showAlert("Add Ingredient", "Could not add the ingredient: " + e.getMessage(), Alert.AlertType.ERROR);
+        }
+    }
+
+    @FXML
+    private void handleReceive() {
+        RecipeBook.Ingredient ingredient = ingredientsTable.getSelectionModel().getSelectedItem();
+        if (ingredient == null) {
+            showAlert("Receive", "Select an ingredient first.", Alert.AlertType.WARNING);
+            return;
+        }
+        Double amount = parseAmount(amountField, "Amount");
+        if (amount == null || amount == 0) {
+            return;
+        }
+        try {
+            RecipeBook.getInstance().receive(ingredient.getId(), amount);
+            amountField.clear();
+            loadIngredients();
+            refreshMakes();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            showAlert("Receive", "Could not update the stock: " + e.getMessage(), Alert.AlertType.ERROR);
+        }
+    }
+
+    // Adds the line, or changes its quantity if the ingredient is already in the recipe
+    @FXML
+    private void handleSetLine() {
+        RecipeBook.Ingredient ingredient = lineIngredientComboBox.getValue();
+        if (productComboBox.getValue() == null || ingredient == null) {
+            showAlert("Recipe", "Pick a product and an ingredient.", Alert.AlertType.WARNING);
+            return;
+        }
+        Double quantity = parseAmount(lineQuantityField, "Quantity");
+        if (quantity == null) {
+            return;
+        }
+        if (quantity <= 0) {
+            showAlert("Recipe", "The quantity per unit sold must be more than 0.", Alert.AlertType.WARNING);
+            return;
+        }
+        lines.removeIf(line -> line.ingredient.getId() == ingredient.getId());
+        lines.add(new Line(ingredient, quantity));
+        lineQuantityField.clear();
+    }
+
+    @FXML
+    private void handleRemoveLine() {
+        Line line = recipeTable.getSelectionModel().getSelectedItem();
+        if (line != null) {
+            lines.remove(line);
+        }
+    }
+
+    @FXML
+    private void handleSaveRecipe() {
+        Product product = productComboBox.getValue();
+        if (product == null) {
+            return;
+        }
+        Map<Integer, Double> recipe = new LinkedHashMap<>();
+        for (Line line : lines) {
+            recipe.put(line.ingredient.getId(), line.quantity);
+        }
+        try {
+            RecipeBook.getInstance().saveRecipe(product.getId(), recipe);
+            refreshMakes();
+            showAlert("Recipe Saved", recipe.isEmpty()
+                ? product.getName() + " keeps its own stock count again."
+                : product.getName() + " now sells from its ingredients.", Alert.AlertType.INFORMATION);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            showAlert("Recipe", "Could not save the recipe: " + e.getMessage(), Alert.AlertType.ERROR);
+        }
+    }
+
+    @FXML
+    private void handleClose() {
+        ((Stage) closeButton.getScene().getWindow()).close();
+    }
+
+    private void loadIngredients() {
+        try {
+            ingredients.setAll(RecipeBook.getInstance().ingredients());
+        } catch (SQLException e) {
+            e.printStackTrace();
+            showAlert("Ingredients", "Could not load ingredients: " + e.getMessage(), Alert.AlertType.ERROR);
+        }
+    }
+
+    private void loadProducts() {
+        ObservableList<Product> products = FXCollections.observableArrayList();
+        try (Connection connection = SqliteConnection.Connector();
+             PreparedStatement statement = connection.prepareStatement(SELECT_PRODUCTS);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                Product product = new Product();
+                product.setId(resultSet.getInt("id"));
+                product.setName(resultSet.getString("name"));
+                product.setCategory(resultSet.getString("category"));
+                product.setStock(resultSet.getInt("stock"));
+                products.add(product);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            showAlert("Ingredients", "Could not load products: " + e.getMessage(), Alert.AlertType.ERROR);
+        }
+        productComboBox.setItems(products);
+    }
+
+    private void loadRecipe(Product product) {
+        lines.clear();
+        if (product == null) {
+            return;
+        }
+        try {
+            Map<Integer, RecipeBook.Ingredient> byId = new LinkedHashMap<>();
+            for (RecipeBook.Ingredient ingredient : ingredients) {
+                byId.put(ingredient.getId(), ingredient);
+            }
+            for (Map.Entry<Integer, Double> line : RecipeBook.getInstance().recipeOf(product.getId()).entrySet()) {
+                RecipeBook.Ingredient ingredient = byId.get(line.getKey());
+                if (ingredient != null) {
+                    lines.add(new Line(ingredient, line.getValue()));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            showAlert("Recipe", "Could not load the recipe: " + e.getMessage(), Alert.AlertType.ERROR);
+        }
+        showMakes(product);
+    }
+
+    // Re-reads the selected product's stock after ingredients or its recipe changed
+    private void refreshMakes() {
+        Product selected = productComboBox.getValue();
+        if (selected == null) {
+            return;
+        }
+        try (Connection connection = SqliteConnection.Connector();
+             PreparedStatement statement = connection.prepareStatement("SELECT stock FROM products WHERE id = ?")) {
+            statement.setInt(1, selected.getId());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    selected.setStock(resultSet.getInt("stock"));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Could not read product stock: " + e.getMessage());
+        }
+        showMakes(selected);
+    }
+
+    private void showMakes(Product product) {
+        if (RecipeBook.getInstance().hasRecipe(product.getId())) {
+            makesLabel.setText("The ingredients on hand make " + product.getStock() + " of " + product.getName() + ".");
+        } else {
+            makesLabel.setText(product.getName() + " has no recipe and keeps its own stock count (" + product.getStock() + ").");
+        }
+    }
+
+    private Double parseAmount(TextField field, String what) {
+        try {
+            return Double.parseDouble(field.getText().trim());
+        } catch (NumberFormatException e) {
+            showAlert("Invalid " + what, what + " must be a number.", Alert.AlertType.WARNING);
+            return null;
+        }
+    }
+
+    private void showAlert(String title, String message, Alert.AlertType type) {
+        Alert alert = new Alert(type);
+        if (closeButton.getScene() != null) {
+            alert.initOwner(closeButton.getScene().getWindow());
+        }
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+
+    // One line of the recipe being edited
+    public static final class Line {
+        private final RecipeBook.Ingredient ingredient;
+        private final double quantity;
+
+        Line(RecipeBook.Ingredient ingredient, double quantity) {
+            this.ingredient = ingredient;
+            this.quantity = quantity;
+        }
+    }
+}
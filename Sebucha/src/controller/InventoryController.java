@@ -1,6 +1,7 @@
 package controller;
 
 import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -15,8 +16,16 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import model.CatalogTransfer;
+import model.DataVersions;
+import model.Metrics;
+import model.ManagedView;
+import model.SceneManager;
 import model.Product;
+import model.ProductCatalog;
+import model.ProductSearchIndex;
 import model.SqliteConnection;
+import model.StockForecast;
 import model.InventoryIdGenerator;
 
 import java.io.File;
@@ -26,6 +35,7 @@ import java.sql.*;
 import java.text.DecimalFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
@@ -34,7 +44,7 @@ import java.util.ResourceBundle;
 //Controls the Inventory screen: loads products, formats the table, and
 //handles add/update/delete actions, image selection, and page navigation.
  
-public class InventoryController implements Initializable {
+public class InventoryController implements Initializable, ManagedView {
     
     // Navigation buttons
     @FXML private Button dashboardbutton;
@@ -43,6 +53,10 @@ public class InventoryController implements Initializable {
     @FXML private Button recentorderbutton;
     @FXML private Button logoutbutton;
     @FXML private Button refreshButton;
+    @FXML private Button reorderButton;
+    @FXML private Button ingredientsButton;
+    @FXML private Button importButton;
+    @FXML private Button exportButton;
     
     // Form fields
     @FXML private TextField productIdField;
@@ -73,12 +87,11 @@ public class InventoryController implements Initializable {
     @FXML private TableColumn<Product, String> dateColumn;
     @FXML private TableColumn<Product, String> actionsColumn;
     
-    // Database connection
-    private Connection connection;
-    
     // Data
     private ObservableList<Product> productsList = FXCollections.observableArrayList();
+    private long loadedProductsVersion = -1;
     private DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
+    private List<StockForecast.Reorder> reorders = List.of();
     private String selectedImagePath = "";
     private Product selectedProduct = null;
     
@@ -87,9 +100,6 @@ public class InventoryController implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        // Initialize database connection
-        connection = SqliteConnection.Connector();
-        
         // Setup combo boxes
         setupComboBoxes();
         
@@ -214,40 +224,42 @@ public class InventoryController implements Initializable {
     @FXML
     private void handleAddProduct(ActionEvent event) {
         if (validateForm()) {
-            String sql = "INSERT INTO products (id, name, category, price, stock, status, image_path, date_added) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-            
-            PreparedStatement prepare = null;
             try {
-                prepare = connection.prepareStatement(sql);
+                Product product = new Product(
+                    0,
+                    productNameField.getText().trim(),
+                    categoryComboBox.getValue(),
+                    Double.parseDouble(priceField.getText().trim()),
+                    Integer.parseInt(stockField.getText().trim()),
+                    statusComboBox.getValue(),
+                    selectedImagePath != null ? selectedImagePath : "",
+                    LocalDateTime.now()
+                );
                 
-                // Generate a numeric ID for the database (the table display will format it with category code)
-                int numericId = InventoryIdGenerator.generateIdForCategory(connection, categoryComboBox.getValue());
+                // The catalog picks a numeric ID for the category (the table display formats it with the category code)
+                int numericId = ProductCatalog.getInstance().addProduct(product);
                 
-                prepare.setInt(1, numericId);
-                prepare.setString(2, productNameField.getText().trim());
-                prepare.setString(3, categoryComboBox.getValue());
-                prepare.setDouble(4, Double.parseDouble(priceField.getText().trim()));
-                prepare.setInt(5, Integer.parseInt(stockField.getText().trim()));
-                prepare.setString(6, statusComboBox.getValue());
-                prepare.setString(7, selectedImagePath != null ? selectedImagePath : "");
+                // Keep the Order page search index in step with the new product
+                ProductSearchIndex.getInstance().put(new Product(
+                    numericId,
+                    product.getName(),
+                    product.getCategory(),
+                    product.getPrice(),
+                    product.getStock(),
+                    product.getStatus(),
+                    product.getImagePath(),
+                    product.getDateAdded()
+                ));
                 
-                long currentTimestamp = System.currentTimeMillis() / 1000;
-                prepare.setLong(8, currentTimestamp);
+                showAlert("Success", "Product added successfully!", Alert.AlertType.INFORMATION);
+                clearForm();
                 
-                int result = prepare.executeUpdate();
-                if (result > 0) {
-                    showAlert("Success", "Product added successfully!", Alert.AlertType.INFORMATION);
-                    clearForm();
-                    
-                    // Force refresh the table data
-                    Platform.runLater(() -> {
-                        loadProducts();
-                        productsTable.refresh();
-                        System.out.println("Table refreshed after adding product");
-                    });
-                } else {
-                    showAlert("Error", "Failed to add product!", Alert.AlertType.ERROR);
-                }
+                // Force refresh the table data
+                Platform.runLater(() -> {
+                    loadProducts();
+                    productsTable.refresh();
+                    System.out.println("Table refreshed after adding product");
+                });
                 
             } catch (SQLException e) {
                 System.err.println("SQL Error in handleAddProduct: " + e.getMessage());
@@ -255,15 +267,6 @@ public class InventoryController implements Initializable {
                 showAlert("Database Error", "Error adding product: " + e.getMessage(), Alert.AlertType.ERROR);
             } catch (NumberFormatException e) {
                 showAlert("Input Error", "Please enter valid numbers for price and stock!", Alert.AlertType.ERROR);
-            } finally {
-                // Always close PreparedStatement
-                if (prepare != null) {
-                    try {
-                        prepare.close();
-                    } catch (SQLException e) {
-                        System.err.println("Error closing PreparedStatement: " + e.getMessage());
-                    }
-                }
             }
         }
     }
@@ -277,21 +280,21 @@ public class InventoryController implements Initializable {
         }
         
         if (validateForm()) {
-            String sql = "UPDATE products SET name=?, category=?, price=?, stock=?, status=?, image_path=? WHERE id=?";
-            
-            PreparedStatement prepare = null;
             try {
-                prepare = connection.prepareStatement(sql);
-                prepare.setString(1, productNameField.getText());
-                prepare.setString(2, categoryComboBox.getValue());
-                prepare.setDouble(3, Double.parseDouble(priceField.getText()));
-                prepare.setInt(4, Integer.parseInt(stockField.getText()));
-                prepare.setString(5, statusComboBox.getValue());
-                prepare.setString(6, selectedImagePath);
-                prepare.setInt(7, selectedProduct.getId());
+                Product product = new Product(
+                    selectedProduct.getId(),
+                    productNameField.getText(),
+                    categoryComboBox.getValue(),
+                    Double.parseDouble(priceField.getText()),
+                    Integer.parseInt(stockField.getText()),
+                    statusComboBox.getValue(),
+                    selectedImagePath,
+                    selectedProduct.getDateAdded()
+                );
                 
-                int result = prepare.executeUpdate();
-                if (result > 0) {
+                if (ProductCatalog.getInstance().updateProduct(product)) {
+                    ProductSearchIndex.getInstance().put(product);
+                    
                     showAlert("Success", "Product updated successfully!", Alert.AlertType.INFORMATION);
                     clearForm();
                     loadProducts();
@@ -303,15 +306,6 @@ public class InventoryController implements Initializable {
                 showAlert("Database Error", "Error updating product: " + e.getMessage(), Alert.AlertType.ERROR);
             } catch (NumberFormatException e) {
                 showAlert("Input Error", "Please enter valid numbers for price and stock!", Alert.AlertType.ERROR);
-            } finally {
-           
-                if (prepare != null) {
-                    try {
-                        prepare.close();
-                    } catch (SQLException e) {
-                        System.err.println("Error closing PreparedStatement: " + e.getMessage());
-                    }
-                }
             }
         }
     }
@@ -331,15 +325,9 @@ public class InventoryController implements Initializable {
         
         Optional<ButtonType> result = confirmAlert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            String sql = "DELETE FROM products WHERE id=?";
-            
-            PreparedStatement prepare = null;
             try {
-                prepare = connection.prepareStatement(sql);
-                prepare.setInt(1, selectedProduct.getId());
-                
-                int deleteResult = prepare.executeUpdate();
-                if (deleteResult > 0) {
+                if (ProductCatalog.getInstance().deleteProduct(selectedProduct.getId())) {
+                    ProductSearchIndex.getInstance().remove(selectedProduct.getId());
                     showAlert("Success", "Product deleted successfully!", Alert.AlertType.INFORMATION);
                     clearForm();
                     loadProducts();
@@ -349,15 +337,6 @@ public class InventoryController implements Initializable {
                 
             } catch (SQLException e) {
                 showAlert("Database Error", "Error deleting product: " + e.getMessage(), Alert.AlertType.ERROR);
-            } finally {
-                // Always close PreparedStatement
-                if (prepare != null) {
-                    try {
-                        prepare.close();
-                    } catch (SQLException e) {
-                        System.err.println("Error closing PreparedStatement: " + e.getMessage());
-                    }
-                }
             }
         }
     }
@@ -417,9 +396,13 @@ public class InventoryController implements Initializable {
             String selectedCategory = categoryComboBox.getValue();
             if (selectedCategory != null && !selectedCategory.isEmpty()) {
                 // Generate category-based ID and display it in the productIdField
-                String generatedId = InventoryIdGenerator.generateCategoryIdString(connection, selectedCategory);
-                productIdField.setText(generatedId);
-                System.out.println("Generated ID for " + selectedCategory + ": " + generatedId);
+                try (Connection connection = SqliteConnection.Connector()) {
+                    String generatedId = InventoryIdGenerator.generateCategoryIdString(connection, selectedCategory);
+                    productIdField.setText(generatedId);
+                    System.out.println("Generated ID for " + selectedCategory + ": " + generatedId);
+                } catch (SQLException e) {
+                    System.err.println("Could not generate an ID for " + selectedCategory + ": " + e.getMessage());
+                }
             }
         });
         
@@ -766,17 +749,20 @@ public class InventoryController implements Initializable {
     
     /** Loads products from DB into the table's backing list and refreshes the view. */
     private void loadProducts() {
+        loadedProductsVersion = DataVersions.getProductsVersion();
         productsList.clear();
         String sql = "SELECT * FROM products ORDER BY id DESC";
         
+        Connection connection = null;
         PreparedStatement prepare = null;
         ResultSet result = null;
         
+        long started = System.nanoTime();
         try {
+            connection = SqliteConnection.Connector();
             prepare = connection.prepareStatement(sql);
             result = prepare.executeQuery();
             
-            int count = 0;
             while (result.next()) {
                 // Convert Unix timestamp to LocalDateTime
                 long unixTimestamp = result.getLong("date_added");
@@ -796,15 +782,12 @@ public class InventoryController implements Initializable {
                     dateAdded
                 );
                 productsList.add(product);
-                count++;
-                System.out.println("Loaded product: " + product.getName()); 
             }
             
-            System.out.println("Total products loaded: " + count); 
-            System.out.println("ProductsList size: " + productsList.size()); 
-            
             // Refresh the table view
             productsTable.refresh();
+            loadReorders();
+            Metrics.recordSince("inventory_load", started);
             
         } catch (SQLException e) {
             System.err.println("SQL Error in loadProducts: " + e.getMessage());
@@ -826,7 +809,49 @@ public class InventoryController implements Initializable {
                     System.err.println("Error closing PreparedStatement: " + e.getMessage());
                 }
             }
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing Connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /* Reorder alerts raised by the stock forecast; the button shows only while there are some. */
+    private void loadReorders() {
+        try (Connection connection = SqliteConnection.Connector()) {
+            reorders = StockForecast.reorders(connection);
+        } catch (SQLException e) {
+            System.err.println("Could not load reorder alerts: " + e.getMessage());
+            reorders = List.of();
+        }
+        reorderButton.setText("Reorder (" + reorders.size() + ")");
+        reorderButton.setVisible(!reorders.isEmpty());
+    }
+    
+    /* Lists the products running out at their current pace. */
+    @FXML
+    private void handleReorderButton(ActionEvent event) {
+        StringBuilder text = new StringBuilder();
+        for (StockForecast.Reorder reorder : reorders) {
+            text.append(reorder.getName()).append(": ").append(reorder.getStock()).append(" left");
+            if (reorder.getUnitsPerHour() > 0) {
+                text.append(String.format(", selling %.1f an hour, about %.1f selling hours to go",
+                    reorder.getUnitsPerHour(), reorder.getHoursLeft()));
+            }
+            text.append('\n');
         }
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Reorder");
+        alert.setHeaderText(reorders.size() + " product(s) to reorder");
+        TextArea list = new TextArea(text.toString());
+        list.setEditable(false);
+        list.setWrapText(true);
+        list.setPrefSize(520, 260);
+        alert.getDialogPane().setContent(list);
+        alert.showAndWait();
     }
     
     /** Copies selected product to the form, formats its ID, and previews its image. */
@@ -947,6 +972,14 @@ public class InventoryController implements Initializable {
         productsTable.getSelectionModel().clearSelection();
     }
     
+    /* The page is cached; reload only if products changed since it was last shown. */
+    @Override
+    public void onShow() {
+        if (loadedProductsVersion != DataVersions.getProductsVersion()) {
+            loadProducts();
+        }
+    }
+    
     /* Convenience wrapper to reload products. */
     private void refreshProducts() {
         loadProducts();
@@ -983,20 +1016,116 @@ public class InventoryController implements Initializable {
         }
     }
     
+    /* Opens ingredients and recipes; stock of products with a recipe follows from them */
+    @FXML
+    private void handleIngredientsButton(ActionEvent event) {
+        try {
+            Parent root = FXMLLoader.load(getClass().getResource("/view/fxml/Ingredients.fxml"));
+            Stage stage = new Stage();
+            stage.setTitle("Ingredients and Recipes");
+            stage.setScene(new Scene(root));
+            stage.setResizable(false);
+            stage.initOwner(inventorybutton.getScene().getWindow());
+            stage.initModality(javafx.stage.Modality.WINDOW_MODAL);
+            stage.centerOnScreen();
+            stage.showAndWait();
+            onShow();
+        } catch (IOException e) {
+            showAlert("Error", "Could not open ingredients: " + e.getMessage(), Alert.AlertType.ERROR);
+            e.printStackTrace();
+        }
+    }
+    
+    /* Adds and updates products from a CSV, JSON or ZIP catalog in one go. */
+    @FXML
+    private void handleImportButton(ActionEvent event) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Import Catalog");
+        fileChooser.getExtensionFilters().add(
+            new FileChooser.ExtensionFilter("Catalog (CSV, JSON, ZIP with photos)", "*.csv", "*.json", "*.zip"));
+        File file = fileChooser.showOpenDialog(importButton.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        
+        Task<CatalogTransfer.Result> task = new Task<>() {
+            @Override
+            protected CatalogTransfer.Result call() throws Exception {
+                return CatalogTransfer.importCatalog(file.toPath());
+            }
+        };
+        runCatalogTask(task, "catalog-import", () -> {
+            CatalogTransfer.Result result = task.getValue();
+            if (result.isSuccess()) {
+                showAlert("Import Catalog", result.getSummary(), Alert.AlertType.INFORMATION);
+                loadProducts();
+            } else {
+                showAlert("Import Catalog", result.getErrorReport(), Alert.AlertType.WARNING);
+            }
+        });
+    }
+    
+    /* Saves the whole catalog; a ZIP also carries the product photos. */
+    @FXML
+    private void handleExportButton(ActionEvent event) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export Catalog");
+        fileChooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("ZIP with photos", "*.zip"),
+            new FileChooser.ExtensionFilter("CSV", "*.csv"),
+            new FileChooser.ExtensionFilter("JSON", "*.json"));
+        fileChooser.setInitialFileName("catalog_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
+        File chosen = fileChooser.showSaveDialog(exportButton.getScene().getWindow());
+        if (chosen == null) {
+            return;
+        }
+        String name = chosen.getName().toLowerCase();
+        if (!name.endsWith(".zip") && !name.endsWith(".csv") && !name.endsWith(".json")) {
+            String extension = fileChooser.getSelectedExtensionFilter().getExtensions().get(0).substring(1);
+            chosen = new File(chosen.getParentFile(), chosen.getName() + extension);
+        }
+        File file = chosen;
+        
+        Task<Integer> task = new Task<>() {
+            @Override
+            protected Integer call() throws Exception {
+                return CatalogTransfer.exportCatalog(file.toPath());
+            }
+        };
+        runCatalogTask(task, "catalog-export", () ->
+            showAlert("Export Catalog", task.getValue() + " products exported to: " + file.getAbsolutePath(), Alert.AlertType.INFORMATION));
+    }
+    
+    /* Runs an import or export off the FX thread with both buttons disabled. */
+    private void runCatalogTask(Task<?> task, String threadName, Runnable onDone) {
+        importButton.setDisable(true);
+        exportButton.setDisable(true);
+        task.setOnSucceeded(done -> {
+            importButton.setDisable(false);
+            exportButton.setDisable(false);
+            onDone.run();
+        });
+        task.setOnFailed(failed -> {
+            importButton.setDisable(false);
+            exportButton.setDisable(false);
+            task.getException().printStackTrace();
+            showAlert("Catalog", "Failed: " + task.getException().getMessage(), Alert.AlertType.ERROR);
+        });
+        Thread thread = new Thread(task, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
     /* Public method to refresh the table - called by popup controller */
     public void refreshTable() {
         loadProducts();
     }
     
     // Utility methods
-    /* Loads another FXML view into the current stage. */
+    /* Switches the current stage to another (cached) view. */
     private void loadScene(ActionEvent event, String fxmlPath) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource(fxmlPath));
         Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-        Scene scene = new Scene(root);
-        stage.setTitle("Sebucha Order Management System");
-        stage.setScene(scene);
-        stage.show();
+        SceneManager.getInstance().show(stage, fxmlPath);
     }
     
     /* Shows an alert with title/message/type. */
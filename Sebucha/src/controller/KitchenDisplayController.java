@@ -0,0 +1,208 @@
+package controller;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.geometry.Insets;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.layout.FlowPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import model.KitchenQueue;
+import model.OrderItem;
+import model.OrderItemModifier;
+
+import java.net.URL;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+/*
+ * Kitchen/barista screen: one card per open order, most urgent first, with how
+ * long it has been waiting. Complete (or Bump Oldest / Enter) marks the order
+ * done without waiting for the database. Cards are kept per order and reused, so
+ * a push only adds or removes the cards that changed.
+ */
+public class KitchenDisplayController implements Initializable {
+
+    // Waiting longer than these turns the timer amber, then red
+    private static final long WARN_SECONDS = 5 * 60;
+    private static final long LATE_SECONDS = 10 * 60;
+
+    private static final String CARD_STYLE =
+        "-fx-background-color: white; -fx-background-radius: 12; -fx-padding: 12; " +
+        "-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.15), 8, 0, 0, 2);";
+    private static final String RUSHED_STYLE = CARD_STYLE + " -fx-border-color: #DC2626; -fx-border-width: 3; -fx-border-radius: 12;";
+    private static final String BUTTON_STYLE =
+        "-fx-background-color: linear-gradient(to bottom, #EEEEEE, #E0E0E0); -fx-background-radius: 10; -fx-cursor: hand; -fx-font-weight: bold;";
+
+    @FXML private Label countLabel;
+    @FXML private FlowPane ticketPane;
+    @FXML private Button bumpButton;
+    @FXML private Button closeButton;
+
+    private final Map<String, Card> cards = new HashMap<>();
+    private final KitchenQueue.Listener queueListener = tickets -> Platform.runLater(() -> show(tickets));
+    private final Timeline clock = new Timeline(new KeyFrame(Duration.seconds(1), event -> updateTimers()));
+    private List<KitchenQueue.Ticket> shown = new ArrayList<>();
+
+    @Override
+    public void initialize(URL url, ResourceBundle rb) {
+        bumpButton.setDisable(true);
+        KitchenQueue.getInstance().addListener(queueListener);
+        clock.setCycleCount(Timeline.INDEFINITE);
+        clock.play();
+    }
+
+    // Called by the opener so the queue and clock stop with the window
+    public void setStage(Stage stage) {
+        stage.setOnHidden(event -> {
+            clock.stop();
+            KitchenQueue.getInstance().removeListener(queueListener);
+        });
+    }
+
+    // Completes the ticket at the front of the queue
+    @FXML
+    private void handleBump() {
+        if (!shown.isEmpty()) {
+            complete(shown.get(0));
+        }
+    }
+
+    @FXML
+    private void handleClose() {
+        ((Stage) closeButton.getScene().getWindow()).close();
+    }
+
+    private void show(List<KitchenQueue.Ticket> tickets) {
+        shown = tickets;
+        Set<String> open = new HashSet<>();
+        List<VBox> nodes = new ArrayList<>(tickets.size());
+        for (KitchenQueue.Ticket ticket : tickets) {
+            open.add(ticket.getOrderId());
+            Card card = cards.computeIfAbsent(ticket.getOrderId(), id -> new Card(ticket));
+            card.setRushed(ticket.isRushed());
+            nodes.add(card.root);
+        }
+        cards.keySet().removeIf(orderId -> !open.contains(orderId));
+        ticketPane.getChildren().setAll(nodes);
+
+        bumpButton.setDisable(tickets.isEmpty());
+        countLabel.setText(tickets.isEmpty() ? "No open orders"
+            : tickets.size() + (tickets.size() == 1 ? " open order" : " open orders"));
+        updateTimers();
+    }
+
+    private void updateTimers() {
+        LocalDateTime now = LocalDateTime.now();
+        for (Card card : cards.values()) {
+            card.updateTimer(now);
+        }
+    }
+
+    private void complete(KitchenQueue.Ticket ticket) {
+        Card card = cards.get(ticket.getOrderId());
+        if (card != null) {
+            card.completeButton.setDisable(true);
+        }
+        KitchenQueue.getInstance().complete(ticket.getOrderId()).whenComplete((updated, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                error.printStackTrace();
+                showAlert("Complete Failed", "Order #" + ticket.getOrderId() + " could not be completed: " + error.getMessage(),
+                    Alert.AlertType.ERROR);
+            } else if (!updated) {
+                showAlert("Order Closed", "Order #" + ticket.getOrderId() + " was already cancelled or removed.",
+                    Alert.AlertType.INFORMATION);
+            }
+        }));
+    }
+
+    private void showAlert(String title, String message, Alert.AlertType type) {
+        Alert alert = new Alert(type);
+        alert.initOwner(closeButton.getScene().getWindow());
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.show();
+    }
+
+    private static String elapsedText(long seconds) {
+        if (seconds >= 3600) {
+            return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        }
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    // The card for one ticket; its lines never change, only the timer and rush mark
+    private class Card {
+        private final KitchenQueue.Ticket ticket;
+        private final VBox root = new VBox(6);
+        private final Label timerLabel = new Label();
+        private final Button completeButton = new Button("Complete");
+        private final Button rushButton = new Button("Rush");
+
+        Card(KitchenQueue.Ticket ticket) {
+            this.ticket = ticket;
+
+            Label title = new Label("#" + ticket.getOrderId() + "  " + (ticket.getOrderType() == null ? "" : ticket.getOrderType()));
+            title.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: #2C2C2C;");
+            Region spacer = new Region();
+            HBox.setHgrow(spacer, Priority.ALWAYS);
+            timerLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold;");
+            HBox header = new HBox(8, title, spacer, timerLabel);
+
+            Label customer = new Label(ticket.getCustomerName() == null ? "" : ticket.getCustomerName());
+            customer.setStyle("-fx-text-fill: #6B7280;");
+
+            VBox lines = new VBox(2);
+            for (OrderItem item : ticket.getItems()) {
+                Label line = new Label(item.getQuantity() + "x " + item.getProductName());
+                line.setStyle("-fx-font-size: 14px; -fx-font-weight: bold;");
+                lines.getChildren().add(line);
+                for (OrderItemModifier modifier : item.getModifiers()) {
+                    Label addOn = new Label("+ " + (modifier.getQuantity() > 1 ? modifier.getQuantity() + "x " : "") + modifier.getName());
+                    addOn.setPadding(new Insets(0, 0, 0, 16));
+                    lines.getChildren().add(addOn);
+                }
+            }
+
+            rushButton.setStyle(BUTTON_STYLE);
+            rushButton.setOnAction(event -> KitchenQueue.getInstance().toggleRush(ticket.getOrderId()));
+            completeButton.setStyle(BUTTON_STYLE);
+            completeButton.setOnAction(event -> complete(ticket));
+            HBox actions = new HBox(8, rushButton, completeButton);
+            actions.setPadding(new Insets(6, 0, 0, 0));
+
+            root.getChildren().addAll(header, customer, lines, actions);
+            root.setPrefWidth(260);
+            root.setStyle(CARD_STYLE);
+        }
+
+        void setRushed(boolean rushed) {
+            root.setStyle(rushed ? RUSHED_STYLE : CARD_STYLE);
+            rushButton.setText(rushed ? "Unrush" : "Rush");
+        }
+
+        void updateTimer(LocalDateTime now) {
+            long seconds = Math.max(0, java.time.Duration.between(ticket.getPlacedAt(), now).getSeconds());
+            timerLabel.setText(elapsedText(seconds));
+            String color = seconds >= LATE_SECONDS ? "#DC2626" : seconds >= WARN_SECONDS ? "#D97706" : "#15803D";
+            timerLabel.setTextFill(Color.web(color));
+        }
+    }
+}
@@ -1,31 +1,34 @@
 package controller;
 
 import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
 import model.LoginModel;
+import model.ManagedView;
+import model.SceneManager;
+import model.UserSession;
 
 import java.io.IOException;
 import java.net.URL;
-import java.sql.SQLException;
 import java.util.ResourceBundle;
 
 /*
  * Handles the Login page: validates input, checks credentials via LoginModel,
  * and navigates based on user role (admin to Dashboard, staff to Order page).
  */
-public class LoginPageController implements Initializable {
+public class LoginPageController implements Initializable, ManagedView {
     public LoginModel loginmodel = new LoginModel();
     
+    private static final String CHECKING_CONNECTION = "Connecting to database...";
+    
     @FXML
     private Label isConnected;
     
@@ -35,13 +38,12 @@ public class LoginPageController implements Initializable {
     @FXML
     private TextField PasswordField;
     
+    private Paint statusTextFill;
+    
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        if(loginmodel.isDbConnected()) {
-            isConnected.setText("Database is Connected");
-        }else {
-            isConnected.setText("Database is not Connected");
-        }
+        statusTextFill = isConnected.getTextFill();
+        showConnectionStatus();
         
         // Center the login window after UI loads
         Platform.runLater(() -> {
@@ -54,6 +56,45 @@ public class LoginPageController implements Initializable {
         });
     }
     
+    /*
+     * Opening the database (driver load included) is the slowest part of the
+     * first frame, so the check runs in the background and the page shows
+     * straight away. A message the user has triggered since wins.
+     */
+    private void showConnectionStatus() {
+        isConnected.setText(CHECKING_CONNECTION);
+        isConnected.setTextFill(statusTextFill);
+        Task<Boolean> check = new Task<>() {
+            @Override
+            protected Boolean call() {
+                return loginmodel.isDbConnected();
+            }
+        };
+        check.setOnSucceeded(event -> {
+            if (CHECKING_CONNECTION.equals(isConnected.getText())) {
+                isConnected.setText(check.getValue() ? "Database is Connected" : "Database is not Connected");
+            }
+        });
+        Thread thread = new Thread(check, "db-status");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /*
+     * The login page is cached and shown again on logout: end the session and
+     * clear what the previous user typed.
+     */
+    @Override
+    public void onShow() {
+        UserSession.getInstance().clearSession();
+        UsernameField.clear();
+        PasswordField.clear();
+        UsernameField.setStyle("");
+        PasswordField.setStyle("");
+        showConnectionStatus();
+        UsernameField.requestFocus();
+    }
+    
     /*
      * Quick input validation for username and password fields.
      * - Highlights invalid fields and shows a compact error message label.
@@ -98,7 +139,7 @@ public class LoginPageController implements Initializable {
    
     /*
      * Attempts login using the provided credentials.
-     * Validates inputs, calls LoginModel.isLogin, and navigates based on user role:
+     * Validates inputs, calls LoginModel.isLogin on a background thread, and navigates based on user role:
      * - Admin users: Navigate to Dashboard with full access
      * - Staff users: Navigate to Order page with limited access
      */
@@ -114,47 +155,20 @@ public class LoginPageController implements Initializable {
         UsernameField.setStyle("");
         PasswordField.setStyle("");
         
-        try {
-            if(loginmodel.isLogin(username.trim(), password)) {
-                // Navigate based on user role
-                try {
-                    String fxmlPath;
-                    String windowTitle;
-                    
-                    if (loginmodel.isAdmin()) {
-                        // Admin gets full access to Dashboard
-                        fxmlPath = "/view/fxml/Dashboard.fxml";
-                        windowTitle = "Sebucha Order Management System";
-                    } else if (loginmodel.isStaff()) {
-                        // Staff gets limited access to Order page only
-                        fxmlPath = "/view/fxml/Order.fxml";
-                        windowTitle = "Sebucha Order Management System";
-                    } else {
-                        // Default for any other roles
-                        fxmlPath = "/view/fxml/Order.fxml";
-                        windowTitle = "Sebucha Order Management System";
-                    }
-                    
-                    FXMLLoader loader = new FXMLLoader(getClass().getResource(fxmlPath));
-                    Parent root = loader.load();
-                    
-                    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-                    Scene scene = new Scene(root); 
-                    stage.setScene(scene);
-                    stage.setTitle(windowTitle);
-                    stage.setResizable(false); 
-                    stage.show();
-                    
-                    // Display success message with role info
-                    System.out.println("Login successful - User: " + loginmodel.getCurrentUsername() + 
-                                     ", Role: " + loginmodel.getCurrentUserRole());
-                    
-                } catch (IOException e) {
-                    isConnected.setText("Error loading application. Please try again.");
-                    isConnected.setTextFill(Color.RED);
-                    e.printStackTrace();
-                }
-                
+        // Password hashing takes a moment, so check the credentials in the background
+        Node source = (Node) event.getSource();
+        Task<Boolean> loginTask = new Task<Boolean>() {
+            @Override
+            protected Boolean call() throws Exception {
+                return loginmodel.isLogin(username.trim(), password);
+            }
+        };
+        
+        setLoginInProgress(source, true);
+        loginTask.setOnSucceeded(e -> {
+            setLoginInProgress(source, false);
+            if (loginTask.getValue()) {
+                openHomePage(source);
             } else {
                 isConnected.setText("Username and Password is not correct");
                 isConnected.setTextFill(Color.RED);
@@ -162,9 +176,61 @@ public class LoginPageController implements Initializable {
                 UsernameField.setStyle("-fx-border-color: red; -fx-border-width: 1px;");
                 PasswordField.setStyle("-fx-border-color: red; -fx-border-width: 1px;");
             }
-        } catch (SQLException e) {
+        });
+        loginTask.setOnFailed(e -> {
+            setLoginInProgress(source, false);
             isConnected.setText("Database connection error. Please try again later.");
             isConnected.setTextFill(Color.RED);
+            loginTask.getException().printStackTrace();
+        });
+        
+        Thread loginThread = new Thread(loginTask, "login");
+        loginThread.setDaemon(true);
+        loginThread.start();
+    }
+    
+    // Locks the form while credentials are being checked
+    private void setLoginInProgress(Node source, boolean inProgress) {
+        UsernameField.setDisable(inProgress);
+        PasswordField.setDisable(inProgress);
+        source.setDisable(inProgress);
+        if (inProgress) {
+            isConnected.setText("Signing in...");
+            isConnected.setTextFill(Color.GRAY);
+        }
+    }
+    
+    // Navigate based on user role
+    private void openHomePage(Node source) {
+        try {
+            String fxmlPath;
+            String windowTitle;
+            
+            if (loginmodel.isAdmin()) {
+                // Admin gets full access to Dashboard
+                fxmlPath = "/view/fxml/Dashboard.fxml";
+                windowTitle = "Sebucha Order Management System";
+            } else if (loginmodel.isStaff()) {
+                // Staff gets limited access to Order page only
+                fxmlPath = "/view/fxml/Order.fxml";
+                windowTitle = "Sebucha Order Management System";
+            } else {
+                // Default for any other roles
+                fxmlPath = "/view/fxml/Order.fxml";
+                windowTitle = "Sebucha Order Management System";
+            }
+            
+            Stage stage = (Stage) source.getScene().getWindow();
+            stage.setResizable(false); 
+            SceneManager.getInstance().show(stage, fxmlPath, windowTitle);
+            
+            // Display success message with role info
+            System.out.println("Login successful - User: " + loginmodel.getCurrentUsername() + 
+                             ", Role: " + loginmodel.getCurrentUserRole());
+            
+        } catch (IOException e) {
+            isConnected.setText("Error loading application. Please try again.");
+            isConnected.setTextFill(Color.RED);
             e.printStackTrace();
         }
     }
@@ -8,7 +8,6 @@ import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
-import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.FlowPane;
@@ -24,7 +23,9 @@ import java.text.DecimalFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
@@ -34,7 +35,7 @@ import java.util.ResourceBundle;
  //builds product cards, manages a order cart, places orders (saving to DB and
  //updating stock), prints receipts, and handles navigation.
 
-public class OrderController implements Initializable {
+public class OrderController implements Initializable, ManagedView {
 
     // Navigation buttons
     @FXML private Button dashboardbutton;
@@ -49,6 +50,9 @@ public class OrderController implements Initializable {
     @FXML private ComboBox<String> productCategoryFilter;
     @FXML private Button clearFilterButton;
 
+    // Fast entry (product codes / barcode scanner)
+    @FXML private TextField fastEntryField;
+
     // Order Summary Section
     @FXML private TextField customerNameField;
     @FXML private ComboBox<String> orderTypeComboBox;
@@ -71,9 +75,33 @@ public class OrderController implements Initializable {
 
     // Data collections
     private ObservableList<Product> availableProducts = FXCollections.observableArrayList();
-    private ObservableList<OrderItem> shoppingCart = FXCollections.observableArrayList();
+    private final Cart cart = new Cart();
     private DecimalFormat decimalFormat = new DecimalFormat("#0.00");
 
+    // Search index over the catalog and the product cards built for it (by product id)
+    private final ProductSearchIndex searchIndex = ProductSearchIndex.getInstance();
+    private final Map<Integer, Node> productCardNodes = new HashMap<>();
+
+    // What the page last loaded, so a cached page refreshes only what changed
+    private long loadedProductsVersion = -1;
+    private String shownForUser;
+
+    // Sales on other terminals change stock while this page is up
+    private final DataVersions.Listener otherTerminals = (changes, elsewhere) -> {
+        if (elsewhere && (changes & DataVersions.PRODUCTS) != 0) {
+            Platform.runLater(() -> {
+                if (loadedProductsVersion != DataVersions.getProductsVersion()) {
+                    loadAvailableProducts();
+                }
+            });
+        }
+    };
+    private final javafx.scene.input.KeyCodeCombination fastEntryKey =
+        new javafx.scene.input.KeyCodeCombination(javafx.scene.input.KeyCode.F2);
+
+    // Fast-entry code lookup
+    private final ProductCodeIndex codeIndex = new ProductCodeIndex();
+
     
      //Initializes the UI and data bindings for the Order screen.
      //Sets defaults, wires combo boxes and table, loads products, and prepares events
@@ -95,6 +123,10 @@ public class OrderController implements Initializable {
         // Center the window after UI loads (especially important for staff users)
         Platform.runLater(() -> {
             try {
+                // No scene yet when the page is preloaded in the background
+                if (customerNameField.getScene() == null) {
+                    return;
+                }
                 // Get the stage from any FXML component
                 Stage stage = (Stage) customerNameField.getScene().getWindow();
                 if (stage != null) {
@@ -123,131 +155,44 @@ public class OrderController implements Initializable {
      */
     private void applyRoleBasedRestrictions() {
         UserSession session = UserSession.getInstance();
-        if (session.isStaff()) {
-            // Hide/disable navigation buttons for staff users
-            dashboardbutton.setVisible(false);
-            inventorybutton.setVisible(false);
-            recentorderbutton.setVisible(false);
-            
-            // Optionally, you can disable instead of hide
-            // dashboardbutton.setDisable(true);
-            // inventorybutton.setDisable(true);
-            // recentorderbutton.setDisable(true);
-        }
+        // Hide navigation buttons for staff users; the page is reused, so show them again for admins
+        boolean fullAccess = !session.isStaff();
+        dashboardbutton.setVisible(fullAccess);
+        inventorybutton.setVisible(fullAccess);
+        recentorderbutton.setVisible(fullAccess);
+        
+        // Optionally, you can disable instead of hide
+        // dashboardbutton.setDisable(!fullAccess);
+        // inventorybutton.setDisable(!fullAccess);
+        // recentorderbutton.setDisable(!fullAccess);
     }
     
      
       //Persists the current cart as an order and its items, and updates inventory stock
-      //Uses a transaction and rolls back on failure
+      //Goes through OrderService (this PC's database or the order server); returns the new order id, or null if nothing was saved
      
-    private boolean placeOrder() {
-        Connection connection = null;
-        PreparedStatement orderStmt = null;
-        PreparedStatement orderItemsStmt = null;
-        
+    private String placeOrder() {
+        OrderRequest request = new OrderRequest(
+            customerNameField.getText().trim(),
+            orderTypeComboBox.getValue(),
+            paymentMethodComboBox.getValue(),
+            cart.snapshot(),
+            UserSession.getInstance().getUsername()
+        );
         try {
-            connection = SqliteConnection.Connector();
-            connection.setAutoCommit(false);
-            
-            // Get current timestamp for order date and time
-            LocalDateTime now = LocalDateTime.now();
-            String orderDate = now.toLocalDate().toString();
-            String orderTime = now.toLocalTime().toString();
-            
-            // Generate order ID using OrderIdGenerator
-            String orderId = OrderIdGenerator.generateOrderId();
-            
-            // Insert order into orders table
-            String orderSql = "INSERT INTO orders (id, customer_name, order_type, payment_method, order_status, total_amount, order_date, order_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-            orderStmt = connection.prepareStatement(orderSql);
-            
-            orderStmt.setString(1, orderId);
-            orderStmt.setString(2, customerNameField.getText().trim());
-            orderStmt.setString(3, orderTypeComboBox.getValue());
-            orderStmt.setString(4, paymentMethodComboBox.getValue());
-            orderStmt.setString(5, "Pending"); // Default status changed to Pending
-            orderStmt.setDouble(6, shoppingCart.stream().mapToDouble(OrderItem::getTotalPrice).sum());
-            orderStmt.setString(7, orderDate);
-            orderStmt.setString(8, orderTime);
-            
-            orderStmt.executeUpdate();
-            
-            // Insert order items and update stock for both main products and add-ons
-            String orderItemsSql = "INSERT INTO order_items (order_id, product_id, product_name, quantity, unit_price, total_price, customization_details) VALUES (?, ?, ?, ?, ?, ?, ?)";
-            orderItemsStmt = connection.prepareStatement(orderItemsSql);
-            
-            // Update product stock - separate queries for main products and add-ons
-            String updateStockSql = "UPDATE products SET stock = stock - ? WHERE id = ?";
-            String getAddOnIdSql = "SELECT id FROM products WHERE name = ? AND category = 'Add-ons'";
-            
-            try (PreparedStatement updateStockStmt = connection.prepareStatement(updateStockSql);
-                 PreparedStatement getAddOnIdStmt = connection.prepareStatement(getAddOnIdSql)) {
-                
-                for (OrderItem item : shoppingCart) {
-                    // Insert order item
-                    orderItemsStmt.setString(1, orderId);
-                    orderItemsStmt.setInt(2, item.getProductId());
-                    orderItemsStmt.setString(3, item.getProductName());
-                    orderItemsStmt.setInt(4, item.getQuantity());
-                    orderItemsStmt.setDouble(5, item.getUnitPrice());
-                    orderItemsStmt.setDouble(6, item.getTotalPrice());
-                    orderItemsStmt.setString(7, item.getCustomizationDetails());
-                    orderItemsStmt.executeUpdate();
-                    
-                    // Update stock for main product
-                    updateStockStmt.setInt(1, item.getQuantity());
-                    updateStockStmt.setInt(2, item.getProductId());
-                    updateStockStmt.executeUpdate();
-                    
-                    // Check if this item has add-ons and update their stock too
-                    String addOnName = extractAddOnName(item);
-                    if (addOnName != null && !addOnName.equals("None") && !addOnName.isEmpty()) {
-                        // Get the add-on product ID
-                        getAddOnIdStmt.setString(1, addOnName);
-                        ResultSet addOnResult = getAddOnIdStmt.executeQuery();
-                        
-                        if (addOnResult.next()) {
-                            int addOnId = addOnResult.getInt("id");
-                            // Update add-on stock (same quantity as main product)
-                            PreparedStatement updateAddOnStmt = connection.prepareStatement(updateStockSql);
-                            updateAddOnStmt.setInt(1, item.getQuantity());
-                            updateAddOnStmt.setInt(2, addOnId);
-                            updateAddOnStmt.executeUpdate();
-                            updateAddOnStmt.close();
-                            System.out.println("Updated stock for add-on: " + addOnName + " (ID: " + addOnId + ") by quantity: " + item.getQuantity());
-                        } else {
-                            System.out.println("Add-on not found in database: " + addOnName);
-                        }
-                        addOnResult.close();
-                    }
-                }
-            }
-            
-            connection.commit();
-            return true;
-            
+            String orderId = OrderService.getInstance().placeOrder(request);
+            DataVersions.ordersChanged();
+            DataVersions.productsChanged();
+            return orderId;
+        } catch (OutOfStockException e) {
+            // Another till or the API sold it first; nothing was saved and the cart is kept
+            loadAvailableProducts();
+            showAlert(Alert.AlertType.WARNING, "Out of Stock", e.getMessage() + ". Adjust the cart and place the order again.");
+            return null;
         } catch (SQLException e) {
-            if (connection != null) {
-                try {
-                    connection.rollback();
-                } catch (SQLException ex) {
-                    ex.printStackTrace();
-                }
-            }
             showAlert(Alert.AlertType.ERROR, "Database Error", "Failed to save order: " + e.getMessage());
             e.printStackTrace();
-            return false;
-        } finally {
-            try {
-                if (orderStmt != null) orderStmt.close();
-                if (orderItemsStmt != null) orderItemsStmt.close();
-                if (connection != null) {
-                    connection.setAutoCommit(true);
-                    connection.close();
-                }
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+            return null;
         }
     }
 
@@ -339,7 +284,7 @@ public class OrderController implements Initializable {
         });
 
         // Set the data source for the table
-        shoppingCartTable.setItems(shoppingCart);
+        shoppingCartTable.setItems(cart.getLines());
         
         // Enable table selection
         shoppingCartTable.getSelectionModel().setSelectionMode(SelectionMode.SINGLE);
@@ -360,14 +305,16 @@ public class OrderController implements Initializable {
             filterProducts();
         });
 
-        // Shopping cart change listener to update total
-        shoppingCart.addListener((javafx.collections.ListChangeListener.Change<? extends OrderItem> change) -> {
+        // One total/table refresh per cart change (or per batch of changes)
+        cart.addChangeListener(() -> {
             updateOrderTotal();
+            shoppingCartTable.refresh();
         });
     }
 
     // Loads only available, in-stock products from DB and renders product cards
     private void loadAvailableProducts() {
+        loadedProductsVersion = DataVersions.getProductsVersion();
         availableProducts.clear();
         Connection connection = null;
         
@@ -414,6 +361,11 @@ public class OrderController implements Initializable {
                 availableProducts.add(product);
             }
             
+            // Rebuild the search index and its sales ranking from the fresh catalog
+            searchIndex.rebuild(availableProducts);
+            searchIndex.loadSalesVelocity(connection);
+            codeIndex.rebuild(availableProducts);
+            
             // Load product cards into FlowPane
             loadProductCards();
             
@@ -431,27 +383,41 @@ public class OrderController implements Initializable {
 
     // load the product card UI for the current product list.
     private void loadProductCards() {
+        FlightEvents.ProductCards event = new FlightEvents.ProductCards();
+        event.begin();
         productCardsContainer.getChildren().clear();
+        productCardNodes.clear();
         
         for (Product product : availableProducts) {
             // Only show series and food pair categories, exclude Add-ons
             if (shouldDisplayProduct(product)) {
-                try {
-                    FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/fxml/ProductCard.fxml"));
-                    Node productCard = loader.load();
-                    
-                    ProductCardController cardController = loader.getController();
-                    cardController.setProduct(product);
-                    cardController.setOrderController(this);
-                    
+                Node productCard = createProductCard(product);
+                if (productCard != null) {
+                    productCardNodes.put(product.getId(), productCard);
                     productCardsContainer.getChildren().add(productCard);
-                    
-                } catch (IOException e) {
-                    System.err.println("Error loading product card: " + e.getMessage());
-                    e.printStackTrace();
                 }
             }
         }
+        event.cards = productCardNodes.size();
+        event.commit();
+    }
+    
+    // Builds one product card; cards are kept in productCardNodes and reused while filtering
+    private Node createProductCard(Product product) {
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/fxml/ProductCard.fxml"));
+            Node productCard = loader.load();
+            
+            ProductCardController cardController = loader.getController();
+            cardController.setProduct(product);
+            cardController.setOrderController(this);
+            return productCard;
+            
+        } catch (IOException e) {
+            System.err.println("Error loading product card: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
     }
     
     // Returns whether a product should be shown on the Order page
@@ -461,151 +427,111 @@ public class OrderController implements Initializable {
         return category.contains("Series") || category.equals("Food Pair") || category.equals("Hot Drinks");
     }
 
-    // Applies search text and category filter to the visible product cards
+    // Applies search text and category filter to the visible product cards.
+    // Matching goes through the search index (ranked, typo tolerant) and reuses the cached cards.
     private void filterProducts() {
-        String searchText = productSearchField.getText().toLowerCase();
+        String searchText = productSearchField.getText();
         String selectedCategory = productCategoryFilter.getValue();
         
-        productCardsContainer.getChildren().clear();
+        List<Product> candidates = searchText == null || searchText.trim().isEmpty()
+            ? availableProducts
+            : searchIndex.search(searchText, Integer.MAX_VALUE);
         
-        for (Product product : availableProducts) {
-            // Only show series and food pair categories, exclude Add-ons
-            if (!shouldDisplayProduct(product)) {
+        List<Node> visibleCards = new ArrayList<>();
+        for (Product product : candidates) {
+            // Only products with a card (available, displayable) can be shown
+            Node productCard = productCardNodes.get(product.getId());
+            if (productCard == null) {
                 continue;
             }
             
-            boolean matchesSearch = searchText.isEmpty() || 
-                                  product.getName().toLowerCase().contains(searchText) ||
-                                  product.getCategory().toLowerCase().contains(searchText);
-            
             boolean matchesCategory = "All Categories".equals(selectedCategory) || 
                                     product.getCategory().equals(selectedCategory);
             
-            if (matchesSearch && matchesCategory) {
-                try {
-                    FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/fxml/ProductCard.fxml"));
-                    Node productCard = loader.load();
-                    
-                    ProductCardController cardController = loader.getController();
-                    cardController.setProduct(product);
-                    cardController.setOrderController(this);
-                    
-                    productCardsContainer.getChildren().add(productCard);
-                    
-                } catch (IOException e) {
-                    System.err.println("Error loading product card: " + e.getMessage());
-                }
+            if (matchesCategory) {
+                visibleCards.add(productCard);
             }
         }
+        
+        productCardsContainer.getChildren().setAll(visibleCards);
     }
 
     
-     //Adds a product with customization add-on, optionally combining with
-     //existing cart items (e.g., add-ons) and keeping totals in sync.
+     //Adds a product with an optional add-on (null for none), optionally combining
+     //a standalone add-on with an existing cart item and keeping totals in sync.
      
-    public void addEnhancedProductToCart(Product product, int quantity, 
-                                       String selectedAddOn, String customProductName, double totalPrice) {
+    public void addEnhancedProductToCart(Product product, int quantity, Product addOn) {
         
         if (product.getCategory().equals("Add-ons")) {
-            
-            OrderItem compatibleItem = null;
-            for (OrderItem item : shoppingCart) {
-                if (item.canCombineWithAddOns() && item.getQuantity() == quantity) {
-                    compatibleItem = item;
-                    break;
-                }
-            }
-            
+            OrderItem compatibleItem = cart.findCombinable(quantity);
             if (compatibleItem != null) {
-                // Combine with existing compatible item
-                String combinedName = compatibleItem.getProductName();
-                
-                if (product.getCategory().equals("Add-ons")) {
-                    combinedName += " + " + product.getName();
-                }
-                
-                // Update the compatible item
-                compatibleItem.setProductName(combinedName);
-                compatibleItem.setUnitPrice(compatibleItem.getUnitPrice() + product.getPrice());
-                compatibleItem.setTotalPrice(compatibleItem.getQuantity() * compatibleItem.getUnitPrice());
-                
-                // Update customization details
-                String existingDetails = compatibleItem.getCustomizationDetails();
-                String newDetails = existingDetails != null ? existingDetails : "";
-                
-                if (product.getCategory().equals("Add-ons")) {
-                    newDetails += (newDetails.isEmpty() ? "" : ", ") + "Add-on: " + product.getName();
-                }
-               
-                
-                compatibleItem.setCustomizationDetails(newDetails);
-                shoppingCartTable.refresh();
+                cart.attachAddOn(compatibleItem, product);
                 return;
             }
         }
         
-        // Check if the exact same customized product already exists in cart
-        for (OrderItem item : shoppingCart) {
-            if (item.getProductId() == product.getId() && 
-                areCustomizationsEqual(item, selectedAddOn)) {
-                item.setQuantity(item.getQuantity() + quantity);
-                item.setTotalPrice(item.getQuantity() * item.getUnitPrice());
-                shoppingCartTable.refresh();
-                return;
-            }
-        }
-        
-        String customizationDetails = "";
-        if (selectedAddOn != null && !selectedAddOn.equals("None")) {
-            customizationDetails += "Add-on: " + selectedAddOn;
-        }
-        
-        //item to cart
-        OrderItem newItem = new OrderItem(
-            0,
-            product.getId(),
-            customProductName,
-            quantity,
-            totalPrice / quantity, // unit price
-            totalPrice,
-            null, 
-            selectedAddOn,
-            customizationDetails.isEmpty() ? null : customizationDetails,
-            product.getCategory()
-        );
-        
-        shoppingCart.add(newItem);
+        // Merges into the existing line for the same product + add-on, otherwise adds one
+        cart.add(product, quantity, addOn);
+    }
+
+    // Removes an item from the shopping cart 
+    private void removeFromCart(OrderItem item) {
+        cart.remove(item);
     }
     
-    // check if two items share the same customizations
-    private boolean areCustomizationsEqual(OrderItem item, String addOn) {
-        String itemAddOn = item.getAddOn();
-        
-        // Handle null values for add-ons only
-        if (itemAddOn == null) itemAddOn = "None";
-        if (addOn == null) addOn = "None";
+    /*
+     * Fast entry: resolves a typed or scanned line such as "CLA-003 x2 +pearl"
+     * and adds it straight to the cart, bypassing the product cards.
+     */
+    @FXML
+    private void handleFastEntry(ActionEvent event) {
+        String input = fastEntryField.getText();
+        if (input == null || input.trim().isEmpty()) {
+            return;
+        }
         
-        return itemAddOn.equals(addOn);
+        try {
+            ProductCodeIndex.Entry entry = codeIndex.parse(input);
+            Product product = entry.getProduct();
+            Product addOn = entry.getAddOn();
+            
+            checkStockLeft(product, entry.getQuantity());
+            if (addOn != null) {
+                checkStockLeft(addOn, entry.getQuantity());
+            }
+            
+            addEnhancedProductToCart(product, entry.getQuantity(), addOn);
+            
+            fastEntryField.clear();
+            fastEntryField.setStyle("");
+            fastEntryField.setTooltip(null);
+            
+        } catch (IllegalArgumentException e) {
+            // Keep the text so the cashier can fix it; no modal dialog during a rush
+            fastEntryField.setStyle("-fx-border-color: red; -fx-border-width: 2px;");
+            fastEntryField.setTooltip(new Tooltip(e.getMessage()));
+            fastEntryField.selectAll();
+            Metrics.increment("fast_entry_rejected");
+        }
     }
 
-    // Removes an item from the shopping cart 
-    private void removeFromCart(OrderItem item) {
-        shoppingCart.remove(item);
+    // Units already in the cart count against stock too, as they will when the order is placed
+    private void checkStockLeft(Product product, int quantity) {
+        int left = product.getStock() - cart.unitsOf(product.getId());
+        if (quantity > left) {
+            throw new IllegalArgumentException("Only " + Math.max(left, 0) + " more " + product.getName() + " left in stock.");
+        }
     }
 
     // cart total and updates the summary field
     private void updateOrderTotal() {
-        double total = shoppingCart.stream()
-                                 .mapToDouble(OrderItem::getTotalPrice)
-                                 .sum();
-        orderTotalField.setText("₱" + decimalFormat.format(total));
+        orderTotalField.setText("₱" + decimalFormat.format(cart.getTotal()));
     }
 
     // Clears customer info, cart items, and resets selectors to defaults
     private void clearOrderForm() {
         customerNameField.setText("None"); // Set default value to "None"
-        shoppingCart.clear();
-        orderTotalField.setText("₱0.00");
+        cart.clear();
         orderTypeComboBox.setValue("Dine-in");
         paymentMethodComboBox.setValue("Cash");
     }
@@ -614,7 +540,7 @@ public class OrderController implements Initializable {
     // Validates and places the order; automatically generates receipt with optional print dialog
     @FXML
     private void handlePlaceOrder(ActionEvent event) {
-        if (!shoppingCart.isEmpty()) {
+        if (!cart.isEmpty()) {
             // Ensure customer name is set to "None" if empty
             if (customerNameField.getText().trim().isEmpty()) {
                 customerNameField.setText("None");
@@ -624,50 +550,39 @@ public class OrderController implements Initializable {
             String customerName = customerNameField.getText().trim();
             String orderType = orderTypeComboBox.getValue();
             String paymentMethod = paymentMethodComboBox.getValue();
-            double totalAmount = shoppingCart.stream().mapToDouble(OrderItem::getTotalPrice).sum();
-            List<OrderItem> orderItems = new ArrayList<>(shoppingCart);
+            double totalAmount = cart.getTotal();
+            List<OrderItem> orderItems = cart.snapshot();
             
-            if (placeOrder()) {
-                showAlert(Alert.AlertType.INFORMATION, "Success", "Order placed successfully!");
+            String orderId = placeOrder();
+            if (orderId != null) {
+                // Feed the sale into search ranking
+                for (OrderItem item : orderItems) {
+                    searchIndex.recordSale(item.getProductId(), item.getQuantity());
+                }
                 
-                // Generate order ID for receipt
-                String orderId = OrderIdGenerator.generateOrderId();
+                showAlert(Alert.AlertType.INFORMATION, "Success", "Order placed successfully!");
                 
                 // Show receipt generation dialog
                 Alert receiptDialog = new Alert(Alert.AlertType.CONFIRMATION);
                 receiptDialog.setTitle("Generate Receipt");
                 receiptDialog.setHeaderText("Order placed successfully!");
-                receiptDialog.setContentText("Would you like to generate and save a receipt for this order?");
+                receiptDialog.setContentText("Would you like to print a receipt for this order?");
                 
-                ButtonType yesButton = new ButtonType("Yes, Generate Receipt");
+                ButtonType yesButton = new ButtonType("Yes, Print Receipt");
                 ButtonType noButton = new ButtonType("No, Skip Receipt");
                 receiptDialog.getButtonTypes().setAll(yesButton, noButton);
                 
                 Optional<ButtonType> receiptResult = receiptDialog.showAndWait();
                 if (receiptResult.isPresent() && receiptResult.get() == yesButton) {
-                    try {
-                        // Get current stage
-                        Stage currentStage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-                        
-                        // Generate receipt using ReceiptGenerator
-                        boolean receiptSuccess = ReceiptGenerator.generateReceipt(
-                            currentStage, 
-                            orderId,
-                            customerName,
-                            orderType, 
-                            paymentMethod, 
-                            totalAmount, 
-                            orderItems
-                        );
-                        
-                        if (!receiptSuccess) {
-                            showAlert(Alert.AlertType.INFORMATION, "Receipt", "Receipt generation was cancelled or failed.");
-                        }
-                        
-                    } catch (Exception e) {
-                        showAlert(Alert.AlertType.ERROR, "Error", "Could not generate receipt: " + e.getMessage());
-                        e.printStackTrace();
-                    }
+                    // Rendered and printed in the background; problems are reported with an alert
+                    ReceiptGenerator.generateReceipt(
+                        orderId,
+                        customerName,
+                        orderType, 
+                        paymentMethod, 
+                        totalAmount, 
+                        orderItems
+                    );
                 }
                 
                 clearOrderForm();
@@ -694,7 +609,7 @@ public class OrderController implements Initializable {
     //Confirms and empties the shopping cart
     @FXML
     private void handleClearCart(ActionEvent event) {
-        if (!shoppingCart.isEmpty()) {
+        if (!cart.isEmpty()) {
             Alert confirmAlert = new Alert(Alert.AlertType.CONFIRMATION);
             confirmAlert.setTitle("Clear Cart");
             confirmAlert.setHeaderText("Are you sure you want to clear the cart?");
@@ -702,7 +617,7 @@ public class OrderController implements Initializable {
 
             Optional<ButtonType> result = confirmAlert.showAndWait();
             if (result.isPresent() && result.get() == ButtonType.OK) {
-                shoppingCart.clear();
+                cart.clear();
                 showAlert(Alert.AlertType.INFORMATION, "Cart Cleared", "All items have been removed from your cart.");
             }
         }
@@ -768,14 +683,46 @@ public class OrderController implements Initializable {
         }
     }
 
+    /*
+     * The page is cached across visits and logins. Reloads the product cards only
+     * if stock or products changed, starts a fresh order when a different user
+     * takes over the till, and re-applies the role restrictions.
+     */
+    @Override
+    public void onShow() {
+        String user = UserSession.getInstance().getUsername();
+        if (shownForUser != null && !shownForUser.equals(user)) {
+            clearOrderForm();
+        }
+        shownForUser = user;
+        
+        applyRoleBasedRestrictions();
+        if (loadedProductsVersion != DataVersions.getProductsVersion()) {
+            loadAvailableProducts();
+        }
+        DataVersions.addListener(otherTerminals);
+        
+        // F2 jumps to the fast-entry field from anywhere on the page
+        Scene scene = customerNameField.getScene();
+        if (scene != null) {
+            scene.getAccelerators().put(fastEntryKey, () -> fastEntryField.requestFocus());
+        }
+    }
+
+    // The scene is shared with the other pages, so take the F2 shortcut along
+    @Override
+    public void onHide() {
+        DataVersions.removeListener(otherTerminals);
+        Scene scene = customerNameField.getScene();
+        if (scene != null) {
+            scene.getAccelerators().remove(fastEntryKey);
+        }
+    }
+
     // Utility methods
     private void loadScene(ActionEvent event, String fxmlPath) throws IOException {
-        Parent root = FXMLLoader.load(getClass().getResource(fxmlPath));
         Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-        Scene scene = new Scene(root);
-        stage.setTitle("Sebucha Order Management System");
-        stage.setScene(scene);
-        stage.show();
+        SceneManager.getInstance().show(stage, fxmlPath);
     }
 
     //alert message
@@ -786,47 +733,4 @@ public class OrderController implements Initializable {
         alert.setContentText(message);
         alert.showAndWait();
     }
-
-    //add-on name for a cart item from structured fields,
-    //customization details, or the display name
-
-    private String extractAddOnName(OrderItem item) {
-        String addOnFromField = item.getAddOn();
-        if (addOnFromField != null && !addOnFromField.equals("None") && !addOnFromField.isEmpty()) {
-            if (addOnFromField.contains(" (+₱")) {
-                return addOnFromField.substring(0, addOnFromField.indexOf(" (+₱"));
-            }
-            return addOnFromField;
-        }
-        
-        //Extract add-on name from customization details
-        String details = item.getCustomizationDetails();
-        if (details != null && !details.isEmpty()) {
-            String[] parts = details.split(", ");
-            for (String part : parts) {
-                if (part.startsWith("Add-on: ")) {
-                    String addOnName = part.substring("Add-on: ".length());
-                    if (addOnName.contains(" (+₱")) {
-                        return addOnName.substring(0, addOnName.indexOf(" (+₱"));
-                    }
-                    return addOnName;
-                }
-            }
-        }
-        
-        //Extract from product name if it contains " + "
-        String productName = item.getProductName();
-        if (productName != null && productName.contains(" + ")) {
-            String[] nameParts = productName.split(" \\+ ");
-            if (nameParts.length > 1) {
-                String addOnPart = nameParts[1];
-                if (addOnPart.contains(" (+₱")) {
-                    return addOnPart.substring(0, addOnPart.indexOf(" (+₱"));
-                }
-                return addOnPart;
-            }
-        }
-        
-        return null;
-    }
 }
@@ -0,0 +1,228 @@
+package controller;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import model.FlightRecording;
+import model.LatencyHistogram;
+import model.Metrics;
+import model.SlowQueryLog;
+import model.SlowQueryReport;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/*
+ * Admin-only window with the live metrics: latency per operation (p50/p99/max),
+ * connection pool and cache figures, and counters. Refreshes every two seconds
+ * while open and can write everything to a Prometheus text file.
+ */
+public class PerformancePanelController implements Initializable {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final DateTimeFormatter FILE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @FXML private Label updatedLabel;
+    @FXML private TableView<String[]> timersTable;
+    @FXML private TableColumn<String[], String> operationColumn;
+    @FXML private TableColumn<String[], String> countColumn;
+    @FXML private TableColumn<String[], String> p50Column;
+    @FXML private TableColumn<String[], String> p99Column;
+    @FXML private TableColumn<String[], String> maxColumn;
+    @FXML private TableColumn<String[], String> totalColumn;
+    @FXML private TableView<String[]> valuesTable;
+    @FXML private TableColumn<String[], String> metricColumn;
+    @FXML private TableColumn<String[], String> valueColumn;
+    @FXML private Button closeButton;
+    @FXML private Button dumpButton;
+
+    private final Timeline autoRefresh = new Timeline(new KeyFrame(Duration.seconds(2), event -> refresh()));
+
+    @Override
+    public void initialize(URL url, ResourceBundle rb) {
+        // Rows are plain string arrays, one column per index
+        bindColumn(operationColumn, 0);
+        bindColumn(countColumn, 1);
+        bindColumn(p50Column, 2);
+        bindColumn(p99Column, 3);
+        bindColumn(maxColumn, 4);
+        bindColumn(totalColumn, 5);
+        bindColumn(metricColumn, 0);
+        bindColumn(valueColumn, 1);
+
+        timersTable.setPlaceholder(new Label("Nothing timed yet"));
+        valuesTable.setPlaceholder(new Label("No metrics yet"));
+
+        dumpButton.setDisable(!FlightRecording.isRecording());
+
+        refresh();
+        autoRefresh.setCycleCount(Timeline.INDEFINITE);
+        autoRefresh.play();
+    }
+
+    // Called by the opener so the refresh stops with the window
+    public void setStage(Stage stage) {
+        stage.setOnHidden(event -> autoRefresh.stop());
+    }
+
+    @FXML
+    private void handleRefresh() {
+        refresh();
+    }
+
+    @FXML
+    private void handleExport() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Metrics");
+        chooser.setInitialFileName(Metrics.DEFAULT_FILE);
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Prometheus text (*.prom)", "*.prom"));
+        File file = chooser.showSaveDialog(closeButton.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        try {
+            Metrics.exportPrometheus(file.toPath());
+            showAlert("Export Complete", "Metrics written to " + file.getAbsolutePath(), Alert.AlertType.INFORMATION);
+        } catch (IOException e) {
+            e.printStackTrace();
+            showAlert("Export Failed", "Could not write metrics: " + e.getMessage(), Alert.AlertType.ERROR);
+        }
+    }
+
+    // Slow-query log grouped by statement, with plans and index hints
+    @FXML
+    private void handleSlowQueries() {
+        String report;
+        try {
+            report = SlowQueryReport.report(SlowQueryLog.getLogDirectory(), 20);
+        } catch (IOException e) {
+            e.printStackTrace();
+            showAlert("Slow Queries", "Could not read the slow query log: " + e.getMessage(), Alert.AlertType.ERROR);
+            return;
+        }
+        if (!SlowQueryLog.isEnabled()) {
+            report = "Slow query logging is off (-D" + SlowQueryLog.THRESHOLD_PROPERTY + " is negative).\n\n" + report;
+        }
+
+        TextArea text = new TextArea(report);
+        text.setEditable(false);
+        text.setWrapText(false);
+        text.setStyle("-fx-font-family: 'monospace';");
+        text.setPrefSize(900, 500);
+
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.initOwner(closeButton.getScene().getWindow());
+        alert.setTitle("Slow Queries");
+        alert.setHeaderText("Slowest statements by total time");
+        alert.getDialogPane().setContent(text);
+        alert.setResizable(true);
+        alert.showAndWait();
+    }
+
+    // Saves the last few minutes of the continuous flight recording for later analysis (e.g. in JDK Mission Control)
+    @FXML
+    private void handleDumpRecording() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Save Flight Recording");
+        chooser.setInitialFileName("sebucha-" + LocalDateTime.now().format(FILE_TIME_FORMAT) + ".jfr");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Flight recording (*.jfr)", "*.jfr"));
+        File file = chooser.showSaveDialog(closeButton.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        // Writing the recording takes a moment, keep the UI responsive meanwhile
+        dumpButton.setDisable(true);
+        Task<Void> dump = new Task<>() {
+            @Override
+            protected Void call() throws Exception {
+                FlightRecording.dump(file.toPath());
+                return null;
+            }
+        };
+        dump.setOnSucceeded(event -> {
+            dumpButton.setDisable(false);
+            showAlert("Recording Saved", "Flight recording written to " + file.getAbsolutePath(), Alert.AlertType.INFORMATION);
+        });
+        dump.setOnFailed(event -> {
+            dumpButton.setDisable(false);
+            dump.getException().printStackTrace();
+            showAlert("Recording Failed", "Could not save the recording: " + dump.getException().getMessage(), Alert.AlertType.ERROR);
+        });
+        Thread thread = new Thread(dump, "jfr-dump");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @FXML
+    private void handleClose() {
+        ((Stage) closeButton.getScene().getWindow()).close();
+    }
+
+    private void refresh() {
+        List<String[]> timerRows = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : Metrics.getTimers().entrySet()) {
+            LatencyHistogram timer = entry.getValue();
+            timerRows.add(new String[] {
+                entry.getKey(),
+                Long.toString(timer.getCount()),
+                millis(timer.getValueAtQuantile(0.5)),
+                millis(timer.getValueAtQuantile(0.99)),
+                millis(timer.getMaxNanos()),
+                String.format("%.2f", timer.getTotalNanos() / 1e9)
+            });
+        }
+
+        List<String[]> valueRows = new ArrayList<>();
+        Metrics.getGauges().forEach((name, value) -> valueRows.add(new String[] {name, gaugeText(name, value)}));
+        Metrics.getCounters().forEach((name, value) -> valueRows.add(new String[] {name, Long.toString(value)}));
+
+        timersTable.setItems(FXCollections.observableArrayList(timerRows));
+        valuesTable.setItems(FXCollections.observableArrayList(valueRows));
+        updatedLabel.setText("Since startup, updated " + LocalTime.now().format(TIME_FORMAT));
+    }
+
+    private static void bindColumn(TableColumn<String[], String> column, int index) {
+        column.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue()[index]));
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+
+    private static String gaugeText(String name, double value) {
+        if (name.endsWith("_ratio")) {
+            return String.format("%.1f%%", value * 100);
+        }
+        return value == Math.rint(value) ? Long.toString((long) value) : String.format("%.2f", value);
+    }
+
+    private void showAlert(String title, String message, Alert.AlertType type) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+}
@@ -9,18 +9,19 @@ import javafx.scene.control.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
+import model.OrderItemModifier;
 import model.Product;
-import model.OrderItem;
+import model.ProductImages;
+import model.RecipeBook;
 import model.SqliteConnection;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 
-import java.io.File;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.ArrayList;
-import java.util.List;
 
  // Renders a single product card in the Order page: shows image, name, price,
  //stock, and lets the user select quantity and add-ons to add to cart.
@@ -53,7 +54,7 @@ public class ProductCardController implements Initializable {
 
     private Product product;
     private OrderController orderController; // Reference to parent controller
-    private static List<OrderItem> cartItems = new ArrayList<>();
+    private final Map<String, Product> addOnsByLabel = new HashMap<>(); // combo label -> add-on product
     
    
     @Override
@@ -71,17 +72,23 @@ public class ProductCardController implements Initializable {
         ObservableList<String> dbAddOns = FXCollections.observableArrayList();
         dbAddOns.add("None"); // Always include "None" as first option
         
-        String query = "SELECT name, price FROM products WHERE category = 'Add-ons' AND status = 'Available' ORDER BY name";
+        String query = "SELECT id, name, price, stock FROM products WHERE category = 'Add-ons' AND status = 'Available' ORDER BY name";
         
         try (Connection connect = SqliteConnection.Connector();
              PreparedStatement prepare = connect.prepareStatement(query);
              ResultSet result = prepare.executeQuery()) {
             
             while (result.next()) {
-                String name = result.getString("name");
-                double price = result.getDouble("price");
-                String formattedPrice = String.format("%.2f", price);
-                dbAddOns.add(name + " (+₱" + formattedPrice + ")");
+                Product addOn = new Product();
+                addOn.setId(result.getInt("id"));
+                addOn.setName(result.getString("name"));
+                addOn.setCategory("Add-ons");
+                addOn.setPrice(result.getDouble("price"));
+                addOn.setStock(result.getInt("stock"));
+                
+                String label = OrderItemModifier.label(addOn);
+                addOnsByLabel.put(label, addOn);
+                dbAddOns.add(label);
             }
             
         } catch (Exception e) {
@@ -117,25 +124,14 @@ public class ProductCardController implements Initializable {
             
             productCategoryLabel.setText(product.getCategory());
             
-            productStockLabel.setText("Stock: " + product.getStock());
+            // Made-to-order products show what their ingredients still cover
+            boolean fromIngredients = RecipeBook.getInstance().hasRecipe(product.getId());
+            productStockLabel.setText((fromIngredients ? "Can make: " : "Stock: ") + product.getStock());
             updateStockLabel();
             
             try {
-                String imagePath = product.getImagePath();
-                Image image = null;
-                
-                if (imagePath != null && !imagePath.isEmpty()) {
-                    File imageFile = new File(imagePath);
-                    if (imageFile.exists()) {
-                        image = new Image(imageFile.toURI().toString());
-                    }
-                }
-                
-                if (image == null) {
-                    image = new Image(getClass().getResource("/view/images/addimage.png").toExternalForm());
-                }
-                
-                productImageView.setImage(image);
+                // Decoded once and shared between card rebuilds
+                productImageView.setImage(ProductImages.forCard(product.getImagePath()));
                 
                 productImageView.setPreserveRatio(true);
                 productImageView.setSmooth(true);
@@ -232,30 +228,19 @@ public class ProductCardController implements Initializable {
 
         // Get selected add-on
         String selectedAddOn = addOnsComboBox.getValue();
-        double addOnPrice = getAddOnPrice(selectedAddOn);
-        
-        // Calculate total price
-        double unitPrice = product.getPrice() + addOnPrice;
-        double totalPrice = unitPrice * quantity;
+        Product addOn = addOnsByLabel.get(selectedAddOn);
 
         String customProductName = product.getName();
-        if (!selectedAddOn.equals("None")) {
+        if (addOn != null) {
             customProductName += " + " + selectedAddOn;
         }
 
-        if (orderController != null) {
-            orderController.addEnhancedProductToCart(product, quantity, selectedAddOn, customProductName, totalPrice);
-        } else {
-            OrderItem orderItem = new OrderItem();
-            orderItem.setProductId(product.getId());
-            orderItem.setProductName(customProductName);
-            orderItem.setQuantity(quantity);
-            orderItem.setUnitPrice(unitPrice);
-            orderItem.setTotalPrice(totalPrice);
-            orderItem.setAddOn(selectedAddOn);
-            orderItem.setProductCategory(product.getCategory());
-            cartItems.add(orderItem);
+        // The cart lives in the Order page; a card without one has nowhere to add to
+        if (orderController == null) {
+            System.err.println("Product card is not attached to an order page");
+            return;
         }
+        orderController.addEnhancedProductToCart(product, quantity, addOn);
 
         // Show success message
         showAlert("Added to Cart", 
@@ -267,23 +252,6 @@ public class ProductCardController implements Initializable {
         addOnsComboBox.setValue("None");
     }
 
-    private double getAddOnPrice(String addOnWithPrice) {
-        if (addOnWithPrice == null || addOnWithPrice.equals("None")) {
-            return 0.0;
-        }
-        
-        try {
-            // Extract price from the format "Name (+₱XX.XX)"
-            int startIndex = addOnWithPrice.lastIndexOf("₱") + 1;
-            int endIndex = addOnWithPrice.lastIndexOf(")");
-            String priceStr = addOnWithPrice.substring(startIndex, endIndex);
-            return Double.parseDouble(priceStr);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return 0.0;
-        }
-    }
-
     // Add to Cart button
     @FXML
     private void handleButtonHover(MouseEvent event) {
@@ -8,13 +8,12 @@ import javafx.scene.image.ImageView;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import model.Product;
-import model.SqliteConnection;
+import model.ProductCatalog;
+import model.ProductSearchIndex;
 import model.InventoryIdGenerator;
 
 import java.io.File;
 import java.net.URL;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ResourceBundle;
 
@@ -152,22 +151,22 @@ public class ProductUpdatePopupController implements Initializable {
     @FXML
     private void handleUpdate() {
         if (validateForm()) {
-            Connection connection = SqliteConnection.Connector();
-            String sql = "UPDATE products SET name=?, category=?, price=?, stock=?, status=?, image_path=? WHERE id=?";
-            
-            PreparedStatement prepare = null;
             try {
-                prepare = connection.prepareStatement(sql);
-                prepare.setString(1, productNameField.getText().trim());
-                prepare.setString(2, categoryComboBox.getValue());
-                prepare.setDouble(3, Double.parseDouble(priceField.getText().trim()));
-                prepare.setInt(4, Integer.parseInt(stockField.getText().trim()));
-                prepare.setString(5, statusComboBox.getValue());
-                prepare.setString(6, selectedImagePath);
-                prepare.setInt(7, productToUpdate.getId());
+                Product product = new Product(
+                    productToUpdate.getId(),
+                    productNameField.getText().trim(),
+                    categoryComboBox.getValue(),
+                    Double.parseDouble(priceField.getText().trim()),
+                    Integer.parseInt(stockField.getText().trim()),
+                    statusComboBox.getValue(),
+                    selectedImagePath,
+                    productToUpdate.getDateAdded()
+                );
                 
-                int result = prepare.executeUpdate();
-                if (result > 0) {
+                if (ProductCatalog.getInstance().updateProduct(product)) {
+                    // Keep the Order page search index in step with the edit
+                    ProductSearchIndex.getInstance().put(product);
+                    
                     showAlert("Success", "Product updated successfully!", Alert.AlertType.INFORMATION);
                     // Refresh parent controller's table
                     if (parentController != null) {
@@ -182,14 +181,6 @@ public class ProductUpdatePopupController implements Initializable {
                 showAlert("Database Error", "Error updating product: " + e.getMessage(), Alert.AlertType.ERROR);
             } catch (NumberFormatException e) {
                 showAlert("Input Error", "Please enter valid numbers for price and stock!", Alert.AlertType.ERROR);
-            } finally {
-                if (prepare != null) {
-                    try {
-                        prepare.close();
-                    } catch (SQLException e) {
-                        System.err.println("Error closing PreparedStatement: " + e.getMessage());
-                    }
-                }
             }
         }
     }
@@ -5,25 +5,39 @@ import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import model.Order;
 import model.OrderItem;
+import model.OrderItemModifier;
+import model.OrderItemStore;
+import model.OrderService;
+import model.DataVersions;
+import model.KitchenQueue;
+import model.FlightEvents;
+import model.ManagedView;
+import model.SceneManager;
+import model.OrderHistoryExportTask;
+import model.OrderHistoryQuery;
+import model.CsvReportWriter;
+import model.ReportExporter;
+import model.ReportWriterProvider;
+import model.ReceiptArchiveTask;
 import model.ReceiptGenerator;
 import model.SqliteConnection;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -33,7 +47,9 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
@@ -43,7 +59,7 @@ import java.util.ResourceBundle;
 //shows summary stats, supports viewing details, reprinting receipts, updating status
 //exporting to Excel, and navigation.
  
-public class RecentOrderController implements Initializable {
+public class RecentOrderController implements Initializable, ManagedView {
 
     // Navigation buttons
     @FXML private Button dashboardbutton;
@@ -85,6 +101,7 @@ public class RecentOrderController implements Initializable {
     private ObservableList<Order> filteredOrders = FXCollections.observableArrayList();
     private DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
     private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
+    private long loadedOrdersVersion = -1;
 
     // Initialize table, filters, listeners, load orders, and update summaries.
     
@@ -438,8 +455,11 @@ public class RecentOrderController implements Initializable {
 
     // Load orders from db with null-safe fields, then apply filters and update UI
     private void loadOrderHistory() {
+        loadedOrdersVersion = DataVersions.getOrdersVersion();
         allOrders.clear();
         Connection connection = null;
+        FlightEvents.OrderHistoryLoad event = new FlightEvents.OrderHistoryLoad();
+        event.begin();
         
         try {
             connection = SqliteConnection.Connector();
@@ -513,6 +533,8 @@ public class RecentOrderController implements Initializable {
             
             System.out.println("Successfully loaded " + loadedOrders + " orders");
             applyFilters();
+            event.orders = loadedOrders;
+            event.commit();
             
         } catch (SQLException e) {
             System.err.println("SQLException in loadOrderHistory: " + e.getMessage());
@@ -641,18 +663,14 @@ public class RecentOrderController implements Initializable {
         alert.showAndWait();
     }
 
-    // Re-generate a receipt PDF for an existing order
+    // Sends a fresh copy of an existing order's receipt to the receipt printer
     private void reprintInvoice(Order order) {
         try {
             // Get order items for the receipt
             List<OrderItem> orderItems = getOrderItemsForReceipt(order.getId());
             
-            // Get current stage
-            Stage currentStage = (Stage) ordersTable.getScene().getWindow();
-            
-            // Generate receipt using ReceiptGenerator
-            boolean success = ReceiptGenerator.generateReceipt(
-                currentStage,
+            // Queued for the receipt pipeline; failures are reported with an alert
+            ReceiptGenerator.generateReceipt(
                 order.getId(),
                 order.getCustomerName(),
                 order.getOrderType(),
@@ -660,12 +678,7 @@ public class RecentOrderController implements Initializable {
                 order.getTotalAmount(),
                 orderItems
             );
-            
-            if (success) {
-                showAlert("Reprint Invoice", "Invoice reprinted successfully!");
-            } else {
-                showAlert("Reprint Invoice", "Failed to reprint invoice.");
-            }
+            showAlert("Reprint Invoice", "Invoice for order #" + order.getId() + " sent to the receipt printer.");
         } catch (Exception e) {
             showAlert("Reprint Invoice", "Error reprinting invoice: " + e.getMessage());
             e.printStackTrace();
@@ -727,31 +740,33 @@ public class RecentOrderController implements Initializable {
                 
                 Optional<ButtonType> confirmResult = confirmationAlert.showAndWait();
                 if (confirmResult.isPresent() && confirmResult.get() == ButtonType.OK) {
-                    if (isOrderAlreadyCancelled(order.getId())) {
+                    // Status change and stock restoration (add-ons included) commit together or not at all
+                    boolean cancelled;
+                    try {
+                        cancelled = OrderService.getInstance().cancelOrder(order.getId());
+                    } catch (SQLException e) {
+                        System.err.println("Error cancelling order: " + e.getMessage());
+                        showAlert("Cancellation Failed", "Could not cancel the order: " + e.getMessage() +
+                                 "\n\nNothing was changed; stock and status are as before.");
+                        return;
+                    }
+
+                    if (!cancelled) {
                         showAlert("Order Already Cancelled", 
                                  "This order has already been cancelled by another process. Refreshing order list");
                         loadOrderHistory(); 
                         return;
                     }
+
+                    DataVersions.ordersChanged();
+                    DataVersions.productsChanged();
+                    KitchenQueue.getInstance().statusChanged(order.getId(), newStatus);
+                    order.setStatus(newStatus);
+                    ordersTable.refresh();
                     
-                    // Restore stock first
-                    if (restoreOrderItemsToInventory(order.getId())) {
-                        // Update status in database
-                        if (updateOrderStatusInDatabase(order.getId(), newStatus)) {
-                            // Update the order object
-                            order.setStatus(newStatus);
-                            
-                            ordersTable.refresh();
-                            
-                            showAlert("Order Cancelled", 
-                                     "Order #" + order.getId() + " has been permanently cancelled and inventory stock has been restored.\n\n" +
-                                     "This order can no longer be modified.");
-                        } else {
-                            showAlert("Update Failed", "Failed to update order status in database.");
-                        }
-                    } else {
-                        showAlert("Cancellation Failed", "Failed to restore inventory stock. Order status not changed.");
-                    }
+                    showAlert("Order Cancelled", 
+                             "Order #" + order.getId() + " has been permanently cancelled and inventory stock has been restored.\n\n" +
+                             "This order can no longer be modified.");
                 }
             } else {
                 if (updateOrderStatusInDatabase(order.getId(), newStatus)) {
@@ -770,58 +785,29 @@ public class RecentOrderController implements Initializable {
     
     //status change to the orders table
     private boolean updateOrderStatusInDatabase(String orderId, String newStatus) {
-        Connection connection = null;
         try {
-            connection = SqliteConnection.Connector();
-            String query = "UPDATE orders SET order_status = ? WHERE id = ?";
-            
-            PreparedStatement statement = connection.prepareStatement(query);
-            statement.setString(1, newStatus);
-            statement.setString(2, orderId);
-            
-            int rowsAffected = statement.executeUpdate();
-            return rowsAffected > 0;
-            
+            boolean updated = OrderService.getInstance().updateStatus(orderId, newStatus);
+            if (updated) {
+                DataVersions.ordersChanged();
+                KitchenQueue.getInstance().statusChanged(orderId, newStatus);
+            }
+            return updated;
         } catch (SQLException e) {
             System.err.println("Error updating order status: " + e.getMessage());
             return false;
-        } finally {
-            try {
-                if (connection != null) connection.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
         }
     }
     
-    // Fetch order items from DB for receipt generation
+    // Fetch order items (with their add-ons) from DB for receipt generation
     private List<OrderItem> getOrderItemsForReceipt(String orderId) {
-        List<OrderItem> orderItems = new ArrayList<>();
         Connection connection = null;
         
         try {
             connection = SqliteConnection.Connector();
-            String query = "SELECT oi.product_id, oi.product_name, oi.quantity, oi.unit_price, oi.total_price, " +
-                          "oi.customization_details FROM order_items oi WHERE oi.order_id = ?";
-            
-            PreparedStatement statement = connection.prepareStatement(query);
-            statement.setString(1, orderId);
-            ResultSet resultSet = statement.executeQuery();
-            
-            while (resultSet.next()) {
-                OrderItem item = new OrderItem();
-                item.setProductId(resultSet.getInt("product_id"));
-                item.setProductName(resultSet.getString("product_name"));
-                item.setQuantity(resultSet.getInt("quantity"));
-                item.setUnitPrice(resultSet.getDouble("unit_price"));
-                item.setTotalPrice(resultSet.getDouble("total_price"));
-                item.setCustomizationDetails(resultSet.getString("customization_details"));
-                
-                orderItems.add(item);
-            }
-            
+            return OrderItemStore.loadItems(connection, orderId);
         } catch (SQLException e) {
             System.err.println("Error loading order items for receipt: " + e.getMessage());
+            return new ArrayList<>();
         } finally {
             try {
                 if (connection != null) connection.close();
@@ -829,61 +815,35 @@ public class RecentOrderController implements Initializable {
                 e.printStackTrace();
             }
         }
-        
-        return orderItems;
     }
 
-    // items view for a given order - now includes add-ons from customization details
+    // items view for a given order, with each add-on and its price under its line
     private String getDetailedOrderItems(String orderId) {
         Connection connection = null;
         StringBuilder items = new StringBuilder();
         
         try {
             connection = SqliteConnection.Connector();
-            // Updated query to get customization_details and product_name from order_items
-            String query = "SELECT oi.quantity, oi.unit_price, oi.total_price, " +
-                          "COALESCE(oi.product_name, p.name) AS display_name, " +
-                          "oi.customization_details " +
-                          "FROM order_items oi LEFT JOIN products p ON oi.product_id = p.id " +
-                          "WHERE oi.order_id = ?";
             
-            PreparedStatement statement = connection.prepareStatement(query);
-            statement.setString(1, orderId);
-            ResultSet resultSet = statement.executeQuery();
-            
-            while (resultSet.next()) {
-                String displayName = resultSet.getString("display_name");
-                String customizationDetails = resultSet.getString("customization_details");
-                
-                // Build the display name with add-ons
-                StringBuilder itemName = new StringBuilder();
-                itemName.append(displayName);
-                
-                // Add customization details (add-ons) if they exist
-                if (customizationDetails != null && !customizationDetails.trim().isEmpty()) {
-                    // Parse customization details to extract add-on information
-                    String[] details = customizationDetails.split(", ");
-                    for (String detail : details) {
-                        if (detail.startsWith("Add-on: ")) {
-                            String addOnName = detail.substring("Add-on: ".length());
-                            // Remove price information if present (e.g., "Extra Shot (+₱15)")
-                            if (addOnName.contains(" (+₱")) {
-                                addOnName = addOnName.substring(0, addOnName.indexOf(" (+₱"));
-                            }
-                            itemName.append(" + ").append(addOnName);
-                        }
-                    }
-                }
-                
+            for (OrderItem item : OrderItemStore.loadItems(connection, orderId)) {
                 items.append("• ")
-                     .append(resultSet.getInt("quantity"))
+                     .append(item.getQuantity())
                      .append("x ")
-                     .append(itemName.toString())
+                     .append(item.getProductName())
                      .append(" @ ₱")
-                     .append(decimalFormat.format(resultSet.getDouble("unit_price")))
+                     .append(decimalFormat.format(item.getUnitPrice()))
                      .append(" = ₱")
-                     .append(decimalFormat.format(resultSet.getDouble("total_price")))
+                     .append(decimalFormat.format(item.getTotalPrice()))
                      .append("\n");
+                
+                for (OrderItemModifier modifier : item.getModifiers()) {
+                    items.append("    + ")
+                         .append(modifier.getQuantity() > 1 ? modifier.getQuantity() + "x " : "")
+                         .append(modifier.getName())
+                         .append(" (₱")
+                         .append(decimalFormat.format(modifier.getTotalPrice()))
+                         .append(")\n");
+                }
             }
             
         } catch (SQLException e) {
@@ -960,47 +920,202 @@ public class RecentOrderController implements Initializable {
         applyFilters(); 
     }
 
-    //Excel path and export
+    // Export menu: filtered order history in one format, the end-of-day pack, or a receipt archive
     @FXML
     private void handleExport() {
+        MenuItem historyItem = new MenuItem("Order History...");
+        historyItem.setOnAction(event -> exportOrderHistory());
+        
+        LocalDate packDay = toDatePicker.getValue() != null ? toDatePicker.getValue() : LocalDate.now();
+        MenuItem packItem = new MenuItem("End-of-Day Pack (" + packDay.format(DateTimeFormatter.ofPattern("MMM dd, yyyy")) + ")...");
+        packItem.setOnAction(event -> exportEndOfDayPack(packDay));
+        
+        MenuItem receiptsItem = new MenuItem("Receipt Archive...");
+        receiptsItem.setOnAction(event -> archiveReceipts());
+        
+        ContextMenu exportMenu = new ContextMenu(historyItem, packItem, receiptsItem);
+        exportMenu.show(exportButton, javafx.geometry.Side.BOTTOM, 0, 0);
+    }
+
+    // Save dialog with one filter per report format; the chosen filter picks the writer
+    private void exportOrderHistory() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Export Order History");
-        fileChooser.getExtensionFilters().add(
-            new FileChooser.ExtensionFilter("CSV Files", "*.csv")
-        );
+        Map<FileChooser.ExtensionFilter, ReportWriterProvider> formatsByFilter = new LinkedHashMap<>();
+        for (ReportWriterProvider provider : ReportExporter.getProviders()) {
+            FileChooser.ExtensionFilter filter = new FileChooser.ExtensionFilter(
+                provider.getDescription(), "*." + provider.getFileExtension());
+            formatsByFilter.put(filter, provider);
+            fileChooser.getExtensionFilters().add(filter);
+        }
         fileChooser.setInitialFileName("order_history_" + 
-                                     LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".csv");
+                                     LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
         
         Stage stage = (Stage) exportButton.getScene().getWindow();
         File file = fileChooser.showSaveDialog(stage);
         
         if (file != null) {
-            exportToCSV(file);
+            ReportWriterProvider format = ReportExporter.forFile(file.toPath());
+            if (format == null) {
+                format = formatsByFilter.getOrDefault(fileChooser.getSelectedExtensionFilter(), CsvReportWriter.PROVIDER);
+                file = new File(file.getParentFile(), file.getName() + "." + format.getFileExtension());
+            }
+            exportOrderHistory(file, format);
         }
     }
 
-    // Write filtered orders to Excel with a header row
-    private void exportToCSV(File file) {
-        try (FileWriter writer = new FileWriter(file)) {
-            writer.append("Order ID,Customer,Date & Time,Type,Payment,Amount,Status,Items\n");
-            
-            for (Order order : filteredOrders) {
-                writer.append(String.valueOf(order.getId())).append(",");
-                writer.append(order.getCustomerName()).append(",");
-                writer.append(order.getOrderDate().format(dateFormatter)).append(",");
-                writer.append(order.getOrderType()).append(",");
-                writer.append(order.getPaymentMethod()).append(",");
-                writer.append(decimalFormat.format(order.getTotalAmount())).append(",");
-                writer.append(order.getStatus()).append(",");
-                writer.append("\"").append(getOrderItemsSummary(order.getId())).append("\"");
-                writer.append("\n");
+    /*
+     * Streams the orders matching the current filters on a background thread.
+     * A progress dialog stays open while it runs and can cancel it.
+     */
+    private void exportOrderHistory(File file, ReportWriterProvider format) {
+        OrderHistoryExportTask task = new OrderHistoryExportTask(file.toPath(), currentFilterQuery(), format);
+        Alert progressDialog = showProgressDialog(task, "Exporting Order History", "Exporting to " + file.getName());
+        
+        task.setOnSucceeded(event -> {
+            exportButton.setDisable(false);
+            progressDialog.close();
+            showAlert("Export Successful", task.getValue() + " orders exported to: " + file.getAbsolutePath());
+        });
+        task.setOnCancelled(event -> {
+            exportButton.setDisable(false);
+            progressDialog.close();
+            showAlert("Export Cancelled", "The export was cancelled and no file was written.");
+        });
+        task.setOnFailed(event -> {
+            exportButton.setDisable(false);
+            progressDialog.close();
+            Throwable error = task.getException();
+            error.printStackTrace();
+            showAlert("Export Failed", "Error exporting order history: " + error.getMessage());
+        });
+        
+        Thread exportThread = new Thread(task, "order-history-export");
+        exportThread.setDaemon(true);
+        exportThread.start();
+    }
+
+    // Reprints every receipt matching the current filters into one ZIP of text receipts or one PDF
+    private void archiveReceipts() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save Receipt Archive");
+        FileChooser.ExtensionFilter zipFilter = new FileChooser.ExtensionFilter("ZIP of text receipts", "*.zip");
+        FileChooser.ExtensionFilter pdfFilter = new FileChooser.ExtensionFilter("Combined PDF", "*.pdf");
+        fileChooser.getExtensionFilters().addAll(zipFilter, pdfFilter);
+        fileChooser.setInitialFileName("receipts_" + 
+                                     LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
+        
+        File chosen = fileChooser.showSaveDialog(exportButton.getScene().getWindow());
+        if (chosen == null) {
+            return;
+        }
+        
+        String name = chosen.getName().toLowerCase();
+        ReceiptArchiveTask.Format format;
+        if (name.endsWith(".zip")) {
+            format = ReceiptArchiveTask.Format.ZIP;
+        } else if (name.endsWith(".pdf")) {
+            format = ReceiptArchiveTask.Format.PDF;
+        } else {
+            format = fileChooser.getSelectedExtensionFilter() == pdfFilter
+                ? ReceiptArchiveTask.Format.PDF : ReceiptArchiveTask.Format.ZIP;
+            chosen = new File(chosen.getParentFile(), chosen.getName() + "." + format.getExtension());
+        }
+        File file = chosen;
+        
+        ReceiptArchiveTask task = new ReceiptArchiveTask(file.toPath(), currentFilterQuery(), format);
+        Alert progressDialog = showProgressDialog(task, "Archiving Receipts", "Writing receipts to " + file.getName());
+        
+        task.setOnSucceeded(event -> {
+            exportButton.setDisable(false);
+            progressDialog.close();
+            showAlert("Archive Complete", task.getValue() + " receipts saved to: " + file.getAbsolutePath());
+        });
+        task.setOnCancelled(event -> {
+            exportButton.setDisable(false);
+            progressDialog.close();
+            showAlert("Archive Cancelled", "The receipt archive was cancelled and no file was written.");
+        });
+        task.setOnFailed(event -> {
+            exportButton.setDisable(false);
+            progressDialog.close();
+            Throwable error = task.getException();
+            error.printStackTrace();
+            showAlert("Archive Failed", "Error archiving receipts: " + error.getMessage());
+        });
+        
+        Thread archiveThread = new Thread(task, "receipt-archive");
+        archiveThread.setDaemon(true);
+        archiveThread.start();
+    }
+
+    // The table filters as a database query
+    private OrderHistoryQuery currentFilterQuery() {
+        return new OrderHistoryQuery(
+            customerSearchField.getText(),
+            statusFilterComboBox.getValue(),
+            paymentFilterComboBox.getValue(),
+            fromDatePicker.getValue(),
+            toDatePicker.getValue()
+        );
+    }
+
+    // Non-modal progress dialog bound to a task; closing it cancels the task. Disables Export meanwhile.
+    private Alert showProgressDialog(Task<?> task, String title, String header) {
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(320);
+        progressBar.progressProperty().bind(task.progressProperty());
+        Label progressLabel = new Label();
+        progressLabel.textProperty().bind(task.messageProperty());
+        
+        Alert progressDialog = new Alert(Alert.AlertType.NONE);
+        progressDialog.setTitle(title);
+        progressDialog.setHeaderText(header);
+        progressDialog.getDialogPane().setContent(new VBox(10, progressLabel, progressBar));
+        progressDialog.getButtonTypes().setAll(ButtonType.CANCEL);
+        progressDialog.initOwner(exportButton.getScene().getWindow());
+        progressDialog.setOnCloseRequest(event -> {
+            if (task.isRunning()) {
+                task.cancel();
             }
-            
-            showAlert("Export Successful", "Order history exported to: " + file.getAbsolutePath());
-                     
-        } catch (IOException e) {
-            showAlert("Export Failed", "Error exporting order history: " + e.getMessage());
+        });
+        
+        exportButton.setDisable(true);
+        progressDialog.show();
+        return progressDialog;
+    }
+
+    // Writes the day's sales, items and cancellations in every format from one pass over the data
+    private void exportEndOfDayPack(LocalDate day) {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Choose a folder for the end-of-day pack");
+        File directory = directoryChooser.showDialog(exportButton.getScene().getWindow());
+        if (directory == null) {
+            return;
         }
+        
+        Task<List<Path>> task = new Task<List<Path>>() {
+            @Override
+            protected List<Path> call() throws Exception {
+                return ReportExporter.exportEndOfDay(day, ReportExporter.getProviders(), directory.toPath());
+            }
+        };
+        
+        exportButton.setDisable(true);
+        task.setOnSucceeded(event -> {
+            exportButton.setDisable(false);
+            showAlert("Export Successful", task.getValue().size() + " report files written to: " + directory.getAbsolutePath());
+        });
+        task.setOnFailed(event -> {
+            exportButton.setDisable(false);
+            Throwable error = task.getException();
+            error.printStackTrace();
+            showAlert("Export Failed", "Error exporting end-of-day pack: " + error.getMessage());
+        });
+        
+        Thread exportThread = new Thread(task, "end-of-day-export");
+        exportThread.setDaemon(true);
+        exportThread.start();
     }
 
     // Navigation methods
@@ -1041,18 +1156,19 @@ public class RecentOrderController implements Initializable {
         }
     }
 
+    // The page is cached; reload the history only if orders changed since it was last shown
+    @Override
+    public void onShow() {
+        if (loadedOrdersVersion != DataVersions.getOrdersVersion()) {
+            loadOrderHistory();
+        }
+    }
+
     //swap scenes
     private void navigateToPage(String fxmlPath, String title) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource(fxmlPath));
-            Parent root = loader.load();
-            
             Stage stage = (Stage) dashboardbutton.getScene().getWindow();
-            Scene scene = new Scene(root);
-            stage.setTitle("Sebucha Order Management System");
-            stage.setScene(scene);   
-            stage.show();
-            
+            SceneManager.getInstance().show(stage, fxmlPath);
         } catch (IOException e) {
             showAlert("Navigation Error", "Error loading page: " + e.getMessage());
             e.printStackTrace();
@@ -1068,103 +1184,4 @@ public class RecentOrderController implements Initializable {
             alert.showAndWait();
         });
     }
-    
-    private boolean isOrderAlreadyCancelled(String orderId) {
-        Connection connection = null;
-        try {
-            connection = SqliteConnection.Connector();
-            String query = "SELECT order_status FROM orders WHERE id = ?";
-            PreparedStatement statement = connection.prepareStatement(query);
-            statement.setString(1, orderId);
-            ResultSet resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                String currentStatus = resultSet.getString("order_status");
-                return "Cancelled".equals(currentStatus);
-            }
-            
-            return false; 
-            
-        } catch (SQLException e) {
-            System.err.println("Error checking order status: " + e.getMessage());
-            return false;
-        } finally {
-            try {
-                if (connection != null) connection.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
-        }
-    }
-    
-    //  Restore inventory stock for all items in a cancelled order
-     
-    private boolean restoreOrderItemsToInventory(String orderId) {
-        Connection connection = null;
-        try {
-            connection = SqliteConnection.Connector();
-            connection.setAutoCommit(false);
-            
-            // Get all order items for this order
-            String getItemsQuery = "SELECT product_id, quantity FROM order_items WHERE order_id = ?";
-            PreparedStatement getItemsStmt = connection.prepareStatement(getItemsQuery);
-            getItemsStmt.setString(1, orderId);
-            ResultSet itemsResult = getItemsStmt.executeQuery();
-            
-            // Update stock for each product
-            String updateStockQuery = "UPDATE products SET stock = stock + ? WHERE id = ?";
-            PreparedStatement updateStockStmt = connection.prepareStatement(updateStockQuery);
-            
-            int itemsProcessed = 0;
-            while (itemsResult.next()) {
-                int productId = itemsResult.getInt("product_id");
-                int quantity = itemsResult.getInt("quantity");
-                
-                updateStockStmt.setInt(1, quantity);
-                updateStockStmt.setInt(2, productId);
-                updateStockStmt.addBatch();
-                itemsProcessed++;
-            }
-            
-            if (itemsProcessed > 0) {
-                int[] results = updateStockStmt.executeBatch();
-                
-                for (int result : results) {
-                    if (result <= 0) {
-                        connection.rollback();
-                        System.err.println("Failed to update stock for one or more products");
-                        return false;
-                    }
-                }
-                
-                connection.commit();
-                System.out.println("Successfully restored stock for " + itemsProcessed + " products from order " + orderId);
-                return true;
-            } else {
-                System.out.println("No items found for order " + orderId);
-                return false;
-            }
-            
-        } catch (SQLException e) {
-            try {
-                if (connection != null) {
-                    connection.rollback();
-                }
-            } catch (SQLException rollbackEx) {
-                System.err.println("Error during rollback: " + rollbackEx.getMessage());
-            }
-            System.err.println("Error restoring inventory stock: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        } finally {
-            try {
-                if (connection != null) {
-                    connection.setAutoCommit(true);
-                    connection.close();
-                }
-            } catch (SQLException e) {
-                System.err.println("Error closing connection: " + e.getMessage());
-            }
-        }
-    }
 }
@@ -0,0 +1,200 @@
+package controller;
+
+import javafx.concurrent.Task;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.print.PrinterJob;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextArea;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import model.OrderService;
+import model.ReceiptSinks;
+import model.ReceiptTemplate;
+import model.ShiftReport;
+import model.UserSession;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Optional;
+import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/*
+ * X and Z reports. Opens on the X report of the current shift (running totals,
+ * no database scan); Close Shift (admins) takes the Z report and starts the next
+ * shift. Reconcile recounts the shown shift from its orders. The report prints at
+ * receipt width, to a PDF or to any printer.
+ */
+public class ShiftReportController implements Initializable {
+
+    @FXML private Label statusLabel;
+    @FXML private TextArea reportArea;
+    @FXML private Button refreshButton;
+    @FXML private Button reconcileButton;
+    @FXML private Button closeShiftButton;
+    @FXML private Button pdfButton;
+    @FXML private Button printButton;
+    @FXML private Button closeButton;
+
+    private ShiftReport shown;
+
+    @Override
+    public void initialize(URL url, ResourceBundle rb) {
+        closeShiftButton.setVisible(UserSession.getInstance().isAdmin());
+        handleRefresh();
+    }
+
+    // X report: the open shift so far
+    @FXML
+    private void handleRefresh() {
+        run("Loading the current shift...", () -> OrderService.getInstance().currentShift(), null);
+    }
+
+    @FXML
+    private void handleReconcile() {
+        if (shown == null) {
+            return;
+        }
+        long shiftId = shown.getShiftId();
+        run("Recounting shift #" + shiftId + " from its orders...",
+            () -> OrderService.getInstance().reconcileShift(shiftId),
+            report -> {
+                if (!report.getDifferences().isEmpty()) {
+                    showAlert("Shift Does Not Reconcile",
+                        report.getDifferences().size() + " figures differ from the orders table; see the end of the report.",
+                        Alert.AlertType.WARNING);
+                }
+            });
+    }
+
+    // Z report: closes the shift for every till sharing this database
+    @FXML
+    private void handleCloseShift() {
+        if (!UserSession.getInstance().isAdmin()) {
+            return;
+        }
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+        confirm.initOwner(closeButton.getScene().getWindow());
+        confirm.setTitle("Close Shift");
+        confirm.setHeaderText("Close the current shift?");
+        confirm.setContentText("This takes the Z report and starts a new shift on every till. Orders from now on count toward the new shift.");
+        Optional<ButtonType> answer = confirm.showAndWait();
+        if (!answer.isPresent() || answer.get() != ButtonType.OK) {
+            return;
+        }
+        String user = UserSession.getInstance().getUsername();
+        run("Closing the shift...", () -> OrderService.getInstance().closeShift(user), null);
+    }
+
+    @FXML
+    private void handleSavePdf() {
+        if (shown == null) {
+            return;
+        }
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Save Shift Report");
+        chooser.setInitialFileName((shown.isClosed() ? "Z" : "X") + "_Report_Shift_" + shown.getShiftId() + ".pdf");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PDF (*.pdf)", "*.pdf"));
+        File file = chooser.showSaveDialog(closeButton.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        try {
+            ReceiptSinks.writeTextPdf(reportArea.getText(), file.toPath());
+            showAlert("Report Saved", "Shift report written to " + file.getAbsolutePath(), Alert.AlertType.INFORMATION);
+        } catch (IOException e) {
+            e.printStackTrace();
+            showAlert("Save Failed", "Could not write the PDF: " + e.getMessage(), Alert.AlertType.ERROR);
+        }
+    }
+
+    @FXML
+    private void handlePrint() {
+        if (shown == null) {
+            return;
+        }
+        PrinterJob job = PrinterJob.createPrinterJob();
+        if (job == null) {
+            showAlert("Print", "No printer is set up on this computer.", Alert.AlertType.WARNING);
+            return;
+        }
+        if (!job.showPrintDialog(closeButton.getScene().getWindow())) {
+            return;
+        }
+        Text page = new Text(reportArea.getText());
+        page.setFont(Font.font("Monospaced", 9));
+        if (job.printPage(page)) {
+            job.endJob();
+        } else {
+            showAlert("Print Failed", "The printer did not accept the report.", Alert.AlertType.ERROR);
+        }
+    }
+
+    @FXML
+    private void handleClose() {
+        ((Stage) closeButton.getScene().getWindow()).close();
+    }
+
+    // Fetches a report off the FX thread (on a terminal it comes from the order server) and shows it
+    private void run(String progress, Callable<ShiftReport> fetch, Consumer<ShiftReport> then) {
+        setBusy(true);
+        statusLabel.setText(progress);
+        Task<ShiftReport> task = new Task<>() {
+            @Override
+            protected ShiftReport call() throws Exception {
+                return fetch.call();
+            }
+        };
+        task.setOnSucceeded(event -> {
+            show(task.getValue());
+            setBusy(false);
+            if (then != null) {
+                then.accept(task.getValue());
+            }
+        });
+        task.setOnFailed(event -> {
+            setBusy(false);
+            statusLabel.setText("Could not load the shift report");
+            task.getException().printStackTrace();
+            showAlert("Shift Report", "Failed: " + task.getException().getMessage(), Alert.AlertType.ERROR);
+        });
+        Thread thread = new Thread(task, "shift-report");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void show(ShiftReport report) {
+        shown = report;
+        reportArea.setText(report.render(ReceiptTemplate.DEFAULT_WIDTH));
+        statusLabel.setText(report.isClosed()
+            ? "Shift #" + report.getShiftId() + " is closed; the next shift has started"
+            : "Shift #" + report.getShiftId() + " is open");
+    }
+
+    private void setBusy(boolean busy) {
+        refreshButton.setDisable(busy);
+        reconcileButton.setDisable(busy || shown == null);
+        closeShiftButton.setDisable(busy || shown == null || shown.isClosed());
+        pdfButton.setDisable(busy || shown == null);
+        printButton.setDisable(busy || shown == null);
+    }
+
+    private void showAlert(String title, String message, Alert.AlertType type) {
+        Alert alert = new Alert(type);
+        if (closeButton.getScene() != null) {
+            alert.initOwner(closeButton.getScene().getWindow());
+        }
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.show();
+    }
+}
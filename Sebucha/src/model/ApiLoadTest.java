@@ -0,0 +1,199 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Sustained-load check for the HTTP API, run against a copy of the database:
+ *   java model.ApiLoadTest [clients] [seconds] [http://host:port]
+ * Without a URL it starts an ApiServer in this process. Each client loops over
+ * a kiosk-like mix: catalog refreshes with If-None-Match, cart pricing, order
+ * lookups and, for one request in ten, placing an order. Prints requests per
+ * second and latency per endpoint.
+ */
+public class ApiLoadTest {
+
+    private static final String[] ENDPOINTS = { "catalog", "price", "orders", "place" };
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        ApiServer local = null;
+        String base;
+        if (args.length > 2) {
+            base = args[2].replaceAll("/+$", "");
+        } else {
+            local = new ApiServer(0, InetAddress.getLoopbackAddress(), "");
+            local.start();
+            base = "http://127.0.0.1:" + local.getPort();
+        }
+        String token = System.getProperty(ApiServer.TOKEN_PROPERTY, "");
+
+        List<Integer> productIds = sellableProducts(get(base + "/api/catalog", token, null).body);
+        if (productIds.isEmpty()) {
+            System.err.println("No products in stock");
+            return;
+        }
+
+        Map<String, LatencyHistogram> latency = new ConcurrentHashMap<>();
+        Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+        for (String endpoint : ENDPOINTS) {
+            latency.put(endpoint, new LatencyHistogram());
+        }
+
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            Thread thread = new Thread(() -> {
+                String etag = null;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int roll = random.nextInt(100);
+                    String endpoint;
+                    long started = System.nanoTime();
+                    Response response;
+                    try {
+                        if (roll < 60) {
+                            endpoint = "catalog";
+                            response = get(base + "/api/catalog", token, etag);
+                            if (response.etag != null) {
+                                etag = response.etag;
+                            }
+                        } else if (roll < 80) {
+                            endpoint = "price";
+                            response = post(base + "/api/cart/price", token, cart(productIds, random, null));
+                        } else if (roll < 90) {
+                            endpoint = "orders";
+                            response = get(base + "/api/orders?limit=20", token, null);
+                        } else {
+                            endpoint = "place";
+                            response = post(base + "/api/orders", token, cart(productIds, random, "Load Test"));
+                        }
+                    } catch (IOException e) {
+                        statuses.computeIfAbsent(-1, s -> new AtomicLong()).incrementAndGet();
+                        continue;
+                    }
+                    latency.get(endpoint).recordSince(started);
+                    statuses.computeIfAbsent(response.status, s -> new AtomicLong()).incrementAndGet();
+                }
+            }, "api-load-" + c);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long total = 0;
+        System.out.printf("%d clients for %d s against %s%n", clients, seconds, base);
+        for (String endpoint : ENDPOINTS) {
+            LatencyHistogram histogram = latency.get(endpoint);
+            total += histogram.getCount();
+            System.out.printf("  %-8s %8d requests  p50 %6.2f ms  p99 %6.2f ms  max %7.2f ms%n", endpoint, histogram.getCount(),
+                histogram.getValueAtQuantile(0.50) / 1e6, histogram.getValueAtQuantile(0.99) / 1e6, histogram.getMaxNanos() / 1e6);
+        }
+        System.out.printf("  %.0f requests/s, statuses %s%n", total / (double) seconds, statuses);
+
+        if (local != null) {
+            local.stop();
+            SqliteConnection.closeConnection();
+        }
+    }
+
+    private static List<Integer> sellableProducts(String catalogJson) {
+        List<Integer> ids = new ArrayList<>();
+        Map<String, Object> catalog = JsonReader.parseObject(catalogJson);
+        for (Object entry : (List<?>) catalog.get("products")) {
+            Map<?, ?> product = (Map<?, ?>) entry;
+            if (Boolean.TRUE.equals(product.get("available"))) {
+                ids.add(((Long) product.get("id")).intValue());
+            }
+        }
+        return ids;
+    }
+
+    private static String cart(List<Integer> productIds, ThreadLocalRandom random, String customer) {
+        StringBuilder json = new StringBuilder("{");
+        if (customer != null) {
+            json.append("\"customerName\":\"").append(customer).append("\",\"orderType\":\"Takeout\",\"paymentMethod\":\"Cash\",");
+        }
+        json.append("\"items\":[");
+        int lines = 1 + random.nextInt(3);
+        for (int i = 0; i < lines; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"productId\":").append(productIds.get(random.nextInt(productIds.size())))
+                .append(",\"quantity\":1}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+        final String etag;
+
+        Response(int status, String body, String etag) {
+            this.status = status;
+            this.body = body;
+            this.etag = etag;
+        }
+    }
+
+    private static Response get(String url, String token, String etag) throws IOException {
+        HttpURLConnection connection = open(url, token);
+        if (etag != null) {
+            connection.setRequestProperty("If-None-Match", etag);
+        }
+        return read(connection);
+    }
+
+    private static Response post(String url, String token, String json) throws IOException {
+        HttpURLConnection connection = open(url, token);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        return read(connection);
+    }
+
+    private static HttpURLConnection open(String url, String token) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(30000);
+        if (!token.isEmpty()) {
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+        }
+        return connection;
+    }
+
+    // Reads the whole body so the keep-alive connection can be reused
+    private static Response read(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                stream.transferTo(body);
+            }
+        }
+        return new Response(status, body.toString(StandardCharsets.UTF_8), connection.getHeaderField("ETag"));
+    }
+}
@@ -0,0 +1,838 @@
+package model;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * HTTP/JSON API for the online kiosk and delivery partners, on the JDK's built-in
+ * server. Orders go through the same OrderService as the till, and carts are
+ * priced with the same Cart from the database's prices (prices sent by a
+ * client are never trusted).
+ *
+ *   GET  /api/catalog                 products, cached with an ETag
+ *   POST /api/cart/price              {"items":[{"productId","quantity","addOnId"?,"size"?}]}
+ *   POST /api/orders                  cart plus customerName, orderType, paymentMethod
+ *   GET  /api/orders?status=&payment=&customer=&from=&to=&limit=
+ *   GET  /api/orders/{id}             order with its lines
+ *   POST /api/orders/{id}/status      {"status":"Completed"}; "Cancelled" also restores stock
+ *   POST /api/orders/cancel           {"ids":[...]}, voids many orders in one transaction
+ *   GET  /api/dashboard               the Dashboard page's figures
+ *
+ * Started with -Dsebucha.api.port (inside the app or headless via main). With
+ * -Dsebucha.api.token every request needs "Authorization: Bearer <token>";
+ * without one the API only listens on this machine.
+ */
+public class ApiServer {
+
+    public static final String PORT_PROPERTY = "sebucha.api.port";
+    public static final String TOKEN_PROPERTY = "sebucha.api.token";
+    public static final int DEFAULT_PORT = 8080;
+
+    // Worker threads when virtual threads aren't available (before JDK 21)
+    private static final int POOL_THREADS = 32;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int MAX_ORDER_LIMIT = 10_000;
+    private static final int DEFAULT_ORDER_LIMIT = 100;
+    private static final int MAX_BULK_CANCEL = 1_000;
+
+    private static final List<String> ORDER_TYPES = List.of("Dine-in", "Takeout", "Delivery");
+    private static final List<String> PAYMENT_METHODS = List.of("Cash", "Card", "GCash", "Gothyme");
+    private static final List<String> STATUSES = List.of("Pending", "Completed", "Cancelled");
+
+    // Cashier recorded on API orders, so shift reports show kiosk and delivery sales on their own line
+    private static final String CASHIER = "API";
+
+    private static final String SELECT_CATALOG =
+        "SELECT id, name, category, price, stock, status FROM products ORDER BY category, name";
+
+    private static final String SELECT_ORDERS =
+        "SELECT o.id, o.customer_name, o.order_type, o.payment_method, o.order_status, o.total_amount, o.order_date, o.order_time " +
+        "FROM orders o";
+
+    // Same figures as the Dashboard page
+    private static final String SELECT_TODAY_INCOME =
+        "SELECT SUM(total_amount) FROM orders WHERE datetime(order_date || ' ' || order_time) >= datetime('now', '-18 hours')";
+    private static final String SELECT_TODAY_SOLD =
+        "SELECT SUM(oi.quantity) FROM order_items oi JOIN orders o ON oi.order_id = o.id " +
+        "WHERE datetime(o.order_date || ' ' || o.order_time) >= datetime('now', '-18 hours')";
+    private static final String SELECT_TOTAL_INCOME = "SELECT SUM(total_amount) FROM orders";
+    private static final String SELECT_BEST_SELLERS =
+        "SELECT p.name, SUM(oi.quantity) AS total_quantity FROM order_items oi JOIN products p ON oi.product_id = p.id " +
+        "GROUP BY p.id, p.name ORDER BY total_quantity DESC LIMIT 5";
+    private static final String SELECT_DAILY_INCOME =
+        "SELECT DATE(order_date) AS date, SUM(total_amount) AS daily_income FROM orders " +
+        "WHERE order_date >= date('now', '-7 days') GROUP BY DATE(order_date) ORDER BY date";
+
+    private static ApiServer running;
+
+    private final int port;
+    private final InetAddress bindAddress;
+    private final byte[] token;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // Serialized catalog for the products version it was built from
+    private volatile CatalogSnapshot catalog;
+
+    public ApiServer(int port, InetAddress bindAddress, String token) {
+        this.port = port;
+        this.bindAddress = bindAddress;
+        this.token = token == null ? new byte[0] : token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Headless API: java model.ApiServer [port]
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT);
+        ApiServer api = create(port);
+        api.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            api.stop();
+            SqliteConnection.closeConnection();
+        }));
+        Thread.currentThread().join();
+    }
+
+    // Starts the API when -Dsebucha.api.port is set (called from Main)
+    public static synchronized void startIfConfigured() {
+        String port = System.getProperty(PORT_PROPERTY);
+        if (port == null || port.trim().isEmpty() || running != null) {
+            return;
+        }
+        try {
+            ApiServer api = create(Integer.parseInt(port.trim()));
+            api.start();
+            running = api;
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Could not start the API on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    public static synchronized void stopRunning() {
+        if (running != null) {
+            running.stop();
+            running = null;
+        }
+    }
+
+    private static ApiServer create(int port) {
+        String token = System.getProperty(TOKEN_PROPERTY, "");
+        return new ApiServer(port, token.isEmpty() ? InetAddress.getLoopbackAddress() : null, token);
+    }
+
+    public void start() throws IOException {
+        // Headers and body go out in separate writes; without this each response waits on a delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        InetSocketAddress address = bindAddress == null ? new InetSocketAddress(port) : new InetSocketAddress(bindAddress, port);
+        server = HttpServer.create(address, 256);
+        server.createContext("/api/", this::handle);
+        executor = newExecutor();
+        server.setExecutor(executor);
+        server.start();
+        System.out.println("API listening on http://" + server.getAddress().getHostString() + ":" + getPort() + "/api/"
+            + (token.length == 0 ? " (this machine only, no token set)" : ""));
+    }
+
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    // One virtual thread per request on JDK 21+, a fixed pool before that
+    private static ExecutorService newExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(POOL_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "api-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long started = System.nanoTime();
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+        try {
+            if (!authorized(exchange)) {
+                sendError(exchange, 401, "Missing or wrong API token");
+                return;
+            }
+            String resource = path[0];
+            if (resource.equals("catalog") && path.length == 1) {
+                requireMethod(method, "GET");
+                sendCatalog(exchange);
+            } else if (resource.equals("cart") && path.length == 2 && path[1].equals("price")) {
+                requireMethod(method, "POST");
+                priceCart(exchange);
+            } else if (resource.equals("orders") && path.length == 1) {
+                if (method.equals("POST")) {
+                    placeOrder(exchange);
+                } else {
+                    requireMethod(method, "GET");
+                    listOrders(exchange);
+                }
+            } else if (resource.equals("orders") && path.length == 2 && path[1].equals("cancel")) {
+                requireMethod(method, "POST");
+                cancelOrders(exchange);
+            } else if (resource.equals("orders") && path.length == 2) {
+                requireMethod(method, "GET");
+                sendOrder(exchange, path[1]);
+            } else if (resource.equals("orders") && path.length == 3 && path[2].equals("status")) {
+                requireMethod(method, "POST");
+                updateStatus(exchange, path[1]);
+            } else if (resource.equals("dashboard") && path.length == 1) {
+                requireMethod(method, "GET");
+                sendDashboard(exchange);
+            } else {
+                sendError(exchange, 404, "No such resource");
+            }
+        } catch (ApiException e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (OutOfStockException e) {
+            sendError(exchange, 409, e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("API request failed: " + e.getMessage());
+            sendError(exchange, 500, "Database error");
+        } catch (IOException e) {
+            // client went away mid-response
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+            Metrics.recordSince("api_request", started);
+            Metrics.increment("api_responses_" + exchange.getResponseCode());
+        }
+    }
+
+    // Catalog
+
+    private void sendCatalog(HttpExchange exchange) throws IOException, SQLException {
+        CatalogSnapshot snapshot = currentCatalog();
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", snapshot.etag);
+        headers.set("Cache-Control", "no-cache");
+        headers.set("Vary", "Accept-Encoding");
+
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null && (ifNoneMatch.equals("*") || ifNoneMatch.contains(snapshot.etag))) {
+            Metrics.increment("api_catalog_not_modified");
+            // JDK 17's server resets the next request on a kept-alive connection after
+            // a bodiless 304, so have the client reconnect instead
+            headers.set("Connection", "close");
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        byte[] body = gzip ? snapshot.gzipped : snapshot.json;
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        if (gzip) {
+            headers.set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Rebuilt only when the products version moved since the last build
+    private CatalogSnapshot currentCatalog() throws SQLException, IOException {
+        long version = DataVersions.getProductsVersion();
+        CatalogSnapshot snapshot = catalog;
+        if (snapshot != null && snapshot.version == version) {
+            return snapshot;
+        }
+        synchronized (this) {
+            snapshot = catalog;
+            if (snapshot != null && snapshot.version == version) {
+                return snapshot;
+            }
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024);
+            try (Connection connection = connect();
+                 PreparedStatement statement = connection.prepareStatement(SELECT_CATALOG);
+                 ResultSet resultSet = statement.executeQuery();
+                 JsonWriter json = new JsonWriter(buffer)) {
+                json.beginObject().name("products").beginArray();
+                while (resultSet.next()) {
+                    String status = resultSet.getString("status");
+                    int stock = resultSet.getInt("stock");
+                    json.beginObject()
+                        .field("id", resultSet.getInt("id"))
+                        .field("name", resultSet.getString("name"))
+                        .field("category", resultSet.getString("category"))
+                        .field("price", resultSet.getDouble("price"))
+                        .field("stock", stock)
+                        .field("status", status)
+                        .field("available", isSellable(status, stock))
+                        .endObject();
+                }
+                json.endArray().endObject();
+            }
+            snapshot = new CatalogSnapshot(version, buffer.toByteArray());
+            catalog = snapshot;
+            Metrics.increment("api_catalog_builds");
+            return snapshot;
+        }
+    }
+
+    private static boolean isSellable(String status, int stock) {
+        return stock > 0 && ("Available".equals(status) || "Low Stock".equals(status));
+    }
+
+    // Cart and orders
+
+    private void priceCart(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, Object> body = readBody(exchange);
+        Cart cart = buildCart(body.get("items"));
+        sendJson(exchange, 200, json -> writeCart(json, cart));
+    }
+
+    private void placeOrder(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, Object> body = readBody(exchange);
+        String customerName = optionalString(body, "customerName", "Walk-in Customer").trim();
+        String orderType = optionalString(body, "orderType", "Takeout");
+        String paymentMethod = optionalString(body, "paymentMethod", "Cash");
+        if (customerName.isEmpty()) {
+            throw new IllegalArgumentException("customerName must not be blank");
+        }
+        if (!ORDER_TYPES.contains(orderType)) {
+            throw new IllegalArgumentException("orderType must be one of " + ORDER_TYPES);
+        }
+        if (!PAYMENT_METHODS.contains(paymentMethod)) {
+            throw new IllegalArgumentException("paymentMethod must be one of " + PAYMENT_METHODS);
+        }
+
+        Cart cart = buildCart(body.get("items"));
+        String orderId = OrderService.getInstance().placeOrder(
+            new OrderRequest(customerName, orderType, paymentMethod, cart.snapshot(), CASHIER));
+        DataVersions.ordersChanged();
+        DataVersions.productsChanged();
+        Metrics.increment("api_orders_placed");
+
+        exchange.getResponseHeaders().set("Location", "/api/orders/" + orderId);
+        sendJson(exchange, 201, json -> {
+            json.beginObject()
+                .field("id", orderId)
+                .field("status", "Pending");
+            json.name("cart");
+            writeCart(json, cart);
+            json.endObject();
+        });
+    }
+
+    /*
+     * Rings the requested lines into a Cart with the database's prices, the way
+     * the till does; rejects unknown products and quantities beyond stock. The
+     * stock check here only answers early: the order's own transaction takes the
+     * stock under the write lock and fails with OutOfStockException if another
+     * order got there first.
+     */
+    private Cart buildCart(Object items) throws SQLException {
+        if (!(items instanceof List) || ((List<?>) items).isEmpty()) {
+            throw new IllegalArgumentException("items must be a non-empty array");
+        }
+        List<?> lines = (List<?>) items;
+        List<Integer> ids = new ArrayList<>();
+        for (Object line : lines) {
+            if (!(line instanceof Map)) {
+                throw new IllegalArgumentException("Each item must be an object");
+            }
+            Map<?, ?> fields = (Map<?, ?>) line;
+            ids.add(requiredInt(fields, "productId"));
+            if (fields.get("addOnId") != null) {
+                ids.add(requiredInt(fields, "addOnId"));
+            }
+        }
+        Map<Integer, Product> products = loadProducts(ids);
+
+        Cart cart = new Cart();
+        Map<Integer, Integer> wanted = new HashMap<>();
+        for (Object line : lines) {
+            Map<?, ?> fields = (Map<?, ?>) line;
+            Product product = sellable(products, requiredInt(fields, "productId"));
+            Product addOn = fields.get("addOnId") == null ? null : sellable(products, requiredInt(fields, "addOnId"));
+            int quantity = fields.get("quantity") == null ? 1 : requiredInt(fields, "quantity");
+            if (quantity < 1 || quantity > 999) {
+                throw new IllegalArgumentException("quantity must be between 1 and 999");
+            }
+            Object size = fields.get("size");
+            wanted.merge(product.getId(), quantity, Integer::sum);
+            if (addOn != null) {
+                wanted.merge(addOn.getId(), quantity, Integer::sum);
+            }
+            cart.add(product, quantity, addOn, size == null ? null : size.toString());
+        }
+        for (Map.Entry<Integer, Integer> entry : wanted.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (entry.getValue() > product.getStock()) {
+                throw new ApiException(409, "Only " + product.getStock() + " " + product.getName() + " left in stock");
+            }
+        }
+        return cart;
+    }
+
+    private static Product sellable(Map<Integer, Product> products, int id) {
+        Product product = products.get(id);
+        if (product == null) {
+            throw new ApiException(400, "Unknown product " + id);
+        }
+        if (!isSellable(product.getStatus(), product.getStock())) {
+            throw new ApiException(409, product.getName() + " is not available");
+        }
+        return product;
+    }
+
+    private Map<Integer, Product> loadProducts(List<Integer> ids) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id, name, category, price, stock, status FROM products WHERE id IN (");
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        for (int i = 0; i < distinct.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+
+        Map<Integer, Product> products = new HashMap<>();
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < distinct.size(); i++) {
+                statement.setInt(i + 1, distinct.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    Product product = new Product();
+                    product.setId(resultSet.getInt("id"));
+                    product.setName(resultSet.getString("name"));
+                    product.setCategory(resultSet.getString("category"));
+                    product.setPrice(resultSet.getDouble("price"));
+                    product.setStock(resultSet.getInt("stock"));
+                    product.setStatus(resultSet.getString("status"));
+                    products.put(product.getId(), product);
+                }
+            }
+        }
+        return products;
+    }
+
+    private static void writeCart(JsonWriter json, Cart cart) throws IOException {
+        json.beginObject().name("lines").beginArray();
+        for (OrderItem item : cart.snapshot()) {
+            json.beginObject()
+                .field("productId", item.getProductId())
+                .field("name", item.getProductName())
+                .field("quantity", item.getQuantity())
+                .field("unitPrice", item.getUnitPrice())
+                .field("total", item.getTotalPrice());
+            if (item.getSize() != null) {
+                json.field("size", item.getSize());
+            }
+            json.endObject();
+        }
+        json.endArray()
+            .field("itemCount", cart.getItemCount())
+            .field("total", cart.getTotal())
+            .endObject();
+    }
+
+    // Streams matching orders straight from the cursor, newest first
+    private void listOrders(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, String> params = queryParams(exchange);
+        LocalDate from = parseDate(params.get("from"));
+        LocalDate to = parseDate(params.get("to"));
+        if ((from == null) != (to == null)) {
+            throw new IllegalArgumentException("from and to go together");
+        }
+        int limit = params.containsKey("limit") ? parseInt(params.get("limit"), "limit") : DEFAULT_ORDER_LIMIT;
+        if (limit < 1 || limit > MAX_ORDER_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_ORDER_LIMIT);
+        }
+        OrderHistoryQuery query = new OrderHistoryQuery(params.get("customer"), params.get("status"),
+            params.get("payment"), from, to);
+
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(
+                 SELECT_ORDERS + query.whereClause() + OrderHistoryQuery.ORDER_BY + " LIMIT ?")) {
+            int index = query.bind(statement, 1);
+            statement.setInt(index, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                sendJson(exchange, 200, json -> {
+                    json.beginObject().name("orders").beginArray();
+                    while (resultSet.next()) {
+                        writeOrderHeader(json, resultSet);
+                        json.endObject();
+                    }
+                    json.endArray().endObject();
+                });
+            }
+        }
+    }
+
+    private void sendOrder(HttpExchange exchange, String orderId) throws IOException, SQLException {
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(SELECT_ORDERS + " WHERE o.id = ?")) {
+            statement.setString(1, orderId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new ApiException(404, "No order " + orderId);
+                }
+                List<OrderItem> items = OrderItemStore.loadItems(connection, orderId);
+                sendJson(exchange, 200, json -> {
+                    writeOrderHeader(json, resultSet);
+                    json.name("items").beginArray();
+                    for (OrderItem item : items) {
+                        json.beginObject()
+                            .field("productId", item.getProductId())
+                            .field("name", item.getProductName())
+                            .field("quantity", item.getQuantity())
+                            .field("unitPrice", item.getUnitPrice())
+                            .field("total", item.getTotalPrice())
+                            .name("modifiers").beginArray();
+                        for (OrderItemModifier modifier : item.getModifiers()) {
+                            json.beginObject()
+                                .field("productId", modifier.getModifierProductId())
+                                .field("name", modifier.getName())
+                                .field("unitPrice", modifier.getUnitPrice())
+                                .field("quantity", modifier.getQuantity())
+                                .endObject();
+                        }
+                        json.endArray().endObject();
+                    }
+                    json.endArray().endObject();
+                });
+            }
+        }
+    }
+
+    // Leaves the order object open so callers can add to it
+    private static void writeOrderHeader(JsonWriter json, ResultSet resultSet) throws IOException, SQLException {
+        json.beginObject()
+            .field("id", resultSet.getString("id"))
+            .field("customerName", resultSet.getString("customer_name"))
+            .field("orderType", resultSet.getString("order_type"))
+            .field("paymentMethod", resultSet.getString("payment_method"))
+            .field("status", resultSet.getString("order_status"))
+            .field("total", resultSet.getDouble("total_amount"))
+            .field("date", resultSet.getString("order_date"))
+            .field("time", resultSet.getString("order_time"));
+    }
+
+    private void updateStatus(HttpExchange exchange, String orderId) throws IOException, SQLException {
+        Map<String, Object> body = readBody(exchange);
+        Object status = body.get("status");
+        if (!(status instanceof String) || !STATUSES.contains(status)) {
+            throw new IllegalArgumentException("status must be one of " + STATUSES);
+        }
+        if (!OrderService.getInstance().updateStatus(orderId, (String) status)) {
+            throw new ApiException(409, "Order " + orderId + " doesn't exist or is cancelled");
+        }
+        DataVersions.ordersChanged();
+        if ("Cancelled".equals(status)) {
+            DataVersions.productsChanged();
+        }
+        sendJson(exchange, 200, json -> json.beginObject()
+            .field("id", orderId)
+            .field("status", (String) status)
+            .endObject());
+    }
+
+    // Orders already cancelled or unknown come back under "skipped", so a retried request is harmless
+    private void cancelOrders(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, Object> body = readBody(exchange);
+        if (!(body.get("ids") instanceof List)) {
+            throw new IllegalArgumentException("ids must be a list of order ids");
+        }
+        List<String> ids = new ArrayList<>();
+        for (Object id : (List<?>) body.get("ids")) {
+            if (id instanceof String) {
+                ids.add((String) id);
+            } else if (id instanceof Long) {
+                ids.add(id.toString());
+            } else {
+                throw new IllegalArgumentException("ids must be strings or integers");
+            }
+        }
+        if (ids.size() > MAX_BULK_CANCEL) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_CANCEL + " orders per request");
+        }
+
+        List<String> cancelled = OrderService.getInstance().cancelOrders(ids);
+        if (!cancelled.isEmpty()) {
+            DataVersions.ordersChanged();
+            DataVersions.productsChanged();
+        }
+        LinkedHashSet<String> skipped = new LinkedHashSet<>(ids);
+        skipped.removeAll(cancelled);
+
+        sendJson(exchange, 200, json -> {
+            json.beginObject().name("cancelled").beginArray();
+            for (String id : cancelled) {
+                json.value(id);
+            }
+            json.endArray().name("skipped").beginArray();
+            for (String id : skipped) {
+                json.value(id);
+            }
+            json.endArray().endObject();
+        });
+    }
+
+    // Dashboard
+
+    private void sendDashboard(HttpExchange exchange) throws IOException, SQLException {
+        try (Connection connection = connect()) {
+            double todayIncome = queryDouble(connection, SELECT_TODAY_INCOME);
+            long todaySold = (long) queryDouble(connection, SELECT_TODAY_SOLD);
+            double totalIncome = queryDouble(connection, SELECT_TOTAL_INCOME);
+            List<Object[]> bestSellers = queryPairs(connection, SELECT_BEST_SELLERS);
+            List<Object[]> dailyIncome = queryPairs(connection, SELECT_DAILY_INCOME);
+
+            sendJson(exchange, 200, json -> {
+                json.beginObject()
+                    .field("todayIncome", todayIncome)
+                    .field("productsSoldToday", todaySold)
+                    .field("totalIncome", totalIncome)
+                    .name("bestSellers").beginArray();
+                for (Object[] row : bestSellers) {
+                    json.beginObject().field("name", (String) row[0]).field("quantity", (long) (double) row[1]).endObject();
+                }
+                json.endArray().name("dailyIncome").beginArray();
+                for (Object[] row : dailyIncome) {
+                    json.beginObject().field("date", (String) row[0]).field("income", (double) row[1]).endObject();
+                }
+                json.endArray().endObject();
+            });
+        }
+    }
+
+    private static double queryDouble(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getDouble(1) : 0;
+        }
+    }
+
+    // Label and amount rows
+    private static List<Object[]> queryPairs(Connection connection, String sql) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                rows.add(new Object[] { resultSet.getString(1), resultSet.getDouble(2) });
+            }
+        }
+        return rows;
+    }
+
+    // Plumbing
+
+    private interface JsonBody {
+        void write(JsonWriter json) throws IOException, SQLException;
+    }
+
+    // Chunked response; the body is written while it is produced
+    private static void sendJson(HttpExchange exchange, int status, JsonBody body) throws IOException, SQLException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        try (JsonWriter json = new JsonWriter(exchange.getResponseBody())) {
+            body.write(json);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            return; // headers already went out, nothing sensible left to send
+        }
+        StringBuilder body = new StringBuilder("{\"error\":");
+        JsonWriter.appendString(body, message == null ? "Error" : message);
+        body.append('}');
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    private boolean authorized(HttpExchange exchange) {
+        if (token.length == 0) {
+            return true;
+        }
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return false;
+        }
+        return MessageDigest.isEqual(token, header.substring(7).trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void requireMethod(String method, String allowed) {
+        if (!method.equals(allowed)) {
+            throw new ApiException(405, "Use " + allowed);
+        }
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                body.write(chunk, 0, read);
+                if (body.size() > MAX_BODY_BYTES) {
+                    throw new ApiException(413, "Request body over " + MAX_BODY_BYTES / 1024 + " KB");
+                }
+            }
+        }
+        return JsonReader.parseObject(body.toString(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> params = new LinkedHashMap<>();
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static int requiredInt(Map<?, ?> fields, String name) {
+        Object value = fields.get(name);
+        if (!(value instanceof Long) || (Long) value != ((Long) value).intValue()) {
+            throw new IllegalArgumentException(name + " must be a whole number");
+        }
+        return ((Long) value).intValue();
+    }
+
+    private static String optionalString(Map<String, Object> fields, String name, String fallback) {
+        Object value = fields.get(name);
+        if (value == null) {
+            return fallback;
+        }
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException(name + " must be a string");
+        }
+        return (String) value;
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a whole number");
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Dates are YYYY-MM-DD");
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        Connection connection = SqliteConnection.Connector();
+        if (connection == null) {
+            throw new SQLException("Could not connect to database");
+        }
+        return connection;
+    }
+
+    // A response other than 200 with a message for the client
+    private static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static final class CatalogSnapshot {
+        final long version;
+        final byte[] json;
+        final byte[] gzipped;
+        final String etag;
+
+        CatalogSnapshot(long version, byte[] json) throws IOException {
+            this.version = version;
+            this.json = json;
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+            this.gzipped = compressed.toByteArray();
+            this.etag = "\"" + contentHash(json) + "\"";
+        }
+
+        // Content-based, so the tag survives restarts as long as the catalog is the same
+        private static String contentHash(byte[] bytes) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+                StringBuilder hex = new StringBuilder();
+                for (int i = 0; i < 12; i++) {
+                    hex.append(String.format("%02x", digest[i]));
+                }
+                return hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package model;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Checks staff credentials against the users table.
+ * - Passwords are verified with PasswordHasher; plaintext or weaker hashes are
+ *   replaced with a fresh hash on the first successful login.
+ * - After a successful login the user is remembered for a shift
+ *   (-Dsebucha.auth.cacheMinutes, default 12 hours), so switching staff at the
+ *   till skips the slow hash. The cache keeps only an HMAC of the password under
+ *   a key that exists in memory for this run, and an entry is only honoured while
+ *   the stored hash is unchanged.
+ * - Adds the role column to older databases; "admin" becomes the admin, everyone else staff.
+ * - On a terminal the order server does all of this (OP_LOGIN).
+ * Blocking; call it off the FX thread.
+ */
+public class Authenticator {
+
+    public static final String CACHE_MINUTES_PROPERTY = "sebucha.auth.cacheMinutes";
+
+    private static final int MAX_CACHED_USERS = 32;
+
+    private static Authenticator instance;
+
+    private final byte[] cacheKey = new byte[32];
+    private final long cacheTtlNanos;
+    private final Map<String, CachedLogin> verified = new LinkedHashMap<String, CachedLogin>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedLogin> eldest) {
+            return size() > MAX_CACHED_USERS;
+        }
+    };
+    private volatile boolean schemaReady;
+    private volatile String dummyHash;
+
+    private Authenticator() {
+        new SecureRandom().nextBytes(cacheKey);
+        cacheTtlNanos = TimeUnit.MINUTES.toNanos(Long.getLong(CACHE_MINUTES_PROPERTY, 12 * 60));
+        Metrics.gauge("auth_cache_hit_ratio", () -> Metrics.ratio("auth_cache_hits", "auth_cache_misses"));
+    }
+
+    public static synchronized Authenticator getInstance() {
+        if (instance == null) {
+            instance = new Authenticator();
+        }
+        return instance;
+    }
+
+    // Returns the user's role, or null if the username or password is wrong
+    public String authenticate(String username, char[] password) throws SQLException {
+        if (OrderServerClient.isConfigured()) {
+            return OrderServerClient.getInstance().authenticate(username, password);
+        }
+        long started = System.nanoTime();
+        try (Connection connection = SqliteConnection.Connector()) {
+            if (connection == null) {
+                throw new SQLException("Could not connect to database");
+            }
+            ensureSchema(connection);
+
+            int userId;
+            String stored;
+            String role;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT user_id, password, role FROM users WHERE username = ?")) {
+                statement.setString(1, username);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        // Same work as a real check so unknown usernames can't be told apart by timing
+                        PasswordHasher.verify(password, dummyHash());
+                        return null;
+                    }
+                    userId = resultSet.getInt("user_id");
+                    stored = resultSet.getString("password");
+                    role = resultSet.getString("role");
+                }
+            }
+            if (role == null) {
+                role = "staff";
+            }
+
+            byte[] token = token(username, password);
+            if (isCached(username, stored, token)) {
+                Metrics.increment("auth_cache_hits");
+                return role;
+            }
+            Metrics.increment("auth_cache_misses");
+
+            if (!PasswordHasher.verify(password, stored)) {
+                return null;
+            }
+
+            if (PasswordHasher.needsRehash(stored)) {
+                String upgraded = PasswordHasher.hash(password);
+                try (PreparedStatement update = connection.prepareStatement(
+                        "UPDATE users SET password = ? WHERE user_id = ? AND password = ?")) {
+                    update.setString(1, upgraded);
+                    update.setInt(2, userId);
+                    update.setString(3, stored);
+                    if (update.executeUpdate() == 1) {
+                        stored = upgraded;
+                    }
+                } catch (SQLException e) {
+                    // The login itself succeeded; try the upgrade again next time
+                    System.err.println("Could not upgrade password hash for " + username + ": " + e.getMessage());
+                }
+            }
+
+            synchronized (verified) {
+                verified.put(username, new CachedLogin(stored, token, System.nanoTime() + cacheTtlNanos));
+            }
+            return role;
+        } finally {
+            Metrics.recordSince("auth_login", started);
+        }
+    }
+
+    // Forgets a remembered login, e.g. after a password change
+    public void invalidate(String username) {
+        synchronized (verified) {
+            verified.remove(username);
+        }
+    }
+
+    public void clearCache() {
+        synchronized (verified) {
+            verified.clear();
+        }
+    }
+
+    private boolean isCached(String username, String stored, byte[] token) {
+        CachedLogin cached;
+        synchronized (verified) {
+            cached = verified.get(username);
+            if (cached != null && System.nanoTime() - cached.expiresAt > 0) {
+                verified.remove(username);
+                cached = null;
+            }
+        }
+        return cached != null && cached.storedHash.equals(stored) && MessageDigest.isEqual(cached.token, token);
+    }
+
+    private byte[] token(String username, char[] password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(cacheKey, "HmacSHA256"));
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(new String(password).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private String dummyHash() {
+        if (dummyHash == null) {
+            dummyHash = PasswordHasher.hash("not-a-real-password".toCharArray());
+        }
+        return dummyHash;
+    }
+
+    // Older databases have no role column
+    private void ensureSchema(Connection connection) throws SQLException {
+        if (schemaReady) {
+            return;
+        }
+        boolean hasRole = false;
+        try (Statement statement = connection.createStatement();
+             ResultSet columns = statement.executeQuery("PRAGMA table_info(users)")) {
+            while (columns.next()) {
+                if ("role".equalsIgnoreCase(columns.getString("name"))) {
+                    hasRole = true;
+                }
+            }
+        }
+        if (!hasRole) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER TABLE users ADD COLUMN role TEXT NOT NULL DEFAULT 'staff'");
+                statement.executeUpdate("UPDATE users SET role = 'admin' WHERE username = 'admin'");
+            }
+        }
+        schemaReady = true;
+    }
+
+    private static class CachedLogin {
+        final String storedHash;
+        final byte[] token;
+        final long expiresAt;
+
+        CachedLogin(String storedHash, byte[] token, long expiresAt) {
+            this.storedHash = storedHash;
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package model;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/*
+ * Shopping cart for the Order page.
+ * Lines are indexed by (product, add-on, size) so adding the same drink again
+ * merges in O(1), totals are kept as running sums instead of re-streaming the list,
+ * and listeners are told about changes once per batch rather than once per line.
+ * Lines are tracked by identity: OrderItem.equals() compares values, and two
+ * different lines can have equal values.
+ */
+public class Cart {
+
+    private final ObservableList<OrderItem> lines = FXCollections.observableArrayList();
+    private final ObservableList<OrderItem> readOnlyLines = FXCollections.unmodifiableObservableList(lines);
+    private final Map<LineKey, OrderItem> lineIndex = new HashMap<>();
+    private final Map<OrderItem, LineKey> keysByLine = new IdentityHashMap<>();
+
+    // Lines that can take an add-on, grouped by quantity (see OrderItem.canCombineWithAddOns)
+    private final Map<Integer, List<OrderItem>> combinableByQuantity = new HashMap<>();
+
+    private final List<Runnable> changeListeners = new ArrayList<>();
+    private final List<OrderItem> pendingAdds = new ArrayList<>();
+    private int batchDepth;
+    private boolean dirty;
+
+    // Running totals; money kept in centavos so repeated add/remove never drifts
+    private long totalCents;
+    private int itemCount;
+
+    // Live view of the lines for a TableView
+    public ObservableList<OrderItem> getLines() {
+        return readOnlyLines;
+    }
+
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    /*
+     * Adds quantity of a product with an optional add-on (null for none) and size.
+     * Merges into the existing line for the same key, otherwise creates a line.
+     * Returns the affected line.
+     */
+    public OrderItem add(Product product, int quantity, Product addOn, String size) {
+        LineKey key = new LineKey(product.getId(), addOn == null ? 0 : addOn.getId(), size);
+        OrderItem existing = lineIndex.get(key);
+        if (existing != null) {
+            update(existing, line -> line.setQuantity(line.getQuantity() + quantity));
+            return existing;
+        }
+
+        String addOnLabel = addOn == null ? "None" : OrderItemModifier.label(addOn);
+        String displayName = addOn == null ? product.getName() : product.getName() + " + " + addOnLabel;
+        double unitPrice = product.getPrice() + (addOn == null ? 0 : addOn.getPrice());
+
+        OrderItem item = new OrderItem(
+            0,
+            product.getId(),
+            displayName,
+            quantity,
+            unitPrice,
+            unitPrice * quantity,
+            size,
+            addOnLabel,
+            null,
+            product.getCategory()
+        );
+        if (addOn != null) {
+            item.addModifier(OrderItemModifier.of(addOn));
+        }
+        lineIndex.put(key, item);
+        keysByLine.put(item, key);
+        link(item);
+        if (batchDepth > 0) {
+            pendingAdds.add(item);
+        } else {
+            lines.add(item);
+        }
+        markDirty();
+        return item;
+    }
+
+    public OrderItem add(Product product, int quantity, Product addOn) {
+        return add(product, quantity, addOn, null);
+    }
+
+    // Puts a separately rung-up add-on onto an existing line
+    public void attachAddOn(OrderItem item, Product addOn) {
+        update(item, line -> {
+            line.setProductName(line.getProductName() + " + " + addOn.getName());
+            line.setUnitPrice(line.getUnitPrice() + addOn.getPrice());
+            line.addModifier(OrderItemModifier.of(addOn));
+        });
+    }
+
+    // Applies an in-place change to a line while keeping totals and indexes consistent
+    public void update(OrderItem item, Consumer<OrderItem> change) {
+        unlink(item);
+        change.accept(item);
+        link(item);
+        markDirty();
+    }
+
+    public void remove(OrderItem item) {
+        LineKey key = keysByLine.remove(item);
+        if (key == null) {
+            return;
+        }
+        lineIndex.remove(key);
+        unlink(item);
+        if (!removeSame(pendingAdds, item)) {
+            removeSame(lines, item);
+        }
+        markDirty();
+    }
+
+    public void clear() {
+        lineIndex.clear();
+        keysByLine.clear();
+        combinableByQuantity.clear();
+        pendingAdds.clear();
+        lines.clear();
+        totalCents = 0;
+        itemCount = 0;
+        markDirty();
+    }
+
+    // First line that can absorb a standalone add-on ordered with the same quantity
+    public OrderItem findCombinable(int quantity) {
+        List<OrderItem> candidates = combinableByQuantity.get(quantity);
+        return candidates == null || candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    public OrderItem find(int productId, int addOnId, String size) {
+        return lineIndex.get(new LineKey(productId, addOnId, size));
+    }
+
+    /*
+     * Runs several cart changes with a single notification at the end,
+     * e.g. when loading a large catering order.
+     */
+    public void batch(Runnable changes) {
+        batchDepth++;
+        try {
+            changes.run();
+        } finally {
+            batchDepth--;
+            if (batchDepth == 0) {
+                if (!pendingAdds.isEmpty()) {
+                    lines.addAll(pendingAdds);
+                    pendingAdds.clear();
+                }
+                fireIfDirty();
+            }
+        }
+    }
+
+    // Units of a product the cart would take from stock: its own lines plus its use as an add-on
+    public int unitsOf(int productId) {
+        int units = 0;
+        for (OrderItem line : snapshot()) {
+            if (line.getProductId() == productId) {
+                units += line.getQuantity();
+            }
+            for (OrderItemModifier modifier : line.getModifiers()) {
+                if (modifier.getModifierProductId() == productId) {
+                    units += modifier.getQuantity() * line.getQuantity();
+                }
+            }
+        }
+        return units;
+    }
+
+    public double getTotal() {
+        return totalCents / 100.0;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public int size() {
+        return lineIndex.size();
+    }
+
+    public boolean isEmpty() {
+        return lineIndex.isEmpty();
+    }
+
+    // Copy of the lines in display order, safe to keep after the cart is cleared
+    public List<OrderItem> snapshot() {
+        List<OrderItem> copy = new ArrayList<>(lines);
+        copy.addAll(pendingAdds);
+        return copy;
+    }
+
+    private void link(OrderItem item) {
+        totalCents += toCents(item.getTotalPrice());
+        itemCount += item.getQuantity();
+        if (item.canCombineWithAddOns()) {
+            combinableByQuantity.computeIfAbsent(item.getQuantity(), q -> new ArrayList<>()).add(item);
+        }
+    }
+
+    private void unlink(OrderItem item) {
+        totalCents -= toCents(item.getTotalPrice());
+        itemCount -= item.getQuantity();
+        List<OrderItem> sameQuantity = combinableByQuantity.get(item.getQuantity());
+        if (sameQuantity != null) {
+            removeSame(sameQuantity, item);
+            if (sameQuantity.isEmpty()) {
+                combinableByQuantity.remove(item.getQuantity());
+            }
+        }
+    }
+
+    private void markDirty() {
+        dirty = true;
+        if (batchDepth == 0) {
+            fireIfDirty();
+        }
+    }
+
+    private void fireIfDirty() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    // Removes exactly this line object (not just an equal one)
+    private static boolean removeSame(List<OrderItem> list, OrderItem item) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == item) {
+                list.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Identity of a cart line: product, add-on product (0 for none) and size
+    private static final class LineKey {
+        private final int productId;
+        private final int addOnId;
+        private final String size;
+
+        LineKey(int productId, int addOnId, String size) {
+            this.productId = productId;
+            this.addOnId = addOnId;
+            this.size = size == null ? "" : size;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof LineKey)) return false;
+            LineKey other = (LineKey) obj;
+            return productId == other.productId && addOnId == other.addOnId && size.equals(other.size);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(productId, addOnId, size);
+        }
+    }
+}
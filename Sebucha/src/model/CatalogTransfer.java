@@ -0,0 +1,854 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/*
+ * Moves the whole product catalog in and out of a file: CSV, JSON, or a ZIP
+ * holding catalog.csv (or catalog.json) and the product photos under images/.
+ *
+ * An import reads the file, checks every row in parallel and stops before
+ * writing anything if any row is wrong, listing the bad lines. Rows with an id,
+ * or with the name and category of a product already in the catalog, update
+ * that product; the rest are new and get one block of ids. Everything is written
+ * in a single transaction with one batched upsert, and the rest of the app hears
+ * about it once at the end, so a seasonal menu or a 10,000-row catalog goes in
+ * within seconds. On a terminal the file is read and checked locally and the
+ * rows are written by the order server. Photos from a ZIP are unpacked into
+ * product-images/ (-Dsebucha.images.dir) under names of their own, and only
+ * moved there once the products pointing at them are written.
+ */
+public class CatalogTransfer {
+
+    public static final String IMAGES_PROPERTY = "sebucha.images.dir";
+    public static final String DEFAULT_IMAGES_DIRECTORY = "product-images";
+
+    public static final List<String> STATUSES = List.of("Available", "Low Stock", "Out of Stock", "Discontinued");
+
+    // Columns of a catalog file; id, status and image may be left out
+    private static final String[] COLUMNS = {"id", "name", "category", "price", "stock", "status", "image"};
+    private static final String[] REQUIRED_COLUMNS = {"name", "category", "price", "stock"};
+
+    private static final String CATALOG_CSV = "catalog.csv";
+    private static final String CATALOG_JSON = "catalog.json";
+    private static final String IMAGE_FOLDER = "images/";
+
+    // Bad rows listed back to the user; the rest are only counted
+    private static final int MAX_ERRORS_SHOWN = 20;
+
+    private static final String SELECT_CATALOG =
+        "SELECT id, name, category, price, stock, status, image_path FROM products ORDER BY id";
+
+    private static final String SELECT_KEYS = "SELECT id, name, category FROM products";
+
+    // date_added stays as it was for products that already exist
+    private static final String UPSERT_PRODUCT =
+        "INSERT INTO products (id, name, category, price, stock, status, image_path, date_added) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT(id) DO UPDATE SET name = excluded.name, category = excluded.category, " +
+        "price = excluded.price, stock = excluded.stock, status = excluded.status, image_path = excluded.image_path";
+
+    private CatalogTransfer() {
+    }
+
+    // java model.CatalogTransfer export|import <catalog.csv|catalog.json|catalog.zip>
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2 || !(args[0].equals("export") || args[0].equals("import"))) {
+            System.err.println("Usage: java model.CatalogTransfer export|import <file.csv|file.json|file.zip>");
+            return;
+        }
+        Path file = Paths.get(args[1]);
+        try {
+            if (args[0].equals("export")) {
+                int count = exportCatalog(file);
+                System.out.println("Exported " + count + " products to " + file);
+            } else {
+                Result result = importCatalog(file);
+                System.out.println(result.isSuccess() ? result.getSummary() : result.getErrorReport());
+            }
+        } finally {
+            SqliteConnection.closeConnection();
+        }
+    }
+
+    public static Path getImagesDirectory() {
+        return Paths.get(System.getProperty(IMAGES_PROPERTY, DEFAULT_IMAGES_DIRECTORY));
+    }
+
+    /*
+     * Writes every product to the file; its extension picks the format. A ZIP
+     * also carries each product photo that exists on this machine. Returns the
+     * product count; a failed export deletes the partial file.
+     */
+    public static int exportCatalog(Path target) throws IOException, SQLException {
+        List<Product> products = new ArrayList<>();
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(SELECT_CATALOG);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                Product product = new Product();
+                product.setId(resultSet.getInt("id"));
+                product.setName(resultSet.getString("name"));
+                product.setCategory(resultSet.getString("category"));
+                product.setPrice(resultSet.getDouble("price"));
+                product.setStock(resultSet.getInt("stock"));
+                product.setStatus(resultSet.getString("status"));
+                product.setImagePath(resultSet.getString("image_path"));
+                products.add(product);
+            }
+        }
+
+        String name = target.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean completed = false;
+        try {
+            if (name.endsWith(".zip")) {
+                writeZip(target, products);
+            } else if (name.endsWith(".json")) {
+                writeJson(target, products);
+            } else {
+                try (CsvWriter csv = new CsvWriter(target)) {
+                    csv.writeRow(COLUMNS);
+                    for (Product product : products) {
+                        csv.writeRow(fields(product, product.getImagePath()));
+                    }
+                }
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(target);
+            }
+        }
+        return products.size();
+    }
+
+    /*
+     * Adds and updates products from a catalog file. Nothing is written unless
+     * every row is valid; the result lists the bad rows otherwise.
+     */
+    public static Result importCatalog(Path source) throws IOException, SQLException {
+        long started = System.nanoTime();
+        String fileName = source.getFileName().toString().toLowerCase(Locale.ROOT);
+        ZipFile zip = null;
+        Path staging = null;
+        try {
+            String text;
+            boolean json;
+            Path baseDirectory = null;
+            if (fileName.endsWith(".zip")) {
+                zip = new ZipFile(source.toFile(), StandardCharsets.UTF_8);
+                ZipEntry catalog = zip.getEntry(CATALOG_CSV);
+                json = catalog == null;
+                if (json) {
+                    catalog = zip.getEntry(CATALOG_JSON);
+                }
+                if (catalog == null) {
+                    return Result.failed("The ZIP has no " + CATALOG_CSV + " or " + CATALOG_JSON + ".");
+                }
+                try (InputStream in = zip.getInputStream(catalog)) {
+                    text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            } else {
+                text = Files.readString(source, StandardCharsets.UTF_8);
+                json = fileName.endsWith(".json");
+                // Relative image paths in a loose CSV or JSON are next to the file
+                baseDirectory = source.toAbsolutePath().getParent();
+            }
+
+            List<Map<String, String>> records;
+            try {
+                records = json ? readJson(text) : readCsv(text);
+            } catch (IllegalArgumentException e) {
+                return Result.failed(e.getMessage());
+            }
+
+            // Checks are independent per row, and image checks go to the disk
+            ZipFile images = zip;
+            Path base = baseDirectory;
+            List<Row> rows = records.parallelStream()
+                .map(record -> validate(record, images, base))
+                .collect(Collectors.toList());
+
+            List<String> errors = new ArrayList<>();
+            findDuplicates(rows);
+            for (Row row : rows) {
+                if (row.error != null) {
+                    errors.add(row.where + ": " + row.error);
+                }
+            }
+            if (!errors.isEmpty()) {
+                return new Result(0, 0, errors, elapsedMillis(started));
+            }
+            if (rows.isEmpty()) {
+                return Result.failed("The catalog has no products.");
+            }
+
+            if (zip != null) {
+                staging = unpackImages(zip, rows);
+            }
+            Result result = write(rows, started);
+            if (staging != null) {
+                moveImagesIntoPlace(staging);
+            }
+            return result;
+        } finally {
+            if (zip != null) {
+                zip.close();
+            }
+            if (staging != null) {
+                deleteStaging(staging);
+            }
+        }
+    }
+
+    /*
+     * Writes checked rows. A terminal hands them to the order server; here the
+     * write lock is held from reading the existing keys until the commit, so
+     * another till adding a product can't take the same id.
+     */
+    private static Result write(List<Row> rows, long started) throws SQLException {
+        if (OrderServerClient.isConfigured()) {
+            int[] counts = OrderServerClient.getInstance().importCatalog(rows);
+            DataVersions.productsChanged();
+            return new Result(counts[0], counts[1], Collections.emptyList(), elapsedMillis(started));
+        }
+        LocalOrderService writes = LocalOrderService.getInstance();
+        writes.lockWrites();
+        try {
+            return writeLocked(rows, started);
+        } finally {
+            writes.unlockWrites();
+        }
+    }
+
+    // The order server's side of an import from a terminal
+    static Result importRows(List<Row> rows) throws SQLException {
+        return write(rows, System.nanoTime());
+    }
+
+    private static Result writeLocked(List<Row> rows, long started) throws SQLException {
+        Set<Integer> existingIds = new HashSet<>();
+        Map<String, Integer> existingByKey = new HashMap<>();
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(SELECT_KEYS);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                int id = resultSet.getInt("id");
+                existingIds.add(id);
+                existingByKey.put(key(resultSet.getString("name"), resultSet.getString("category")), id);
+            }
+        }
+
+        List<Row> known = new ArrayList<>();
+        List<Row> fresh = new ArrayList<>();
+        int updated = 0;
+        for (Row row : rows) {
+            if (row.id == null) {
+                row.id = existingByKey.get(key(row.name, row.category));
+            }
+            if (row.id == null) {
+                fresh.add(row);
+            } else {
+                known.add(row);
+                if (existingIds.contains(row.id)) {
+                    updated++;
+                }
+            }
+        }
+
+        RecipeBook.Recipes recipes = RecipeBook.getInstance().recipes();
+        Set<Integer> imported = new HashSet<>();
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            try {
+                long now = System.currentTimeMillis() / 1000;
+                try (PreparedStatement statement = connection.prepareStatement(UPSERT_PRODUCT)) {
+                    if (!known.isEmpty()) {
+                        for (Row row : known) {
+                            bind(statement, row, now);
+                        }
+                        statement.executeBatch();
+                    }
+                    if (!fresh.isEmpty()) {
+                        int nextId = InventoryIdGenerator.firstFreeId(connection, fresh.size());
+                        for (Row row : fresh) {
+                            row.id = nextId++;
+                            bind(statement, row, now);
+                        }
+                        statement.executeBatch();
+                    }
+                }
+                for (Row row : rows) {
+                    imported.add(row.id);
+                }
+                // Products with a recipe keep selling from their ingredients, whatever the file said
+                List<Integer> withRecipe = new ArrayList<>();
+                for (Integer id : imported) {
+                    if (recipes.hasRecipe(id)) {
+                        withRecipe.add(id);
+                    }
+                }
+                if (!withRecipe.isEmpty()) {
+                    RecipeBook.recount(connection, recipes, withRecipe);
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+
+        StockForecast.stockChanged(imported);
+        DataVersions.productsChanged();
+        return new Result(rows.size() - updated, updated, Collections.emptyList(), elapsedMillis(started));
+    }
+
+    private static void bind(PreparedStatement statement, Row row, long now) throws SQLException {
+        statement.setInt(1, row.id);
+        statement.setString(2, row.name);
+        statement.setString(3, row.category);
+        statement.setDouble(4, row.price);
+        statement.setInt(5, row.stock);
+        statement.setString(6, row.status);
+        statement.setString(7, row.image);
+        statement.setLong(8, now);
+        statement.addBatch();
+    }
+
+    // One catalog record checked and converted; error is set when it can't be imported
+    private static Row validate(Map<String, String> record, ZipFile zip, Path baseDirectory) {
+        Row row = new Row(record.get(""));
+        row.name = value(record, "name");
+        row.category = value(record, "category");
+        if (row.name.isEmpty()) {
+            return row.invalid("name is empty");
+        }
+        if (row.category.isEmpty()) {
+            return row.invalid("category is empty");
+        }
+
+        String id = value(record, "id");
+        if (!id.isEmpty()) {
+            try {
+                row.id = Integer.parseInt(id);
+            } catch (NumberFormatException e) {
+                return row.invalid("id \"" + id + "\" is not a whole number");
+            }
+            if (row.id <= 0) {
+                return row.invalid("id must be more than 0");
+            }
+        }
+
+        String price = value(record, "price");
+        try {
+            row.price = Double.parseDouble(price);
+        } catch (NumberFormatException e) {
+            return row.invalid("price \"" + price + "\" is not a number");
+        }
+        if (row.price < 0 || Double.isNaN(row.price) || Double.isInfinite(row.price)) {
+            return row.invalid("price must be 0 or more");
+        }
+
+        String stock = value(record, "stock");
+        try {
+            row.stock = new BigDecimal(stock).intValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            return row.invalid("stock \"" + stock + "\" is not a whole number");
+        }
+        if (row.stock < 0) {
+            return row.invalid("stock must be 0 or more");
+        }
+
+        String status = value(record, "status");
+        if (status.isEmpty()) {
+            row.status = row.stock > 0 ? "Available" : "Out of Stock";
+        } else {
+            for (String known : STATUSES) {
+                if (known.equalsIgnoreCase(status)) {
+                    row.status = known;
+                }
+            }
+            if (row.status == null) {
+                return row.invalid("status \"" + status + "\" is not one of " + String.join(", ", STATUSES));
+            }
+        }
+
+        String image = value(record, "image");
+        if (image.isEmpty()) {
+            row.image = "";
+        } else if (zip != null && zip.getEntry(image) != null && !zip.getEntry(image).isDirectory()) {
+            row.imageEntry = image;
+        } else if (zip != null && image.startsWith(IMAGE_FOLDER)) {
+            return row.invalid("image " + image + " is not in the ZIP");
+        } else {
+            // Paths from another machine are kept as they are; the cards show the placeholder
+            row.image = image;
+            try {
+                Path path = Paths.get(image);
+                if (!path.isAbsolute() && baseDirectory != null && Files.isRegularFile(baseDirectory.resolve(path))) {
+                    row.image = baseDirectory.resolve(path).toString();
+                }
+            } catch (InvalidPathException e) {
+                return row.invalid("image \"" + image + "\" is not a valid path");
+            }
+        }
+        return row;
+    }
+
+    // A second row for the same id, or without an id for the same name in the same category
+    private static void findDuplicates(List<Row> rows) {
+        Map<Integer, Row> byId = new HashMap<>();
+        Map<String, Row> byKey = new HashMap<>();
+        for (Row row : rows) {
+            if (row.error != null) {
+                continue;
+            }
+            Row first = row.id != null
+                ? byId.putIfAbsent(row.id, row)
+                : byKey.putIfAbsent(key(row.name, row.category), row);
+            if (first != null) {
+                row.invalid("same product as " + first.where.toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    /*
+     * Copies the photos the rows use out of the ZIP into a staging folder inside
+     * the images directory and points the rows at where they will end up. Each
+     * file is named after a hash of its content plus its own name, so photos
+     * from different folders or catalogs never take each other's place.
+     */
+    private static Path unpackImages(ZipFile zip, List<Row> rows) throws IOException {
+        Path directory = getImagesDirectory().toAbsolutePath();
+        Files.createDirectories(directory);
+        Path staging = Files.createTempDirectory(directory, ".import-");
+        Map<String, String> unpacked = new HashMap<>();
+        try {
+            for (Row row : rows) {
+                if (row.imageEntry == null) {
+                    continue;
+                }
+                String path = unpacked.get(row.imageEntry);
+                if (path == null) {
+                    byte[] bytes;
+                    try (InputStream in = zip.getInputStream(zip.getEntry(row.imageEntry))) {
+                        bytes = in.readAllBytes();
+                    }
+                    String name = contentHash(bytes) + "-" + Paths.get(row.imageEntry).getFileName();
+                    Files.write(staging.resolve(name), bytes);
+                    path = directory.resolve(name).toString();
+                    unpacked.put(row.imageEntry, path);
+                }
+                row.image = path;
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteStaging(staging);
+            throw e;
+        }
+        return staging;
+    }
+
+    // After the products are in; a file already there has the same content
+    private static void moveImagesIntoPlace(Path staging) throws IOException {
+        Path directory = staging.getParent();
+        try (Stream<Path> files = Files.list(staging)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Path target = directory.resolve(file.getFileName());
+                if (!Files.exists(target)) {
+                    Files.move(file, target);
+                }
+            }
+        }
+    }
+
+    private static void deleteStaging(Path staging) {
+        try (Stream<Path> files = Files.list(staging)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(staging);
+        } catch (IOException e) {
+            System.err.println("Could not remove " + staging + ": " + e.getMessage());
+        }
+    }
+
+    private static String contentHash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * Records of a CSV with a header row, keyed by lower-case column name.
+     * Quoted fields may hold commas, quotes and line breaks (RFC 4180); a UTF-8
+     * BOM as written by CsvWriter is skipped.
+     */
+    static List<Map<String, String>> readCsv(String text) {
+        List<List<String>> records = new ArrayList<>();
+        List<Integer> recordLines = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        int line = 1;
+        int recordLine = 1;
+        int length = text.length();
+        for (int i = text.startsWith("\uFEFF") ? 1 : 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < length && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append(c);
+                }
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                record.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+                addRecord(records, recordLines, record, recordLine);
+                record = new ArrayList<>();
+                line++;
+                recordLine = line;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Line " + recordLine + ": a quoted field is never closed.");
+        }
+        if (field.length() > 0 || !record.isEmpty() || wasQuoted) {
+            record.add(field.toString());
+            addRecord(records, recordLines, record, recordLine);
+        }
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("The file is empty.");
+        }
+
+        List<String> header = new ArrayList<>();
+        for (String column : records.get(0)) {
+            header.add(column(column));
+        }
+        checkColumns(header);
+        List<Map<String, String>> rows = new ArrayList<>(records.size() - 1);
+        for (int r = 1; r < records.size(); r++) {
+            List<String> fields = records.get(r);
+            Map<String, String> row = new HashMap<>();
+            for (int c = 0; c < header.size() && c < fields.size(); c++) {
+                row.put(header.get(c), fields.get(c));
+            }
+            row.put("", "Line " + recordLines.get(r));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /*
+     * Products of a JSON catalog: an array of objects, or an object with a
+     * "products" array as written by the export.
+     */
+    @SuppressWarnings("unchecked")
+    static List<Map<String, String>> readJson(String text) {
+        Object document = JsonReader.parse(text.startsWith("\uFEFF") ? text.substring(1) : text);
+        if (document instanceof Map) {
+            document = ((Map<String, Object>) document).get("products");
+        }
+        if (!(document instanceof List)) {
+            throw new IllegalArgumentException("Expected a list of products.");
+        }
+        List<Object> products = (List<Object>) document;
+        List<Map<String, String>> rows = new ArrayList<>(products.size());
+        Set<String> columns = new HashSet<>();
+        for (int i = 0; i < products.size(); i++) {
+            if (!(products.get(i) instanceof Map)) {
+                throw new IllegalArgumentException("Product " + (i + 1) + " is not an object.");
+            }
+            Map<String, String> row = new HashMap<>();
+            for (Map.Entry<String, Object> field : ((Map<String, Object>) products.get(i)).entrySet()) {
+                Object value = field.getValue();
+                row.put(column(field.getKey()), value == null ? "" : value.toString());
+            }
+            columns.addAll(row.keySet());
+            row.put("", "Product " + (i + 1));
+            rows.add(row);
+        }
+        if (!rows.isEmpty()) {
+            checkColumns(new ArrayList<>(columns));
+        }
+        return rows;
+    }
+
+    private static void addRecord(List<List<String>> records, List<Integer> lines, List<String> record, int line) {
+        // Blank lines are skipped
+        if (record.size() == 1 && record.get(0).trim().isEmpty()) {
+            return;
+        }
+        records.add(record);
+        lines.add(line);
+    }
+
+    private static void checkColumns(List<String> columns) {
+        for (String required : REQUIRED_COLUMNS) {
+            if (!columns.contains(required)) {
+                throw new IllegalArgumentException("The catalog has no \"" + required + "\" column.");
+            }
+        }
+    }
+
+    // Column names are matched case-insensitively; image_path is accepted for image
+    private static String column(String name) {
+        String column = name.trim().toLowerCase(Locale.ROOT);
+        return column.equals("image_path") ? "image" : column;
+    }
+
+    private static String value(Map<String, String> record, String column) {
+        String value = record.get(column);
+        return value == null ? "" : value.trim();
+    }
+
+    private static String key(String name, String category) {
+        return name.trim().toLowerCase(Locale.ROOT) + '\u0000' + category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String[] fields(Product product, String image) {
+        return new String[] {
+            String.valueOf(product.getId()),
+            product.getName(),
+            product.getCategory(),
+            BigDecimal.valueOf(product.getPrice()).stripTrailingZeros().toPlainString(),
+            String.valueOf(product.getStock()),
+            product.getStatus(),
+            image == null ? "" : image
+        };
+    }
+
+    private static void writeJson(Path target, List<Product> products) throws IOException {
+        try (JsonWriter json = new JsonWriter(new BufferedOutputStream(Files.newOutputStream(target), 64 * 1024))) {
+            json.beginObject().name("products").beginArray();
+            for (Product product : products) {
+                json.beginObject()
+                    .field("id", product.getId())
+                    .field("name", product.getName())
+                    .field("category", product.getCategory())
+                    .field("price", product.getPrice())
+                    .field("stock", product.getStock())
+                    .field("status", product.getStatus())
+                    .field("image", product.getImagePath() == null ? "" : product.getImagePath())
+                    .endObject();
+            }
+            json.endArray().endObject();
+        }
+    }
+
+    /*
+     * catalog.csv plus one copy of each photo under images/, named after the
+     * first product using it; the CSV points at those entries. CsvWriter only
+     * writes files, so the CSV is encoded the same way here.
+     */
+    private static void writeZip(Path target, List<Product> products) throws IOException {
+        Map<Path, String> entries = new LinkedHashMap<>();
+        List<String> images = new ArrayList<>(products.size());
+        for (Product product : products) {
+            String entry = "";
+            Path photo = photoOf(product);
+            if (photo != null) {
+                entry = entries.get(photo);
+                if (entry == null) {
+                    entry = IMAGE_FOLDER + product.getId() + "-" + photo.getFileName();
+                    entries.put(photo, entry);
+                }
+            }
+            images.add(entry);
+        }
+
+        try (ZipOutputStream zip = new ZipOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(target), 64 * 1024), StandardCharsets.UTF_8)) {
+            zip.putNextEntry(new ZipEntry(CATALOG_CSV));
+            StringBuilder csv = new StringBuilder(64 * 1024).append('\uFEFF');
+            appendRow(csv, COLUMNS);
+            for (int i = 0; i < products.size(); i++) {
+                appendRow(csv, fields(products.get(i), images.get(i)));
+                if (csv.length() > 32 * 1024) {
+                    write(zip, csv);
+                }
+            }
+            write(zip, csv);
+            zip.closeEntry();
+
+            for (Map.Entry<Path, String> photo : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(photo.getValue()));
+                Files.copy(photo.getKey(), zip);
+                zip.closeEntry();
+            }
+        }
+    }
+
+    // The product's photo if it is a readable file on this machine
+    private static Path photoOf(Product product) {
+        String imagePath = product.getImagePath();
+        if (imagePath == null || imagePath.isEmpty()) {
+            return null;
+        }
+        try {
+            Path path = Paths.get(imagePath);
+            return Files.isRegularFile(path) && Files.isReadable(path) ? path : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private static void appendRow(StringBuilder out, String[] fields) {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            CsvWriter.appendEscaped(out, fields[i]);
+        }
+        out.append("\r\n");
+    }
+
+    private static void write(OutputStream out, StringBuilder text) throws IOException {
+        out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        text.setLength(0);
+    }
+
+    private static long elapsedMillis(long started) {
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+
+    private static Connection connect() throws SQLException {
+        Connection connection = SqliteConnection.Connector();
+        if (connection == null) {
+            throw new SQLException("Could not connect to database");
+        }
+        return connection;
+    }
+
+    // One product of the file on its way into the catalog; a terminal sends checked rows to the order server
+    static final class Row {
+        final String where;
+        String error;
+        Integer id;
+        String name;
+        String category;
+        double price;
+        int stock;
+        String status;
+        String image;
+        String imageEntry;
+
+        Row(String where) {
+            this.where = where;
+        }
+
+        Row invalid(String error) {
+            this.error = error;
+            return this;
+        }
+    }
+
+    // What an import did, or why it wrote nothing
+    public static final class Result {
+        private final int added;
+        private final int updated;
+        private final List<String> errors;
+        private final long millis;
+
+        Result(int added, int updated, List<String> errors, long millis) {
+            this.added = added;
+            this.updated = updated;
+            this.errors = errors;
+            this.millis = millis;
+        }
+
+        static Result failed(String error) {
+            return new Result(0, 0, Collections.singletonList(error), 0);
+        }
+
+        public boolean isSuccess() {
+            return errors.isEmpty();
+        }
+
+        public int getAdded() {
+            return added;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public String getSummary() {
+            return "Added " + added + " and updated " + updated + " products in " + millis + " ms.";
+        }
+
+        // The first few problems, and how many more there are
+        public String getErrorReport() {
+            StringBuilder report = new StringBuilder("Nothing was imported:\n");
+            for (int i = 0; i < errors.size() && i < MAX_ERRORS_SHOWN; i++) {
+                report.append('\n').append(errors.get(i));
+            }
+            if (errors.size() > MAX_ERRORS_SHOWN) {
+                report.append("\n... and ").append(errors.size() - MAX_ERRORS_SHOWN).append(" more");
+            }
+            return report.toString();
+        }
+    }
+}
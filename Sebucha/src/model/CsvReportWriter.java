@@ -0,0 +1,52 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+// Report output as RFC 4180 CSV (see CsvWriter)
+public class CsvReportWriter implements ReportWriter {
+
+    public static final ReportWriterProvider PROVIDER =
+        ReportWriterProvider.of("csv", "CSV Files", "csv", CsvReportWriter::new);
+
+    private final CsvWriter csv;
+    private List<ReportColumn> columns;
+
+    public CsvReportWriter(Path target) throws IOException {
+        this.csv = new CsvWriter(target);
+    }
+
+    @Override
+    public void begin(String title, List<ReportColumn> columns) throws IOException {
+        this.columns = columns;
+        for (ReportColumn column : columns) {
+            csv.field(column.getName());
+        }
+        csv.endRow();
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            csv.field(format(values[i], columns.get(i)));
+        }
+        csv.endRow();
+    }
+
+    @Override
+    public void close() throws IOException {
+        csv.close();
+    }
+
+    private static String format(Object value, ReportColumn column) {
+        if (value == null) {
+            return null;
+        }
+        if (column.getType() == ReportColumn.Type.DECIMAL && value instanceof Number) {
+            return String.format(Locale.ROOT, "%.2f", ((Number) value).doubleValue());
+        }
+        return value.toString();
+    }
+}
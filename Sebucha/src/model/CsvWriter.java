@@ -0,0 +1,133 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * RFC 4180 CSV writer over a FileChannel with one large reusable buffer.
+ * Fields are quoted only when they contain a comma, quote, CR or LF; embedded
+ * quotes are doubled and records end with CRLF. Output is UTF-8 with a BOM so
+ * Excel shows names with accents and the peso sign correctly.
+ */
+public class CsvWriter implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final StringBuilder record = new StringBuilder(256);
+    private boolean firstField = true;
+    private long rowCount;
+
+    public CsvWriter(Path target) throws IOException {
+        this(target, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvWriter(Path target, int bufferSize) throws IOException {
+        this.channel = FileChannel.open(target,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        buffer.put(UTF8_BOM);
+    }
+
+    // Writes a complete record
+    public void writeRow(String... fields) throws IOException {
+        for (String field : fields) {
+            field(field);
+        }
+        endRow();
+    }
+
+    // Appends one field to the current record
+    public CsvWriter field(String value) {
+        if (!firstField) {
+            record.append(',');
+        }
+        firstField = false;
+        appendEscaped(record, value);
+        return this;
+    }
+
+    // Terminates the current record and moves it into the output buffer
+    public void endRow() throws IOException {
+        record.append("\r\n");
+        encode(CharBuffer.wrap(record));
+        record.setLength(0);
+        firstField = true;
+        rowCount++;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    // RFC 4180 quoting; null is written as an empty field
+    static void appendEscaped(StringBuilder out, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                needsQuotes = true;
+                break;
+            }
+        }
+        if (!needsQuotes) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private void encode(CharBuffer chars) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, false);
+            if (result.isOverflow()) {
+                flush();
+            } else if (result.isUnderflow()) {
+                return;
+            } else {
+                result.throwException();
+            }
+        }
+    }
+}
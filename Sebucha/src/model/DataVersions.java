@@ -0,0 +1,86 @@
+package model;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Change counters for the data the pages display. Code that writes orders or
+ * products bumps the matching counter; cached pages compare it with the value
+ * they last loaded and only re-query when it moved.
+ *
+ * Listeners hear about every change, on the thread that made it. Changes made
+ * by another terminal (pushed by the order server, or applied by the server
+ * for one of its terminals) arrive through changedElsewhere().
+ */
+public class DataVersions {
+
+    public static final int ORDERS = 1;
+    public static final int PRODUCTS = 2;
+    // Recipes and ingredients (see RecipeBook)
+    public static final int RECIPES = 4;
+
+    public interface Listener {
+        // changes is a mix of ORDERS, PRODUCTS and RECIPES
+        void dataChanged(int changes, boolean elsewhere);
+    }
+
+    private static final AtomicLong orders = new AtomicLong();
+    private static final AtomicLong products = new AtomicLong();
+    private static final AtomicLong recipes = new AtomicLong();
+    private static final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public static void ordersChanged() {
+        changed(ORDERS, false);
+    }
+
+    public static void productsChanged() {
+        changed(PRODUCTS, false);
+    }
+
+    public static void recipesChanged() {
+        changed(RECIPES, false);
+    }
+
+    public static void changedElsewhere(int changes) {
+        changed(changes, true);
+    }
+
+    public static long getOrdersVersion() {
+        return orders.get();
+    }
+
+    public static long getProductsVersion() {
+        return products.get();
+    }
+
+    public static long getRecipesVersion() {
+        return recipes.get();
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private static void changed(int changes, boolean elsewhere) {
+        if ((changes & ORDERS) != 0) {
+            orders.incrementAndGet();
+        }
+        if ((changes & PRODUCTS) != 0) {
+            products.incrementAndGet();
+        }
+        if ((changes & RECIPES) != 0) {
+            recipes.incrementAndGet();
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.dataChanged(changes, elsewhere);
+            } catch (RuntimeException e) {
+                System.err.println("Data change listener failed: " + e.getMessage());
+            }
+        }
+    }
+}
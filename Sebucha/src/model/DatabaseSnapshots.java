@@ -0,0 +1,175 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Hot snapshots of the live database for disaster recovery, taken with
+ * VACUUM INTO while the app keeps selling: it reads one consistent version
+ * of the database and writes a compact copy, without blocking writers. Each
+ * snapshot is written under a temporary name and renamed when complete, so a
+ * file in backups/ is always a whole database. Only the newest few are kept.
+ *
+ * Archive files change only when orders are archived; OrderArchive copies the
+ * ones it touched into backups/archive right after.
+ *
+ * Runs on the machine that owns sebucha.db (never on a terminal), every
+ * -Dsebucha.snapshot.hours (default 24, 0 turns it off).
+ */
+public class DatabaseSnapshots {
+
+    public static final String HOURS_PROPERTY = "sebucha.snapshot.hours";
+    public static final String KEEP_PROPERTY = "sebucha.snapshot.keep";
+    public static final String DIRECTORY_PROPERTY = "sebucha.snapshot.dir";
+    public static final int DEFAULT_HOURS = 24;
+    public static final int DEFAULT_KEEP = 7;
+    public static final String DEFAULT_DIRECTORY = "backups";
+
+    private static final String PREFIX = "sebucha-";
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // Don't compete with startup for the disk
+    private static final long MIN_INITIAL_DELAY_MS = 60_000;
+
+    private static ScheduledExecutorService scheduler;
+
+    private DatabaseSnapshots() {
+    }
+
+    // Takes one snapshot now: java model.DatabaseSnapshots
+    public static void main(String[] args) throws Exception {
+        Path snapshot = snapshot();
+        System.out.println("Snapshot written to " + snapshot);
+        SqliteConnection.closeConnection();
+    }
+
+    // Schedules snapshots unless turned off or running as a terminal (called from Main)
+    public static synchronized void startIfConfigured() {
+        int hours = Integer.getInteger(HOURS_PROPERTY, DEFAULT_HOURS);
+        if (hours <= 0 || scheduler != null || OrderServerClient.isConfigured()) {
+            return;
+        }
+        long interval = TimeUnit.HOURS.toMillis(hours);
+        List<Path> existing = list();
+        long age = interval;
+        if (!existing.isEmpty()) {
+            try {
+                age = System.currentTimeMillis() - Files.getLastModifiedTime(existing.get(0)).toMillis();
+            } catch (IOException e) {
+                // Treat as overdue
+            }
+        }
+        long initialDelay = Math.max(MIN_INITIAL_DELAY_MS, interval - age);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-snapshots");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                snapshot();
+            } catch (SQLException | IOException | RuntimeException e) {
+                Metrics.increment("db_snapshot_failures");
+                System.err.println("Database snapshot failed: " + e.getMessage());
+            }
+        }, initialDelay, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized void stopRunning() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public static Path getDirectory() {
+        return Paths.get(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+    }
+
+    // Writes a snapshot of the live database and drops the oldest beyond the keep count
+    public static synchronized Path snapshot() throws SQLException, IOException {
+        if (OrderServerClient.isConfigured()) {
+            throw new IllegalStateException("Snapshots are taken on the order server, not on a terminal");
+        }
+        Path directory = getDirectory();
+        Files.createDirectories(directory);
+        Path target = directory.resolve(PREFIX + LocalDateTime.now().format(STAMP) + ".db");
+
+        long started = System.nanoTime();
+        try (Connection connection = SqliteConnection.openUnpooled()) {
+            vacuumInto(connection, target);
+        }
+        Metrics.recordSince("db_snapshot", started);
+        prune(Integer.getInteger(KEEP_PROPERTY, DEFAULT_KEEP));
+        return target;
+    }
+
+    // Copies an archive file into backups/archive, replacing the previous copy
+    static void snapshotArchive(Path archiveFile) throws SQLException, IOException {
+        Path directory = getDirectory().resolve("archive");
+        Files.createDirectories(directory);
+        try (Connection connection = SqliteConnection.openUnpooled(archiveFile)) {
+            vacuumInto(connection, directory.resolve(archiveFile.getFileName()));
+        }
+    }
+
+    // Snapshots, newest first
+    public static List<Path> list() {
+        List<Path> snapshots = new ArrayList<>();
+        Path directory = getDirectory();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*.db")) {
+            for (Path file : files) {
+                snapshots.add(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not list snapshots: " + e.getMessage());
+        }
+        // The timestamp in the name sorts chronologically
+        snapshots.sort(Collections.reverseOrder());
+        return snapshots;
+    }
+
+    private static void vacuumInto(Connection connection, Path target) throws SQLException, IOException {
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        Files.deleteIfExists(partial);
+        try (PreparedStatement statement = connection.prepareStatement("VACUUM INTO ?")) {
+            statement.setString(1, partial.toAbsolutePath().toString());
+            statement.execute();
+        } catch (SQLException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void prune(int keep) {
+        List<Path> snapshots = list();
+        for (int i = Math.max(keep, 1); i < snapshots.size(); i++) {
+            try {
+                Files.deleteIfExists(snapshots.get(i));
+            } catch (IOException e) {
+                System.err.println("Could not delete old snapshot " + snapshots.get(i) + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.format.DateTimeFormatter;
+
+/*
+ * Receipt layout for ESC/POS thermal printers (58 mm = 32 columns, 80 mm = 48).
+ * Everything that never changes, i.e. printer reset, the shop header with its
+ * enlarged name, the column headings and the thank-you footer with the paper
+ * cut, is encoded to bytes once. Per receipt the order lines are written
+ * straight into a direct ByteBuffer, digit by digit, so a whole receipt leaves
+ * in a single write. Text is sent as plain ASCII (the printer's default code
+ * page); the peso sign prints as "P".
+ * Not thread-safe; the receipt pipeline calls it from its one worker thread.
+ */
+public class EscPosReceiptEncoder {
+
+    public static final int COLUMNS_58MM = 32;
+    public static final int COLUMNS_80MM = 48;
+
+    // ESC/POS commands
+    private static final byte ESC = 0x1B;
+    private static final byte GS = 0x1D;
+    private static final byte[] INIT = {ESC, '@'};
+    private static final byte[] CODE_PAGE_437 = {ESC, 't', 0};
+    private static final byte[] ALIGN_LEFT = {ESC, 'a', 0};
+    private static final byte[] ALIGN_CENTER = {ESC, 'a', 1};
+    private static final byte[] BOLD_ON = {ESC, 'E', 1};
+    private static final byte[] BOLD_OFF = {ESC, 'E', 0};
+    private static final byte[] DOUBLE_SIZE = {GS, '!', 0x11};
+    private static final byte[] NORMAL_SIZE = {GS, '!', 0x00};
+    private static final byte[] FEED_AND_CUT = {ESC, 'd', 4, GS, 'V', 66, 0};
+
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm:ss");
+
+    private final int columns;
+    private final boolean showUnitPrice;
+    private final int nameWidth;
+    private final byte[] header;
+    private final byte[] itemsHeader;
+    private final byte[] footer;
+    private final byte[] rule;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(4 * 1024);
+
+    public EscPosReceiptEncoder(int columns) {
+        this.columns = columns;
+        // Qty(4) and Total(10) always; unit price(9) only when the paper is wide enough
+        this.showUnitPrice = columns >= 42;
+        this.nameWidth = columns - 16 - (showUnitPrice ? 10 : 0);
+        this.rule = ascii(repeat('-', columns) + "\n");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        out.writeBytes(INIT);
+        out.writeBytes(CODE_PAGE_437);
+        out.writeBytes(ALIGN_CENTER);
+        out.writeBytes(DOUBLE_SIZE);
+        out.writeBytes(BOLD_ON);
+        out.writeBytes(ascii(ReceiptTemplate.CAFE_NAME + "\n"));
+        out.writeBytes(NORMAL_SIZE);
+        out.writeBytes(BOLD_OFF);
+        out.writeBytes(ascii(ReceiptTemplate.CAFE_ADDRESS_LINE1 + "\n"));
+        out.writeBytes(ascii(ReceiptTemplate.CAFE_ADDRESS_LINE2 + "\n"));
+        out.writeBytes(ascii(ReceiptTemplate.CAFE_PHONE + "\n\n"));
+        out.writeBytes(BOLD_ON);
+        out.writeBytes(ascii("SALES INVOICE\n"));
+        out.writeBytes(BOLD_OFF);
+        out.writeBytes(ALIGN_LEFT);
+        out.writeBytes(rule);
+        this.header = out.toByteArray();
+
+        StringBuilder headings = new StringBuilder();
+        ReceiptTemplate.padRight(headings, "Item", nameWidth).append(' ');
+        ReceiptTemplate.padLeft(headings, "Qty", 4).append(' ');
+        if (showUnitPrice) {
+            ReceiptTemplate.padLeft(headings, "Price", 9).append(' ');
+        }
+        ReceiptTemplate.padLeft(headings, "Total", 10).append('\n');
+        out.reset();
+        out.writeBytes(rule);
+        out.writeBytes(BOLD_ON);
+        out.writeBytes(ascii(headings.toString()));
+        out.writeBytes(BOLD_OFF);
+        out.writeBytes(rule);
+        this.itemsHeader = out.toByteArray();
+
+        out.reset();
+        out.writeBytes(ALIGN_CENTER);
+        out.writeBytes(ascii("\nThank you for your purchase!\nPlease visit us again!\n"));
+        out.writeBytes(ALIGN_LEFT);
+        out.writeBytes(FEED_AND_CUT);
+        this.footer = out.toByteArray();
+    }
+
+    // 58 or 80 (mm)
+    public static EscPosReceiptEncoder forPaperWidth(int millimetres) {
+        return new EscPosReceiptEncoder(millimetres <= 58 ? COLUMNS_58MM : COLUMNS_80MM);
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /*
+     * Encodes the receipt and returns a buffer flipped for reading. The buffer is
+     * reused by the next call, so it has to be written out before then.
+     */
+    public ByteBuffer encode(Receipt receipt) {
+        // Every line is at most one row of the paper, so this bound always fits
+        int needed = header.length + itemsHeader.length + footer.length
+            + (receipt.getItems().size() + 16) * (columns + 8) + 64;
+        if (buffer.capacity() < needed) {
+            buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(needed) << 1);
+        }
+        ByteBuffer out = buffer;
+        out.clear();
+
+        out.put(header);
+        putLine(out, "Order ID: ", receipt.getOrderId());
+        putLine(out, "Type: ", receipt.getOrderType());
+        putLine(out, "Payment: ", receipt.getPaymentMethod());
+        putLine(out, "Customer: ", receipt.getCustomerName());
+        putLine(out, "Date: ", receipt.getIssuedAt().format(DATE_TIME_FORMAT));
+
+        out.put(itemsHeader);
+        for (OrderItem item : receipt.getItems()) {
+            putPadded(out, ReceiptTemplate.truncate(item.getProductName(), nameWidth), nameWidth, false);
+            out.put((byte) ' ');
+            putNumber(out, item.getQuantity(), 4);
+            out.put((byte) ' ');
+            if (showUnitPrice) {
+                putAmount(out, item.getUnitPrice(), 9);
+                out.put((byte) ' ');
+            }
+            putAmount(out, item.getTotalPrice(), 10);
+            out.put((byte) '\n');
+        }
+        out.put(rule);
+
+        putPadded(out, "Subtotal: P", columns - 11, true);
+        out.put((byte) ' ');
+        putAmount(out, receipt.getSubtotal(), 10);
+        out.put((byte) '\n');
+        out.put(BOLD_ON);
+        putPadded(out, "TOTAL: P", columns - 11, true);
+        out.put((byte) ' ');
+        putAmount(out, receipt.getTotalAmount(), 10);
+        out.put((byte) '\n');
+        out.put(BOLD_OFF);
+
+        out.put(footer);
+        out.flip();
+        return out;
+    }
+
+    private void putText(ByteBuffer out, String text) {
+        int length = text == null ? 0 : Math.min(text.length(), columns);
+        for (int i = 0; i < length; i++) {
+            out.put(toAscii(text.charAt(i)));
+        }
+    }
+
+    // Label and value on one line, cut to the paper width
+    private void putLine(ByteBuffer out, String label, String value) {
+        putText(out, label);
+        putText(out, ReceiptTemplate.truncate(value, columns - label.length()));
+        out.put((byte) '\n');
+    }
+
+    private void putPadded(ByteBuffer out, String text, int width, boolean alignRight) {
+        int padding = Math.max(0, width - text.length());
+        if (alignRight) {
+            putSpaces(out, padding);
+        }
+        putText(out, text);
+        if (!alignRight) {
+            putSpaces(out, padding);
+        }
+    }
+
+    private static void putSpaces(ByteBuffer out, int count) {
+        for (int i = 0; i < count; i++) {
+            out.put((byte) ' ');
+        }
+    }
+
+    // Right-aligned integer
+    private static void putNumber(ByteBuffer out, long value, int width) {
+        int digits = digitCount(value);
+        putSpaces(out, width - digits);
+        putDigits(out, value, digits);
+    }
+
+    // Right-aligned amount with two decimals
+    private static void putAmount(ByteBuffer out, double amount, int width) {
+        long cents = Math.round(Math.abs(amount) * 100);
+        boolean negative = amount < 0 && cents != 0;
+        long whole = cents / 100;
+        int digits = digitCount(whole);
+        putSpaces(out, width - digits - 3 - (negative ? 1 : 0));
+        if (negative) {
+            out.put((byte) '-');
+        }
+        putDigits(out, whole, digits);
+        out.put((byte) '.');
+        out.put((byte) ('0' + (cents % 100) / 10));
+        out.put((byte) ('0' + cents % 10));
+    }
+
+    private static void putDigits(ByteBuffer out, long value, int digits) {
+        int start = out.position();
+        for (int i = digits - 1; i >= 0; i--) {
+            out.put(start + i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        out.position(start + digits);
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static byte toAscii(char c) {
+        if (c == '₱') {
+            return 'P';
+        }
+        return c < 0x20 || c > 0x7E ? (byte) '?' : (byte) c;
+    }
+
+    private static byte[] ascii(String text) {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = text.charAt(i);
+            bytes[i] = c == '\n' ? (byte) '\n' : toAscii(c);
+        }
+        return bytes;
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder out = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            out.append(c);
+        }
+        return out.toString();
+    }
+}
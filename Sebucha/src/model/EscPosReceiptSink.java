@@ -0,0 +1,71 @@
+package model;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Sends receipts to a thermal printer as raw ESC/POS, either through its device
+ * file (USB/serial/parallel, e.g. /dev/usb/lp0) or to a network printer's raw
+ * port (usually 9100). The encoded receipt goes out in one write.
+ */
+public class EscPosReceiptSink implements ReceiptSink {
+
+    public static final int DEFAULT_PORT = 9100;
+    private static final int CONNECT_TIMEOUT_MS = 3000;
+
+    // Opens the connection to the printer for one receipt
+    interface Connector {
+        WritableByteChannel open() throws IOException;
+    }
+
+    private final EscPosReceiptEncoder encoder;
+    private final Connector connector;
+    private final String description;
+
+    private EscPosReceiptSink(EscPosReceiptEncoder encoder, Connector connector, String description) {
+        this.encoder = encoder;
+        this.connector = connector;
+        this.description = description;
+    }
+
+    public static EscPosReceiptSink device(Path device, EscPosReceiptEncoder encoder) {
+        return new EscPosReceiptSink(encoder,
+            () -> FileChannel.open(device, StandardOpenOption.WRITE),
+            "receipt printer " + device);
+    }
+
+    public static EscPosReceiptSink tcp(String host, int port, EscPosReceiptEncoder encoder) {
+        return new EscPosReceiptSink(encoder, () -> {
+            SocketChannel channel = SocketChannel.open();
+            try {
+                channel.socket().connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+                return channel;
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }, "receipt printer " + host + ":" + port);
+    }
+
+    // The plain-text rendering is not used; the printer gets its own layout
+    @Override
+    public void deliver(Receipt receipt, ByteBuffer rendered) throws IOException {
+        ByteBuffer encoded = encoder.encode(receipt);
+        try (WritableByteChannel channel = connector.open()) {
+            while (encoded.hasRemaining()) {
+                channel.write(encoded);
+            }
+        }
+    }
+
+    @Override
+    public String describe() {
+        return description;
+    }
+}
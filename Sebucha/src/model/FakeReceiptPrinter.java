@@ -0,0 +1,112 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Stand-in for a network receipt printer: listens on a local port like a
+ * printer's raw port and keeps each job (everything sent over one connection).
+ * Lets the ESC/POS output be tried without hardware:
+ *   java model.FakeReceiptPrinter 9100
+ * and run the app with -Dsebucha.receipt.sink=escpos-tcp:localhost:9100
+ */
+public class FakeReceiptPrinter implements Closeable {
+
+    private final ServerSocket server;
+    private final BlockingQueue<byte[]> jobs = new LinkedBlockingQueue<>();
+    private final Thread acceptThread;
+
+    // Port 0 picks a free port
+    public FakeReceiptPrinter(int port) throws IOException {
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.acceptThread = new Thread(this::acceptLoop, "fake-receipt-printer");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    // Next received job, or null if none arrives in time
+    public byte[] takeJob(long timeout, TimeUnit unit) throws InterruptedException {
+        return jobs.poll(timeout, unit);
+    }
+
+    public int getJobCount() {
+        return jobs.size();
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try (Socket client = server.accept(); InputStream in = client.getInputStream()) {
+                ByteArrayOutputStream job = new ByteArrayOutputStream();
+                in.transferTo(job);
+                jobs.add(job.toByteArray());
+            } catch (SocketException e) {
+                // Server closed
+            } catch (IOException e) {
+                System.err.println("Fake printer read failed: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    // Printable text of a job with the ESC/POS commands stripped
+    public static String toText(byte[] job) {
+        StringBuilder text = new StringBuilder(job.length);
+        int i = 0;
+        while (i < job.length) {
+            byte b = job[i];
+            if (b == 0x1B || b == 0x1D) {
+                i += commandLength(job, i);
+                continue;
+            }
+            if (b == '\n' || (b >= 0x20 && b < 0x7F)) {
+                text.append((char) b);
+            }
+            i++;
+        }
+        return text.toString();
+    }
+
+    // Length of the ESC/GS command starting at index, for the commands the encoder emits
+    private static int commandLength(byte[] job, int index) {
+        if (index + 1 >= job.length) {
+            return 1;
+        }
+        byte command = job[index + 1];
+        if (job[index] == 0x1B) {
+            return command == '@' ? 2 : 3;
+        }
+        // GS V m n (partial cut with feed) or GS ! n
+        return command == 'V' ? 4 : 3;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : EscPosReceiptSink.DEFAULT_PORT;
+        try (FakeReceiptPrinter printer = new FakeReceiptPrinter(port)) {
+            System.out.println("Fake receipt printer listening on port " + printer.getPort());
+            while (true) {
+                byte[] job = printer.takeJob(1, TimeUnit.HOURS);
+                if (job != null) {
+                    System.out.println("---- job, " + job.length + " bytes ----");
+                    System.out.print(toText(job));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/*
+ * Java Flight Recorder events for the parts of the app that can make the till
+ * stutter. They sit next to the JVM's own GC, I/O and lock events in a
+ * recording, so a stall can be put down to the right cause. Creating and
+ * committing an event costs next to nothing while no recording is running.
+ */
+public final class FlightEvents {
+
+    private FlightEvents() {
+    }
+
+    /*
+     * One step of saving an order. next() ends the current step and starts the
+     * following one, so placeOrder() reads top to bottom; a step that fails is
+     * committed with succeeded = false.
+     */
+    @Name("sebucha.OrderPhase")
+    @Label("Order Phase")
+    @Category({"Sebucha", "Orders"})
+    @StackTrace(false)
+    public static final class OrderPhase extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Order Id")
+        String orderId;
+
+        @Label("Succeeded")
+        boolean succeeded;
+
+        public static OrderPhase start(String phase, String orderId) {
+            OrderPhase event = new OrderPhase();
+            event.phase = phase;
+            event.orderId = orderId;
+            event.begin();
+            return event;
+        }
+
+        public OrderPhase next(String nextPhase, String orderId) {
+            finish(true);
+            return start(nextPhase, orderId);
+        }
+
+        public void finish(boolean succeeded) {
+            end();
+            this.succeeded = succeeded;
+            commit();
+        }
+    }
+
+    @Name("sebucha.ProductCards")
+    @Label("Product Cards Load")
+    @Description("Building the product cards on the Order page")
+    @Category({"Sebucha", "UI"})
+    @StackTrace(false)
+    public static final class ProductCards extends Event {
+        @Label("Cards")
+        public int cards;
+    }
+
+    @Name("sebucha.OrderHistoryLoad")
+    @Label("Order History Load")
+    @Description("Reading the order history into the Recent Orders table")
+    @Category({"Sebucha", "UI"})
+    @StackTrace(false)
+    public static final class OrderHistoryLoad extends Event {
+        @Label("Orders")
+        public int orders;
+    }
+
+    @Name("sebucha.Receipt")
+    @Label("Receipt")
+    @Description("Rendering a receipt or delivering it to its sink")
+    @Category({"Sebucha", "Receipts"})
+    @StackTrace(false)
+    public static final class Receipt extends Event {
+        @Label("Order Id")
+        public String orderId;
+
+        @Label("Step")
+        public String step;
+
+        @Label("Sink")
+        public String sink;
+
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+
+    @Name("sebucha.SceneSwitch")
+    @Label("Scene Switch")
+    @Category({"Sebucha", "UI"})
+    @StackTrace(false)
+    public static final class SceneSwitch extends Event {
+        @Label("Page")
+        public String page;
+
+        @Label("Loaded Now")
+        @Description("The page was not cached and its FXML was loaded for this switch")
+        public boolean loadedNow;
+    }
+
+    @Name("sebucha.ImageDecode")
+    @Label("Product Image Decode")
+    @Category({"Sebucha", "UI"})
+    @Threshold("5 ms")
+    @StackTrace(false)
+    public static final class ImageDecode extends Event {
+        @Label("Path")
+        public String path;
+    }
+
+    /*
+     * How long a task posted to the FX thread waited before it ran. Long waits
+     * mean a slow pulse (layout, CSS, rendering) or a handler blocking the thread.
+     */
+    @Name("sebucha.FxPulseDelay")
+    @Label("FX Pulse Delay")
+    @Category({"Sebucha", "UI"})
+    @Threshold("20 ms")
+    @StackTrace(false)
+    public static final class FxPulseDelay extends Event {
+    }
+}
@@ -0,0 +1,113 @@
+package model;
+
+import javafx.application.Platform;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Continuous flight recording kept for the last few minutes
+ * (-Dsebucha.jfr.maxAgeMinutes, default 5) with the JDK's low-overhead
+ * "default" settings plus the app's own events; -Dsebucha.jfr=off turns it off.
+ * Admins dump it from the Performance window after a stall.
+ *
+ * Also samples the FX thread: every 100 ms a task is posted with
+ * Platform.runLater and the time until it runs is recorded as an FxPulseDelay
+ * event and the fx_pulse_delay timer.
+ */
+public final class FlightRecording {
+
+    public static final String ENABLED_PROPERTY = "sebucha.jfr";
+    public static final String MAX_AGE_PROPERTY = "sebucha.jfr.maxAgeMinutes";
+
+    private static final long MAX_SIZE_BYTES = 64L * 1024 * 1024;
+    private static final long SAMPLE_INTERVAL_MS = 100;
+
+    private static final AtomicBoolean samplePending = new AtomicBoolean();
+    private static Recording recording;
+    private static ScheduledExecutorService sampler;
+
+    private FlightRecording() {
+    }
+
+    public static synchronized void start() {
+        if (recording != null || "off".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY))) {
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            System.err.println("Flight recorder is not available in this JVM");
+            return;
+        }
+        try {
+            Recording continuous = new Recording(Configuration.getConfiguration("default"));
+            continuous.setName("sebucha-continuous");
+            continuous.setToDisk(true);
+            continuous.setMaxAge(Duration.ofMinutes(Long.getLong(MAX_AGE_PROPERTY, 5)));
+            continuous.setMaxSize(MAX_SIZE_BYTES);
+            continuous.start();
+            recording = continuous;
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            System.err.println("Could not start flight recording: " + e.getMessage());
+            return;
+        }
+
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fx-pulse-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(FlightRecording::samplePulse, SAMPLE_INTERVAL_MS, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    // Writes what the continuous recording currently holds (the last few minutes) to a .jfr file
+    public static void dump(Path target) throws IOException {
+        Recording current;
+        synchronized (FlightRecording.class) {
+            current = recording;
+        }
+        if (current == null) {
+            throw new IOException("Flight recording is not running");
+        }
+        current.dump(target);
+    }
+
+    public static synchronized void stop() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+            sampler = null;
+        }
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    // One probe in flight at a time, so a blocked FX thread isn't buried under queued probes
+    private static void samplePulse() {
+        if (!samplePending.compareAndSet(false, true)) {
+            return;
+        }
+        long posted = System.nanoTime();
+        FlightEvents.FxPulseDelay event = new FlightEvents.FxPulseDelay();
+        event.begin();
+        Platform.runLater(() -> {
+            event.end();
+            event.commit();
+            Metrics.recordSince("fx_pulse_delay", posted);
+            samplePending.set(false);
+        });
+    }
+}
@@ -1,5 +1,10 @@
 package model;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -118,7 +123,7 @@ public class InventoryIdGenerator {
      * @param categoryName The category name to generate ID for
      * @return A unique ID that doesn't exist in the database
      */
-    public static int generateIdForCategory(java.sql.Connection connection, String categoryName) {
+    public static int generateIdForCategory(Connection connection, String categoryName) {
         String categoryCode = getCategoryCode(categoryName);
         int attempts = 0;
         int maxAttempts = 100; // Prevent infinite loops
@@ -152,19 +157,19 @@ public class InventoryIdGenerator {
      * @param id The ID to check
      * @return true if ID exists, false otherwise
      */
-    private static boolean idExistsInDatabase(java.sql.Connection connection, int id) {
+    private static boolean idExistsInDatabase(Connection connection, int id) {
         if (connection == null) {
             return false;
         }
         
         String checkSql = "SELECT COUNT(*) FROM products WHERE id = ?";
-        try (java.sql.PreparedStatement stmt = connection.prepareStatement(checkSql)) {
+        try (PreparedStatement stmt = connection.prepareStatement(checkSql)) {
             stmt.setInt(1, id);
-            java.sql.ResultSet rs = stmt.executeQuery();
+            ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 return rs.getInt(1) > 0;
             }
-        } catch (java.sql.SQLException e) {
+        } catch (SQLException e) {
             System.err.println("Error checking ID existence: " + e.getMessage());
         }
         
@@ -177,7 +182,7 @@ public class InventoryIdGenerator {
      * @param categoryName The category name to generate ID for
      * @return A unique ID string like "CLA-001", "PRE-002", etc.
      */
-    public static String generateCategoryIdString(java.sql.Connection connection, String categoryName) {
+    public static String generateCategoryIdString(Connection connection, String categoryName) {
         String categoryCode = getCategoryCode(categoryName);
         int attempts = 0;
         int maxAttempts = 100; // Prevent infinite loops
@@ -213,34 +218,55 @@ public class InventoryIdGenerator {
      * @param id The ID string to check
      * @return true if ID exists, false otherwise
      */
-    private static boolean stringIdExistsInDatabase(java.sql.Connection connection, String id) {
+    private static boolean stringIdExistsInDatabase(Connection connection, String id) {
         if (connection == null) {
             return false;
         }
         
         // First check if we can query the table structure
         String checkSql = "SELECT COUNT(*) FROM products WHERE CAST(id AS TEXT) = ?";
-        try (java.sql.PreparedStatement stmt = connection.prepareStatement(checkSql)) {
+        try (PreparedStatement stmt = connection.prepareStatement(checkSql)) {
             stmt.setString(1, id);
-            java.sql.ResultSet rs = stmt.executeQuery();
+            ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 return rs.getInt(1) > 0;
             }
-        } catch (java.sql.SQLException e) {
+        } catch (SQLException e) {
             
             try {
                 String checkSql2 = "SELECT COUNT(*) FROM products WHERE id = ?";
-                java.sql.PreparedStatement stmt2 = connection.prepareStatement(checkSql2);
+                PreparedStatement stmt2 = connection.prepareStatement(checkSql2);
                 stmt2.setString(1, id);
-                java.sql.ResultSet rs2 = stmt2.executeQuery();
+                ResultSet rs2 = stmt2.executeQuery();
                 if (rs2.next()) {
                     return rs2.getInt(1) > 0;
                 }
-            } catch (java.sql.SQLException e2) {
+            } catch (SQLException e2) {
                 System.err.println("Error checking string ID existence: " + e2.getMessage());
             }
         }
         
         return false; 
     }
+    
+    /*
+     * First of count consecutive numeric IDs above every existing product, for
+     * imports that add many products at once instead of one ID per insert.
+     * Nothing is reserved: the block stays free only while the caller holds the
+     * write lock and inserts inside the same open transaction (CatalogTransfer.write).
+     * @param connection Database connection the products are inserted on
+     * @param count How many IDs are needed
+     * @return The first ID of the block; the block is first .. first + count - 1
+     */
+    public static int firstFreeId(Connection connection, int count) throws SQLException {
+        String maxSql = "SELECT COALESCE(MAX(id), 0) FROM products";
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(maxSql)) {
+            long first = (rs.next() ? rs.getLong(1) : 0) + 1;
+            if (first + count - 1 > Integer.MAX_VALUE) {
+                throw new SQLException("No room for " + count + " more product IDs");
+            }
+            return (int) first;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+// Report output as JSON Lines: one JSON object per row, keyed by column
+public class JsonLinesReportWriter implements ReportWriter {
+
+    public static final ReportWriterProvider PROVIDER =
+        ReportWriterProvider.of("jsonl", "JSON Lines", "jsonl", JsonLinesReportWriter::new);
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(256);
+    private String[] keys;
+    private List<ReportColumn> columns;
+
+    public JsonLinesReportWriter(Path target) throws IOException {
+        this.writer = new BufferedWriter(
+            new OutputStreamWriter(Files.newOutputStream(target), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void begin(String title, List<ReportColumn> columns) {
+        this.columns = columns;
+        this.keys = new String[columns.size()];
+        for (int i = 0; i < keys.length; i++) {
+            StringBuilder key = new StringBuilder();
+            appendString(key, columns.get(i).getKey());
+            keys[i] = key.toString();
+        }
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        line.setLength(0);
+        line.append('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append(keys[i]).append(':');
+            appendValue(line, values[i], columns.get(i));
+        }
+        line.append("}\n");
+        writer.write(line.toString());
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private static void appendValue(StringBuilder out, Object value, ReportColumn column) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Number && column.getType() != ReportColumn.Type.TEXT) {
+            if (column.getType() == ReportColumn.Type.DECIMAL) {
+                out.append(String.format(Locale.ROOT, "%.2f", ((Number) value).doubleValue()));
+            } else {
+                out.append(((Number) value).longValue());
+            }
+        } else {
+            appendString(out, value.toString());
+        }
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,184 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/*
+ * Streaming JSON output. Values are appended to a small buffer that is encoded
+ * and written to the stream whenever it fills up, so a response of any size
+ * goes out while the rows are still being read and never sits in memory whole.
+ * Commas and nesting are tracked here; callers only say what comes next.
+ */
+public class JsonWriter implements Closeable {
+
+    private static final int FLUSH_AT = 32 * 1024;
+    private static final int MAX_DEPTH = 64;
+
+    private final OutputStream out;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_AT + 1024);
+
+    // Per nesting level: true once the first element was written
+    private final boolean[] hasElements = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean afterName;
+
+    public JsonWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    public JsonWriter name(String name) {
+        separate();
+        appendString(buffer, name);
+        buffer.append(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        separate();
+        appendString(buffer, value);
+        return written();
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        separate();
+        buffer.append(value);
+        return written();
+    }
+
+    // Money and other decimals, always with two places
+    public JsonWriter value(double value) throws IOException {
+        separate();
+        buffer.append(String.format(Locale.ROOT, "%.2f", value));
+        return written();
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        separate();
+        buffer.append(value);
+        return written();
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        separate();
+        buffer.append("null");
+        return written();
+    }
+
+    // Shorthand for name(name).value(value)
+    public JsonWriter field(String name, String value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, long value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, double value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, boolean value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public void flush() throws IOException {
+        if (buffer.length() > 0) {
+            out.write(buffer.toString().getBytes(StandardCharsets.UTF_8));
+            buffer.setLength(0);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        if (depth == MAX_DEPTH) {
+            throw new IOException("JSON nested too deeply");
+        }
+        separate();
+        buffer.append(bracket);
+        hasElements[depth++] = false;
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("Nothing to close");
+        }
+        depth--;
+        buffer.append(bracket);
+        return written();
+    }
+
+    private void separate() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasElements[depth - 1]) {
+                buffer.append(',');
+            }
+            hasElements[depth - 1] = true;
+        }
+    }
+
+    private JsonWriter written() throws IOException {
+        if (buffer.length() >= FLUSH_AT) {
+            out.write(buffer.toString().getBytes(StandardCharsets.UTF_8));
+            buffer.setLength(0);
+        }
+        return this;
+    }
+
+    static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,344 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * The open (Pending) orders for the kitchen display, kept in memory in the
+ * order they should be made: rushed tickets first, then oldest first.
+ *
+ * Order changes (placed here, on another terminal, through the API, or a status
+ * change in Recent Orders) arrive through DataVersions and trigger one re-read of
+ * the Pending orders; only orders not already on screen have their lines loaded.
+ * Bursts of changes collapse into a single re-read. Completing a ticket takes it
+ * off the queue at once and writes the status in the background. Completed and
+ * cancelled orders are dropped, so memory holds only what the kitchen still has
+ * to make.
+ *
+ * The queue only tracks orders while someone is listening; the last listener
+ * leaving clears it.
+ */
+public class KitchenQueue implements DataVersions.Listener {
+
+    private static final String CREATE_PENDING_INDEX =
+        "CREATE INDEX IF NOT EXISTS idx_orders_pending ON orders(order_date, order_time) WHERE order_status = 'Pending'";
+
+    private static final String SELECT_PENDING =
+        "SELECT id, customer_name, order_type, order_date, order_time FROM orders " +
+        "WHERE order_status = 'Pending' ORDER BY order_date, order_time, id";
+
+    public interface Listener {
+        // The open tickets in priority order; called on the queue's worker thread
+        void queueChanged(List<Ticket> tickets);
+    }
+
+    private static KitchenQueue instance;
+
+    private static final Comparator<Ticket> PRIORITY = Comparator
+        .comparing((Ticket ticket) -> !ticket.rushed)
+        .thenComparing(ticket -> ticket.placedAt)
+        .thenComparingLong(ticket -> ticket.sequence);
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kitchen-queue");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    // Guarded by this
+    private final Map<String, Ticket> ticketsById = new HashMap<>();
+    private final TreeSet<Ticket> queue = new TreeSet<>(PRIORITY);
+    // Completed here but not yet written; a re-read must not bring them back
+    private final Set<String> completing = new HashSet<>();
+    private long nextSequence;
+    private boolean schemaReady;
+
+    private KitchenQueue() {
+        Metrics.gauge("kitchen_open_tickets", this::size);
+    }
+
+    public static synchronized KitchenQueue getInstance() {
+        if (instance == null) {
+            instance = new KitchenQueue();
+        }
+        return instance;
+    }
+
+    // Starts tracking on the first listener and sends it the current queue
+    public synchronized void addListener(Listener listener) {
+        if (!listeners.addIfAbsent(listener)) {
+            return;
+        }
+        if (listeners.size() == 1) {
+            DataVersions.addListener(this);
+        }
+        scheduleRefresh();
+    }
+
+    public synchronized void removeListener(Listener listener) {
+        if (listeners.remove(listener) && listeners.isEmpty()) {
+            DataVersions.removeListener(this);
+            ticketsById.clear();
+            queue.clear();
+        }
+    }
+
+    @Override
+    public void dataChanged(int changes, boolean elsewhere) {
+        if ((changes & DataVersions.ORDERS) != 0) {
+            scheduleRefresh();
+        }
+    }
+
+    // Pushed by Recent Orders after it changes a status, so the ticket goes before the re-read
+    public void statusChanged(String orderId, String status) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        if (!"Pending".equals(status)) {
+            boolean removed;
+            synchronized (this) {
+                removed = drop(orderId);
+            }
+            if (removed) {
+                publish();
+            }
+        }
+        scheduleRefresh();
+    }
+
+    /*
+     * Marks the order Completed. The ticket leaves the queue immediately; the
+     * future completes with false if the order was no longer open (cancelled
+     * elsewhere), and exceptionally if the write failed, in which case the
+     * ticket is put back.
+     */
+    public CompletableFuture<Boolean> complete(String orderId) {
+        Ticket ticket;
+        synchronized (this) {
+            ticket = ticketsById.get(orderId);
+            drop(orderId);
+            completing.add(orderId);
+        }
+        publish();
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        worker.execute(() -> {
+            long started = System.nanoTime();
+            try {
+                boolean updated = OrderService.getInstance().updateStatus(orderId, "Completed");
+                synchronized (this) {
+                    completing.remove(orderId);
+                }
+                Metrics.recordSince("kitchen_complete", started);
+                DataVersions.ordersChanged();
+                result.complete(updated);
+            } catch (SQLException | RuntimeException e) {
+                Metrics.increment("kitchen_complete_failures");
+                synchronized (this) {
+                    completing.remove(orderId);
+                    if (ticket != null && !listeners.isEmpty()) {
+                        add(ticket);
+                    }
+                }
+                publish();
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    // Moves a ticket to (or back from) the front of the queue; kitchen-side only, not stored
+    public void toggleRush(String orderId) {
+        synchronized (this) {
+            Ticket ticket = ticketsById.get(orderId);
+            if (ticket == null) {
+                return;
+            }
+            queue.remove(ticket);
+            ticket.rushed = !ticket.rushed;
+            queue.add(ticket);
+        }
+        publish();
+    }
+
+    public synchronized List<Ticket> getTickets() {
+        return Collections.unmodifiableList(new ArrayList<>(queue));
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    private void scheduleRefresh() {
+        if (refreshQueued.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                refreshQueued.set(false);
+                refresh();
+            });
+        }
+    }
+
+    // Re-reads the Pending orders; runs on the worker
+    private void refresh() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        long started = System.nanoTime();
+        try (Connection connection = SqliteConnection.Connector()) {
+            if (connection == null) {
+                throw new SQLException("Could not connect to database");
+            }
+            ensureSchema(connection);
+
+            List<Ticket> pending = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_PENDING);
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    pending.add(new Ticket(
+                        resultSet.getString("id"),
+                        resultSet.getString("customer_name"),
+                        resultSet.getString("order_type"),
+                        placedAt(resultSet.getString("order_date"), resultSet.getString("order_time"))));
+                }
+            }
+
+            Set<String> known;
+            synchronized (this) {
+                known = new HashSet<>(ticketsById.keySet());
+                known.addAll(completing);
+            }
+            Set<String> open = new HashSet<>();
+            List<Ticket> added = new ArrayList<>();
+            for (Ticket ticket : pending) {
+                open.add(ticket.orderId);
+                if (!known.contains(ticket.orderId)) {
+                    ticket.items = Collections.unmodifiableList(OrderItemStore.loadItems(connection, ticket.orderId));
+                    added.add(ticket);
+                }
+            }
+
+            synchronized (this) {
+                ticketsById.keySet().removeIf(orderId -> !open.contains(orderId));
+                queue.removeIf(ticket -> !open.contains(ticket.orderId));
+                for (Ticket ticket : added) {
+                    if (!completing.contains(ticket.orderId) && !ticketsById.containsKey(ticket.orderId)) {
+                        add(ticket);
+                    }
+                }
+            }
+            Metrics.recordSince("kitchen_refresh", started);
+        } catch (SQLException e) {
+            System.err.println("Could not load the kitchen queue: " + e.getMessage());
+        }
+        publish();
+    }
+
+    // Called by the order server at start for its terminals, which can't create indexes
+    synchronized void ensureSchema(Connection connection) throws SQLException {
+        if (schemaReady || OrderServerClient.isConfigured()) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_PENDING_INDEX);
+        }
+        schemaReady = true;
+    }
+
+    // Callers hold the lock
+    private void add(Ticket ticket) {
+        ticket.sequence = nextSequence++;
+        ticketsById.put(ticket.orderId, ticket);
+        queue.add(ticket);
+    }
+
+    private boolean drop(String orderId) {
+        Ticket ticket = ticketsById.remove(orderId);
+        return ticket != null && queue.remove(ticket);
+    }
+
+    private void publish() {
+        List<Ticket> tickets = getTickets();
+        for (Listener listener : listeners) {
+            try {
+                listener.queueChanged(tickets);
+            } catch (RuntimeException e) {
+                System.err.println("Kitchen queue listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // order_time is LocalTime.toString() for new orders; older rows may lack it
+    private static LocalDateTime placedAt(String date, String time) {
+        try {
+            LocalDate day = LocalDate.parse(date);
+            return time == null || time.isEmpty() ? day.atStartOfDay() : day.atTime(LocalTime.parse(time));
+        } catch (RuntimeException e) {
+            return LocalDateTime.now();
+        }
+    }
+
+    // One open order as the kitchen sees it
+    public static class Ticket {
+        private final String orderId;
+        private final String customerName;
+        private final String orderType;
+        private final LocalDateTime placedAt;
+        private List<OrderItem> items = Collections.emptyList();
+        private volatile boolean rushed;
+        private long sequence;
+
+        Ticket(String orderId, String customerName, String orderType, LocalDateTime placedAt) {
+            this.orderId = orderId;
+            this.customerName = customerName;
+            this.orderType = orderType;
+            this.placedAt = placedAt;
+        }
+
+        public String getOrderId() {
+            return orderId;
+        }
+
+        public String getCustomerName() {
+            return customerName;
+        }
+
+        public String getOrderType() {
+            return orderType;
+        }
+
+        public LocalDateTime getPlacedAt() {
+            return placedAt;
+        }
+
+        public List<OrderItem> getItems() {
+            return items;
+        }
+
+        public boolean isRushed() {
+            return rushed;
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Writes orders straight into the SQLite database; used by a standalone till
+ * and by OrderServer on behalf of its terminals.
+ *
+ * Order ids: the shipped schema declares orders.id INTEGER PRIMARY KEY, which
+ * only accepts numbers, so SQLite assigns the id (unique across terminals).
+ * Older databases with a text id column keep getting ORD-xxxxxx ids.
+ *
+ * Orders are written one at a time: with several terminals sending orders to
+ * the server at once, two SQLite transactions upgrading their locks together
+ * fail with SQLITE_BUSY instead of waiting for each other. Every other write
+ * (status changes, catalog and recipe edits, from this machine or from a
+ * terminal through OrderServer) takes the same lock for the one request that
+ * makes it. It is a semaphore so a write that waits too long fails instead of
+ * hanging the till.
+ *
+ * Each order is stamped with the open shift and its cashier, and ShiftLedger
+ * counts it (or takes it back out on cancellation) right after the commit.
+ * StockForecast hears which products' stock moved at the same point.
+ *
+ * Stock moves in one batch per order, summed per product. Products with a
+ * recipe (see RecipeBook) use up their ingredients instead, in a second batch
+ * summed per ingredient, and what the ingredients can still make is recounted
+ * for the products that use them. Both batches only take stock that is there:
+ * a row that would go below zero is left alone, and an update count of zero
+ * rolls the order back with an OutOfStockException. Callers' own checks against
+ * the stock they last read are only a fast path.
+ */
+public class LocalOrderService implements OrderService {
+
+    private static final String INSERT_ORDER =
+        "INSERT INTO orders (customer_name, order_type, payment_method, order_status, total_amount, order_date, order_time, shift_id, cashier) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ORDER_WITH_ID =
+        "INSERT INTO orders (id, customer_name, order_type, payment_method, order_status, total_amount, order_date, order_time, shift_id, cashier) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_STOCK = "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?";
+
+    private static final String UPDATE_STATUS =
+        "UPDATE orders SET order_status = ? WHERE id = ? AND order_status <> 'Cancelled'";
+
+    private static final String CANCEL_ORDER =
+        "UPDATE orders SET order_status = 'Cancelled' WHERE id = ? AND order_status <> 'Cancelled'";
+
+    // Stock one order took, per product: its lines plus the add-ons on them
+    private static final String SELECT_ORDER_STOCK =
+        "SELECT product_id, SUM(quantity) AS quantity FROM (" +
+        "SELECT product_id, quantity FROM order_items WHERE order_id = ? " +
+        "UNION ALL " +
+        "SELECT m.modifier_product_id, m.quantity * oi.quantity FROM order_item_modifiers m " +
+        "JOIN order_items oi ON m.order_item_id = oi.id " +
+        "WHERE oi.order_id = ? AND m.modifier_product_id IS NOT NULL) " +
+        "GROUP BY product_id";
+
+    private static final String RESTORE_STOCK = "UPDATE products SET stock = stock + ? WHERE id = ?";
+
+    // What the shift totals need to take a cancelled order back out
+    private static final String SELECT_CANCELLED =
+        "SELECT shift_id, payment_method, order_type, cashier, total_amount FROM orders WHERE id = ?";
+
+    private static final String DELETE_ALL_MODIFIERS = "DELETE FROM order_item_modifiers";
+    private static final String DELETE_ALL_ITEMS = "DELETE FROM order_items";
+    private static final String DELETE_ALL_ORDERS = "DELETE FROM orders";
+
+    private static final String RESET_ORDER_SEQUENCES =
+        "DELETE FROM sqlite_sequence WHERE name IN ('orders', 'order_items', 'order_item_modifiers')";
+
+    private static LocalOrderService instance;
+
+    private static final long WRITE_LOCK_WAIT_SECONDS = 30;
+
+    private final Semaphore writeLock = new Semaphore(1, true);
+    private volatile Boolean numericOrderIds;
+
+    private LocalOrderService() {
+    }
+
+    public static synchronized LocalOrderService getInstance() {
+        if (instance == null) {
+            instance = new LocalOrderService();
+        }
+        return instance;
+    }
+
+    @Override
+    public String placeOrder(OrderRequest request) throws SQLException {
+        lockWrites();
+        try {
+            return writeOrder(request);
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    private String writeOrder(OrderRequest request) throws SQLException {
+        long started = System.nanoTime();
+        ShiftLedger ledger = ShiftLedger.getInstance();
+        long shiftId = ledger.currentShiftId();
+        RecipeBook.Recipes recipes = RecipeBook.getInstance().recipes();
+        FlightEvents.OrderPhase phase = FlightEvents.OrderPhase.start("connect", null);
+        Connection connection = SqliteConnection.Connector();
+        if (connection == null) {
+            phase.finish(false);
+            throw new SQLException("Could not connect to database");
+        }
+
+        try {
+            connection.setAutoCommit(false);
+
+            LocalDateTime now = LocalDateTime.now();
+            String orderId;
+            long rowid;
+
+            phase = phase.next("insert-order", null);
+            if (usesNumericOrderIds(connection)) {
+                try (PreparedStatement orderStmt = connection.prepareStatement(INSERT_ORDER, Statement.RETURN_GENERATED_KEYS)) {
+                    bindOrder(orderStmt, 1, request, now, shiftId);
+                    orderStmt.executeUpdate();
+                    rowid = generatedKey(orderStmt, "order");
+                    orderId = Long.toString(rowid);
+                }
+            } else {
+                orderId = OrderIdGenerator.generateOrderId();
+                try (PreparedStatement orderStmt = connection.prepareStatement(INSERT_ORDER_WITH_ID, Statement.RETURN_GENERATED_KEYS)) {
+                    orderStmt.setString(1, orderId);
+                    bindOrder(orderStmt, 2, request, now, shiftId);
+                    orderStmt.executeUpdate();
+                    rowid = generatedKey(orderStmt, "order");
+                }
+            }
+
+            // Order lines with their modifiers, then the stock for products and add-ons
+            List<OrderItem> items = request.getItems();
+            phase = phase.next("insert-items", orderId);
+            OrderItemStore.insertItems(connection, orderId, items);
+
+            phase = phase.next("update-stock", orderId);
+            Map<Integer, Integer> drawn = new TreeMap<>();
+            for (OrderItem item : items) {
+                drawn.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+                // Each add-on draws its own stock, once per unit of the line
+                for (OrderItemModifier modifier : item.getModifiers()) {
+                    if (modifier.getModifierProductId() > 0) {
+                        drawn.merge(modifier.getModifierProductId(), modifier.getQuantity() * item.getQuantity(), Integer::sum);
+                    }
+                }
+            }
+            // Products with a recipe use up ingredients, the rest their own stock
+            Map<Integer, Integer> ownStock = new TreeMap<>();
+            Map<Integer, Double> ingredients = recipes.expand(drawn, ownStock);
+            drawStock(connection, ownStock, items);
+            Set<Integer> remade = RecipeBook.useIngredients(connection, recipes, ingredients);
+
+            phase = phase.next("commit", orderId);
+            connection.commit();
+            phase.finish(true);
+            ledger.orderPlaced(shiftId, rowid, request);
+            StockForecast.sold(drawn);
+            StockForecast.stockChanged(remade);
+            Metrics.recordSince("order_commit", started);
+            return orderId;
+
+        } catch (SQLException | RuntimeException e) {
+            phase.finish(false);
+            Metrics.increment(e instanceof OutOfStockException ? "orders_out_of_stock" : "order_commit_failures");
+            try {
+                connection.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            throw e;
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+                connection.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public boolean updateStatus(String orderId, String status) throws SQLException {
+        if ("Cancelled".equalsIgnoreCase(status)) {
+            return cancelOrder(orderId);
+        }
+        lockWrites();
+        try (Connection connection = SqliteConnection.Connector()) {
+            if (connection == null) {
+                throw new SQLException("Could not connect to database");
+            }
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_STATUS)) {
+                statement.setString(1, status);
+                statement.setString(2, orderId);
+                return statement.executeUpdate() > 0;
+            }
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    /*
+     * Order ids keep counting up while archives exist, since archived orders
+     * keep theirs; with no archives the counters start over.
+     */
+    @Override
+    public int deleteAllOrders() throws SQLException {
+        lockWrites();
+        try (Connection connection = SqliteConnection.Connector()) {
+            if (connection == null) {
+                throw new SQLException("Could not connect to database");
+            }
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                OrderItemStore.ensureSchema(connection);
+                statement.executeUpdate(DELETE_ALL_MODIFIERS);
+                statement.executeUpdate(DELETE_ALL_ITEMS);
+                int deleted = statement.executeUpdate(DELETE_ALL_ORDERS);
+                if (!OrderArchive.hasArchives()) {
+                    try {
+                        statement.executeUpdate(RESET_ORDER_SEQUENCES);
+                    } catch (SQLException e) {
+                        // No AUTOINCREMENT table in this database, so no counters to reset
+                    }
+                }
+                connection.commit();
+                Metrics.increment("orders_deleted", deleted);
+                return deleted;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    /*
+     * The status changes go in as one batch whose update counts say which orders
+     * were still open; only those have their stock put back, summed per product
+     * across all of them and written as a second batch.
+     */
+    @Override
+    public List<String> cancelOrders(List<String> orderIds) throws SQLException {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        lockWrites();
+        try {
+            return writeCancellations(ids);
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    private List<String> writeCancellations(List<String> ids) throws SQLException {
+        long started = System.nanoTime();
+        RecipeBook.Recipes recipes = RecipeBook.getInstance().recipes();
+        Connection connection = SqliteConnection.Connector();
+        if (connection == null) {
+            throw new SQLException("Could not connect to database");
+        }
+
+        try {
+            // Loads the shift ledger (and its order columns) before the transaction starts
+            ShiftLedger.getInstance().currentShiftId();
+            connection.setAutoCommit(false);
+            OrderItemStore.ensureSchema(connection);
+
+            List<String> cancelled = new ArrayList<>();
+            try (PreparedStatement cancelStmt = connection.prepareStatement(CANCEL_ORDER)) {
+                for (String id : ids) {
+                    cancelStmt.setString(1, id);
+                    cancelStmt.addBatch();
+                }
+                int[] counts = cancelStmt.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > 0) {
+                        cancelled.add(ids.get(i));
+                    }
+                }
+            }
+
+            Map<Integer, Integer> restock = new TreeMap<>();
+            try (PreparedStatement stockStmt = connection.prepareStatement(SELECT_ORDER_STOCK)) {
+                for (String id : cancelled) {
+                    stockStmt.setString(1, id);
+                    stockStmt.setString(2, id);
+                    try (ResultSet resultSet = stockStmt.executeQuery()) {
+                        while (resultSet.next()) {
+                            restock.merge(resultSet.getInt("product_id"), resultSet.getInt("quantity"), Integer::sum);
+                        }
+                    }
+                }
+            }
+
+            // Products deleted since the sale have nothing to restore. Ingredients go back
+            // by today's recipe, which is what the sale used unless it was edited since.
+            Map<Integer, Integer> ownStock = new TreeMap<>();
+            Map<Integer, Double> ingredients = recipes.expand(restock, ownStock);
+            ingredients.replaceAll((ingredient, amount) -> -amount);
+            restoreStock(connection, ownStock);
+            Set<Integer> remade = RecipeBook.moveIngredients(connection, recipes, ingredients);
+
+            List<ShiftLedger.CancelledOrder> takenBack = new ArrayList<>(cancelled.size());
+            try (PreparedStatement orderStmt = connection.prepareStatement(SELECT_CANCELLED)) {
+                for (String id : cancelled) {
+                    orderStmt.setString(1, id);
+                    try (ResultSet resultSet = orderStmt.executeQuery()) {
+                        if (resultSet.next()) {
+                            long shift = resultSet.getLong("shift_id");
+                            takenBack.add(new ShiftLedger.CancelledOrder(resultSet.wasNull() ? null : shift,
+                                resultSet.getString("payment_method"), resultSet.getString("order_type"),
+                                resultSet.getString("cashier"), ShiftLedger.cents(resultSet.getDouble("total_amount"))));
+                        }
+                    }
+                }
+            }
+
+            connection.commit();
+            ShiftLedger.getInstance().ordersCancelled(takenBack);
+            StockForecast.stockChanged(restock.keySet());
+            StockForecast.stockChanged(remade);
+            Metrics.recordSince("order_cancel", started);
+            Metrics.increment("orders_cancelled", cancelled.size());
+            return cancelled;
+
+        } catch (SQLException | RuntimeException e) {
+            Metrics.increment("order_cancel_failures");
+            try {
+                connection.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            throw e;
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+                connection.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /*
+     * X report from the running totals of the open shift. The ledger copies them
+     * under its own lock, so this doesn't wait for orders being written.
+     */
+    @Override
+    public ShiftReport currentShift() throws SQLException {
+        return ShiftLedger.getInstance().currentReport();
+    }
+
+    // Taken between two orders, so no order can land in a shift after its Z report
+    @Override
+    public ShiftReport closeShift(String closedBy) throws SQLException {
+        lockWrites();
+        try {
+            return ShiftLedger.getInstance().close(closedBy);
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    @Override
+    public ShiftReport reconcileShift(long shiftId) throws SQLException {
+        lockWrites();
+        try {
+            return ShiftLedger.getInstance().reconcile(shiftId);
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    // Waits its turn to write; a write stuck behind a long one gets an error instead of hanging
+    void lockWrites() throws SQLException {
+        try {
+            if (!writeLock.tryAcquire(WRITE_LOCK_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                throw new SQLException("Database is busy with another write, try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting to write", e);
+        }
+    }
+
+    void unlockWrites() {
+        writeLock.release();
+    }
+
+    // One batch of UPDATE_STOCK; a product without enough stock left fails the order
+    private static void drawStock(Connection connection, Map<Integer, Integer> units, List<OrderItem> items)
+            throws SQLException {
+        if (units.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(units.keySet());
+        int[] counts;
+        try (PreparedStatement statement = connection.prepareStatement(UPDATE_STOCK)) {
+            for (Integer id : ids) {
+                statement.setInt(1, units.get(id));
+                statement.setInt(2, id);
+                statement.setInt(3, units.get(id));
+                statement.addBatch();
+            }
+            counts = statement.executeBatch();
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                throw new OutOfStockException("Not enough " + nameOf(ids.get(i), items) + " left in stock");
+            }
+        }
+    }
+
+    // The name the order knows a product (or add-on) by
+    private static String nameOf(int productId, List<OrderItem> items) {
+        for (OrderItem item : items) {
+            if (item.getProductId() == productId) {
+                return item.getProductName();
+            }
+            for (OrderItemModifier modifier : item.getModifiers()) {
+                if (modifier.getModifierProductId() == productId) {
+                    return modifier.getName();
+                }
+            }
+        }
+        return "product " + productId;
+    }
+
+    // One batch of RESTORE_STOCK, per product
+    private static void restoreStock(Connection connection, Map<Integer, Integer> units) throws SQLException {
+        if (units.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(RESTORE_STOCK)) {
+            for (Map.Entry<Integer, Integer> entry : units.entrySet()) {
+                statement.setInt(1, entry.getValue());
+                statement.setInt(2, entry.getKey());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static long generatedKey(PreparedStatement statement, String what) throws SQLException {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            if (!keys.next()) {
+                throw new SQLException("No id returned for the new " + what);
+            }
+            return keys.getLong(1);
+        }
+    }
+
+    // customer, type, payment, status, total, date, time, shift, cashier starting at the given index
+    private static void bindOrder(PreparedStatement statement, int index, OrderRequest request, LocalDateTime now, long shiftId)
+            throws SQLException {
+        statement.setString(index, request.getCustomerName());
+        statement.setString(index + 1, request.getOrderType());
+        statement.setString(index + 2, request.getPaymentMethod());
+        statement.setString(index + 3, "Pending");
+        statement.setDouble(index + 4, request.getTotal());
+        statement.setString(index + 5, now.toLocalDate().toString());
+        statement.setString(index + 6, now.toLocalTime().toString());
+        statement.setLong(index + 7, shiftId);
+        statement.setString(index + 8, request.getCashier());
+    }
+
+    // Whether orders.id is the INTEGER rowid, checked once per run
+    private boolean usesNumericOrderIds(Connection connection) throws SQLException {
+        Boolean numeric = numericOrderIds;
+        if (numeric == null) {
+            numeric = false;
+            try (PreparedStatement statement = connection.prepareStatement("PRAGMA table_info(orders)");
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    if ("id".equalsIgnoreCase(resultSet.getString("name"))) {
+                        numeric = "INTEGER".equalsIgnoreCase(resultSet.getString("type")) && resultSet.getInt("pk") > 0;
+                    }
+                }
+            }
+            numericOrderIds = numeric;
+        }
+        return numeric;
+    }
+}
@@ -2,48 +2,36 @@ package model;
 
 import java.sql.SQLException;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 
 public class LoginModel {
 	
-    Connection connection;
     private String currentUserRole;
     private String currentUsername;
 
+    // Connections are taken per call; a missing database shows on the login page instead of exiting
     public LoginModel() {
-        connection = SqliteConnection.Connector();
-        if (connection == null) {
-            System.out.println("Database Connection Failed");
-            System.exit(1);
-        }
     }
     
     public boolean isDbConnected() {
-        try {
-            return !connection.isClosed();
+        try (Connection connection = SqliteConnection.Connector()) {
+            return connection != null && !connection.isClosed();
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
     
+    /*
+     * Verifies the credentials (see Authenticator) and starts the user session.
+     * Hashing is deliberately slow, so call this off the FX thread.
+     */
     public boolean isLogin(String user, String pass) throws SQLException {
-        PreparedStatement preparedStatement = null;
-        ResultSet resultSet = null;
-        String query = "SELECT * FROM users WHERE username = ? AND password = ?";
+        char[] password = pass.toCharArray();
         try {
-            preparedStatement = connection.prepareStatement(query);
-            preparedStatement.setString(1, user);
-            preparedStatement.setString(2, pass);
-            
-            resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()) {
+            String role = Authenticator.getInstance().authenticate(user, password);
+            if (role != null) {
                 currentUsername = user;
-                currentUserRole = resultSet.getString("role");
-                if (currentUserRole == null) {
-                    currentUserRole = "staff"; // Default role
-                }
+                currentUserRole = role;
                 
                 // Set user session for access across controllers
                 UserSession.getInstance().setUser(currentUsername, currentUserRole);
@@ -54,12 +42,8 @@ public class LoginModel {
                 currentUserRole = null;
                 return false;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
         } finally {
-            if (resultSet != null) resultSet.close();
-            if (preparedStatement != null) preparedStatement.close();
+            PasswordHasher.clear(password);
         }
     }
     
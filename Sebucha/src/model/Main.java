@@ -1,12 +1,15 @@
 package model;
 	
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.stage.Stage;
-import javafx.scene.Scene;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.image.Image;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
 public class Main extends Application {
 	
 	public static void main(String[] args) {
@@ -15,18 +18,60 @@ public class Main extends Application {
 	
 	@Override
 	public void start(Stage primaryStage) throws Exception {
-		// Corrected FXML path
-		Parent root = FXMLLoader.load(getClass().getResource("/view/fxml/LoginPage.fxml"));
-		Scene scene = new Scene(root, 800, 600);
-
 		// Corrected icon path
 		Image icon = new Image(getClass().getResourceAsStream("/view/images/sebucha_logo.png"));
 		primaryStage.getIcons().add(icon);
-		primaryStage.setTitle("Administrator Login");
-		primaryStage.setScene(scene);
 		primaryStage.setMaximized(false);
 		primaryStage.setResizable(false);
-	    primaryStage.centerOnScreen();
-		primaryStage.show();
+
+		// Splash goes up first; database, images and classes warm up behind the login page
+		Stage splash = SplashWindow.show(icon);
+		StartupWarmup.start();
+		Metrics.startFileExport();
+		// Shares this till's database with other terminals when -Dsebucha.server.port is set
+		OrderServer.startIfConfigured();
+		// HTTP API for the kiosk and delivery partners when -Dsebucha.api.port is set
+		ApiServer.startIfConfigured();
+		// Hot snapshots of sebucha.db into backups/ (-Dsebucha.snapshot.hours, 0 = off)
+		DatabaseSnapshots.startIfConfigured();
+		// Product status from stock and sales pace, with reorder alerts (-Dsebucha.forecast.minutes, 0 = off)
+		StockForecast.startIfConfigured();
+		// Starting the recorder takes about a second, keep it off the login path
+		CompletableFuture.runAsync(FlightRecording::start);
+
+		Platform.runLater(() -> {
+			try {
+				// Every page after this swaps into the same scene (see SceneManager)
+				SceneManager.getInstance().show(primaryStage, "/view/fxml/LoginPage.fxml", "Administrator Login");
+			} catch (IOException e) {
+				e.printStackTrace();
+				Platform.exit();
+				return;
+			} finally {
+				splash.close();
+			}
+			recordStartupTime();
+			StartupWarmup.preloadViewsWhenReady();
+		});
+	}
+
+	// Time from JVM launch to the login page being on screen
+	private static void recordStartupTime() {
+		ProcessHandle.current().info().startInstant().ifPresent(launched -> {
+			Metrics.timer("login_ready").record(Duration.between(launched, Instant.now()).toNanos());
+		});
+	}
+
+	@Override
+	public void stop() {
+		// Give queued receipts a moment to reach the printer before exiting
+		ReceiptPipeline.getInstance().shutdown(5, java.util.concurrent.TimeUnit.SECONDS);
+		DatabaseSnapshots.stopRunning();
+		StockForecast.stopRunning();
+		ApiServer.stopRunning();
+		OrderServer.stopRunning();
+		// Save the running shift totals; a restart would otherwise replay them from the orders
+		ShiftLedger.checkpointOnExit();
+		FlightRecording.stop();
 	}
 }
\ No newline at end of file
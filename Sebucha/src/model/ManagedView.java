@@ -0,0 +1,17 @@
+package model;
+
+/*
+ * Optional lifecycle hooks for controllers of views cached by SceneManager.
+ * A cached view's initialize() runs only once, so anything that has to be
+ * current each time the page appears belongs in onShow().
+ */
+public interface ManagedView {
+
+    // The view has just become the visible page
+    default void onShow() {
+    }
+
+    // The view is about to be replaced by another page
+    default void onHide() {
+    }
+}
@@ -0,0 +1,184 @@
+package model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/*
+ * Process-wide counters, gauges and latency timers.
+ * Names are short snake_case operation names ("db_query", "order_commit");
+ * timers are recorded with
+ *     long started = System.nanoTime();
+ *     ...
+ *     Metrics.recordSince("order_commit", started);
+ * Everything can be written out in the Prometheus text format, on demand or
+ * every few seconds to the file named by -Dsebucha.metrics.file (for the
+ * node_exporter textfile collector).
+ */
+public final class Metrics {
+
+    public static final String FILE_PROPERTY = "sebucha.metrics.file";
+    public static final String DEFAULT_FILE = "sebucha-metrics.prom";
+
+    private static final String PREFIX = "sebucha_";
+    private static final long FILE_EXPORT_SECONDS = 15;
+
+    // Quantiles written for every timer
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService fileExporter;
+
+    private Metrics() {
+    }
+
+    public static void increment(String name) {
+        counter(name).increment();
+    }
+
+    public static void increment(String name, long amount) {
+        counter(name).add(amount);
+    }
+
+    public static long getCount(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    // Registers (or replaces) a value read whenever metrics are shown or exported
+    public static void gauge(String name, DoubleSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public static LatencyHistogram timer(String name) {
+        LatencyHistogram timer = timers.get(name);
+        return timer != null ? timer : timers.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    public static void recordSince(String name, long startNanos) {
+        timer(name).record(System.nanoTime() - startNanos);
+    }
+
+    // hits / (hits + misses) of two counters, 0 before the first lookup
+    public static double ratio(String hitsCounter, String missesCounter) {
+        long hits = getCount(hitsCounter);
+        long total = hits + getCount(missesCounter);
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    // Sorted copies for display
+    public static Map<String, LatencyHistogram> getTimers() {
+        return new TreeMap<>(timers);
+    }
+
+    public static Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    public static Map<String, Double> getGauges() {
+        Map<String, Double> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, readGauge(gauge)));
+        return values;
+    }
+
+    // Prometheus text exposition format; timers become summaries in seconds
+    public static void writePrometheus(Writer out) throws IOException {
+        StringBuilder text = new StringBuilder(4096);
+        getCounters().forEach((name, value) -> {
+            String metric = PREFIX + name + "_total";
+            text.append("# TYPE ").append(metric).append(" counter\n");
+            text.append(metric).append(' ').append(value).append('\n');
+        });
+        getGauges().forEach((name, value) -> {
+            String metric = PREFIX + name;
+            text.append("# TYPE ").append(metric).append(" gauge\n");
+            text.append(metric).append(' ').append(formatDouble(value)).append('\n');
+        });
+        getTimers().forEach((name, timer) -> {
+            String metric = PREFIX + name + "_seconds";
+            text.append("# TYPE ").append(metric).append(" summary\n");
+            for (double quantile : QUANTILES) {
+                text.append(metric).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(formatDouble(timer.getValueAtQuantile(quantile) / 1e9)).append('\n');
+            }
+            text.append(metric).append("_sum ").append(formatDouble(timer.getTotalNanos() / 1e9)).append('\n');
+            text.append(metric).append("_count ").append(timer.getCount()).append('\n');
+        });
+        out.write(text.toString());
+    }
+
+    // Writes a complete file next to the target and moves it into place, so scrapers never see half of it
+    public static void exportPrometheus(Path target) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writePrometheus(out);
+        }
+        try {
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Starts the periodic export if sebucha.metrics.file is set
+    public static synchronized void startFileExport() {
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file == null || file.isBlank() || fileExporter != null) {
+            return;
+        }
+        Path target = Paths.get(file);
+        fileExporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        fileExporter.scheduleWithFixedDelay(() -> {
+            try {
+                exportPrometheus(target);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not write metrics to " + target + ": " + e.getMessage());
+            }
+        }, FILE_EXPORT_SECONDS, FILE_EXPORT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static LongAdder counter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    private static double readGauge(DoubleSupplier gauge) {
+        try {
+            return gauge.getAsDouble();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static String formatDouble(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
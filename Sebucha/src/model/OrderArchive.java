@@ -0,0 +1,406 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Moves old order history out of the live database into one archive file per
+ * year (archive/orders-2024.db) while the app keeps running, and lets order
+ * reports read the archives as if the orders had never left.
+ *
+ * Orders move in small chunks so tills placing orders meanwhile wait at most
+ * a few milliseconds. Each chunk copies orders, lines and add-ons into the
+ * archive (INSERT OR REPLACE) and commits that, and only then deletes the same
+ * orders here in a second transaction. The database runs in WAL mode, where a
+ * transaction over two files is not atomic and a crash could keep the deletes
+ * while losing the copies, so the two steps never share a commit. A crash
+ * between them leaves rows in both places; running the archive again finishes
+ * the move without duplicates.
+ * Pending orders, and the newest order (which keeps the id sequence going), stay.
+ *
+ * Reports scan the live database, then each archive whose year overlaps the
+ * report's dates, newest or oldest first to match the report's order; archives
+ * are attached to the connection on demand. Archives live next to the database
+ * that owns them, so terminals of an order server report on live orders only.
+ */
+public class OrderArchive {
+
+    public static final String DIRECTORY_PROPERTY = "sebucha.archive.dir";
+    public static final String DEFAULT_DIRECTORY = "archive";
+    public static final int DEFAULT_MONTHS = 12;
+
+    // Orders moved per transaction
+    private static final int CHUNK_SIZE = 500;
+
+    // SQLite allows 10 attached databases by default; leave room for callers
+    private static final int MAX_ATTACHED = 8;
+
+    private static final String[] TABLES = {"orders", "order_items", "order_item_modifiers"};
+
+    private static final Pattern CREATE_TABLE = Pattern.compile(
+        "(?is)^\\s*CREATE\\s+TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?[\"`\\[]?\\w+[\"`\\]]?");
+
+    private static final Pattern ARCHIVE_FILE = Pattern.compile("orders-(\\d{4})\\.db");
+
+    private static final String SELECT_YEARS =
+        "SELECT DISTINCT substr(order_date, 1, 4) FROM main.orders " +
+        "WHERE order_date < ? AND order_status <> 'Pending' ORDER BY 1";
+
+    private static final String SELECT_CHUNK =
+        "INSERT INTO temp.archive_chunk (id) SELECT id FROM main.orders " +
+        "WHERE order_date >= ? AND order_date < ? AND order_status <> 'Pending' " +
+        "AND id <> (SELECT MAX(id) FROM main.orders) LIMIT " + CHUNK_SIZE;
+
+    private OrderArchive() {
+    }
+
+    // Archives orders older than N months: java model.OrderArchive [months]
+    public static void main(String[] args) throws Exception {
+        int months = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MONTHS;
+        int moved = archiveOlderThan(months, count -> System.out.println("Archived " + count + " orders..."));
+        System.out.println("Archived " + moved + " orders older than " + months + " months into " + getDirectory());
+        SqliteConnection.closeConnection();
+    }
+
+    public static Path getDirectory() {
+        return Paths.get(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+    }
+
+    // Years with an archive file, oldest first
+    public static List<Integer> getArchivedYears() {
+        if (OrderServerClient.isConfigured()) {
+            return new ArrayList<>();
+        }
+        Set<Integer> years = new TreeSet<>();
+        Path directory = getDirectory();
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "orders-*.db")) {
+            for (Path file : files) {
+                Matcher matcher = ARCHIVE_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    years.add(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not list order archives: " + e.getMessage());
+        }
+        return new ArrayList<>(years);
+    }
+
+    public static boolean hasArchives() {
+        return !getArchivedYears().isEmpty();
+    }
+
+    /*
+     * Moves finished orders dated before the first day of the month N months ago.
+     * progress receives the running total after each chunk. Returns the number
+     * of orders moved.
+     */
+    public static int archiveOlderThan(int months, IntConsumer progress) throws SQLException, IOException {
+        if (months < 1) {
+            throw new IllegalArgumentException("Keep at least one month of orders");
+        }
+        if (OrderServerClient.isConfigured()) {
+            throw new IllegalStateException("Archive on the order server, not on a terminal");
+        }
+        LocalDate cutoff = LocalDate.now().minusMonths(months).withDayOfMonth(1);
+        Files.createDirectories(getDirectory());
+
+        long started = System.nanoTime();
+        int moved = 0;
+        List<Integer> changedYears = new ArrayList<>();
+        try (Connection connection = SqliteConnection.Connector()) {
+            if (connection == null) {
+                throw new SQLException("Could not connect to database");
+            }
+            OrderItemStore.ensureSchema(connection);
+
+            List<Integer> years = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_YEARS)) {
+                statement.setString(1, cutoff.toString());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        try {
+                            years.add(Integer.parseInt(resultSet.getString(1)));
+                        } catch (NumberFormatException e) {
+                            // Malformed order_date; leave those orders where they are
+                        }
+                    }
+                }
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TEMP TABLE IF NOT EXISTS archive_chunk (id PRIMARY KEY)");
+            }
+            for (int year : years) {
+                String schema = attach(connection, year);
+                prepareArchive(connection, schema);
+                LocalDate from = LocalDate.of(year, 1, 1);
+                LocalDate to = from.plusYears(1).isAfter(cutoff) ? cutoff : from.plusYears(1);
+                int movedBefore = moved;
+                int chunk;
+                while ((chunk = moveChunk(connection, schema, from, to)) > 0) {
+                    moved += chunk;
+                    progress.accept(moved);
+                }
+                if (moved > movedBefore) {
+                    changedYears.add(year);
+                }
+            }
+        }
+
+        for (int year : changedYears) {
+            backUp(year);
+        }
+
+        if (moved > 0) {
+            DataVersions.ordersChanged();
+            compactIfMostlyEmpty();
+        }
+        Metrics.recordSince("order_archive", started);
+        Metrics.increment("orders_archived", moved);
+        return moved;
+    }
+
+    /*
+     * Databases a report over the given dates should scan, in report order:
+     * "main" plus the attached archives whose year overlaps the dates.
+     */
+    public static List<String> sources(LocalDate from, LocalDate to, boolean newestFirst) {
+        List<String> schemas = new ArrayList<>();
+        List<Integer> years = getArchivedYears();
+        if (newestFirst) {
+            Collections.reverse(years);
+        }
+        for (int year : years) {
+            if (from != null && to != null && (year < from.getYear() || year > to.getYear())) {
+                continue;
+            }
+            schemas.add(schemaName(year));
+        }
+        if (newestFirst) {
+            schemas.add(0, "main");
+        } else {
+            schemas.add("main");
+        }
+        return schemas;
+    }
+
+    // Attaches the archive for the schema name returned by sources(); no-op for main
+    public static void attach(Connection connection, String schema) throws SQLException {
+        if (!"main".equals(schema)) {
+            attach(connection, Integer.parseInt(schema.substring("archive_".length())));
+        }
+    }
+
+    // Orders matching the query across the live database and its archives
+    public static long count(Connection connection, OrderHistoryQuery query) throws SQLException {
+        long total = 0;
+        for (String schema : sources(query.getFromDate(), query.getToDate(), true)) {
+            attach(connection, schema);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT COUNT(*) FROM " + schema + ".orders o" + query.whereClause())) {
+                query.bind(statement, 1);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    total += resultSet.next() ? resultSet.getLong(1) : 0;
+                }
+            }
+        }
+        return total;
+    }
+
+    private static String schemaName(int year) {
+        return "archive_" + year;
+    }
+
+    private static String attach(Connection connection, int year) throws SQLException {
+        String schema = schemaName(year);
+        Set<String> attached = new LinkedHashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("PRAGMA database_list")) {
+            while (resultSet.next()) {
+                String name = resultSet.getString("name");
+                if (name.startsWith("archive_")) {
+                    attached.add(name);
+                }
+            }
+        }
+        if (attached.contains(schema)) {
+            return schema;
+        }
+        try (Statement statement = connection.createStatement()) {
+            // Pooled connections collect archives over time; make room for this one
+            if (attached.size() >= MAX_ATTACHED) {
+                for (String name : attached) {
+                    statement.execute("DETACH DATABASE " + name);
+                }
+            }
+        }
+        Path file = archiveFile(year).toAbsolutePath();
+        try (PreparedStatement statement = connection.prepareStatement("ATTACH DATABASE ? AS " + schema)) {
+            statement.setString(1, file.toString());
+            statement.execute();
+        }
+        return schema;
+    }
+
+    // Creates the archive's tables like the live ones and adds any columns added here since
+    private static void prepareArchive(Connection connection, String schema) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : TABLES) {
+                String createSql;
+                try (PreparedStatement lookup = connection.prepareStatement(
+                        "SELECT sql FROM main.sqlite_master WHERE type = 'table' AND name = ?")) {
+                    lookup.setString(1, table);
+                    try (ResultSet resultSet = lookup.executeQuery()) {
+                        if (!resultSet.next()) {
+                            throw new SQLException("Live database has no " + table + " table");
+                        }
+                        createSql = resultSet.getString(1);
+                    }
+                }
+                Matcher matcher = CREATE_TABLE.matcher(createSql);
+                if (!matcher.find()) {
+                    throw new SQLException("Unexpected definition of " + table + ": " + createSql);
+                }
+                statement.execute("CREATE TABLE IF NOT EXISTS " + schema + "." + table + createSql.substring(matcher.end()));
+
+                Set<String> archived = columns(connection, schema, table);
+                List<String> missing = new ArrayList<>();
+                try (ResultSet columns = statement.executeQuery("PRAGMA main.table_info(" + table + ")")) {
+                    while (columns.next()) {
+                        if (!archived.contains(columns.getString("name").toLowerCase())) {
+                            missing.add(columns.getString("name") + " " + columns.getString("type"));
+                        }
+                    }
+                }
+                for (String column : missing) {
+                    statement.execute("ALTER TABLE " + schema + "." + table + " ADD COLUMN " + column);
+                }
+            }
+            statement.execute("CREATE INDEX IF NOT EXISTS " + schema + ".idx_orders_date ON orders(order_date, order_time)");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + schema + ".idx_order_items_order ON order_items(order_id)");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + schema + ".idx_order_item_modifiers_item ON order_item_modifiers(order_item_id)");
+        }
+    }
+
+    private static Set<String> columns(Connection connection, String schema, String table) throws SQLException {
+        Set<String> names = new LinkedHashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("PRAGMA " + schema + ".table_info(" + table + ")")) {
+            while (resultSet.next()) {
+                names.add(resultSet.getString("name").toLowerCase());
+            }
+        }
+        return names;
+    }
+
+    /*
+     * Copies one chunk of orders into the archive and commits, then deletes them
+     * here in a transaction of its own; returns how many moved.
+     */
+    private static int moveChunk(Connection connection, String schema, LocalDate from, LocalDate to) throws SQLException {
+        String orders = columnList(connection, "orders");
+        String items = columnList(connection, "order_items");
+        String modifiers = columnList(connection, "order_item_modifiers");
+        String chunkIds = "(SELECT id FROM temp.archive_chunk)";
+        String chunkItemIds = "(SELECT id FROM main.order_items WHERE order_id IN " + chunkIds + ")";
+
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM temp.archive_chunk");
+            int count;
+            try (PreparedStatement select = connection.prepareStatement(SELECT_CHUNK)) {
+                select.setString(1, from.toString());
+                select.setString(2, to.toString());
+                count = select.executeUpdate();
+            }
+            if (count > 0) {
+                statement.execute("INSERT OR REPLACE INTO " + schema + ".orders (" + orders + ") " +
+                    "SELECT " + orders + " FROM main.orders WHERE id IN " + chunkIds);
+                statement.execute("INSERT OR REPLACE INTO " + schema + ".order_items (" + items + ") " +
+                    "SELECT " + items + " FROM main.order_items WHERE order_id IN " + chunkIds);
+                statement.execute("INSERT OR REPLACE INTO " + schema + ".order_item_modifiers (" + modifiers + ") " +
+                    "SELECT " + modifiers + " FROM main.order_item_modifiers WHERE order_item_id IN " + chunkItemIds);
+            }
+            // The copies are safe in the archive before anything here is deleted
+            connection.commit();
+            if (count > 0) {
+                statement.execute("DELETE FROM main.order_item_modifiers WHERE order_item_id IN " + chunkItemIds);
+                statement.execute("DELETE FROM main.order_items WHERE order_id IN " + chunkIds);
+                statement.execute("DELETE FROM main.orders WHERE id IN " + chunkIds);
+                connection.commit();
+            }
+            return count;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    // The archive only changes here, so this is where it gets its backup copy
+    private static void backUp(int year) {
+        try {
+            DatabaseSnapshots.snapshotArchive(archiveFile(year));
+        } catch (SQLException | IOException e) {
+            Metrics.increment("db_snapshot_failures");
+            System.err.println("Could not back up the " + year + " archive: " + e.getMessage());
+        }
+    }
+
+    private static Path archiveFile(int year) {
+        return getDirectory().resolve("orders-" + year + ".db");
+    }
+
+    private static String columnList(Connection connection, String table) throws SQLException {
+        return String.join(", ", columns(connection, "main", table));
+    }
+
+    // Archiving frees pages but doesn't shrink the file; VACUUM once most of it is free (fast, it's small by then)
+    private static void compactIfMostlyEmpty() {
+        try (Connection connection = SqliteConnection.openUnpooled();
+             Statement statement = connection.createStatement()) {
+            long pages;
+            long free;
+            try (ResultSet resultSet = statement.executeQuery("PRAGMA main.page_count")) {
+                pages = resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+            try (ResultSet resultSet = statement.executeQuery("PRAGMA main.freelist_count")) {
+                free = resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+            if (pages > 0 && free * 2 > pages) {
+                long started = System.nanoTime();
+                statement.execute("VACUUM main");
+                Metrics.recordSince("db_vacuum", started);
+            }
+        } catch (SQLException e) {
+            System.err.println("Could not compact the database after archiving: " + e.getMessage());
+        }
+    }
+}
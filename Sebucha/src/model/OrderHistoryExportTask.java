@@ -0,0 +1,73 @@
+package model;
+
+import javafx.concurrent.Task;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CancellationException;
+
+/*
+ * Background export of the order history (the sales report for the current
+ * filters) in any registered format. Rows are streamed from a single forward-only
+ * cursor straight into the writer, so memory use stays flat no matter how many
+ * years of orders are exported. Returns the row count; a cancelled or failed
+ * export deletes its partial file.
+ */
+public class OrderHistoryExportTask extends Task<Long> {
+
+    private static final int PROGRESS_EVERY = 500;
+
+    private final Path target;
+    private final OrderHistoryQuery query;
+    private final ReportWriterProvider format;
+
+    public OrderHistoryExportTask(Path target, OrderHistoryQuery query, ReportWriterProvider format) {
+        this.target = target;
+        this.query = query;
+        this.format = format;
+    }
+
+    @Override
+    protected Long call() throws Exception {
+        updateMessage("Counting orders...");
+
+        ReportDefinition report = OrderReports.sales(query);
+        long[] written = {0};
+        boolean completed = false;
+
+        try (Connection connection = SqliteConnection.Connector()) {
+            if (connection == null) {
+                throw new SQLException("Could not connect to database");
+            }
+
+            // Archived orders are exported too
+            long total = OrderArchive.count(connection, query);
+
+            try (ReportWriter writer = format.open(target)) {
+                writer.begin("Order History", report.getColumns());
+                report.run(connection, row -> {
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    writer.writeRow(row);
+                    long count = ++written[0];
+                    if (count % PROGRESS_EVERY == 0 || count == total) {
+                        updateProgress(count, total);
+                        updateMessage("Exported " + count + " of " + total + " orders");
+                    }
+                });
+            }
+
+            completed = true;
+            updateProgress(total, total);
+            updateMessage("Exported " + written[0] + " orders");
+            return written[0];
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(target);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package model;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * The Recent Orders filters (customer text, status, payment, date range) as SQL,
+ * so exports can stream matching orders straight from the database instead of
+ * walking the rows loaded into the table.
+ */
+public class OrderHistoryQuery {
+    private final String customerText;
+    private final String status;
+    private final String paymentMethod;
+    private final LocalDate fromDate;
+    private final LocalDate toDate;
+
+    // Same ordering as the Recent Orders table; id breaks ties so it is total
+    public static final String ORDER_BY = " ORDER BY o.order_date DESC, o.order_time DESC, o.id";
+
+    // Oldest first, for day reports
+    public static final String CHRONOLOGICAL = " ORDER BY o.order_date, o.order_time, o.id";
+
+    // "All Status"/"All Payments" and blank text mean no filter
+    public OrderHistoryQuery(String customerText, String status, String paymentMethod,
+                             LocalDate fromDate, LocalDate toDate) {
+        this.customerText = customerText == null || customerText.trim().isEmpty() ? null : customerText.trim().toLowerCase();
+        this.status = status == null || status.startsWith("All ") ? null : status;
+        this.paymentMethod = paymentMethod == null || paymentMethod.startsWith("All ") ? null : paymentMethod;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+    }
+
+    // Every order
+    public static OrderHistoryQuery all() {
+        return new OrderHistoryQuery(null, null, null, null, null);
+    }
+
+    // WHERE clause over the orders table aliased as "o"
+    public String whereClause() {
+        List<String> conditions = new ArrayList<>();
+        if (customerText != null) {
+            conditions.add("LOWER(o.customer_name) LIKE ? ESCAPE '\\'");
+        }
+        if (status != null) {
+            conditions.add("o.order_status = ?");
+        }
+        if (paymentMethod != null) {
+            conditions.add("o.payment_method = ?");
+        }
+        if (fromDate != null && toDate != null) {
+            conditions.add("o.order_date BETWEEN ? AND ?");
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    // Binds the filter values starting at the given parameter index; returns the next free index
+    public int bind(PreparedStatement statement, int index) throws SQLException {
+        if (customerText != null) {
+            statement.setString(index++, "%" + escapeLike(customerText) + "%");
+        }
+        if (status != null) {
+            statement.setString(index++, status);
+        }
+        if (paymentMethod != null) {
+            statement.setString(index++, paymentMethod);
+        }
+        if (fromDate != null && toDate != null) {
+            statement.setString(index++, fromDate.toString());
+            statement.setString(index++, toDate.toString());
+        }
+        return index;
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -1,5 +1,8 @@
 package model;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class OrderItem {
     private int orderId;
     private int productId;
@@ -11,6 +14,7 @@ public class OrderItem {
     private String addOn;
     private String customizationDetails;
     private String productCategory;
+    private List<OrderItemModifier> modifiers = new ArrayList<>();
 
     // Default constructor
     public OrderItem() {}
@@ -72,6 +76,10 @@ public class OrderItem {
         return productCategory;
     }
 
+    public List<OrderItemModifier> getModifiers() {
+        return modifiers;
+    }
+
     // Setters
     public void setOrderId(int orderId) {
         this.orderId = orderId;
@@ -117,6 +125,14 @@ public class OrderItem {
         this.productCategory = productCategory;
     }
 
+    public void setModifiers(List<OrderItemModifier> modifiers) {
+        this.modifiers = modifiers;
+    }
+
+    public void addModifier(OrderItemModifier modifier) {
+        this.modifiers.add(modifier);
+    }
+
     // Utility method to calculate total price
     public void calculateTotalPrice() {
         this.totalPrice = this.unitPrice * this.quantity;
@@ -140,7 +156,8 @@ public class OrderItem {
     public boolean hasCustomizations() {
         return (addOn != null && !addOn.equals("None")) || 
                (size != null && !size.isEmpty()) || 
-               (customizationDetails != null && !customizationDetails.isEmpty());
+               (customizationDetails != null && !customizationDetails.isEmpty()) ||
+               !modifiers.isEmpty();
     }
 
     // New method to check if this order item can be combined with add-ons
@@ -167,6 +184,7 @@ public class OrderItem {
                 ", addOn='" + addOn + '\'' +
                 ", customizationDetails='" + customizationDetails + '\'' +
                 ", productCategory='" + productCategory + '\'' +
+                ", modifiers=" + modifiers +
                 '}';
     }
 
@@ -0,0 +1,79 @@
+package model;
+
+/*
+ * One modifier (add-on) on an order line, stored in order_item_modifiers.
+ * Keeps its own price and the add-on product it draws stock from, so nothing
+ * has to be recovered from the line's display name later.
+ */
+public class OrderItemModifier {
+    private int modifierProductId;
+    private String name;
+    private double unitPrice;
+    private int quantity;
+
+    public OrderItemModifier() {}
+
+    public OrderItemModifier(int modifierProductId, String name, double unitPrice, int quantity) {
+        this.modifierProductId = modifierProductId;
+        this.name = name;
+        this.unitPrice = unitPrice;
+        this.quantity = quantity;
+    }
+
+    // One portion of an add-on product
+    public static OrderItemModifier of(Product addOn) {
+        return new OrderItemModifier(addOn.getId(), addOn.getName(), addOn.getPrice(), 1);
+    }
+
+    // Label used in the add-on pickers and cart line names, e.g. "Pearl (+₱15.00)"
+    public static String label(Product addOn) {
+        return addOn.getName() + " (+₱" + String.format("%.2f", addOn.getPrice()) + ")";
+    }
+
+    public int getModifierProductId() {
+        return modifierProductId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getUnitPrice() {
+        return unitPrice;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    // Price added to one unit of the parent line
+    public double getTotalPrice() {
+        return unitPrice * quantity;
+    }
+
+    public void setModifierProductId(int modifierProductId) {
+        this.modifierProductId = modifierProductId;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public void setUnitPrice(double unitPrice) {
+        this.unitPrice = unitPrice;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderItemModifier{" +
+                "modifierProductId=" + modifierProductId +
+                ", name='" + name + '\'' +
+                ", unitPrice=" + unitPrice +
+                ", quantity=" + quantity +
+                '}';
+    }
+}
@@ -0,0 +1,159 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Reads and writes order lines together with their modifiers.
+ * Modifiers live in order_item_modifiers (one row per add-on on a line) and are
+ * written in one batch per order and read back with a single join.
+ */
+public class OrderItemStore {
+
+    private static final String CREATE_MODIFIERS_TABLE =
+        "CREATE TABLE IF NOT EXISTS order_item_modifiers (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "order_item_id INTEGER NOT NULL, " +
+        "modifier_product_id INTEGER, " +
+        "name TEXT NOT NULL, " +
+        "unit_price REAL NOT NULL, " +
+        "quantity INTEGER NOT NULL DEFAULT 1, " +
+        "FOREIGN KEY (order_item_id) REFERENCES order_items(id), " +
+        "FOREIGN KEY (modifier_product_id) REFERENCES products(id))";
+
+    private static final String CREATE_MODIFIERS_INDEX =
+        "CREATE INDEX IF NOT EXISTS idx_order_item_modifiers_item ON order_item_modifiers(order_item_id)";
+
+    // order_items has no index on order_id, so every per-order lookup was a full scan
+    private static final String CREATE_ITEMS_ORDER_INDEX =
+        "CREATE INDEX IF NOT EXISTS idx_order_items_order ON order_items(order_id)";
+
+    private static final String INSERT_ITEM =
+        "INSERT INTO order_items (order_id, product_id, product_name, quantity, unit_price, total_price) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_MODIFIER =
+        "INSERT INTO order_item_modifiers (order_item_id, modifier_product_id, name, unit_price, quantity) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SELECT_ITEMS =
+        "SELECT oi.id, oi.product_id, oi.product_name, oi.quantity, oi.unit_price, oi.total_price, " +
+        "p.category, m.modifier_product_id, m.name AS modifier_name, m.unit_price AS modifier_price, m.quantity AS modifier_quantity " +
+        "FROM order_items oi " +
+        "LEFT JOIN products p ON oi.product_id = p.id " +
+        "LEFT JOIN order_item_modifiers m ON m.order_item_id = oi.id " +
+        "WHERE oi.order_id = ? ORDER BY oi.id, m.id";
+
+    private static volatile boolean schemaReady;
+
+    /*
+     * Creates the modifiers table and the order lookup index on first use; older
+     * databases don't have them. The order server does this for its terminals.
+     */
+    public static void ensureSchema(Connection connection) throws SQLException {
+        if (schemaReady || OrderServerClient.isConfigured()) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_MODIFIERS_TABLE);
+            statement.execute(CREATE_MODIFIERS_INDEX);
+            statement.execute(CREATE_ITEMS_ORDER_INDEX);
+        }
+        schemaReady = true;
+    }
+
+    /*
+     * Inserts the lines of an order and all of their modifiers. Runs inside the
+     * caller's transaction; lines go in one by one (their ids are needed),
+     * modifiers go in as a single batch.
+     */
+    public static void insertItems(Connection connection, String orderId, List<OrderItem> items) throws SQLException {
+        ensureSchema(connection);
+        try (PreparedStatement itemStmt = connection.prepareStatement(INSERT_ITEM, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement modifierStmt = connection.prepareStatement(INSERT_MODIFIER)) {
+
+            int pendingModifiers = 0;
+            for (OrderItem item : items) {
+                itemStmt.setString(1, orderId);
+                itemStmt.setInt(2, item.getProductId());
+                itemStmt.setString(3, item.getProductName());
+                itemStmt.setInt(4, item.getQuantity());
+                itemStmt.setDouble(5, item.getUnitPrice());
+                itemStmt.setDouble(6, item.getTotalPrice());
+                itemStmt.executeUpdate();
+
+                if (item.getModifiers().isEmpty()) {
+                    continue;
+                }
+
+                long orderItemId;
+                try (ResultSet keys = itemStmt.getGeneratedKeys()) {
+                    if (!keys.next()) {
+                        throw new SQLException("No id returned for order item " + item.getProductName());
+                    }
+                    orderItemId = keys.getLong(1);
+                }
+
+                for (OrderItemModifier modifier : item.getModifiers()) {
+                    modifierStmt.setLong(1, orderItemId);
+                    if (modifier.getModifierProductId() > 0) {
+                        modifierStmt.setInt(2, modifier.getModifierProductId());
+                    } else {
+                        modifierStmt.setNull(2, java.sql.Types.INTEGER);
+                    }
+                    modifierStmt.setString(3, modifier.getName());
+                    modifierStmt.setDouble(4, modifier.getUnitPrice());
+                    modifierStmt.setInt(5, modifier.getQuantity());
+                    modifierStmt.addBatch();
+                    pendingModifiers++;
+                }
+            }
+
+            if (pendingModifiers > 0) {
+                modifierStmt.executeBatch();
+            }
+        }
+    }
+
+    // Lines of one order with their modifiers, in the order they were rung up
+    public static List<OrderItem> loadItems(Connection connection, String orderId) throws SQLException {
+        ensureSchema(connection);
+        Map<Long, OrderItem> itemsById = new LinkedHashMap<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_ITEMS)) {
+            statement.setString(1, orderId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long id = resultSet.getLong("id");
+                    OrderItem item = itemsById.get(id);
+                    if (item == null) {
+                        item = new OrderItem();
+                        item.setProductId(resultSet.getInt("product_id"));
+                        item.setProductName(resultSet.getString("product_name"));
+                        item.setQuantity(resultSet.getInt("quantity"));
+                        item.setUnitPrice(resultSet.getDouble("unit_price"));
+                        item.setTotalPrice(resultSet.getDouble("total_price"));
+                        item.setProductCategory(resultSet.getString("category"));
+                        itemsById.put(id, item);
+                    }
+
+                    String modifierName = resultSet.getString("modifier_name");
+                    if (modifierName != null) {
+                        item.addModifier(new OrderItemModifier(
+                            resultSet.getInt("modifier_product_id"),
+                            modifierName,
+                            resultSet.getDouble("modifier_price"),
+                            resultSet.getInt("modifier_quantity")
+                        ));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(itemsById.values());
+    }
+}
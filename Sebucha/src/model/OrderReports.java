@@ -0,0 +1,298 @@
+package model;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Order-based reports: sales (one row per order), items (one row per order line)
+ * and cancellations. All of them are fed by the same scan, a single cursor over
+ * orders joined with their lines, so several of them can be produced in one pass
+ * (see runPack) and only the current order's lines are ever held in memory.
+ */
+public class OrderReports {
+
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
+
+    // %1$s is the database holding the orders: main or an attached archive (see OrderArchive)
+    private static final String SCAN_SQL =
+        "SELECT o.id, o.customer_name, o.order_date, o.order_time, o.order_type, o.payment_method, " +
+        "o.total_amount, o.order_status, oi.id AS item_id, oi.quantity, oi.unit_price, oi.total_price, " +
+        "COALESCE(p.name, oi.product_name) AS product_name, " +
+        "(SELECT group_concat(m.name, ', ') FROM %1$s.order_item_modifiers m WHERE m.order_item_id = oi.id) AS add_ons " +
+        "FROM %1$s.orders o " +
+        "LEFT JOIN %1$s.order_items oi ON oi.order_id = o.id " +
+        "LEFT JOIN main.products p ON oi.product_id = p.id";
+
+    private static final int FETCH_SIZE = 1000;
+
+    // Newest first, like the Recent Orders table
+    public static ReportDefinition sales(OrderHistoryQuery query) {
+        return sales(query, OrderHistoryQuery.ORDER_BY);
+    }
+
+    private static ReportDefinition sales(OrderHistoryQuery query, String orderBy) {
+        return new OrderReport("Sales", query, orderBy, Arrays.asList(
+                ReportColumn.text("Order ID", 1.2f),
+                ReportColumn.text("Customer", 2f),
+                ReportColumn.text("Date & Time", 1.6f),
+                ReportColumn.text("Type", 1f),
+                ReportColumn.text("Payment", 1f),
+                ReportColumn.decimal("Amount"),
+                ReportColumn.text("Status", 1f),
+                ReportColumn.text("Items", 3f))) {
+            @Override
+            void emit(ScannedOrder order, RowConsumer rows) throws IOException {
+                rows.accept(new Object[] {
+                    order.id, order.customerName, order.dateTime, order.orderType, order.paymentMethod,
+                    order.totalAmount, order.status, order.itemsSummary()
+                });
+            }
+        };
+    }
+
+    public static ReportDefinition items(OrderHistoryQuery query) {
+        return new OrderReport("Items Sold", query, OrderHistoryQuery.CHRONOLOGICAL, Arrays.asList(
+                ReportColumn.text("Order ID", 1.2f),
+                ReportColumn.text("Date & Time", 1.6f),
+                ReportColumn.text("Product", 2.5f),
+                ReportColumn.text("Add-ons", 2f),
+                ReportColumn.integer("Quantity"),
+                ReportColumn.decimal("Unit Price"),
+                ReportColumn.decimal("Line Total"),
+                ReportColumn.text("Status", 1f))) {
+            @Override
+            void emit(ScannedOrder order, RowConsumer rows) throws IOException {
+                for (ScannedLine line : order.lines) {
+                    rows.accept(new Object[] {
+                        order.id, order.dateTime, line.productName, line.addOns,
+                        line.quantity, line.unitPrice, line.totalPrice, order.status
+                    });
+                }
+            }
+        };
+    }
+
+    public static ReportDefinition cancellations(OrderHistoryQuery query) {
+        return new OrderReport("Cancellations", query, OrderHistoryQuery.CHRONOLOGICAL, Arrays.asList(
+                ReportColumn.text("Order ID", 1.2f),
+                ReportColumn.text("Customer", 2f),
+                ReportColumn.text("Date & Time", 1.6f),
+                ReportColumn.text("Payment", 1f),
+                ReportColumn.decimal("Amount"),
+                ReportColumn.text("Items", 3f))) {
+            @Override
+            void emit(ScannedOrder order, RowConsumer rows) throws IOException {
+                if ("Cancelled".equalsIgnoreCase(order.status)) {
+                    rows.accept(new Object[] {
+                        order.id, order.customerName, order.dateTime, order.paymentMethod,
+                        order.totalAmount, order.itemsSummary()
+                    });
+                }
+            }
+        };
+    }
+
+    // Sales, items and cancellations for one business day
+    public static List<ReportDefinition> endOfDayPack(LocalDate day) {
+        OrderHistoryQuery query = new OrderHistoryQuery(null, null, null, day, day);
+        return Arrays.asList(sales(query, OrderHistoryQuery.CHRONOLOGICAL), items(query), cancellations(query));
+    }
+
+    // True when the reports can share one scan (order reports over the same filter)
+    public static boolean canRunAsPack(List<ReportDefinition> reports) {
+        OrderHistoryQuery query = null;
+        for (ReportDefinition report : reports) {
+            if (!(report instanceof OrderReport)) {
+                return false;
+            }
+            OrderHistoryQuery reportQuery = ((OrderReport) report).query;
+            if (query != null && query != reportQuery) {
+                return false;
+            }
+            query = reportQuery;
+        }
+        return query != null;
+    }
+
+    /*
+     * Runs several order reports over a single scan. Every report must come from
+     * the same OrderHistoryQuery (see canRunAsPack); rows come out in the first
+     * report's order.
+     */
+    public static void runPack(Connection connection, Map<ReportDefinition, ReportDefinition.RowConsumer> outputs)
+            throws SQLException, IOException {
+        if (!canRunAsPack(new ArrayList<>(outputs.keySet()))) {
+            throw new IllegalArgumentException("Reports in a pack must be order reports over the same filter");
+        }
+        OrderReport first = (OrderReport) outputs.keySet().iterator().next();
+        scan(connection, first.query, first.orderBy, order -> {
+            for (Map.Entry<ReportDefinition, ReportDefinition.RowConsumer> output : outputs.entrySet()) {
+                ((OrderReport) output.getKey()).emit(order, output.getValue());
+            }
+        });
+    }
+
+    /*
+     * Walks matching orders with their lines, one order at a time. Archived
+     * orders are scanned too, one database after the other; archives hold whole
+     * years older than anything live, so the report order carries across them.
+     */
+    static void scan(Connection connection, OrderHistoryQuery query, String orderBy, OrderVisitor visitor)
+            throws SQLException, IOException {
+        OrderItemStore.ensureSchema(connection);
+        boolean newestFirst = OrderHistoryQuery.ORDER_BY.equals(orderBy);
+        for (String schema : OrderArchive.sources(query.getFromDate(), query.getToDate(), newestFirst)) {
+            OrderArchive.attach(connection, schema);
+            scan(connection, String.format(SCAN_SQL, schema) + query.whereClause() + orderBy + ", oi.id", query, visitor);
+        }
+    }
+
+    private static void scan(Connection connection, String sql, OrderHistoryQuery query, OrderVisitor visitor)
+            throws SQLException, IOException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setFetchSize(FETCH_SIZE);
+            query.bind(statement, 1);
+
+            try (ResultSet rs = statement.executeQuery()) {
+                ScannedOrder current = null;
+                while (rs.next()) {
+                    String orderId = rs.getString("id");
+                    if (current == null || !current.id.equals(orderId)) {
+                        if (current != null) {
+                            visitor.visit(current);
+                        }
+                        current = new ScannedOrder(
+                            orderId,
+                            rs.getString("customer_name"),
+                            formatDateTime(rs.getString("order_date"), rs.getString("order_time")),
+                            rs.getString("order_type"),
+                            rs.getString("payment_method"),
+                            rs.getDouble("total_amount"),
+                            rs.getString("order_status"));
+                    }
+
+                    rs.getLong("item_id");
+                    if (!rs.wasNull()) {
+                        current.lines.add(new ScannedLine(
+                            rs.getString("product_name"),
+                            rs.getString("add_ons"),
+                            rs.getInt("quantity"),
+                            rs.getDouble("unit_price"),
+                            rs.getDouble("total_price")));
+                    }
+                }
+                if (current != null) {
+                    visitor.visit(current);
+                }
+            }
+        }
+    }
+
+    static String formatDateTime(String datePart, String timePart) {
+        if (datePart == null || datePart.isEmpty()) {
+            return "";
+        }
+        try {
+            if (timePart == null || timePart.isEmpty()) {
+                return LocalDate.parse(datePart).atStartOfDay().format(DATE_TIME_FORMAT);
+            }
+            return LocalDateTime.parse(datePart + "T" + timePart).format(DATE_TIME_FORMAT);
+        } catch (Exception e) {
+            return timePart == null ? datePart : datePart + " " + timePart;
+        }
+    }
+
+    interface OrderVisitor {
+        void visit(ScannedOrder order) throws IOException;
+    }
+
+    // An order report: a filter, a sort order and how one scanned order turns into rows
+    abstract static class OrderReport implements ReportDefinition {
+        private final String name;
+        private final OrderHistoryQuery query;
+        private final String orderBy;
+        private final List<ReportColumn> columns;
+
+        OrderReport(String name, OrderHistoryQuery query, String orderBy, List<ReportColumn> columns) {
+            this.name = name;
+            this.query = query;
+            this.orderBy = orderBy;
+            this.columns = columns;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public List<ReportColumn> getColumns() {
+            return columns;
+        }
+
+        @Override
+        public void run(Connection connection, RowConsumer rows) throws SQLException, IOException {
+            scan(connection, query, orderBy, order -> emit(order, rows));
+        }
+
+        abstract void emit(ScannedOrder order, RowConsumer rows) throws IOException;
+    }
+
+    static final class ScannedOrder {
+        final String id;
+        final String customerName;
+        final String dateTime;
+        final String orderType;
+        final String paymentMethod;
+        final double totalAmount;
+        final String status;
+        final List<ScannedLine> lines = new ArrayList<>(4);
+
+        ScannedOrder(String id, String customerName, String dateTime, String orderType,
+                     String paymentMethod, double totalAmount, String status) {
+            this.id = id;
+            this.customerName = customerName;
+            this.dateTime = dateTime;
+            this.orderType = orderType;
+            this.paymentMethod = paymentMethod;
+            this.totalAmount = totalAmount;
+            this.status = status;
+        }
+
+        // Same summary as the Items column: first two items, then "+N more"
+        String itemsSummary() {
+            if (lines.isEmpty()) return "No items";
+            String first = lines.get(0).quantity + "x " + lines.get(0).productName;
+            if (lines.size() == 1) return first;
+            String second = lines.get(1).quantity + "x " + lines.get(1).productName;
+            if (lines.size() == 2) return first + ", " + second;
+            return first + ", " + second + " +" + (lines.size() - 2) + " more";
+        }
+    }
+
+    static final class ScannedLine {
+        final String productName;
+        final String addOns;
+        final int quantity;
+        final double unitPrice;
+        final double totalPrice;
+
+        ScannedLine(String productName, String addOns, int quantity, double unitPrice, double totalPrice) {
+            this.productName = productName;
+            this.addOns = addOns;
+            this.quantity = quantity;
+            this.unitPrice = unitPrice;
+            this.totalPrice = totalPrice;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A new order as rung up at a till (or sent by another terminal): who, how, and the lines
+public class OrderRequest {
+    private final String customerName;
+    private final String orderType;
+    private final String paymentMethod;
+    private final List<OrderItem> items;
+    private final String cashier;
+
+    public OrderRequest(String customerName, String orderType, String paymentMethod, List<OrderItem> items) {
+        this(customerName, orderType, paymentMethod, items, null);
+    }
+
+    // cashier: the user who rang the order up, for the shift report (null for kiosk/API orders)
+    public OrderRequest(String customerName, String orderType, String paymentMethod, List<OrderItem> items, String cashier) {
+        this.customerName = customerName;
+        this.orderType = orderType;
+        this.paymentMethod = paymentMethod;
+        this.items = new ArrayList<>(items);
+        this.cashier = cashier;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public String getOrderType() {
+        return orderType;
+    }
+
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public String getCashier() {
+        return cashier;
+    }
+
+    public List<OrderItem> getItems() {
+        return items;
+    }
+
+    // Sum of the line totals, added up in cents like the Cart does
+    public double getTotal() {
+        long totalCents = 0;
+        for (OrderItem item : items) {
+            totalCents += Math.round(item.getTotalPrice() * 100);
+        }
+        return totalCents / 100.0;
+    }
+}
@@ -0,0 +1,612 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Lets several tills share one database. The machine that holds sebucha.db
+ * runs the server (inside the app with -Dsebucha.server.port, or headless via
+ * main); other terminals start with -Dsebucha.server=host:port and send their
+ * orders and queries here instead of opening a database of their own.
+ *
+ * Each terminal keeps one socket. Requests of one session (one JDBC connection
+ * on the terminal) run in order; different sessions run in parallel, so a long
+ * query on one page doesn't hold up another. Every committed change is pushed
+ * to all other terminals so their pages refresh.
+ *
+ * Without -Dsebucha.server.token the server only accepts connections from
+ * this machine. The token and everything after it travel unencrypted, so keep
+ * the server on the shop's own network.
+ *
+ * Terminals only read through SQL, on query-only connections and only the
+ * tables their pages show (see RemoteQueryPolicy); passwords are checked
+ * through OP_LOGIN. Everything a terminal changes (orders, statuses, the
+ * catalog, recipes and ingredients) is an op of its own that takes
+ * LocalOrderService's write lock and gives it back within the one request, so
+ * no till holds up the others between two of its requests.
+ */
+public class OrderServer {
+
+    public static final String PORT_PROPERTY = "sebucha.server.port";
+    public static final int DEFAULT_PORT = 7878;
+
+    // Query-only connections kept open between terminal queries
+    private static final int MAX_IDLE_READERS = 4;
+
+    private static OrderServer running;
+
+    // The terminal whose request is being applied, so it isn't pushed its own change
+    private static final ThreadLocal<Terminal> origin = new ThreadLocal<>();
+
+    private final int port;
+    private final InetAddress bindAddress;
+    private final byte[] token;
+    private final Set<Terminal> terminals = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger terminalCount = new AtomicInteger();
+    private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "order-server-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final DataVersions.Listener broadcaster = (changes, elsewhere) -> broadcast(changes);
+    private final Queue<Connection> readers = new ArrayDeque<>();
+    private ServerSocket serverSocket;
+
+    public OrderServer(int port, InetAddress bindAddress, String token) {
+        this.port = port;
+        this.bindAddress = bindAddress;
+        this.token = token == null ? new byte[0] : token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Headless server: java model.OrderServer [port]
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT);
+        OrderServer server = create(port);
+        server.start();
+        DatabaseSnapshots.startIfConfigured();
+        StockForecast.startIfConfigured();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            DatabaseSnapshots.stopRunning();
+            StockForecast.stopRunning();
+            server.stop();
+            ShiftLedger.checkpointOnExit();
+            SqliteConnection.closeConnection();
+        }));
+        Thread.currentThread().join();
+    }
+
+    // Starts the server when -Dsebucha.server.port is set (called from Main)
+    public static synchronized void startIfConfigured() {
+        String port = System.getProperty(PORT_PROPERTY);
+        if (port == null || port.trim().isEmpty() || running != null) {
+            return;
+        }
+        if (OrderServerClient.isConfigured()) {
+            System.err.println("Not starting the order server: this terminal uses the one at "
+                + System.getProperty(OrderServerClient.SERVER_PROPERTY));
+            return;
+        }
+        try {
+            OrderServer server = create(Integer.parseInt(port.trim()));
+            server.start();
+            running = server;
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Could not start order server on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    public static synchronized void stopRunning() {
+        if (running != null) {
+            running.stop();
+            running = null;
+        }
+    }
+
+    private static OrderServer create(int port) {
+        String token = System.getProperty(OrderServerClient.TOKEN_PROPERTY, "");
+        InetAddress bind = token.isEmpty() ? InetAddress.getLoopbackAddress() : null;
+        return new OrderServer(port, bind, token);
+    }
+
+    public void start() throws IOException {
+        try {
+            prepareSchema();
+        } catch (SQLException e) {
+            throw new IOException("Could not prepare the database for terminals: " + e.getMessage(), e);
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(bindAddress == null ? new InetSocketAddress(port) : new InetSocketAddress(bindAddress, port));
+        DataVersions.addListener(broadcaster);
+        Metrics.gauge("server_terminals", terminalCount::get);
+
+        Thread acceptor = new Thread(this::acceptLoop, "order-server-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("Order server listening on " + serverSocket.getLocalSocketAddress()
+            + (token.length == 0 ? " (this machine only, no token set)" : ""));
+    }
+
+    public int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : port;
+    }
+
+    public void stop() {
+        DataVersions.removeListener(broadcaster);
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing order server: " + e.getMessage());
+        }
+        for (Terminal terminal : terminals) {
+            terminal.close();
+        }
+        workers.shutdown();
+        synchronized (readers) {
+            for (Connection reader : readers) {
+                try {
+                    reader.close();
+                } catch (SQLException ignored) {
+                    // closing anyway
+                }
+            }
+            readers.clear();
+        }
+    }
+
+    /*
+     * Tables and indexes the pages create on first use. Terminals can't create
+     * anything, so they are made here before the first terminal connects.
+     */
+    private static void prepareSchema() throws SQLException {
+        try (Connection connection = SqliteConnection.Connector()) {
+            if (connection == null) {
+                throw new SQLException("Could not connect to database");
+            }
+            OrderItemStore.ensureSchema(connection);
+            KitchenQueue.getInstance().ensureSchema(connection);
+        }
+        RecipeBook.getInstance().recipes();
+        ShiftLedger.getInstance().currentShiftId();
+    }
+
+    // A query-only connection for a terminal's read; given back with returnReader
+    private Connection borrowReader() throws SQLException {
+        synchronized (readers) {
+            Connection reader = readers.poll();
+            if (reader != null) {
+                return reader;
+            }
+        }
+        Connection reader = SqliteConnection.openUnpooled();
+        try (Statement statement = reader.createStatement()) {
+            statement.execute("PRAGMA query_only = ON");
+        } catch (SQLException e) {
+            reader.close();
+            throw e;
+        }
+        return reader;
+    }
+
+    private void returnReader(Connection reader) {
+        synchronized (readers) {
+            if (readers.size() < MAX_IDLE_READERS && serverSocket != null && !serverSocket.isClosed()) {
+                readers.add(reader);
+                return;
+            }
+        }
+        try {
+            reader.close();
+        } catch (SQLException ignored) {
+            // closing anyway
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                socket.setKeepAlive(true);
+                Terminal terminal = new Terminal(socket);
+                Thread reader = new Thread(terminal::serve, "order-server-" + socket.getRemoteSocketAddress());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Order server accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Tells every terminal except the one that made the change
+    private void broadcast(int changes) {
+        Terminal source = origin.get();
+        for (Terminal terminal : terminals) {
+            if (terminal != source) {
+                terminal.push(changes);
+            }
+        }
+    }
+
+    private boolean tokenMatches(String given) {
+        byte[] bytes = given == null ? new byte[0] : given.getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(token, bytes);
+    }
+
+    // One connected till
+    private final class Terminal {
+        private final Socket socket;
+        private final OutputStream out;
+        private final Map<Integer, Session> sessions = new HashMap<>();
+
+        Terminal(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+        }
+
+        void serve() {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 16 * 1024))) {
+                if (!handshake(in)) {
+                    return;
+                }
+                terminals.add(this);
+                terminalCount.incrementAndGet();
+
+                byte[] frame;
+                while ((frame = ServerProtocol.readFrame(in)) != null) {
+                    DataInputStream request = new DataInputStream(new ByteArrayInputStream(frame));
+                    int requestId = request.readInt();
+                    byte op = request.readByte();
+                    int sessionId = request.readInt();
+                    Session session = sessionFor(sessionId, op);
+                    session.submit(() -> handle(requestId, op, request));
+                }
+            } catch (SocketException e) {
+                // terminal went away
+            } catch (IOException e) {
+                System.err.println("Order server connection error: " + e.getMessage());
+            } finally {
+                if (terminals.remove(this)) {
+                    terminalCount.decrementAndGet();
+                }
+                close();
+                endAllSessions();
+            }
+        }
+
+        private boolean handshake(DataInputStream in) throws IOException {
+            byte[] frame = ServerProtocol.readFrame(in);
+            if (frame == null) {
+                return false;
+            }
+            DataInputStream hello = new DataInputStream(new ByteArrayInputStream(frame));
+            int requestId = hello.readInt();
+            byte op = hello.readByte();
+            hello.readInt();
+            if (op != ServerProtocol.OP_HELLO || !tokenMatches(ServerProtocol.readString(hello))) {
+                sendError(requestId, "Order server refused the terminal (wrong token)", 0, null);
+                return false;
+            }
+            sendFrame(requestId, ServerProtocol.STATUS_OK, body -> body.writeInt(ServerProtocol.VERSION));
+            return true;
+        }
+
+        private synchronized Session sessionFor(int sessionId, byte op) {
+            Session session = sessions.get(sessionId);
+            if (session == null) {
+                session = new Session();
+                if (op != ServerProtocol.OP_END_SESSION) {
+                    sessions.put(sessionId, session);
+                }
+            } else if (op == ServerProtocol.OP_END_SESSION) {
+                sessions.remove(sessionId);
+            }
+            return session;
+        }
+
+        private void handle(int requestId, byte op, DataInputStream request) {
+            long started = System.nanoTime();
+            origin.set(this);
+            try {
+                switch (op) {
+                    case ServerProtocol.OP_PING:
+                        sendFrame(requestId, ServerProtocol.STATUS_OK, null);
+                        break;
+                    case ServerProtocol.OP_PLACE_ORDER: {
+                        String orderId = LocalOrderService.getInstance().placeOrder(ServerProtocol.readOrder(request));
+                        sendFrame(requestId, ServerProtocol.STATUS_OK, body -> ServerProtocol.writeString(body, orderId));
+                        DataVersions.changedElsewhere(DataVersions.ORDERS | DataVersions.PRODUCTS);
+                        break;
+                    }
+                    case ServerProtocol.OP_CANCEL_ORDERS: {
+                        List<String> cancelled = LocalOrderService.getInstance().cancelOrders(ServerProtocol.readStrings(request));
+                        sendFrame(requestId, ServerProtocol.STATUS_OK, body -> ServerProtocol.writeStrings(body, cancelled));
+                        if (!cancelled.isEmpty()) {
+                            DataVersions.changedElsewhere(DataVersions.ORDERS | DataVersions.PRODUCTS);
+                        }
+                        break;
+                    }
+                    case ServerProtocol.OP_LOGIN: {
+                        String username = ServerProtocol.readString(request);
+                        String password = ServerProtocol.readString(request);
+                        String role = Authenticator.getInstance().authenticate(username,
+                            password == null ? new char[0] : password.toCharArray());
+                        sendFrame(requestId, ServerProtocol.STATUS_OK, body -> ServerProtocol.writeString(body, role));
+                        break;
+                    }
+                    case ServerProtocol.OP_SHIFT: {
+                        ShiftReport report = shift(request);
+                        sendFrame(requestId, ServerProtocol.STATUS_OK, body -> ServerProtocol.writeShiftReport(body, report));
+                        break;
+                    }
+                    case ServerProtocol.OP_UPDATE_STATUS: {
+                        String orderId = ServerProtocol.readString(request);
+                        boolean updated = LocalOrderService.getInstance().updateStatus(orderId, ServerProtocol.readString(request));
+                        sendFrame(requestId, ServerProtocol.STATUS_OK, body -> body.writeBoolean(updated));
+                        if (updated) {
+                            DataVersions.changedElsewhere(DataVersions.ORDERS);
+                        }
+                        break;
+                    }
+                    case ServerProtocol.OP_DELETE_ORDERS: {
+                        int deleted = LocalOrderService.getInstance().deleteAllOrders();
+                        sendFrame(requestId, ServerProtocol.STATUS_OK, body -> body.writeInt(deleted));
+                        DataVersions.changedElsewhere(DataVersions.ORDERS);
+                        break;
+                    }
+                    case ServerProtocol.OP_CATALOG:
+                        catalog(requestId, request);
+                        break;
+                    case ServerProtocol.OP_RECIPES:
+                        recipes(request);
+                        sendFrame(requestId, ServerProtocol.STATUS_OK, null);
+                        break;
+                    case ServerProtocol.OP_QUERY:
+                        query(requestId, ServerProtocol.readString(request), ServerProtocol.readParams(request));
+                        break;
+                    case ServerProtocol.OP_END_SESSION:
+                        // Nothing is kept per session; the terminal doesn't wait for a reply
+                        break;
+                    default:
+                        sendError(requestId, "Unknown request " + op, 0, null);
+                }
+            } catch (SQLException e) {
+                sendError(requestId, e.getMessage(), e.getErrorCode(), e.getSQLState());
+            } catch (IOException | RuntimeException e) {
+                sendError(requestId, "Bad request: " + e, 0, null);
+            } finally {
+                origin.remove();
+                Metrics.recordSince("server_request", started);
+            }
+        }
+
+        // X, Z and reconciliation all run here, where the shift totals are kept
+        private ShiftReport shift(DataInputStream request) throws IOException, SQLException {
+            byte action = request.readByte();
+            switch (action) {
+                case ServerProtocol.SHIFT_CURRENT:
+                    return LocalOrderService.getInstance().currentShift();
+                case ServerProtocol.SHIFT_CLOSE:
+                    return LocalOrderService.getInstance().closeShift(ServerProtocol.readString(request));
+                case ServerProtocol.SHIFT_RECONCILE:
+                    return LocalOrderService.getInstance().reconcileShift(request.readLong());
+                default:
+                    throw new IOException("Unknown shift action " + action);
+            }
+        }
+
+        // Product edits and imports; each is written and committed before the reply
+        private void catalog(int requestId, DataInputStream request) throws IOException, SQLException {
+            byte action = request.readByte();
+            switch (action) {
+                case ServerProtocol.CATALOG_ADD: {
+                    int id = ProductCatalog.getInstance().addProduct(ServerProtocol.readProduct(request));
+                    sendFrame(requestId, ServerProtocol.STATUS_OK, body -> body.writeInt(id));
+                    break;
+                }
+                case ServerProtocol.CATALOG_UPDATE: {
+                    boolean updated = ProductCatalog.getInstance().updateProduct(ServerProtocol.readProduct(request));
+                    sendFrame(requestId, ServerProtocol.STATUS_OK, body -> body.writeBoolean(updated));
+                    break;
+                }
+                case ServerProtocol.CATALOG_DELETE: {
+                    boolean deleted = ProductCatalog.getInstance().deleteProduct(request.readInt());
+                    sendFrame(requestId, ServerProtocol.STATUS_OK, body -> body.writeBoolean(deleted));
+                    break;
+                }
+                case ServerProtocol.CATALOG_IMPORT: {
+                    CatalogTransfer.Result result = CatalogTransfer.importRows(ServerProtocol.readCatalogRows(request));
+                    sendFrame(requestId, ServerProtocol.STATUS_OK, body -> {
+                        body.writeInt(result.getAdded());
+                        body.writeInt(result.getUpdated());
+                    });
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown catalog action " + action);
+            }
+        }
+
+        private void recipes(DataInputStream request) throws IOException, SQLException {
+            byte action = request.readByte();
+            RecipeBook book = RecipeBook.getInstance();
+            switch (action) {
+                case ServerProtocol.RECIPE_ADD_INGREDIENT:
+                    book.addIngredient(ServerProtocol.readString(request), ServerProtocol.readString(request), request.readDouble());
+                    break;
+                case ServerProtocol.RECIPE_RECEIVE:
+                    book.receive(request.readInt(), request.readDouble());
+                    break;
+                case ServerProtocol.RECIPE_SAVE:
+                    book.saveRecipe(request.readInt(), ServerProtocol.readRecipe(request));
+                    break;
+                default:
+                    throw new IOException("Unknown recipe action " + action);
+            }
+        }
+
+        private void query(int requestId, String sql, List<Object> params) throws SQLException {
+            Connection connection = borrowReader();
+            try (PreparedStatement statement = prepareQuery(connection, sql)) {
+                ServerProtocol.bind(statement, params);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    ResultSetMetaData meta = resultSet.getMetaData();
+                    int columns = meta.getColumnCount();
+                    String[] labels = new String[columns];
+                    for (int i = 0; i < columns; i++) {
+                        labels[i] = meta.getColumnLabel(i + 1);
+                    }
+                    sendFrame(requestId, ServerProtocol.STATUS_COLUMNS, body -> {
+                        body.writeInt(columns);
+                        for (String label : labels) {
+                            ServerProtocol.writeString(body, label);
+                        }
+                    });
+
+                    // Rows go out in chunks so the terminal can start reading before the last one
+                    ByteArrayOutputStream chunk = new ByteArrayOutputStream(16 * 1024);
+                    DataOutputStream rows = new DataOutputStream(chunk);
+                    int count = 0;
+                    boolean more = resultSet.next();
+                    while (more) {
+                        for (int i = 1; i <= columns; i++) {
+                            ServerProtocol.writeValue(rows, resultSet.getObject(i));
+                        }
+                        count++;
+                        more = resultSet.next();
+                        if (more && count == ServerProtocol.ROWS_PER_FRAME) {
+                            sendRows(requestId, count, chunk, false);
+                            chunk.reset();
+                            count = 0;
+                        }
+                    }
+                    sendRows(requestId, count, chunk, true);
+                }
+            } catch (IOException e) {
+                throw new SQLException("Could not encode rows", e);
+            } finally {
+                returnReader(connection);
+            }
+        }
+
+        private PreparedStatement prepareQuery(Connection reader, String sql) throws SQLException {
+            RemoteQueryPolicy.check(reader, sql);
+            return reader.prepareStatement(sql);
+        }
+
+        private void sendRows(int requestId, int count, ByteArrayOutputStream chunk, boolean last) {
+            sendFrame(requestId, ServerProtocol.STATUS_ROWS, body -> {
+                body.writeInt(count);
+                chunk.writeTo(body);
+                body.writeBoolean(last);
+            });
+        }
+
+        void push(int changes) {
+            sendFrame(ServerProtocol.PUSH_ID, ServerProtocol.STATUS_PUSH, body -> body.writeInt(changes));
+        }
+
+        private void sendError(int requestId, String message, int code, String sqlState) {
+            sendFrame(requestId, ServerProtocol.STATUS_ERROR, body -> {
+                ServerProtocol.writeString(body, message == null ? "Error" : message);
+                body.writeInt(code);
+                ServerProtocol.writeString(body, sqlState);
+            });
+        }
+
+        private void sendFrame(int requestId, byte status, OrderServerClient.Payload payload) {
+            try {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+                DataOutputStream frame = new DataOutputStream(buffer);
+                frame.writeInt(requestId);
+                frame.writeByte(status);
+                if (payload != null) {
+                    payload.write(frame);
+                }
+                synchronized (out) {
+                    new DataOutputStream(out).writeInt(buffer.size());
+                    buffer.writeTo(out);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // already closed
+            }
+        }
+
+        private synchronized void endAllSessions() {
+            sessions.clear();
+        }
+    }
+
+    // One connection on a terminal; its requests run one at a time, in the order they arrived
+    private final class Session {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean running;
+
+        void submit(Runnable task) {
+            synchronized (tasks) {
+                tasks.add(task);
+                if (running) {
+                    return;
+                }
+                running = true;
+            }
+            workers.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                Runnable task;
+                synchronized (tasks) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/*
+ * A thin terminal's link to the OrderServer that owns the database. One socket
+ * is shared by every connection and page on the terminal; requests carry an id
+ * so several can be in flight at once (pipelining) and a reader thread hands
+ * each reply to the call waiting for it. Changes pushed by the server go to
+ * DataVersions so open pages can refresh.
+ *
+ * Pages read through openConnection(); every change is one of the requests
+ * below, which the server applies and commits before it answers.
+ *
+ * The socket is opened on first use and again after it drops; calls that were
+ * in flight when it dropped fail with an SQLException.
+ */
+public class OrderServerClient implements OrderService {
+
+    public static final String SERVER_PROPERTY = "sebucha.server";
+    public static final String TOKEN_PROPERTY = "sebucha.server.token";
+
+    private static final int CONNECT_TIMEOUT_MS = 3000;
+    private static final long REPLY_TIMEOUT_SECONDS = 30;
+
+    // Queued into a call when the socket drops under it
+    private static final Reply DISCONNECTED = new Reply(ServerProtocol.STATUS_ERROR, new byte[0]);
+
+    private static OrderServerClient instance;
+
+    private final String host;
+    private final int port;
+    private final String token;
+    private final Map<Integer, Call> calls = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private final AtomicInteger nextSession = new AtomicInteger();
+    private final Object writeLock = new Object();
+    private volatile IntConsumer pushListener = DataVersions::changedElsewhere;
+
+    private Socket socket;
+    private OutputStream out;
+
+    public OrderServerClient(String host, int port, String token) {
+        this.host = host;
+        this.port = port;
+        this.token = token;
+    }
+
+    // True when this terminal was started with -Dsebucha.server=host:port
+    public static boolean isConfigured() {
+        String server = System.getProperty(SERVER_PROPERTY);
+        return server != null && !server.trim().isEmpty();
+    }
+
+    public static synchronized OrderServerClient getInstance() {
+        if (instance == null) {
+            String server = System.getProperty(SERVER_PROPERTY, "").trim();
+            int colon = server.lastIndexOf(':');
+            String host = colon > 0 ? server.substring(0, colon) : server;
+            int port = colon > 0 ? Integer.parseInt(server.substring(colon + 1)) : OrderServer.DEFAULT_PORT;
+            instance = new OrderServerClient(host, port, System.getProperty(TOKEN_PROPERTY, ""));
+        }
+        return instance;
+    }
+
+    public String getAddress() {
+        return host + ":" + port;
+    }
+
+    // Where pushed changes go; DataVersions unless replaced (the terminal simulator counts them)
+    public void setPushListener(IntConsumer listener) {
+        this.pushListener = listener;
+    }
+
+    // A read-only JDBC connection whose queries run on the server
+    public Connection openConnection() {
+        return RemoteConnection.open(this, nextSession.incrementAndGet());
+    }
+
+    @Override
+    public String placeOrder(OrderRequest request) throws SQLException {
+        long started = System.nanoTime();
+        Call call = send(ServerProtocol.OP_PLACE_ORDER, 0, out -> ServerProtocol.writeOrder(out, request));
+        String orderId;
+        try {
+            orderId = ServerProtocol.readString(call.expectOk());
+        } catch (IOException e) {
+            throw new SQLException("Bad reply from order server", e);
+        }
+        Metrics.recordSince("order_commit_remote", started);
+        return orderId;
+    }
+
+    @Override
+    public boolean updateStatus(String orderId, String status) throws SQLException {
+        if ("Cancelled".equalsIgnoreCase(status)) {
+            return cancelOrder(orderId);
+        }
+        Call call = send(ServerProtocol.OP_UPDATE_STATUS, 0, out -> {
+            ServerProtocol.writeString(out, orderId);
+            ServerProtocol.writeString(out, status);
+        });
+        try {
+            return call.expectOk().readBoolean();
+        } catch (IOException e) {
+            throw new SQLException("Bad reply from order server", e);
+        }
+    }
+
+    // The whole cancellation runs on the server in one round trip and one transaction
+    @Override
+    public List<String> cancelOrders(List<String> orderIds) throws SQLException {
+        long started = System.nanoTime();
+        Call call = send(ServerProtocol.OP_CANCEL_ORDERS, 0, out -> ServerProtocol.writeStrings(out, orderIds));
+        List<String> cancelled;
+        try {
+            cancelled = ServerProtocol.readStrings(call.expectOk());
+        } catch (IOException e) {
+            throw new SQLException("Bad reply from order server", e);
+        }
+        Metrics.recordSince("order_cancel_remote", started);
+        return cancelled;
+    }
+
+    @Override
+    public int deleteAllOrders() throws SQLException {
+        Call call = send(ServerProtocol.OP_DELETE_ORDERS, 0, null);
+        try {
+            return call.expectOk().readInt();
+        } catch (IOException e) {
+            throw new SQLException("Bad reply from order server", e);
+        }
+    }
+
+    @Override
+    public ShiftReport currentShift() throws SQLException {
+        return shift(ServerProtocol.SHIFT_CURRENT, out -> { });
+    }
+
+    @Override
+    public ShiftReport closeShift(String closedBy) throws SQLException {
+        return shift(ServerProtocol.SHIFT_CLOSE, out -> ServerProtocol.writeString(out, closedBy));
+    }
+
+    @Override
+    public ShiftReport reconcileShift(long shiftId) throws SQLException {
+        return shift(ServerProtocol.SHIFT_RECONCILE, out -> out.writeLong(shiftId));
+    }
+
+    // The server keeps the shift totals for every terminal
+    private ShiftReport shift(byte action, Payload arguments) throws SQLException {
+        Call call = send(ServerProtocol.OP_SHIFT, 0, out -> {
+            out.writeByte(action);
+            arguments.write(out);
+        });
+        try {
+            return ServerProtocol.readShiftReport(call.expectOk());
+        } catch (IOException | RuntimeException e) {
+            throw new SQLException("Bad reply from order server", e);
+        }
+    }
+
+    // The server picks the new product's id under its write lock and returns it
+    int addProduct(Product product) throws SQLException {
+        Call call = send(ServerProtocol.OP_CATALOG, 0, out -> {
+            out.writeByte(ServerProtocol.CATALOG_ADD);
+            ServerProtocol.writeProduct(out, product);
+        });
+        try {
+            return call.expectOk().readInt();
+        } catch (IOException e) {
+            throw new SQLException("Bad reply from order server", e);
+        }
+    }
+
+    boolean updateProduct(Product product) throws SQLException {
+        return catalogChange(ServerProtocol.CATALOG_UPDATE, out -> ServerProtocol.writeProduct(out, product));
+    }
+
+    boolean deleteProduct(int productId) throws SQLException {
+        return catalogChange(ServerProtocol.CATALOG_DELETE, out -> out.writeInt(productId));
+    }
+
+    private boolean catalogChange(byte action, Payload arguments) throws SQLException {
+        Call call = send(ServerProtocol.OP_CATALOG, 0, out -> {
+            out.writeByte(action);
+            arguments.write(out);
+        });
+        try {
+            return call.expectOk().readBoolean();
+        } catch (IOException e) {
+            throw new SQLException("Bad reply from order server", e);
+        }
+    }
+
+    // Checked import rows, written by the server in one transaction; returns {added, updated}
+    int[] importCatalog(List<CatalogTransfer.Row> rows) throws SQLException {
+        Call call = send(ServerProtocol.OP_CATALOG, 0, out -> {
+            out.writeByte(ServerProtocol.CATALOG_IMPORT);
+            ServerProtocol.writeCatalogRows(out, rows);
+        });
+        try {
+            DataInputStream in = call.expectOk();
+            return new int[] { in.readInt(), in.readInt() };
+        } catch (IOException e) {
+            throw new SQLException("Bad reply from order server", e);
+        }
+    }
+
+    void addIngredient(String name, String unit, double stock) throws SQLException {
+        recipeChange(ServerProtocol.RECIPE_ADD_INGREDIENT, out -> {
+            ServerProtocol.writeString(out, name);
+            ServerProtocol.writeString(out, unit);
+            out.writeDouble(stock);
+        });
+    }
+
+    void receiveIngredient(int ingredientId, double amount) throws SQLException {
+        recipeChange(ServerProtocol.RECIPE_RECEIVE, out -> {
+            out.writeInt(ingredientId);
+            out.writeDouble(amount);
+        });
+    }
+
+    void saveRecipe(int productId, Map<Integer, Double> lines) throws SQLException {
+        recipeChange(ServerProtocol.RECIPE_SAVE, out -> {
+            out.writeInt(productId);
+            ServerProtocol.writeRecipe(out, lines);
+        });
+    }
+
+    private void recipeChange(byte action, Payload arguments) throws SQLException {
+        send(ServerProtocol.OP_RECIPES, 0, out -> {
+            out.writeByte(action);
+            arguments.write(out);
+        }).expectOk();
+    }
+
+    // The server checks the password; the users table never reaches a terminal
+    public String authenticate(String username, char[] password) throws SQLException {
+        Call call = send(ServerProtocol.OP_LOGIN, 0, out -> {
+            ServerProtocol.writeString(out, username);
+            ServerProtocol.writeString(out, new String(password));
+        });
+        try {
+            return ServerProtocol.readString(call.expectOk());
+        } catch (IOException e) {
+            throw new SQLException("Bad reply from order server", e);
+        }
+    }
+
+    // Round trip to the server; false if it can't be reached
+    public boolean ping() {
+        try {
+            send(ServerProtocol.OP_PING, 0, null).expectOk();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    public void close() {
+        Socket current;
+        synchronized (writeLock) {
+            current = socket;
+            socket = null;
+            out = null;
+        }
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+                // already gone
+            }
+        }
+    }
+
+    interface Payload {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /*
+     * Sends one request and returns without waiting for the reply; the caller
+     * reads it from the returned call when it needs it.
+     */
+    Call send(byte op, int session, Payload payload) throws SQLException {
+        int requestId = nextId();
+        Call call = new Call(requestId);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        try {
+            DataOutputStream frame = new DataOutputStream(buffer);
+            frame.writeInt(0);
+            frame.writeInt(requestId);
+            frame.writeByte(op);
+            frame.writeInt(session);
+            if (payload != null) {
+                payload.write(frame);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not encode request", e);
+        }
+        byte[] bytes = buffer.toByteArray();
+        int length = bytes.length - 4;
+        bytes[0] = (byte) (length >>> 24);
+        bytes[1] = (byte) (length >>> 16);
+        bytes[2] = (byte) (length >>> 8);
+        bytes[3] = (byte) length;
+
+        synchronized (writeLock) {
+            try {
+                ensureConnected();
+                call.via = socket;
+                calls.put(requestId, call);
+                out.write(bytes);
+                out.flush();
+            } catch (IOException e) {
+                calls.remove(requestId);
+                dropSocket();
+                throw new SQLException("Order server " + getAddress() + " unreachable: " + e.getMessage(), e);
+            }
+        }
+        Metrics.increment("server_requests_sent");
+        return call;
+    }
+
+    private int nextId() {
+        int id;
+        do {
+            id = nextRequestId.incrementAndGet();
+        } while (id == ServerProtocol.PUSH_ID || calls.containsKey(id));
+        return id;
+    }
+
+    // Caller holds writeLock
+    private void ensureConnected() throws IOException {
+        if (socket != null && !socket.isClosed()) {
+            return;
+        }
+        Socket fresh = new Socket();
+        fresh.setTcpNoDelay(true);
+        fresh.setKeepAlive(true);
+        fresh.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+        DataOutputStream freshOut = new DataOutputStream(new BufferedOutputStream(fresh.getOutputStream(), 16 * 1024));
+        DataInputStream freshIn = new DataInputStream(new BufferedInputStream(fresh.getInputStream(), 64 * 1024));
+
+        // Handshake before anything else goes out on this socket
+        ByteArrayOutputStream hello = new ByteArrayOutputStream();
+        DataOutputStream helloOut = new DataOutputStream(hello);
+        helloOut.writeInt(ServerProtocol.PUSH_ID);
+        helloOut.writeByte(ServerProtocol.OP_HELLO);
+        helloOut.writeInt(0);
+        ServerProtocol.writeString(helloOut, token);
+        freshOut.writeInt(hello.size());
+        hello.writeTo(freshOut);
+        freshOut.flush();
+
+        byte[] reply = ServerProtocol.readFrame(freshIn);
+        if (reply == null) {
+            fresh.close();
+            throw new IOException("server closed the connection");
+        }
+        DataInputStream replyIn = new DataInputStream(new ByteArrayInputStream(reply));
+        replyIn.readInt();
+        if (replyIn.readByte() != ServerProtocol.STATUS_OK) {
+            String message = ServerProtocol.readString(replyIn);
+            fresh.close();
+            throw new IOException(message);
+        }
+        int version = replyIn.readInt();
+        if (version != ServerProtocol.VERSION) {
+            fresh.close();
+            throw new IOException("order server speaks protocol " + version + ", this terminal " + ServerProtocol.VERSION
+                + "; run the same version of Sebucha on both");
+        }
+
+        socket = fresh;
+        out = freshOut;
+        Thread reader = new Thread(() -> readReplies(fresh, freshIn), "order-server-reader");
+        reader.setDaemon(true);
+        reader.start();
+        Metrics.increment("server_connects");
+    }
+
+    private void readReplies(Socket source, DataInputStream in) {
+        try {
+            byte[] frame;
+            while ((frame = ServerProtocol.readFrame(in)) != null) {
+                int requestId = ((frame[0] & 0xFF) << 24) | ((frame[1] & 0xFF) << 16) | ((frame[2] & 0xFF) << 8) | (frame[3] & 0xFF);
+                byte status = frame[4];
+                if (requestId == ServerProtocol.PUSH_ID && status == ServerProtocol.STATUS_PUSH) {
+                    int changes = ((frame[5] & 0xFF) << 24) | ((frame[6] & 0xFF) << 16) | ((frame[7] & 0xFF) << 8) | (frame[8] & 0xFF);
+                    pushed(changes);
+                    continue;
+                }
+                Call call = calls.get(requestId);
+                if (call == null) {
+                    continue; // abandoned (e.g. a result set closed early)
+                }
+                Reply reply = new Reply(status, frame);
+                if (reply.isFinal()) {
+                    calls.remove(requestId);
+                }
+                call.replies.offer(reply);
+            }
+        } catch (IOException e) {
+            if (!source.isClosed()) {
+                System.err.println("Lost connection to order server " + getAddress() + ": " + e.getMessage());
+            }
+        }
+        synchronized (writeLock) {
+            if (socket == source) {
+                dropSocket();
+            }
+            for (Call call : calls.values()) {
+                if (call.via == source) {
+                    calls.remove(call.requestId);
+                    call.replies.offer(DISCONNECTED);
+                }
+            }
+        }
+    }
+
+    private void pushed(int changes) {
+        Metrics.increment("server_pushes_received");
+        try {
+            pushListener.accept(changes);
+        } catch (RuntimeException e) {
+            System.err.println("Push listener failed: " + e.getMessage());
+        }
+    }
+
+    // Caller holds writeLock (or is the reader giving up on its socket)
+    private void dropSocket() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // already gone
+            }
+        }
+        socket = null;
+        out = null;
+    }
+
+    // One reply frame: status byte, then the payload after the header
+    static final class Reply {
+        final byte status;
+        final byte[] frame;
+
+        Reply(byte status, byte[] frame) {
+            this.status = status;
+            this.frame = frame;
+        }
+
+        DataInputStream payload() {
+            return new DataInputStream(new ByteArrayInputStream(frame, 5, Math.max(0, frame.length - 5)));
+        }
+
+        // Only COLUMNS and unfinished ROWS are followed by more frames
+        boolean isFinal() {
+            if (status == ServerProtocol.STATUS_COLUMNS) {
+                return false;
+            }
+            return status != ServerProtocol.STATUS_ROWS || frame[frame.length - 1] != 0;
+        }
+    }
+
+    // A request in flight and the replies that have arrived for it
+    final class Call {
+        final int requestId;
+        final BlockingQueue<Reply> replies = new LinkedBlockingQueue<>();
+        Socket via;
+
+        Call(int requestId) {
+            this.requestId = requestId;
+        }
+
+        Reply next() throws SQLException {
+            Reply reply;
+            try {
+                reply = replies.poll(REPLY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abandon();
+                throw new SQLException("Interrupted waiting for the order server");
+            }
+            if (reply == null) {
+                abandon();
+                throw new SQLException("Order server " + getAddress() + " did not answer in " + REPLY_TIMEOUT_SECONDS + " s");
+            }
+            if (reply == DISCONNECTED) {
+                throw new SQLException("Connection to order server " + getAddress() + " was lost");
+            }
+            if (reply.status == ServerProtocol.STATUS_ERROR) {
+                try {
+                    DataInputStream in = reply.payload();
+                    String message = ServerProtocol.readString(in);
+                    int code = in.readInt();
+                    String sqlState = ServerProtocol.readString(in);
+                    if (OutOfStockException.SQL_STATE.equals(sqlState)) {
+                        throw new OutOfStockException(message);
+                    }
+                    throw new SQLException(message, sqlState, code);
+                } catch (IOException e) {
+                    throw new SQLException("Order server reported an error", e);
+                }
+            }
+            return reply;
+        }
+
+        // Waits for an OK reply and returns its payload
+        DataInputStream expectOk() throws SQLException {
+            Reply reply = next();
+            if (reply.status != ServerProtocol.STATUS_OK) {
+                throw new SQLException("Unexpected reply " + reply.status + " from order server");
+            }
+            return reply.payload();
+        }
+
+        // Stops collecting replies for this request
+        void abandon() {
+            calls.remove(requestId);
+            replies.clear();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package model;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Order operations shared by every front end (the till, other terminals via
+ * OrderServer). A terminal started with -Dsebucha.server=host:port talks to the
+ * server that owns the database; otherwise orders are written locally.
+ */
+public interface OrderService {
+
+    // Saves the order, its lines and the stock it uses in one transaction; returns the new order id
+    String placeOrder(OrderRequest request) throws SQLException;
+
+    /*
+     * Moves an order to Pending or Completed; "Cancelled" goes through cancelOrder.
+     * Cancelled orders are final, so this returns false for them as well as for
+     * orders that don't exist.
+     */
+    boolean updateStatus(String orderId, String status) throws SQLException;
+
+    /*
+     * Cancels the orders and puts back the stock their lines and add-ons took, all
+     * in one transaction. Orders already cancelled (or missing) are skipped, so a
+     * retry never restores stock twice. Returns the ids this call cancelled.
+     */
+    List<String> cancelOrders(List<String> orderIds) throws SQLException;
+
+    default boolean cancelOrder(String orderId) throws SQLException {
+        return !cancelOrders(Collections.singletonList(orderId)).isEmpty();
+    }
+
+    /*
+     * Deletes every order with its lines and add-ons from the live database in
+     * one transaction; archived years are left alone. Returns the orders deleted.
+     */
+    int deleteAllOrders() throws SQLException;
+
+    // X report: totals of the open shift so far
+    ShiftReport currentShift() throws SQLException;
+
+    // Z report: closes the open shift, starts the next one and returns the closed shift's totals
+    ShiftReport closeShift(String closedBy) throws SQLException;
+
+    // The shift's report with the differences between its totals and a recount of its orders
+    ShiftReport reconcileShift(long shiftId) throws SQLException;
+
+    static OrderService getInstance() {
+        return OrderServerClient.isConfigured() ? OrderServerClient.getInstance() : LocalOrderService.getInstance();
+    }
+}
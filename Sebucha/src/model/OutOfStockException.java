@@ -0,0 +1,20 @@
+package model;
+
+import java.sql.SQLException;
+
+/*
+ * An order wanted more of a product (or of an ingredient its recipe uses) than
+ * is left. Thrown from inside the order's transaction, which is rolled back, so
+ * nothing was saved. The order server sends it back with its SQLState, so a
+ * terminal catches the same type as a standalone till.
+ */
+public class OutOfStockException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String SQL_STATE = "SB409";
+
+    public OutOfStockException(String message) {
+        super(message, SQL_STATE);
+    }
+}
@@ -0,0 +1,148 @@
+package model;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.pdf.ColumnText;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfPageEventHelper;
+import com.itextpdf.text.pdf.PdfWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * Report output as a paginated PDF table (landscape A4) using iText.
+ * The table is added in "large table" mode: every FLUSH_ROWS rows the finished
+ * part is laid out onto pages and dropped, so long reports don't pile up in memory.
+ * The header row repeats on every page and each page carries a footer.
+ */
+public class PdfReportWriter implements ReportWriter {
+
+    public static final ReportWriterProvider PROVIDER =
+        ReportWriterProvider.of("pdf", "PDF Document", "pdf", PdfReportWriter::new);
+
+    private static final int FLUSH_ROWS = 100;
+
+    private static final Font TITLE_FONT = new Font(Font.FontFamily.HELVETICA, 14, Font.BOLD);
+    private static final Font HEADER_FONT = new Font(Font.FontFamily.HELVETICA, 9, Font.BOLD, BaseColor.WHITE);
+    private static final Font CELL_FONT = new Font(Font.FontFamily.HELVETICA, 8);
+    private static final Font FOOTER_FONT = new Font(Font.FontFamily.HELVETICA, 7, Font.ITALIC, BaseColor.GRAY);
+    private static final BaseColor HEADER_BACKGROUND = new BaseColor(0x25, 0x63, 0xEB);
+
+    private final OutputStream output;
+    private final Document document;
+    private PdfPTable table;
+    private List<ReportColumn> columns;
+    private int pendingRows;
+
+    public PdfReportWriter(Path target) throws IOException {
+        this.output = new BufferedOutputStream(Files.newOutputStream(target), 64 * 1024);
+        this.document = new Document(PageSize.A4.rotate(), 28, 28, 28, 36);
+    }
+
+    @Override
+    public void begin(String title, List<ReportColumn> columns) throws IOException {
+        this.columns = columns;
+        try {
+            PdfWriter writer = PdfWriter.getInstance(document, output);
+            String generated = "Sebucha - " + title + " - generated " +
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm"));
+            writer.setPageEvent(new PdfPageEventHelper() {
+                @Override
+                public void onEndPage(PdfWriter pdfWriter, Document doc) {
+                    ColumnText.showTextAligned(pdfWriter.getDirectContent(), Element.ALIGN_LEFT,
+                        new Phrase(generated, FOOTER_FONT), doc.left(), doc.bottom() - 18, 0);
+                    ColumnText.showTextAligned(pdfWriter.getDirectContent(), Element.ALIGN_RIGHT,
+                        new Phrase("Page " + pdfWriter.getPageNumber(), FOOTER_FONT), doc.right(), doc.bottom() - 18, 0);
+                }
+            });
+            document.open();
+
+            Paragraph heading = new Paragraph(title, TITLE_FONT);
+            heading.setSpacingAfter(10);
+            document.add(heading);
+
+            float[] widths = new float[columns.size()];
+            for (int i = 0; i < widths.length; i++) {
+                widths[i] = columns.get(i).getRelativeWidth();
+            }
+            table = new PdfPTable(widths);
+            table.setWidthPercentage(100);
+            table.setHeaderRows(1);
+            table.setComplete(false);
+            for (ReportColumn column : columns) {
+                PdfPCell cell = new PdfPCell(new Phrase(column.getName(), HEADER_FONT));
+                cell.setBackgroundColor(HEADER_BACKGROUND);
+                cell.setPadding(4);
+                table.addCell(cell);
+            }
+        } catch (DocumentException e) {
+            throw new IOException("Could not start PDF report: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            ReportColumn column = columns.get(i);
+            PdfPCell cell = new PdfPCell(new Phrase(format(values[i], column), CELL_FONT));
+            cell.setPadding(3);
+            if (column.getType() != ReportColumn.Type.TEXT) {
+                cell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+            }
+            table.addCell(cell);
+        }
+        if (++pendingRows >= FLUSH_ROWS) {
+            addTable();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (table != null) {
+                table.setComplete(true);
+                addTable();
+            }
+            if (document.isOpen()) {
+                document.close();
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    // Lays out the rows added so far; iText then drops them from the table
+    private void addTable() throws IOException {
+        try {
+            document.add(table);
+            pendingRows = 0;
+        } catch (DocumentException e) {
+            throw new IOException("Could not write PDF rows: " + e.getMessage(), e);
+        }
+    }
+
+    private static String format(Object value, ReportColumn column) {
+        if (value == null) {
+            return "";
+        }
+        if (column.getType() == ReportColumn.Type.DECIMAL && value instanceof Number) {
+            return String.format(Locale.ROOT, "%,.2f", ((Number) value).doubleValue());
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,126 @@
+package model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/*
+ * One physical SQLite connection kept open by SqliteConnection's pool.
+ * The Connection handed to callers is a proxy: close() returns it to the pool
+ * and prepareStatement(String) is served from the per-connection StatementCache.
+ */
+final class PooledConnection implements InvocationHandler {
+
+    private final Connection physical;
+    private final Connection handle;
+    private final StatementCache statementCache;
+    private boolean checkedOut;
+
+    PooledConnection(Connection physical, int statementCacheSize) {
+        this.physical = physical;
+        this.handle = (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            this
+        );
+        this.statementCache = new StatementCache(physical, handle, statementCacheSize);
+    }
+
+    // Marks the connection as in use and returns the proxy callers work with
+    Connection checkOut() {
+        checkedOut = true;
+        return handle;
+    }
+
+    boolean isUsable() {
+        try {
+            return !physical.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                if (checkedOut) {
+                    checkedOut = false;
+                    release();
+                    SqliteConnection.returnToPool(this);
+                }
+                return null;
+            case "isClosed":
+                return !checkedOut || physical.isClosed();
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "PooledConnection[" + physical + "]";
+            default:
+                break;
+        }
+
+        if (!checkedOut) {
+            throw new SQLException("Connection has already been returned to the pool");
+        }
+
+        if ("prepareStatement".equals(method.getName()) && args.length == 1) {
+            return statementCache.prepare((String) args[0]);
+        }
+        // Everything else is passed through but still timed and traced
+        if ("prepareStatement".equals(method.getName())) {
+            return TracedStatement.wrap((PreparedStatement) call(method, args), handle, (String) args[0]);
+        }
+        if ("createStatement".equals(method.getName())) {
+            return TracedStatement.wrap((Statement) call(method, args), handle);
+        }
+
+        boolean commit = "commit".equals(method.getName());
+        long started = commit ? System.nanoTime() : 0;
+        try {
+            return call(method, args);
+        } finally {
+            if (commit) {
+                Metrics.recordSince("db_commit", started);
+            }
+        }
+    }
+
+    private Object call(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(physical, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Undoes anything the last borrower left behind before the next checkout
+    private void release() {
+        statementCache.releaseAll();
+        try {
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error resetting pooled connection: " + e.getMessage());
+        }
+    }
+
+    // Closes the physical connection and every statement it compiled
+    void closePhysical() {
+        statementCache.closeAll();
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing database connection: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/*
+ * Adds, edits and removes single products for the inventory pages. On a
+ * terminal each call is one request to the order server; on the machine that
+ * holds the database it runs under LocalOrderService's write lock, so a new
+ * product's id is picked and inserted without another till writing in between.
+ * Either way the products counter moves once the change is in.
+ */
+public class ProductCatalog {
+
+    private static final String INSERT_PRODUCT =
+        "INSERT INTO products (id, name, category, price, stock, status, image_path, date_added) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_PRODUCT =
+        "UPDATE products SET name = ?, category = ?, price = ?, stock = ?, status = ?, image_path = ? WHERE id = ?";
+
+    private static final String DELETE_PRODUCT = "DELETE FROM products WHERE id = ?";
+
+    private static ProductCatalog instance;
+
+    private ProductCatalog() {
+    }
+
+    public static synchronized ProductCatalog getInstance() {
+        if (instance == null) {
+            instance = new ProductCatalog();
+        }
+        return instance;
+    }
+
+    // Inserts the product under a new id for its category (the id it carries is ignored); returns that id
+    public int addProduct(Product product) throws SQLException {
+        int id;
+        if (OrderServerClient.isConfigured()) {
+            id = OrderServerClient.getInstance().addProduct(product);
+        } else {
+            LocalOrderService writes = LocalOrderService.getInstance();
+            writes.lockWrites();
+            try (Connection connection = connect();
+                 PreparedStatement statement = connection.prepareStatement(INSERT_PRODUCT)) {
+                id = InventoryIdGenerator.generateIdForCategory(connection, product.getCategory());
+                statement.setInt(1, id);
+                statement.setString(2, product.getName());
+                statement.setString(3, product.getCategory());
+                statement.setDouble(4, product.getPrice());
+                statement.setInt(5, product.getStock());
+                statement.setString(6, product.getStatus());
+                statement.setString(7, product.getImagePath() != null ? product.getImagePath() : "");
+                statement.setLong(8, System.currentTimeMillis() / 1000);
+                statement.executeUpdate();
+            } finally {
+                writes.unlockWrites();
+            }
+        }
+        DataVersions.productsChanged();
+        return id;
+    }
+
+    // False if the product no longer exists
+    public boolean updateProduct(Product product) throws SQLException {
+        boolean updated;
+        if (OrderServerClient.isConfigured()) {
+            updated = OrderServerClient.getInstance().updateProduct(product);
+        } else {
+            LocalOrderService writes = LocalOrderService.getInstance();
+            writes.lockWrites();
+            try (Connection connection = connect();
+                 PreparedStatement statement = connection.prepareStatement(UPDATE_PRODUCT)) {
+                statement.setString(1, product.getName());
+                statement.setString(2, product.getCategory());
+                statement.setDouble(3, product.getPrice());
+                statement.setInt(4, product.getStock());
+                statement.setString(5, product.getStatus());
+                statement.setString(6, product.getImagePath());
+                statement.setInt(7, product.getId());
+                updated = statement.executeUpdate() > 0;
+            } finally {
+                writes.unlockWrites();
+            }
+        }
+        if (updated) {
+            DataVersions.productsChanged();
+        }
+        return updated;
+    }
+
+    // False if the product was already gone
+    public boolean deleteProduct(int productId) throws SQLException {
+        boolean deleted;
+        if (OrderServerClient.isConfigured()) {
+            deleted = OrderServerClient.getInstance().deleteProduct(productId);
+        } else {
+            LocalOrderService writes = LocalOrderService.getInstance();
+            writes.lockWrites();
+            try (Connection connection = connect();
+                 PreparedStatement statement = connection.prepareStatement(DELETE_PRODUCT)) {
+                statement.setInt(1, productId);
+                deleted = statement.executeUpdate() > 0;
+            } finally {
+                writes.unlockWrites();
+            }
+        }
+        if (deleted) {
+            DataVersions.productsChanged();
+        }
+        return deleted;
+    }
+
+    private static Connection connect() throws SQLException {
+        Connection connection = SqliteConnection.Connector();
+        if (connection == null) {
+            throw new SQLException("Could not connect to database");
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,162 @@
+package model;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Lookup table for the Order page fast-entry field. Resolves what a cashier or
+ * barcode scanner types into a product, quantity and optional add-on, e.g.
+ *   "CLA-003"            -> 1x product 3
+ *   "3", "003"           -> same product by its numeric PLU
+ *   "CLA-003 x2 +pearl"  -> 2x product 3 with the add-on whose name starts with "pearl"
+ */
+public class ProductCodeIndex {
+
+    private static final String ADD_ON_CATEGORY = "Add-ons";
+
+    // "CLA-003", "3", "003" -> product
+    private final Map<String, Product> productsByCode = new HashMap<>();
+
+    // folded add-on name -> add-on, sorted so a prefix resolves with one ceiling lookup
+    private final TreeMap<String, Product> addOnsByName = new TreeMap<>();
+
+    public ProductCodeIndex() {}
+
+    public ProductCodeIndex(Collection<Product> catalog) {
+        rebuild(catalog);
+    }
+
+    public void rebuild(Collection<Product> catalog) {
+        productsByCode.clear();
+        addOnsByName.clear();
+        for (Product product : catalog) {
+            put(product);
+        }
+    }
+
+    public void put(Product product) {
+        if (ADD_ON_CATEGORY.equals(product.getCategory())) {
+            addOnsByName.put(ProductSearchIndex.fold(product.getName()).trim(), product);
+            return;
+        }
+        productsByCode.put(formatCode(product), product);
+        productsByCode.put(String.valueOf(product.getId()), product);
+        productsByCode.put(String.format("%03d", product.getId()), product);
+    }
+
+    // Display/scan code for a product, e.g. "CLA-003"
+    public static String formatCode(Product product) {
+        return String.format("%s-%03d", InventoryIdGenerator.getCategoryCode(product.getCategory()), product.getId());
+    }
+
+    public Product findByCode(String code) {
+        return code == null ? null : productsByCode.get(code.trim().toUpperCase());
+    }
+
+    // Add-on whose folded name starts with the given text (shortest name wins on ties)
+    public Product findAddOn(String namePrefix) {
+        String folded = ProductSearchIndex.fold(namePrefix).trim();
+        if (folded.isEmpty()) {
+            return null;
+        }
+        Map.Entry<String, Product> match = addOnsByName.ceilingEntry(folded);
+        if (match != null && match.getKey().startsWith(folded)) {
+            return match.getValue();
+        }
+        return null;
+    }
+
+    /*
+     * Parses one fast-entry line. Throws IllegalArgumentException with a message
+     * meant for the cashier when the code, quantity or add-on cannot be resolved.
+     */
+    public Entry parse(String input) {
+        if (input == null || input.trim().isEmpty()) {
+            throw new IllegalArgumentException("Enter a product code.");
+        }
+
+        String[] tokens = input.trim().split("\\s+");
+        Product product = findByCode(tokens[0]);
+        if (product == null) {
+            throw new IllegalArgumentException("Unknown product code: " + tokens[0]);
+        }
+
+        int quantity = 1;
+        StringBuilder addOnName = null;
+        for (int i = 1; i < tokens.length; i++) {
+            String token = tokens[i];
+            Integer parsedQuantity = parseQuantity(token);
+            if (parsedQuantity != null) {
+                quantity = parsedQuantity;
+            } else if (token.startsWith("+")) {
+                if (addOnName != null) {
+                    throw new IllegalArgumentException("Only one add-on per line is supported.");
+                }
+                addOnName = new StringBuilder(token.substring(1));
+            } else if (addOnName != null) {
+                // Multi-word add-on names, e.g. "+brown sugar"
+                addOnName.append(' ').append(token);
+            } else {
+                throw new IllegalArgumentException("Unrecognized entry: " + token);
+            }
+        }
+
+        if (quantity < 1 || quantity > 99) {
+            throw new IllegalArgumentException("Quantity must be between 1 and 99.");
+        }
+
+        Product addOn = null;
+        if (addOnName != null) {
+            addOn = findAddOn(addOnName.toString());
+            if (addOn == null) {
+                throw new IllegalArgumentException("Unknown add-on: " + addOnName);
+            }
+        }
+
+        return new Entry(product, quantity, addOn);
+    }
+
+    // Accepts "x2", "*2", "2x" and "2*"
+    private static Integer parseQuantity(String token) {
+        String lower = token.toLowerCase();
+        String digits;
+        if (lower.startsWith("x") || lower.startsWith("*")) {
+            digits = lower.substring(1);
+        } else if (lower.endsWith("x") || lower.endsWith("*")) {
+            digits = lower.substring(0, lower.length() - 1);
+        } else {
+            return null;
+        }
+        if (digits.isEmpty() || !digits.chars().allMatch(Character::isDigit) || digits.length() > 3) {
+            return null;
+        }
+        return Integer.parseInt(digits);
+    }
+
+    // One resolved fast-entry line
+    public static class Entry {
+        private final Product product;
+        private final int quantity;
+        private final Product addOn;
+
+        public Entry(Product product, int quantity, Product addOn) {
+            this.product = product;
+            this.quantity = quantity;
+            this.addOn = addOn;
+        }
+
+        public Product getProduct() {
+            return product;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public Product getAddOn() {
+            return addOn;
+        }
+    }
+}
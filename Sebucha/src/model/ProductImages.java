@@ -0,0 +1,78 @@
+package model;
+
+import javafx.scene.image.Image;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Decoded product photos for the Order page cards, shared across reloads.
+ * Photos are decoded once, already scaled to the card size, so rebuilding the
+ * cards doesn't decode every image file again; the startup warmup fills the
+ * cache in the background before the Order page first opens.
+ */
+public class ProductImages {
+
+    // Product cards show images at this size
+    public static final double CARD_SIZE = 275.0;
+
+    private static final String PLACEHOLDER = "/view/images/addimage.png";
+
+    private static final Map<String, Image> cardImages = new ConcurrentHashMap<>();
+    private static volatile Image placeholder;
+
+    static {
+        Metrics.gauge("product_image_cache_size", ProductImages::size);
+        Metrics.gauge("product_image_cache_hit_ratio",
+            () -> Metrics.ratio("product_image_cache_hits", "product_image_cache_misses"));
+    }
+
+    // Card image for a product's image path; the placeholder if there is none or it can't be read
+    public static Image forCard(String imagePath) {
+        if (imagePath == null || imagePath.isEmpty()) {
+            return placeholder();
+        }
+        Image cached = cardImages.get(imagePath);
+        if (cached != null) {
+            Metrics.increment("product_image_cache_hits");
+            return cached;
+        }
+        Metrics.increment("product_image_cache_misses");
+        File imageFile = new File(imagePath);
+        if (!imageFile.exists()) {
+            return placeholder();
+        }
+        FlightEvents.ImageDecode event = new FlightEvents.ImageDecode();
+        event.path = imagePath;
+        event.begin();
+        Image image = new Image(imageFile.toURI().toString(), CARD_SIZE, CARD_SIZE, true, true);
+        event.commit();
+        if (image.isError()) {
+            System.err.println("Could not load product image " + imagePath + ": " + image.getException());
+            return placeholder();
+        }
+        cardImages.put(imagePath, image);
+        return image;
+    }
+
+    // Decodes the given images ahead of time; safe to call from any thread
+    public static void preload(Collection<String> imagePaths) {
+        placeholder();
+        for (String imagePath : imagePaths) {
+            forCard(imagePath);
+        }
+    }
+
+    public static int size() {
+        return cardImages.size();
+    }
+
+    private static Image placeholder() {
+        if (placeholder == null) {
+            placeholder = new Image(ProductImages.class.getResource(PLACEHOLDER).toExternalForm());
+        }
+        return placeholder;
+    }
+}
@@ -0,0 +1,319 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * In-memory search index over the product catalog used by the Order page.
+ * Words of each product name/category are folded (case + accents) and stored in a
+ * prefix trie for as-you-type matching, plus trigram postings so a query with a
+ * typo ("tarro", "matcah") still finds the product. Results are ranked by match
+ * quality, then by recent sales velocity.
+ */
+public class ProductSearchIndex {
+
+    private static ProductSearchIndex instance;
+
+    // Sales window used for velocity (units sold per day)
+    private static final int VELOCITY_WINDOW_DAYS = 14;
+
+    // Minimum share of a word's trigrams that must match for a fuzzy hit
+    private static final double FUZZY_THRESHOLD = 0.5;
+
+    private static final double NAME_PREFIX_SCORE = 3.0;
+    private static final double CATEGORY_PREFIX_SCORE = 1.0;
+    private static final double FUZZY_SCORE = 1.5;
+
+    private final Map<Integer, IndexedProduct> products = new HashMap<>();
+    private final TrieNode root = new TrieNode();
+    private final Map<String, Set<Integer>> trigramPostings = new HashMap<>();
+    private final Map<Integer, Double> salesVelocity = new HashMap<>();
+
+    private ProductSearchIndex() {}
+
+    public static synchronized ProductSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new ProductSearchIndex();
+        }
+        return instance;
+    }
+
+    // Replaces the whole index with the given catalog
+    public synchronized void rebuild(Collection<Product> catalog) {
+        products.clear();
+        root.children.clear();
+        root.ids.clear();
+        trigramPostings.clear();
+        for (Product product : catalog) {
+            add(product);
+        }
+    }
+
+    // Adds or refreshes a single product (after an insert or update)
+    public synchronized void put(Product product) {
+        if (product == null) {
+            return;
+        }
+        remove(product.getId());
+        add(product);
+    }
+
+    // Drops a product from every posting (after a delete)
+    public synchronized void remove(int productId) {
+        IndexedProduct existing = products.remove(productId);
+        if (existing == null) {
+            return;
+        }
+        for (String word : existing.allWords()) {
+            root.remove(word, 0, productId);
+            for (String trigram : trigrams(word)) {
+                Set<Integer> ids = trigramPostings.get(trigram);
+                if (ids != null) {
+                    ids.remove(productId);
+                    if (ids.isEmpty()) {
+                        trigramPostings.remove(trigram);
+                    }
+                }
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return products.size();
+    }
+
+    /*
+     * Returns matching products best-first. Every query word must match the product
+     * (by prefix or fuzzily); an empty query returns nothing.
+     */
+    public synchronized List<Product> search(String query, int limit) {
+        List<String> queryWords = words(query);
+        if (queryWords.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, Double> scores = null;
+        for (String word : queryWords) {
+            Map<Integer, Double> wordScores = scoreWord(word);
+            if (scores == null) {
+                scores = wordScores;
+            } else {
+                // AND semantics across words
+                scores.keySet().retainAll(wordScores.keySet());
+                for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                    entry.setValue(entry.getValue() + wordScores.get(entry.getKey()));
+                }
+            }
+            if (scores.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+
+        final Map<Integer, Double> finalScores = scores;
+        List<Integer> ranked = new ArrayList<>(finalScores.keySet());
+        ranked.sort((a, b) -> {
+            int byScore = Double.compare(finalScores.get(b), finalScores.get(a));
+            if (byScore != 0) return byScore;
+            int byVelocity = Double.compare(getSalesVelocity(b), getSalesVelocity(a));
+            if (byVelocity != 0) return byVelocity;
+            return products.get(a).foldedName.compareTo(products.get(b).foldedName);
+        });
+
+        List<Product> results = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (Integer id : ranked) {
+            if (results.size() >= limit) break;
+            results.add(products.get(id).product);
+        }
+        return results;
+    }
+
+    // Loads units-sold-per-day for the last VELOCITY_WINDOW_DAYS days in one grouped query
+    public void loadSalesVelocity(Connection connection) {
+        String sql = "SELECT oi.product_id, SUM(oi.quantity) AS sold FROM order_items oi " +
+                     "JOIN orders o ON oi.order_id = o.id " +
+                     "WHERE o.order_date >= date('now', ?) AND o.order_status <> 'Cancelled' " +
+                     "GROUP BY oi.product_id";
+        Map<Integer, Double> loaded = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, "-" + VELOCITY_WINDOW_DAYS + " days");
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    loaded.put(resultSet.getInt("product_id"), resultSet.getDouble("sold") / VELOCITY_WINDOW_DAYS);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading sales velocity: " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            salesVelocity.clear();
+            salesVelocity.putAll(loaded);
+        }
+    }
+
+    // Bumps a product's velocity right after an order so ranking reacts without a reload
+    public synchronized void recordSale(int productId, int quantity) {
+        salesVelocity.merge(productId, (double) quantity / VELOCITY_WINDOW_DAYS, Double::sum);
+    }
+
+    public synchronized double getSalesVelocity(int productId) {
+        return salesVelocity.getOrDefault(productId, 0.0);
+    }
+
+    // Lowercases and strips accents so "Café" and "cafe" index the same
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            folded.append(Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ');
+        }
+        return folded.toString();
+    }
+
+    private void add(Product product) {
+        IndexedProduct indexed = new IndexedProduct(product);
+        products.put(product.getId(), indexed);
+        for (String word : indexed.allWords()) {
+            root.insert(word, 0, product.getId());
+            for (String trigram : trigrams(word)) {
+                trigramPostings.computeIfAbsent(trigram, key -> new HashSet<>()).add(product.getId());
+            }
+        }
+    }
+
+    // Scores every product matching one query word
+    private Map<Integer, Double> scoreWord(String word) {
+        Map<Integer, Double> scores = new HashMap<>();
+
+        for (Integer id : root.find(word)) {
+            IndexedProduct indexed = products.get(id);
+            double score = indexed.nameHasPrefix(word) ? NAME_PREFIX_SCORE : CATEGORY_PREFIX_SCORE;
+            scores.merge(id, score, Math::max);
+        }
+
+        // Typo tolerance and mid-word matches via shared trigrams, only when no word starts with it
+        Set<String> queryTrigrams = trigrams(word);
+        if (scores.isEmpty() && word.length() >= 3) {
+            Map<Integer, Integer> shared = new HashMap<>();
+            for (String trigram : queryTrigrams) {
+                Set<Integer> ids = trigramPostings.get(trigram);
+                if (ids != null) {
+                    for (Integer id : ids) {
+                        shared.merge(id, 1, Integer::sum);
+                    }
+                }
+            }
+            for (Map.Entry<Integer, Integer> entry : shared.entrySet()) {
+                double similarity = (double) entry.getValue() / queryTrigrams.size();
+                if (similarity >= FUZZY_THRESHOLD) {
+                    scores.merge(entry.getKey(), FUZZY_SCORE * similarity, Math::max);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : fold(text).split(" ")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    // Boundary-padded trigrams, e.g. "taro" -> "$ta", "tar", "aro", "ro$"
+    private static Set<String> trigrams(String word) {
+        Set<String> grams = new LinkedHashSet<>();
+        String padded = "$" + word + "$";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // Folded words of one product
+    private static final class IndexedProduct {
+        private final Product product;
+        private final String foldedName;
+        private final List<String> nameWords;
+        private final List<String> categoryWords;
+
+        IndexedProduct(Product product) {
+            this.product = product;
+            this.foldedName = fold(product.getName());
+            this.nameWords = words(product.getName());
+            this.categoryWords = words(product.getCategory());
+        }
+
+        Set<String> allWords() {
+            Set<String> all = new HashSet<>(nameWords);
+            all.addAll(categoryWords);
+            return all;
+        }
+
+        boolean nameHasPrefix(String prefix) {
+            for (String word : nameWords) {
+                if (word.startsWith(prefix)) return true;
+            }
+            return false;
+        }
+    }
+
+    // Trie node holding the ids of every product with a word under this prefix
+    private static final class TrieNode {
+        private final Map<Character, TrieNode> children = new HashMap<>();
+        private final Set<Integer> ids = new HashSet<>();
+
+        void insert(String word, int depth, int id) {
+            if (depth > 0) {
+                ids.add(id);
+            }
+            if (depth == word.length()) {
+                return;
+            }
+            children.computeIfAbsent(word.charAt(depth), key -> new TrieNode()).insert(word, depth + 1, id);
+        }
+
+        void remove(String word, int depth, int id) {
+            ids.remove(id);
+            if (depth == word.length()) {
+                return;
+            }
+            TrieNode child = children.get(word.charAt(depth));
+            if (child != null) {
+                child.remove(word, depth + 1, id);
+                if (child.ids.isEmpty() && child.children.isEmpty()) {
+                    children.remove(word.charAt(depth));
+                }
+            }
+        }
+
+        Set<Integer> find(String prefix) {
+            TrieNode node = this;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.children.get(prefix.charAt(i));
+            }
+            return node == null ? new HashSet<>() : node.ids;
+        }
+    }
+}
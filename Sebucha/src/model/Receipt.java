@@ -0,0 +1,64 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Everything printed on one receipt, captured when the order is placed or reprinted
+public class Receipt {
+    private final String orderId;
+    private final String customerName;
+    private final String orderType;
+    private final String paymentMethod;
+    private final double totalAmount;
+    private final List<OrderItem> items;
+    private final LocalDateTime issuedAt;
+
+    public Receipt(String orderId, String customerName, String orderType, String paymentMethod,
+                   double totalAmount, List<OrderItem> items, LocalDateTime issuedAt) {
+        this.orderId = orderId;
+        this.customerName = customerName;
+        this.orderType = orderType;
+        this.paymentMethod = paymentMethod;
+        this.totalAmount = totalAmount;
+        this.items = new ArrayList<>(items);
+        this.issuedAt = issuedAt;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public String getOrderType() {
+        return orderType;
+    }
+
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+
+    public List<OrderItem> getItems() {
+        return items;
+    }
+
+    public LocalDateTime getIssuedAt() {
+        return issuedAt;
+    }
+
+    // Sum of the line totals
+    public double getSubtotal() {
+        double subtotal = 0;
+        for (OrderItem item : items) {
+            subtotal += item.getTotalPrice();
+        }
+        return subtotal;
+    }
+}
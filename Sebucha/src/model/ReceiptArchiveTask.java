@@ -0,0 +1,329 @@
+package model;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.PdfWriter;
+import javafx.concurrent.Task;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/*
+ * Reprints every receipt matching the Recent Orders filters into one archive:
+ * a ZIP with a text receipt per order, or a single PDF with one 80 mm page per
+ * receipt. Orders and their lines come from one query in order id order; the
+ * receipts are rendered in batches on a small fixed pool, and batches are
+ * written in the order they were read. Only a few batches are in flight at a
+ * time, so memory stays flat for any date range. Returns the receipt count;
+ * a cancelled or failed run deletes the partial archive.
+ */
+public class ReceiptArchiveTask extends Task<Integer> {
+
+    public enum Format {
+        ZIP("zip"), PDF("pdf");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final String SELECT_RECEIPTS =
+        "SELECT o.id, o.customer_name, o.order_type, o.payment_method, o.total_amount, o.order_date, o.order_time, " +
+        "oi.product_id, oi.product_name, oi.quantity, oi.unit_price, oi.total_price " +
+        "FROM orders o LEFT JOIN order_items oi ON oi.order_id = o.id";
+
+    private final Path target;
+    private final OrderHistoryQuery query;
+    private final Format format;
+    private final int threads;
+
+    public ReceiptArchiveTask(Path target, OrderHistoryQuery query, Format format) {
+        this.target = target;
+        this.query = query;
+        this.format = format;
+        this.threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    @Override
+    protected Integer call() throws Exception {
+        updateMessage("Counting orders...");
+
+        ExecutorService renderers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "receipt-archive-render");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // One template per render thread; templates keep per-call state
+        ThreadLocal<ReceiptTemplate> templates = ThreadLocal.withInitial(ReceiptTemplate::new);
+        ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(8 * 1024));
+
+        Deque<Future<List<RenderedReceipt>>> inFlight = new ArrayDeque<>();
+        AtomicInteger written = new AtomicInteger();
+        boolean completed = false;
+
+        try (Connection connection = SqliteConnection.Connector()) {
+            if (connection == null) {
+                throw new SQLException("Could not connect to database");
+            }
+            OrderItemStore.ensureSchema(connection);
+
+            int total;
+            try (PreparedStatement countStmt = connection.prepareStatement("SELECT COUNT(*) FROM orders o" + query.whereClause())) {
+                query.bind(countStmt, 1);
+                try (ResultSet rs = countStmt.executeQuery()) {
+                    total = rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+
+            try (ArchiveWriter archive = openArchive();
+                 PreparedStatement statement = connection.prepareStatement(
+                     SELECT_RECEIPTS + query.whereClause() + " ORDER BY o.id, oi.id")) {
+                query.bind(statement, 1);
+                statement.setFetchSize(1000);
+
+                try (ResultSet rs = statement.executeQuery()) {
+                    List<Receipt> batch = new ArrayList<>(BATCH_SIZE);
+                    ReceiptRow current = null;
+                    while (rs.next()) {
+                        if (isCancelled()) {
+                            throw new CancellationException();
+                        }
+                        String orderId = rs.getString("id");
+                        if (current == null || !current.orderId.equals(orderId)) {
+                            if (current != null) {
+                                batch.add(current.toReceipt());
+                                if (batch.size() == BATCH_SIZE) {
+                                    submit(renderers, templates, buffers, batch, inFlight);
+                                    batch = new ArrayList<>(BATCH_SIZE);
+                                    // Keep a bounded number of batches in flight
+                                    while (inFlight.size() > threads * 2) {
+                                        writeBatch(archive, inFlight.removeFirst(), written, total);
+                                    }
+                                }
+                            }
+                            current = new ReceiptRow(rs);
+                        }
+                        if (rs.getString("product_name") != null) {
+                            current.addItem(rs);
+                        }
+                    }
+                    if (current != null) {
+                        batch.add(current.toReceipt());
+                    }
+                    if (!batch.isEmpty()) {
+                        submit(renderers, templates, buffers, batch, inFlight);
+                    }
+                }
+
+                while (!inFlight.isEmpty()) {
+                    writeBatch(archive, inFlight.removeFirst(), written, total);
+                }
+            }
+
+            completed = true;
+            updateProgress(total, total);
+            updateMessage("Archived " + written.get() + " receipts");
+            return written.get();
+        } finally {
+            renderers.shutdownNow();
+            if (!completed) {
+                Files.deleteIfExists(target);
+            }
+        }
+    }
+
+    private void submit(ExecutorService renderers, ThreadLocal<ReceiptTemplate> templates, ThreadLocal<ByteBuffer> buffers,
+                        List<Receipt> batch, Deque<Future<List<RenderedReceipt>>> inFlight) {
+        inFlight.addLast(renderers.submit(() -> {
+            ReceiptTemplate template = templates.get();
+            List<RenderedReceipt> rendered = new ArrayList<>(batch.size());
+            for (Receipt receipt : batch) {
+                ByteBuffer buffer = template.render(receipt, buffers.get());
+                buffers.set(buffer);
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                rendered.add(new RenderedReceipt(receipt, bytes));
+            }
+            return rendered;
+        }));
+    }
+
+    private void writeBatch(ArchiveWriter archive, Future<List<RenderedReceipt>> batch,
+                            AtomicInteger written, int total) throws Exception {
+        if (isCancelled()) {
+            throw new CancellationException();
+        }
+        List<RenderedReceipt> receipts;
+        try {
+            receipts = batch.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        for (RenderedReceipt receipt : receipts) {
+            archive.add(receipt.receipt, receipt.text);
+        }
+        int count = written.addAndGet(receipts.size());
+        updateProgress(count, total);
+        updateMessage("Archived " + count + " of " + total + " receipts");
+    }
+
+    private ArchiveWriter openArchive() throws IOException {
+        OutputStream output = new BufferedOutputStream(Files.newOutputStream(target), 64 * 1024);
+        if (format == Format.ZIP) {
+            ZipOutputStream zip = new ZipOutputStream(output, StandardCharsets.UTF_8);
+            return new ArchiveWriter() {
+                @Override
+                public void add(Receipt receipt, byte[] text) throws IOException {
+                    zip.putNextEntry(new ZipEntry(ReceiptSinks.fileName(receipt, "txt")));
+                    zip.write(text);
+                    zip.closeEntry();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    zip.close();
+                }
+            };
+        }
+
+        Document document = new Document();
+        PdfWriter pdfWriter;
+        try {
+            pdfWriter = PdfWriter.getInstance(document, output);
+        } catch (DocumentException e) {
+            output.close();
+            throw new IOException("Could not start PDF archive: " + e.getMessage(), e);
+        }
+        return new ArchiveWriter() {
+            private boolean empty = true;
+
+            @Override
+            public void add(Receipt receipt, byte[] text) throws IOException {
+                String content = new String(text, StandardCharsets.UTF_8);
+                document.setPageSize(ReceiptSinks.pdfPageSize(content));
+                try {
+                    if (empty) {
+                        document.open();
+                        empty = false;
+                    } else {
+                        document.newPage();
+                    }
+                    ReceiptSinks.drawPdfPage(pdfWriter, content);
+                } catch (DocumentException e) {
+                    throw new IOException("Could not add receipt " + receipt.getOrderId() + ": " + e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    if (empty) {
+                        // iText refuses to write a document without pages
+                        document.setPageSize(ReceiptSinks.pdfPageSize(""));
+                        document.open();
+                        ReceiptSinks.drawPdfPage(pdfWriter, "No orders matched the selected filters.");
+                    }
+                    document.close();
+                } catch (DocumentException e) {
+                    throw new IOException("Could not finish PDF archive: " + e.getMessage(), e);
+                } finally {
+                    output.close();
+                }
+            }
+        };
+    }
+
+    // Receives rendered receipts in archive order
+    private interface ArchiveWriter extends AutoCloseable {
+        void add(Receipt receipt, byte[] text) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static class RenderedReceipt {
+        final Receipt receipt;
+        final byte[] text;
+
+        RenderedReceipt(Receipt receipt, byte[] text) {
+            this.receipt = receipt;
+            this.text = text;
+        }
+    }
+
+    // Order header and lines collected from consecutive rows of the scan
+    private static class ReceiptRow {
+        final String orderId;
+        final String customerName;
+        final String orderType;
+        final String paymentMethod;
+        final double totalAmount;
+        final LocalDateTime issuedAt;
+        final List<OrderItem> items = new ArrayList<>();
+
+        ReceiptRow(ResultSet rs) throws SQLException {
+            this.orderId = rs.getString("id");
+            this.customerName = rs.getString("customer_name");
+            this.orderType = rs.getString("order_type");
+            this.paymentMethod = rs.getString("payment_method");
+            this.totalAmount = rs.getDouble("total_amount");
+            this.issuedAt = orderDateTime(rs.getString("order_date"), rs.getString("order_time"));
+        }
+
+        void addItem(ResultSet rs) throws SQLException {
+            OrderItem item = new OrderItem();
+            item.setProductId(rs.getInt("product_id"));
+            item.setProductName(rs.getString("product_name"));
+            item.setQuantity(rs.getInt("quantity"));
+            item.setUnitPrice(rs.getDouble("unit_price"));
+            item.setTotalPrice(rs.getDouble("total_price"));
+            items.add(item);
+        }
+
+        Receipt toReceipt() {
+            return new Receipt(orderId, customerName, orderType, paymentMethod, totalAmount, items, issuedAt);
+        }
+
+        // The receipt carries the time the order was placed, not the time of the reprint
+        private static LocalDateTime orderDateTime(String date, String time) {
+            try {
+                LocalDate day = LocalDate.parse(date);
+                return time == null || time.isEmpty() ? day.atStartOfDay() : day.atTime(LocalTime.parse(time));
+            } catch (Exception e) {
+                return LocalDateTime.now();
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Renders and delivers receipts on one background thread so the till never waits
+ * on a printer or the disk. submit() returns immediately; the worker renders into
+ * a reused direct buffer and hands it to the configured sink. A failed delivery is
+ * retried with a growing delay, and after the last attempt the receipt is spooled
+ * to receipts/failed so it can be reprinted later. The future completes with the
+ * sink that finally took the receipt.
+ */
+public class ReceiptPipeline {
+
+    private static final long[] RETRY_DELAYS_MS = {500, 2000, 5000};
+    private static final ReceiptSink FALLBACK = ReceiptSinks.spool(Paths.get("receipts", "failed"));
+
+    private static ReceiptPipeline instance;
+
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "receipt-pipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ReceiptTemplate template = new ReceiptTemplate();
+    private final AtomicInteger pending = new AtomicInteger();
+    // Only touched on the worker thread
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(8 * 1024);
+    private volatile ReceiptSink sink;
+
+    private ReceiptPipeline() {
+        ReceiptSink configured;
+        try {
+            configured = ReceiptSinks.configured();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid receipt sink, using " + ReceiptSinks.DEFAULT_SPEC + ": " + e.getMessage());
+            configured = ReceiptSinks.fromSpec(ReceiptSinks.DEFAULT_SPEC);
+        }
+        this.sink = configured;
+        Metrics.gauge("receipt_queue_pending", this::getPendingCount);
+    }
+
+    public static synchronized ReceiptPipeline getInstance() {
+        if (instance == null) {
+            instance = new ReceiptPipeline();
+        }
+        return instance;
+    }
+
+    // Queues a receipt; never blocks
+    public CompletableFuture<ReceiptSink> submit(Receipt receipt) {
+        CompletableFuture<ReceiptSink> result = new CompletableFuture<>();
+        pending.incrementAndGet();
+        worker.execute(() -> attempt(receipt, sink, 0, result));
+        return result;
+    }
+
+    private void attempt(Receipt receipt, ReceiptSink target, int attempt, CompletableFuture<ReceiptSink> result) {
+        FlightEvents.Receipt step = null;
+        try {
+            long started = System.nanoTime();
+            step = receiptEvent(receipt, "render", target);
+            buffer = template.render(receipt, buffer);
+            step.succeeded = true;
+            step.commit();
+            Metrics.recordSince("receipt_render", started);
+
+            started = System.nanoTime();
+            step = receiptEvent(receipt, "deliver", target);
+            target.deliver(receipt, buffer.duplicate());
+            step.succeeded = true;
+            step.commit();
+            Metrics.recordSince("receipt_deliver", started);
+            finish(result, target, null);
+        } catch (Exception e) {
+            if (step != null && !step.succeeded) {
+                step.commit();
+            }
+            Metrics.increment("receipt_delivery_failures");
+            System.err.println("Receipt " + receipt.getOrderId() + " to " + target.describe() +
+                " failed (attempt " + (attempt + 1) + "): " + e.getMessage());
+            if (attempt < RETRY_DELAYS_MS.length && !worker.isShutdown()) {
+                worker.schedule(() -> attempt(receipt, target, attempt + 1, result),
+                    RETRY_DELAYS_MS[attempt], TimeUnit.MILLISECONDS);
+            } else if (target != FALLBACK) {
+                attempt(receipt, FALLBACK, RETRY_DELAYS_MS.length, result);
+            } else {
+                finish(result, null, e);
+            }
+        }
+    }
+
+    private static FlightEvents.Receipt receiptEvent(Receipt receipt, String step, ReceiptSink target) {
+        FlightEvents.Receipt event = new FlightEvents.Receipt();
+        event.orderId = receipt.getOrderId();
+        event.step = step;
+        event.sink = target.describe();
+        event.begin();
+        return event;
+    }
+
+    private void finish(CompletableFuture<ReceiptSink> result, ReceiptSink deliveredTo, Exception error) {
+        pending.decrementAndGet();
+        if (error == null) {
+            result.complete(deliveredTo);
+        } else {
+            result.completeExceptionally(error);
+        }
+    }
+
+    public ReceiptSink getSink() {
+        return sink;
+    }
+
+    // Receipts submitted after this go to the new sink
+    public void setSink(ReceiptSink sink) {
+        this.sink = sink;
+    }
+
+    // Receipts queued or waiting for a retry
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    public static boolean isFallback(ReceiptSink sink) {
+        return sink == FALLBACK;
+    }
+
+    // Lets queued receipts finish (up to the timeout) when the app closes
+    public void shutdown(long timeout, TimeUnit unit) {
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(timeout, unit)) {
+                System.err.println(pending.get() + " receipt(s) still pending at shutdown");
+                worker.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            worker.shutdownNow();
+        }
+    }
+}
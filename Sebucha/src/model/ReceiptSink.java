@@ -0,0 +1,17 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/*
+ * Where rendered receipts go. Called from the receipt pipeline's worker thread,
+ * never from the FX thread; the buffer holds the UTF-8 text of one receipt and
+ * is only valid for the duration of the call.
+ */
+public interface ReceiptSink {
+
+    void deliver(Receipt receipt, ByteBuffer rendered) throws IOException;
+
+    // Short description for logs and alerts, e.g. "spool directory receipts"
+    String describe();
+}
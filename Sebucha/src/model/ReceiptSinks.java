@@ -0,0 +1,222 @@
+package model;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Built-in receipt sinks, chosen with a "kind:target" spec, e.g.
+ *   spool:receipts          one Receipt_<id>.txt per order in a directory (default)
+ *   file:receipts.log       every receipt appended to one file
+ *   escpos:/dev/usb/lp0     ESC/POS to a thermal printer's device file
+ *   escpos-tcp:host:9100    ESC/POS to a network printer's raw port
+ *   pdf:receipts            one 80 mm Receipt_<id>.pdf per order
+ * The spec comes from the sebucha.receipt.sink system property and the thermal
+ * paper width (58 or 80 mm) from sebucha.receipt.paper.
+ */
+public class ReceiptSinks {
+
+    public static final String SINK_PROPERTY = "sebucha.receipt.sink";
+    public static final String PAPER_PROPERTY = "sebucha.receipt.paper";
+    public static final String DEFAULT_SPEC = "spool:receipts";
+
+    private static final float PDF_FONT_SIZE = 6.5f;
+    private static final float PDF_LEADING = 8f;
+    private static final float PDF_MARGIN = 10f;
+    private static volatile BaseFont pdfFont;
+
+    // Sink configured for this run
+    public static ReceiptSink configured() {
+        return fromSpec(System.getProperty(SINK_PROPERTY, DEFAULT_SPEC));
+    }
+
+    public static ReceiptSink fromSpec(String spec) {
+        int colon = spec.indexOf(':');
+        if (colon <= 0 || colon == spec.length() - 1) {
+            throw new IllegalArgumentException("Receipt sink must look like kind:target, got \"" + spec + "\"");
+        }
+        String kind = spec.substring(0, colon).trim().toLowerCase();
+        String value = spec.substring(colon + 1).trim();
+        if (kind.equals("escpos-tcp")) {
+            int portColon = value.lastIndexOf(':');
+            if (portColon < 0) {
+                return EscPosReceiptSink.tcp(value, EscPosReceiptSink.DEFAULT_PORT, paperEncoder());
+            }
+            try {
+                int port = Integer.parseInt(value.substring(portColon + 1));
+                return EscPosReceiptSink.tcp(value.substring(0, portColon), port, paperEncoder());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid printer port in \"" + spec + "\"");
+            }
+        }
+        Path target = Paths.get(value);
+        switch (kind) {
+            case "spool":
+                return spool(target);
+            case "file":
+                return appendTo(target);
+            case "escpos":
+                return EscPosReceiptSink.device(target, paperEncoder());
+            case "pdf":
+                return pdf(target);
+            default:
+                throw new IllegalArgumentException("Unknown receipt sink \"" + kind + "\"");
+        }
+    }
+
+    // One text file per receipt; written to a temp file and moved into place so readers never see half a receipt
+    public static ReceiptSink spool(Path directory) {
+        return new ReceiptSink() {
+            @Override
+            public void deliver(Receipt receipt, ByteBuffer rendered) throws IOException {
+                Files.createDirectories(directory);
+                Path target = directory.resolve(fileName(receipt, "txt"));
+                Path temp = directory.resolve(target.getFileName() + ".tmp");
+                try (FileChannel channel = FileChannel.open(temp,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    writeFully(channel, rendered);
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            @Override
+            public String describe() {
+                return "spool directory " + directory;
+            }
+        };
+    }
+
+    // Every receipt appended to a single file
+    public static ReceiptSink appendTo(Path file) {
+        return new ReceiptSink() {
+            @Override
+            public void deliver(Receipt receipt, ByteBuffer rendered) throws IOException {
+                Path parent = file.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                try (FileChannel channel = FileChannel.open(file,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+                    writeFully(channel, rendered);
+                    writeFully(channel, ByteBuffer.wrap(new byte[] {'\n'}));
+                }
+            }
+
+            @Override
+            public String describe() {
+                return "file " + file;
+            }
+        };
+    }
+
+    // 80 mm wide PDF per receipt, set in Courier so the text columns line up
+    public static ReceiptSink pdf(Path directory) {
+        return new ReceiptSink() {
+            @Override
+            public void deliver(Receipt receipt, ByteBuffer rendered) throws IOException {
+                Files.createDirectories(directory);
+                String text = StandardCharsets.UTF_8.decode(rendered).toString();
+
+                writeTextPdf(text, directory.resolve(fileName(receipt, "pdf")));
+            }
+
+            @Override
+            public String describe() {
+                return "PDF directory " + directory;
+            }
+        };
+    }
+
+    // Any receipt-width text (e.g. a shift report) as a single 80 mm PDF page
+    public static void writeTextPdf(String text, Path target) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Document document = new Document(pdfPageSize(text));
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temp))) {
+            PdfWriter writer = PdfWriter.getInstance(document, output);
+            document.open();
+            drawPdfPage(writer, text);
+            document.close();
+        } catch (DocumentException e) {
+            throw new IOException("Could not write PDF " + target.getFileName() + ": " + e.getMessage(), e);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // 80 mm = 226.8 pt wide; tall enough for every line of the receipt
+    static Rectangle pdfPageSize(String text) {
+        int lines = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return new Rectangle(226.8f, 2 * PDF_MARGIN + lines * PDF_LEADING);
+    }
+
+    /*
+     * Writes the receipt text line by line straight onto the current page. Much
+     * faster than laying it out as a Paragraph, which matters for archives with
+     * thousands of pages. The standard Courier font has no peso sign, so it prints as "P".
+     */
+    static void drawPdfPage(PdfWriter writer, String text) throws DocumentException {
+        PdfContentByte canvas = writer.getDirectContent();
+        Rectangle page = writer.getPageSize();
+        canvas.beginText();
+        canvas.setFontAndSize(pdfFont(), PDF_FONT_SIZE);
+        canvas.setLeading(PDF_LEADING);
+        canvas.setTextMatrix(PDF_MARGIN, page.getHeight() - PDF_MARGIN - PDF_LEADING);
+        int start = 0;
+        while (start <= text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                end = text.length();
+            }
+            if (end > start) {
+                canvas.showText(text.substring(start, end).replace('₱', 'P'));
+            }
+            canvas.newlineText();
+            start = end + 1;
+        }
+        canvas.endText();
+    }
+
+    private static BaseFont pdfFont() throws DocumentException {
+        if (pdfFont == null) {
+            try {
+                pdfFont = BaseFont.createFont(BaseFont.COURIER, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
+            } catch (IOException e) {
+                throw new DocumentException(e);
+            }
+        }
+        return pdfFont;
+    }
+
+    private static EscPosReceiptEncoder paperEncoder() {
+        return EscPosReceiptEncoder.forPaperWidth(Integer.getInteger(PAPER_PROPERTY, 80));
+    }
+
+    static String fileName(Receipt receipt, String extension) {
+        return "Receipt_" + receipt.getOrderId().replaceAll("[^A-Za-z0-9_-]", "_") + "." + extension;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+
+/*
+ * Plain-text receipt layout, compiled once. The shop header and the footer are
+ * laid out and encoded to bytes up front; per receipt only the order lines are
+ * built, with hand-rolled padding instead of String.format, into a reused
+ * StringBuilder and then encoded into the caller's ByteBuffer.
+ * Not thread-safe: each render thread needs its own template.
+ */
+public class ReceiptTemplate {
+
+    public static final String CAFE_NAME = "Sebu Cha";
+    public static final String CAFE_ADDRESS_LINE1 = "#46 Veterans Avenue, Brgy. Alegria";
+    public static final String CAFE_ADDRESS_LINE2 = "Ormoc City 6541, Leyte";
+    public static final String CAFE_PHONE = "Phone: 0968 657 4763";
+
+    // Characters per line on the standard 80 mm layout
+    public static final int DEFAULT_WIDTH = 47;
+
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm:ss");
+
+    private final int width;
+    private final int nameWidth;
+    private final String rule;
+    private final String thinRule;
+    private final byte[] header;
+    private final byte[] itemsHeader;
+    private final byte[] footer;
+    private final StringBuilder line = new StringBuilder(1024);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    public ReceiptTemplate() {
+        this(DEFAULT_WIDTH);
+    }
+
+    public ReceiptTemplate(int width) {
+        this.width = width;
+        // Item | Qty(5) | Price(9) | Total(10), separated by spaces
+        this.nameWidth = width - 27;
+        this.rule = repeat('=', width);
+        this.thinRule = repeat('-', width);
+
+        StringBuilder text = new StringBuilder();
+        text.append(rule).append('\n')
+            .append(center(CAFE_NAME)).append('\n')
+            .append(rule).append('\n')
+            .append(center(CAFE_ADDRESS_LINE1)).append('\n')
+            .append(center(CAFE_ADDRESS_LINE2)).append('\n')
+            .append(center(CAFE_PHONE)).append('\n')
+            .append(rule).append('\n')
+            .append(center("SALES INVOICE")).append('\n')
+            .append(rule).append("\n\n");
+        this.header = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        text.setLength(0);
+        text.append(rule).append('\n')
+            .append(center("ITEMS")).append('\n')
+            .append(rule).append('\n');
+        padRight(text, "Item", nameWidth).append(' ');
+        padLeft(text, "Qty", 5).append(' ');
+        padLeft(text, "Price", 9).append(' ');
+        padLeft(text, "Total", 10).append('\n');
+        text.append(thinRule).append('\n');
+        this.itemsHeader = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        text.setLength(0);
+        text.append(center("Thank you for your purchase!")).append('\n')
+            .append(center("Please visit us again!")).append("\n\n")
+            .append(rule).append('\n');
+        this.footer = text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /*
+     * Renders the receipt into the buffer (cleared first) and flips it for reading.
+     * Returns the buffer, or a larger replacement if the receipt did not fit.
+     */
+    public ByteBuffer render(Receipt receipt, ByteBuffer buffer) {
+        while (true) {
+            buffer.clear();
+            if (tryRender(receipt, buffer)) {
+                buffer.flip();
+                return buffer;
+            }
+            buffer = buffer.isDirect()
+                ? ByteBuffer.allocateDirect(buffer.capacity() * 2)
+                : ByteBuffer.allocate(buffer.capacity() * 2);
+        }
+    }
+
+    private boolean tryRender(Receipt receipt, ByteBuffer out) {
+        if (!put(out, header)) {
+            return false;
+        }
+
+        line.setLength(0);
+        line.append("Order ID: ").append(receipt.getOrderId()).append('\n')
+            .append("Order Type: ").append(receipt.getOrderType()).append('\n')
+            .append("Payment Method: ").append(receipt.getPaymentMethod()).append('\n')
+            .append("Date & Time: ").append(receipt.getIssuedAt().format(DATE_TIME_FORMAT)).append("\n\n");
+        if (!encode(line, out) || !put(out, itemsHeader)) {
+            return false;
+        }
+
+        line.setLength(0);
+        for (OrderItem item : receipt.getItems()) {
+            padRight(line, truncate(item.getProductName(), nameWidth), nameWidth).append(' ');
+            padLeft(line, Integer.toString(item.getQuantity()), 5).append(' ');
+            appendAmount(line, item.getUnitPrice(), 9).append(' ');
+            appendAmount(line, item.getTotalPrice(), 10).append('\n');
+        }
+        line.append(thinRule).append('\n');
+        padLeft(line, "Subtotal: ₱", width - 12).append(' ');
+        appendAmount(line, receipt.getSubtotal(), 10).append('\n');
+        line.append(rule).append('\n');
+        padLeft(line, "TOTAL: ₱", width - 12).append(' ');
+        appendAmount(line, receipt.getTotalAmount(), 10).append('\n');
+        line.append(rule).append("\n\n");
+        if (!encode(line, out)) {
+            return false;
+        }
+
+        return put(out, footer);
+    }
+
+    private static boolean put(ByteBuffer out, byte[] bytes) {
+        if (out.remaining() < bytes.length) {
+            return false;
+        }
+        out.put(bytes);
+        return true;
+    }
+
+    private boolean encode(CharSequence text, ByteBuffer out) {
+        encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(text), out, true);
+        return !result.isOverflow();
+    }
+
+    private String center(String text) {
+        int padding = (width - text.length()) / 2;
+        return repeat(' ', Math.max(0, padding)) + text;
+    }
+
+    // Fixed two decimals, right aligned, without String.format
+    static StringBuilder appendAmount(StringBuilder out, double amount, int fieldWidth) {
+        long cents = Math.round(Math.abs(amount) * 100);
+        int start = out.length();
+        if (amount < 0 && cents != 0) {
+            out.append('-');
+        }
+        out.append(cents / 100).append('.');
+        long fraction = cents % 100;
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+        int length = out.length() - start;
+        if (length < fieldWidth) {
+            out.insert(start, repeat(' ', fieldWidth - length));
+        }
+        return out;
+    }
+
+    static StringBuilder padRight(StringBuilder out, String text, int fieldWidth) {
+        out.append(text);
+        for (int i = text.length(); i < fieldWidth; i++) {
+            out.append(' ');
+        }
+        return out;
+    }
+
+    static StringBuilder padLeft(StringBuilder out, String text, int fieldWidth) {
+        for (int i = text.length(); i < fieldWidth; i++) {
+            out.append(' ');
+        }
+        return out.append(text);
+    }
+
+    static String truncate(String text, int maxLength) {
+        if (text == null) {
+            return "";
+        }
+        if (text.length() <= maxLength) {
+            return text;
+        }
+        return text.substring(0, maxLength - 3) + "...";
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder out = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            out.append(c);
+        }
+        return out.toString();
+    }
+}
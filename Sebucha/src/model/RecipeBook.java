@@ -0,0 +1,541 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/*
+ * What products and add-ons are made of. A recipe is a few lines of
+ * ingredient and quantity per unit sold (18 g of tea, 1 cup, ...); ingredients
+ * keep their own stock in whatever unit they are counted in.
+ *
+ * For a product with a recipe, products.stock is how many can be made from the
+ * ingredients on hand (the smallest stock / quantity over its lines). It is
+ * kept current in the transaction that moves ingredient stock, and only for
+ * the products using an ingredient that moved, so the order page, the API and
+ * StockForecast keep reading products.stock as before. Products without a
+ * recipe keep their own stock count.
+ *
+ * The recipe map and its reverse (ingredient -> products using it) are loaded
+ * once and reused until a recipe or ingredient changes (DataVersions.RECIPES),
+ * on this machine or, through the order server, on another terminal.
+ * Terminals send their ingredient and recipe changes to the order server,
+ * which makes them under the same write lock as orders.
+ */
+public class RecipeBook {
+
+    private static final String CREATE_INGREDIENTS =
+        "CREATE TABLE IF NOT EXISTS ingredients (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "name TEXT NOT NULL UNIQUE, " +
+        "unit TEXT NOT NULL, " +
+        "stock REAL NOT NULL DEFAULT 0)";
+
+    private static final String CREATE_RECIPE_LINES =
+        "CREATE TABLE IF NOT EXISTS recipe_lines (" +
+        "product_id INTEGER NOT NULL, " +
+        "ingredient_id INTEGER NOT NULL, " +
+        "quantity REAL NOT NULL, " +
+        "PRIMARY KEY (product_id, ingredient_id), " +
+        "FOREIGN KEY (product_id) REFERENCES products(id), " +
+        "FOREIGN KEY (ingredient_id) REFERENCES ingredients(id))";
+
+    private static final String CREATE_RECIPE_INDEX =
+        "CREATE INDEX IF NOT EXISTS idx_recipe_lines_ingredient ON recipe_lines(ingredient_id)";
+
+    private static final String SELECT_RECIPES = "SELECT product_id, ingredient_id, quantity FROM recipe_lines";
+
+    private static final String SELECT_INGREDIENTS = "SELECT id, name, unit, stock FROM ingredients ORDER BY name";
+
+    private static final String SELECT_INGREDIENT_STOCK = "SELECT id, stock FROM ingredients WHERE id IN ";
+
+    private static final String SELECT_PRODUCT_STOCK = "SELECT id, stock FROM products WHERE id IN ";
+
+    private static final String INSERT_INGREDIENT = "INSERT INTO ingredients (name, unit, stock) VALUES (?, ?, ?)";
+
+    private static final String MOVE_INGREDIENT = "UPDATE ingredients SET stock = stock + ? WHERE id = ?";
+
+    // An order's draw (a negative amount) that leaves the row alone if it would go below zero
+    private static final String USE_INGREDIENT = "UPDATE ingredients SET stock = stock + ? WHERE id = ? AND stock + ? >= ?";
+
+    private static final String SELECT_INGREDIENT_NAME = "SELECT name FROM ingredients WHERE id = ?";
+
+    private static final String DELETE_RECIPE = "DELETE FROM recipe_lines WHERE product_id = ?";
+
+    private static final String INSERT_RECIPE_LINE =
+        "INSERT INTO recipe_lines (product_id, ingredient_id, quantity) VALUES (?, ?, ?)";
+
+    private static final String SET_STOCK = "UPDATE products SET stock = ? WHERE id = ?";
+
+    // Ingredient stock is fractional; this keeps 0.30 - 0.10 - 0.20 from making one unit fewer
+    private static final double EPSILON = 1e-6;
+
+    private static RecipeBook instance;
+
+    private volatile Recipes cached;
+    private volatile boolean schemaReady;
+
+    private RecipeBook() {
+    }
+
+    public static synchronized RecipeBook getInstance() {
+        if (instance == null) {
+            instance = new RecipeBook();
+        }
+        return instance;
+    }
+
+    /*
+     * The recipe map, rebuilt only when recipes changed since it was loaded.
+     * Callers that write in a transaction fetch it before starting one.
+     */
+    public Recipes recipes() throws SQLException {
+        Recipes recipes = cached;
+        long version = DataVersions.getRecipesVersion();
+        if (recipes != null && recipes.version == version) {
+            return recipes;
+        }
+        synchronized (this) {
+            recipes = cached;
+            if (recipes != null && recipes.version == version) {
+                return recipes;
+            }
+            long started = System.nanoTime();
+            Map<Integer, Map<Integer, Double>> byProduct = new HashMap<>();
+            try (Connection connection = connect()) {
+                ensureSchema(connection);
+                try (PreparedStatement statement = connection.prepareStatement(SELECT_RECIPES);
+                     ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        byProduct.computeIfAbsent(resultSet.getInt("product_id"), id -> new HashMap<>())
+                            .put(resultSet.getInt("ingredient_id"), resultSet.getDouble("quantity"));
+                    }
+                }
+            }
+            recipes = new Recipes(version, byProduct);
+            cached = recipes;
+            Metrics.recordSince("recipes_load", started);
+            return recipes;
+        }
+    }
+
+    // False as well when the recipes can't be read; the product then shows its own stock
+    public boolean hasRecipe(int productId) {
+        try {
+            return recipes().hasRecipe(productId);
+        } catch (SQLException e) {
+            System.err.println("Could not load recipes: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /*
+     * Moves ingredient stock by the given amounts (negative to use them up) in
+     * the caller's transaction, then recounts what the products using them can
+     * make. Returns the products whose stock changed.
+     */
+    static Set<Integer> moveIngredients(Connection connection, Recipes recipes, Map<Integer, Double> amounts)
+            throws SQLException {
+        if (amounts.isEmpty()) {
+            return Collections.emptySet();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(MOVE_INGREDIENT)) {
+            for (Map.Entry<Integer, Double> amount : amounts.entrySet()) {
+                statement.setDouble(1, amount.getValue());
+                statement.setInt(2, amount.getKey());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        Set<Integer> products = new TreeSet<>();
+        for (Integer ingredient : amounts.keySet()) {
+            products.addAll(recipes.usedBy(ingredient));
+        }
+        return recount(connection, recipes, products);
+    }
+
+    /*
+     * moveIngredients for an order: every amount is a draw, and one that would
+     * take an ingredient below zero throws OutOfStockException, so the caller
+     * rolls the order back.
+     */
+    static Set<Integer> useIngredients(Connection connection, Recipes recipes, Map<Integer, Double> amounts)
+            throws SQLException {
+        if (amounts.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<Integer> ids = new ArrayList<>(amounts.keySet());
+        int[] counts;
+        try (PreparedStatement statement = connection.prepareStatement(USE_INGREDIENT)) {
+            for (Integer id : ids) {
+                statement.setDouble(1, amounts.get(id));
+                statement.setInt(2, id);
+                statement.setDouble(3, amounts.get(id));
+                statement.setDouble(4, -EPSILON);
+                statement.addBatch();
+            }
+            counts = statement.executeBatch();
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                throw new OutOfStockException("Not enough " + ingredientName(connection, ids.get(i)) + " left for this order");
+            }
+        }
+        Set<Integer> products = new TreeSet<>();
+        for (Integer ingredient : ids) {
+            products.addAll(recipes.usedBy(ingredient));
+        }
+        return recount(connection, recipes, products);
+    }
+
+    private static String ingredientName(Connection connection, int ingredientId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_INGREDIENT_NAME)) {
+            statement.setInt(1, ingredientId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString("name") : "ingredient " + ingredientId;
+            }
+        }
+    }
+
+    /*
+     * Sets products.stock of the given products to what their recipes can make
+     * from the ingredient stock as it is in this transaction. Products without a
+     * recipe are left alone. Returns the ones that changed.
+     */
+    static Set<Integer> recount(Connection connection, Recipes recipes, Collection<Integer> productIds) throws SQLException {
+        Set<Integer> ingredients = new TreeSet<>();
+        List<Integer> withRecipe = new ArrayList<>();
+        for (Integer product : productIds) {
+            if (recipes.hasRecipe(product)) {
+                withRecipe.add(product);
+                ingredients.addAll(recipes.recipeOf(product).keySet());
+            }
+        }
+        if (withRecipe.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Map<Integer, Double> onHand = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_INGREDIENT_STOCK + placeholders(ingredients.size()))) {
+            bindIds(statement, ingredients);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    onHand.put(resultSet.getInt("id"), resultSet.getDouble("stock"));
+                }
+            }
+        }
+        Map<Integer, Integer> current = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_PRODUCT_STOCK + placeholders(withRecipe.size()))) {
+            bindIds(statement, withRecipe);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    current.put(resultSet.getInt("id"), resultSet.getInt("stock"));
+                }
+            }
+        }
+
+        Set<Integer> changed = new TreeSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(SET_STOCK)) {
+            for (Integer product : withRecipe) {
+                Integer stock = current.get(product);
+                int makeable = makeable(recipes.recipeOf(product), onHand);
+                // Deleted products have nothing to update
+                if (stock != null && stock != makeable) {
+                    statement.setInt(1, makeable);
+                    statement.setInt(2, product);
+                    statement.addBatch();
+                    changed.add(product);
+                }
+            }
+            if (!changed.isEmpty()) {
+                statement.executeBatch();
+            }
+        }
+        return changed;
+    }
+
+    // Units of a recipe the ingredients on hand cover; a missing ingredient covers none
+    static int makeable(Map<Integer, Double> recipe, Map<Integer, Double> onHand) {
+        long units = Integer.MAX_VALUE;
+        for (Map.Entry<Integer, Double> line : recipe.entrySet()) {
+            if (line.getValue() <= 0) {
+                continue;
+            }
+            double stock = onHand.getOrDefault(line.getKey(), 0.0);
+            units = Math.min(units, (long) Math.floor(stock / line.getValue() + EPSILON));
+        }
+        return units == Integer.MAX_VALUE ? 0 : (int) Math.max(0, units);
+    }
+
+    public List<Ingredient> ingredients() throws SQLException {
+        List<Ingredient> ingredients = new ArrayList<>();
+        try (Connection connection = connect()) {
+            ensureSchema(connection);
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_INGREDIENTS);
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ingredients.add(new Ingredient(resultSet.getInt("id"), resultSet.getString("name"),
+                        resultSet.getString("unit"), resultSet.getDouble("stock")));
+                }
+            }
+        }
+        return ingredients;
+    }
+
+    public void addIngredient(String name, String unit, double stock) throws SQLException {
+        if (OrderServerClient.isConfigured()) {
+            OrderServerClient.getInstance().addIngredient(name, unit, stock);
+            DataVersions.recipesChanged();
+            return;
+        }
+        LocalOrderService writes = LocalOrderService.getInstance();
+        writes.lockWrites();
+        try (Connection connection = connect()) {
+            ensureSchema(connection);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_INGREDIENT)) {
+                statement.setString(1, name);
+                statement.setString(2, unit);
+                statement.setDouble(3, stock);
+                statement.executeUpdate();
+            }
+        } finally {
+            writes.unlockWrites();
+        }
+        DataVersions.recipesChanged();
+    }
+
+    // A delivery (positive) or a count correction / waste (negative); recounts the products using it
+    public void receive(int ingredientId, double amount) throws SQLException {
+        if (OrderServerClient.isConfigured()) {
+            OrderServerClient.getInstance().receiveIngredient(ingredientId, amount);
+            finishedOnServer();
+            return;
+        }
+        Recipes recipes = recipes();
+        Set<Integer> changed;
+        LocalOrderService writes = LocalOrderService.getInstance();
+        writes.lockWrites();
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            try {
+                Map<Integer, Double> amounts = new HashMap<>();
+                amounts.put(ingredientId, amount);
+                changed = moveIngredients(connection, recipes, amounts);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            writes.unlockWrites();
+        }
+        finish(changed);
+    }
+
+    // Lines of one product's recipe, ingredient id -> quantity per unit sold
+    public Map<Integer, Double> recipeOf(int productId) throws SQLException {
+        return new TreeMap<>(recipes().recipeOf(productId));
+    }
+
+    /*
+     * Replaces a product's recipe and recounts its stock from the ingredients.
+     * An empty recipe turns the product back into one with its own stock count.
+     */
+    public void saveRecipe(int productId, Map<Integer, Double> lines) throws SQLException {
+        if (OrderServerClient.isConfigured()) {
+            OrderServerClient.getInstance().saveRecipe(productId, lines);
+            finishedOnServer();
+            return;
+        }
+        Set<Integer> changed;
+        LocalOrderService writes = LocalOrderService.getInstance();
+        writes.lockWrites();
+        try (Connection connection = connect()) {
+            ensureSchema(connection);
+            connection.setAutoCommit(false);
+            try {
+                try (PreparedStatement statement = connection.prepareStatement(DELETE_RECIPE)) {
+                    statement.setInt(1, productId);
+                    statement.executeUpdate();
+                }
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_RECIPE_LINE)) {
+                    for (Map.Entry<Integer, Double> line : lines.entrySet()) {
+                        statement.setInt(1, productId);
+                        statement.setInt(2, line.getKey());
+                        statement.setDouble(3, line.getValue());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+                Map<Integer, Map<Integer, Double>> one = new HashMap<>();
+                one.put(productId, new HashMap<>(lines));
+                changed = recount(connection, new Recipes(-1, one), Collections.singleton(productId));
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            writes.unlockWrites();
+        }
+        finish(changed);
+    }
+
+    // Recipes changed everywhere; products whose stock moved as well
+    private static void finish(Set<Integer> changedProducts) {
+        DataVersions.recipesChanged();
+        if (!changedProducts.isEmpty()) {
+            StockForecast.stockChanged(changedProducts);
+            DataVersions.productsChanged();
+        }
+    }
+
+    // The server recounted the products; this terminal doesn't know which, so its pages reload both
+    private static void finishedOnServer() {
+        DataVersions.recipesChanged();
+        DataVersions.productsChanged();
+    }
+
+    // The order server creates these for its terminals when it starts
+    private void ensureSchema(Connection connection) throws SQLException {
+        if (schemaReady || OrderServerClient.isConfigured()) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_INGREDIENTS);
+            statement.execute(CREATE_RECIPE_LINES);
+            statement.execute(CREATE_RECIPE_INDEX);
+        }
+        schemaReady = true;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sql = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    private static void bindIds(PreparedStatement statement, Collection<Integer> ids) throws SQLException {
+        int index = 1;
+        for (Integer id : ids) {
+            statement.setInt(index++, id);
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        Connection connection = SqliteConnection.Connector();
+        if (connection == null) {
+            throw new SQLException("Could not connect to database");
+        }
+        return connection;
+    }
+
+    /*
+     * One loaded copy of every recipe with its reverse index. Never changed
+     * after it is built, so order threads share it without locking.
+     */
+    public static final class Recipes {
+        private final long version;
+        private final Map<Integer, Map<Integer, Double>> byProduct;
+        private final Map<Integer, Set<Integer>> byIngredient = new HashMap<>();
+
+        Recipes(long version, Map<Integer, Map<Integer, Double>> byProduct) {
+            this.version = version;
+            this.byProduct = byProduct;
+            for (Map.Entry<Integer, Map<Integer, Double>> recipe : byProduct.entrySet()) {
+                for (Integer ingredient : recipe.getValue().keySet()) {
+                    byIngredient.computeIfAbsent(ingredient, id -> new HashSet<>()).add(recipe.getKey());
+                }
+            }
+        }
+
+        public boolean hasRecipe(int productId) {
+            Map<Integer, Double> recipe = byProduct.get(productId);
+            return recipe != null && !recipe.isEmpty();
+        }
+
+        Map<Integer, Double> recipeOf(int productId) {
+            Map<Integer, Double> recipe = byProduct.get(productId);
+            return recipe == null ? Collections.emptyMap() : recipe;
+        }
+
+        Set<Integer> usedBy(int ingredientId) {
+            Set<Integer> products = byIngredient.get(ingredientId);
+            return products == null ? Collections.emptySet() : products;
+        }
+
+        /*
+         * Splits units sold per product into the ingredients they use (for products
+         * with a recipe, as negative amounts) and the units taken from products
+         * that keep their own stock, which are left in ownStock.
+         */
+        Map<Integer, Double> expand(Map<Integer, Integer> units, Map<Integer, Integer> ownStock) {
+            Map<Integer, Double> used = new TreeMap<>();
+            for (Map.Entry<Integer, Integer> sold : units.entrySet()) {
+                Map<Integer, Double> recipe = byProduct.get(sold.getKey());
+                if (recipe == null || recipe.isEmpty()) {
+                    ownStock.merge(sold.getKey(), sold.getValue(), Integer::sum);
+                    continue;
+                }
+                for (Map.Entry<Integer, Double> line : recipe.entrySet()) {
+                    used.merge(line.getKey(), -line.getValue() * sold.getValue(), Double::sum);
+                }
+            }
+            return used;
+        }
+    }
+
+    // A stocked ingredient, as the Ingredients window lists it
+    public static final class Ingredient {
+        private final int id;
+        private final String name;
+        private final String unit;
+        private final double stock;
+
+        Ingredient(int id, String name, String unit, double stock) {
+            this.id = id;
+            this.name = name;
+            this.unit = unit;
+            this.stock = stock;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+
+        public double getStock() {
+            return stock;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + unit + ")";
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package model;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/*
+ * JDBC on a thin terminal: a read-only Connection whose queries run on the
+ * OrderServer. Only what the pages read with is supported (prepared and plain
+ * statements, forward-only result sets); anything else throws
+ * SQLFeatureNotSupportedException. Writes and transactions throw an
+ * SQLException: a terminal changes data through the model classes, which send
+ * each change to the server as one request (see OrderServerClient).
+ *
+ * Closing the connection tells the server without waiting for an answer.
+ * Result rows arrive in chunks while the page is still reading the first ones.
+ */
+final class RemoteConnection implements InvocationHandler {
+
+    private static final Pattern RETURNS_ROWS =
+        Pattern.compile("(?is)^\\s*(SELECT|WITH|VALUES)\\b.*");
+
+    private final OrderServerClient client;
+    private final int session;
+    private Connection handle;
+    private boolean closed;
+
+    private RemoteConnection(OrderServerClient client, int session) {
+        this.client = client;
+        this.session = session;
+    }
+
+    static Connection open(OrderServerClient client, int session) {
+        RemoteConnection connection = new RemoteConnection(client, session);
+        connection.handle = proxy(Connection.class, connection);
+        return connection.handle;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                if (!closed) {
+                    closed = true;
+                    // Nothing to wait for; the server only forgets the session
+                    client.send(ServerProtocol.OP_END_SESSION, session, null).abandon();
+                }
+                return null;
+            case "isClosed":
+                return closed;
+            case "isValid":
+                return !closed && client.ping();
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "RemoteConnection[" + client.getAddress() + " session " + session + "]";
+            case "unwrap":
+                throw new SQLException("Not a wrapper");
+            case "isWrapperFor":
+                return false;
+            default:
+                break;
+        }
+
+        if (closed) {
+            throw new SQLException("Connection is closed");
+        }
+
+        switch (method.getName()) {
+            case "prepareStatement":
+                if (args.length == 2 && args[1] instanceof Integer && (Integer) args[1] == Statement.RETURN_GENERATED_KEYS) {
+                    throw readOnly();
+                }
+                return proxy(PreparedStatement.class, new RemoteStatement((String) args[0]));
+            case "createStatement":
+                return proxy(PreparedStatement.class, new RemoteStatement(null));
+            case "getAutoCommit":
+            case "isReadOnly":
+                return true;
+            case "setAutoCommit":
+                if (!(Boolean) args[0]) {
+                    throw readOnly();
+                }
+                return null;
+            case "setReadOnly":
+                return null;
+            case "commit":
+            case "rollback":
+                throw readOnly();
+            case "clearWarnings":
+                return null;
+            case "getWarnings":
+                return null;
+            default:
+                throw new SQLFeatureNotSupportedException("Connection." + method.getName() + " is not supported on a terminal");
+        }
+    }
+
+    private static SQLException readOnly() {
+        return new SQLException("A terminal only reads through SQL; changes go to the order server as requests of their own");
+    }
+
+    private static boolean returnsRows(String sql) {
+        return RETURNS_ROWS.matcher(sql).matches();
+    }
+
+    // PreparedStatement (or plain Statement when sql is null) whose parameters are collected locally
+    private final class RemoteStatement implements InvocationHandler {
+        private final String sql;
+        private final List<Object> params = new ArrayList<>();
+        private ResultSet current;
+        private boolean statementClosed;
+
+        RemoteStatement(String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    closeCurrent();
+                    statementClosed = true;
+                    return null;
+                case "isClosed":
+                    return statementClosed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "RemoteStatement[" + sql + "]";
+                default:
+                    break;
+            }
+            if (statementClosed) {
+                throw new SQLException("Statement is closed");
+            }
+
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                Object value = name.equals("setNull") ? null : args[1];
+                setParam((Integer) args[0], value);
+                return null;
+            }
+
+            switch (name) {
+                case "clearParameters":
+                    params.clear();
+                    return null;
+                case "executeQuery":
+                    closeCurrent();
+                    current = query(statementSql(args), params);
+                    return current;
+                case "execute": {
+                    closeCurrent();
+                    String text = statementSql(args);
+                    if (!returnsRows(text)) {
+                        throw readOnly();
+                    }
+                    current = query(text, params);
+                    return true;
+                }
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "addBatch":
+                case "executeBatch":
+                case "executeLargeBatch":
+                    throw readOnly();
+                case "clearBatch":
+                    return null;
+                case "getResultSet":
+                    return current;
+                case "getUpdateCount":
+                    return -1;
+                case "getConnection":
+                    return handle;
+                case "setFetchSize":
+                case "setQueryTimeout":
+                case "setMaxRows":
+                case "setPoolable":
+                case "clearWarnings":
+                    return null;
+                case "getWarnings":
+                    return null;
+                default:
+                    throw new SQLFeatureNotSupportedException("Statement." + name + " is not supported on a terminal");
+            }
+        }
+
+        private void setParam(int index, Object value) {
+            while (params.size() < index) {
+                params.add(null);
+            }
+            params.set(index - 1, value);
+        }
+
+        private String statementSql(Object[] args) throws SQLException {
+            if (args != null && args.length > 0) {
+                return (String) args[0];
+            }
+            if (sql == null) {
+                throw new SQLException("No SQL given");
+            }
+            return sql;
+        }
+
+        private void closeCurrent() throws SQLException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+
+        private ResultSet query(String text, List<Object> values) throws SQLException {
+            List<Object> bound = text == sql ? new ArrayList<>(values) : Collections.emptyList();
+            OrderServerClient.Call call = client.send(ServerProtocol.OP_QUERY, session, out -> {
+                ServerProtocol.writeString(out, text);
+                ServerProtocol.writeParams(out, bound);
+            });
+            OrderServerClient.Reply header = call.next();
+            try {
+                DataInputStream in = header.payload();
+                String[] columns = new String[in.readInt()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = ServerProtocol.readString(in);
+                }
+                return proxy(ResultSet.class, new RemoteResultSet(columns, Collections.emptyList(), call));
+            } catch (IOException e) {
+                call.abandon();
+                throw new SQLException("Bad reply from order server", e);
+            }
+        }
+    }
+
+    /*
+     * Forward-only rows; more chunks are read from the call as the buffered ones
+     * run out. Getters convert the way the SQLite driver does.
+     */
+    private static final class RemoteResultSet implements InvocationHandler {
+        private final String[] columns;
+        private final Deque<Object[]> buffered;
+        private OrderServerClient.Call call;
+        private Object[] row;
+        private boolean lastWasNull;
+        private boolean resultClosed;
+
+        RemoteResultSet(String[] columns, List<Object[]> rows, OrderServerClient.Call call) {
+            this.columns = columns;
+            this.buffered = new ArrayDeque<>(rows);
+            this.call = call;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!resultClosed) {
+                        resultClosed = true;
+                        if (call != null) {
+                            call.abandon();
+                            call = null;
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return resultClosed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "RemoteResultSet" + java.util.Arrays.toString(columns);
+                default:
+                    break;
+            }
+            if (resultClosed) {
+                throw new SQLException("ResultSet is closed");
+            }
+
+            switch (name) {
+                case "next":
+                    return next();
+                case "wasNull":
+                    return lastWasNull;
+                case "findColumn":
+                    return findColumn((String) args[0]);
+                case "getMetaData":
+                    return proxy(ResultSetMetaData.class, (p, m, a) -> metaData(m, a));
+                case "getString":
+                    return asString(value(args[0]));
+                case "getInt":
+                    return (int) asLong(value(args[0]));
+                case "getLong":
+                    return asLong(value(args[0]));
+                case "getDouble":
+                    return asDouble(value(args[0]));
+                case "getFloat":
+                    return (float) asDouble(value(args[0]));
+                case "getBoolean":
+                    return asLong(value(args[0])) != 0;
+                case "getBytes": {
+                    Object value = value(args[0]);
+                    return value == null || value instanceof byte[] ? value : asString(value).getBytes(StandardCharsets.UTF_8);
+                }
+                case "getObject": {
+                    Object value = value(args[0]);
+                    if (value instanceof Long && (Long) value == ((Long) value).intValue()) {
+                        return ((Long) value).intValue();
+                    }
+                    return value;
+                }
+                case "setFetchSize":
+                case "clearWarnings":
+                    return null;
+                case "getWarnings":
+                    return null;
+                default:
+                    throw new SQLFeatureNotSupportedException("ResultSet." + name + " is not supported on a terminal");
+            }
+        }
+
+        private boolean next() throws SQLException {
+            while (buffered.isEmpty() && call != null) {
+                OrderServerClient.Reply reply = call.next();
+                try {
+                    DataInputStream in = reply.payload();
+                    int count = in.readInt();
+                    for (int r = 0; r < count; r++) {
+                        Object[] values = new Object[columns.length];
+                        for (int c = 0; c < values.length; c++) {
+                            values[c] = ServerProtocol.readValue(in);
+                        }
+                        buffered.add(values);
+                    }
+                    if (in.readBoolean()) {
+                        call = null;
+                    }
+                } catch (IOException e) {
+                    call.abandon();
+                    call = null;
+                    throw new SQLException("Bad reply from order server", e);
+                }
+            }
+            row = buffered.poll();
+            return row != null;
+        }
+
+        private int findColumn(String label) throws SQLException {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equalsIgnoreCase(label)) {
+                    return i + 1;
+                }
+            }
+            throw new SQLException("No such column '" + label + "'");
+        }
+
+        private Object value(Object column) throws SQLException {
+            if (row == null) {
+                throw new SQLException("No current row");
+            }
+            int index = column instanceof Integer ? (Integer) column : findColumn((String) column);
+            if (index < 1 || index > row.length) {
+                throw new SQLException("Column index out of range: " + index);
+            }
+            Object value = row[index - 1];
+            lastWasNull = value == null;
+            return value;
+        }
+
+        private Object metaData(Method method, Object[] args) throws SQLException {
+            switch (method.getName()) {
+                case "getColumnCount":
+                    return columns.length;
+                case "getColumnLabel":
+                case "getColumnName":
+                    return columns[(Integer) args[0] - 1];
+                default:
+                    throw new SQLFeatureNotSupportedException("ResultSetMetaData." + method.getName() + " is not supported on a terminal");
+            }
+        }
+
+        private static String asString(Object value) {
+            if (value == null) {
+                return null;
+            }
+            if (value instanceof byte[]) {
+                return new String((byte[]) value, StandardCharsets.UTF_8);
+            }
+            return value.toString();
+        }
+
+        private static long asLong(Object value) {
+            if (value == null) {
+                return 0;
+            }
+            if (value instanceof Number) {
+                return ((Number) value).longValue();
+            }
+            return (long) asDouble(value);
+        }
+
+        private static double asDouble(Object value) {
+            if (value == null) {
+                return 0;
+            }
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+            try {
+                return Double.parseDouble(asString(value).trim().toLowerCase(Locale.ROOT));
+            } catch (NumberFormatException e) {
+                return 0; // SQLite reads non-numeric text as 0
+            }
+        }
+    }
+}
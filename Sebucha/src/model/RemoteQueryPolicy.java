@@ -0,0 +1,144 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * What a terminal may read on the order server. Terminals change nothing through
+ * SQL (their writes are ops of their own), so OP_QUERY takes one SELECT, WITH or
+ * VALUES statement and runs it on a query-only connection.
+ *
+ * Which tables it reads is taken from SQLite's own plan rather than from the
+ * text: EXPLAIN lists every b-tree the statement opens, by root page, and each
+ * root page belongs to one table (or to an index of one) in sqlite_master.
+ * Only the tables the pages show are allowed; staff accounts, shift totals and
+ * virtual tables (pragma functions and the like) are refused, however the SQL
+ * spells them. Statements that passed are remembered by their text.
+ */
+final class RemoteQueryPolicy {
+
+    // What the order, inventory, dashboard and recent orders pages read; sqlite_master is the schema
+    private static final Set<String> READABLE_TABLES = Set.of(
+        "products", "orders", "order_items", "order_item_modifiers", "ingredients", "recipe_lines",
+        "reorder_alerts", "stock_velocity", "sqlite_master");
+
+    private static final String SELECT_ROOT_PAGES = "SELECT rootpage, tbl_name FROM sqlite_master WHERE rootpage > 0";
+
+    // Allowed statements kept before the list starts over; pages build a few per IN-list size
+    private static final int MAX_REMEMBERED = 1024;
+
+    private static final Set<String> allowed = ConcurrentHashMap.newKeySet();
+
+    private RemoteQueryPolicy() {
+    }
+
+    // Throws if a terminal may not run the query; reader is the connection it will run on
+    static void check(Connection reader, String sql) throws SQLException {
+        if (sql == null) {
+            throw refused("no SQL given");
+        }
+        if (allowed.contains(sql)) {
+            return;
+        }
+        String code = code(sql);
+        int semicolon = code.indexOf(';');
+        if (semicolon >= 0 && !code.substring(semicolon + 1).replace(";", "").trim().isEmpty()) {
+            throw refused("one statement at a time");
+        }
+        code = code.replace(";", "").trim();
+        String first = code.isEmpty() ? "" : code.split("\\s+|\\(", 2)[0];
+        if (!first.equals("select") && !first.equals("with") && !first.equals("values")) {
+            throw refused("\"" + first.toUpperCase(Locale.ROOT) + "\" statements are not run for terminals");
+        }
+
+        Map<Integer, String> tables = rootPages(reader);
+        try (PreparedStatement statement = reader.prepareStatement("EXPLAIN " + sql);
+             ResultSet plan = statement.executeQuery()) {
+            while (plan.next()) {
+                String opcode = plan.getString("opcode");
+                if (opcode.equals("OpenRead") || opcode.equals("ReopenIdx")) {
+                    String table = plan.getInt("p3") == 0 ? tables.get(plan.getInt("p2")) : null;
+                    if (table == null || !READABLE_TABLES.contains(table.toLowerCase(Locale.ROOT))) {
+                        throw refused("terminals can't read " + (table != null ? table : "other databases"));
+                    }
+                } else if (opcode.equals("VOpen") || opcode.equals("OpenWrite")) {
+                    throw refused("queries only read the shop's tables");
+                }
+            }
+        }
+
+        if (allowed.size() >= MAX_REMEMBERED) {
+            allowed.clear();
+        }
+        allowed.add(sql);
+    }
+
+    // Root page -> table it belongs to; index pages map to their table
+    private static Map<Integer, String> rootPages(Connection reader) throws SQLException {
+        Map<Integer, String> tables = new HashMap<>();
+        tables.put(1, "sqlite_master");
+        try (PreparedStatement statement = reader.prepareStatement(SELECT_ROOT_PAGES);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                tables.put(resultSet.getInt("rootpage"), resultSet.getString("tbl_name"));
+            }
+        }
+        return tables;
+    }
+
+    /*
+     * The statement in lower case with comments dropped and string literals
+     * emptied, so a semicolon or keyword inside a string doesn't count.
+     */
+    private static String code(String sql) {
+        StringBuilder code = new StringBuilder(sql.length());
+        int length = sql.length();
+        for (int i = 0; i < length; i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                code.append("''");
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    i++;
+                }
+            } else if (c == '"' || c == '`' || c == '[') {
+                char close = c == '[' ? ']' : c;
+                i++;
+                while (i < length && sql.charAt(i) != close) {
+                    code.append(sql.charAt(i));
+                    i++;
+                }
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                while (i < length && sql.charAt(i) != '\n') {
+                    i++;
+                }
+                code.append(' ');
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 1;
+                code.append(' ');
+            } else {
+                code.append(c);
+            }
+        }
+        return code.toString().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    private static SQLException refused(String reason) {
+        return new SQLException("Not allowed from a terminal: " + reason);
+    }
+}
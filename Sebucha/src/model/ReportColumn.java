@@ -0,0 +1,50 @@
+package model;
+
+/*
+ * One column of an exported report. The type lets each writer render the value
+ * natively (numbers stay numbers in JSON and spreadsheets, get aligned in PDF).
+ */
+public class ReportColumn {
+
+    public enum Type { TEXT, INTEGER, DECIMAL }
+
+    private final String name;
+    private final Type type;
+    private final float relativeWidth;
+
+    public ReportColumn(String name, Type type, float relativeWidth) {
+        this.name = name;
+        this.type = type;
+        this.relativeWidth = relativeWidth;
+    }
+
+    public static ReportColumn text(String name, float relativeWidth) {
+        return new ReportColumn(name, Type.TEXT, relativeWidth);
+    }
+
+    public static ReportColumn integer(String name) {
+        return new ReportColumn(name, Type.INTEGER, 1f);
+    }
+
+    public static ReportColumn decimal(String name) {
+        return new ReportColumn(name, Type.DECIMAL, 1.2f);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // Share of the page width in PDF output
+    public float getRelativeWidth() {
+        return relativeWidth;
+    }
+
+    // Machine-friendly key, e.g. "Date & Time" -> "date_time"
+    public String getKey() {
+        return name.toLowerCase().replaceAll("[^a-z0-9]+", "_").replaceAll("^_|_$", "");
+    }
+}
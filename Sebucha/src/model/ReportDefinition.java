@@ -0,0 +1,22 @@
+package model;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+// A report that can stream its rows from the database into any ReportWriter
+public interface ReportDefinition {
+
+    // Title, also used for the file name
+    String getName();
+
+    List<ReportColumn> getColumns();
+
+    // Streams every row to the consumer; rows are not kept after they are handed over
+    void run(Connection connection, RowConsumer rows) throws SQLException, IOException;
+
+    interface RowConsumer {
+        void accept(Object[] row) throws IOException;
+    }
+}
@@ -0,0 +1,229 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Report export engine. Knows the available output formats (built-ins plus any
+ * ReportWriterProvider found by ServiceLoader) and streams reports into them.
+ * Each report is read from the database once no matter how many formats it is
+ * written in; reports that share an order scan (e.g. the end-of-day pack) are
+ * produced together in one pass, other batches run in parallel.
+ */
+public class ReportExporter {
+
+    private static final Map<String, ReportWriterProvider> providers = new LinkedHashMap<>();
+
+    static {
+        register(CsvReportWriter.PROVIDER);
+        register(JsonLinesReportWriter.PROVIDER);
+        register(XlsxReportWriter.PROVIDER);
+        register(PdfReportWriter.PROVIDER);
+        try {
+            for (ReportWriterProvider provider : ServiceLoader.load(ReportWriterProvider.class)) {
+                register(provider);
+            }
+        } catch (Exception e) {
+            System.err.println("Error loading report formats: " + e.getMessage());
+        }
+    }
+
+    public static synchronized void register(ReportWriterProvider provider) {
+        providers.put(provider.getFormatName().toLowerCase(Locale.ROOT), provider);
+    }
+
+    public static synchronized List<ReportWriterProvider> getProviders() {
+        return new ArrayList<>(providers.values());
+    }
+
+    public static synchronized ReportWriterProvider getProvider(String formatName) {
+        return providers.get(formatName.toLowerCase(Locale.ROOT));
+    }
+
+    // Format matching a file's extension, or null
+    public static synchronized ReportWriterProvider forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (ReportWriterProvider provider : providers.values()) {
+            if (name.endsWith("." + provider.getFileExtension())) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+    // Writes one report in one format
+    public static void export(ReportDefinition report, ReportWriterProvider format, Path target) throws IOException {
+        List<Path> written = new ArrayList<>();
+        written.add(target);
+        List<ReportWriter> writers = new ArrayList<>();
+        boolean success = false;
+        try (Connection connection = connect()) {
+            writers.add(format.open(target));
+            writers.get(0).begin(report.getName(), report.getColumns());
+            report.run(connection, writers.get(0)::writeRow);
+            success = true;
+        } catch (SQLException e) {
+            throw new IOException("Error reading report data: " + e.getMessage(), e);
+        } finally {
+            finish(writers, written, success);
+        }
+    }
+
+    /*
+     * Writes every report in every format into the directory, named
+     * "<prefix>_<report>.<ext>". Returns the files written.
+     */
+    public static List<Path> exportAll(List<ReportDefinition> reports, List<ReportWriterProvider> formats,
+                                       Path directory, String filePrefix) throws IOException {
+        if (OrderReports.canRunAsPack(reports)) {
+            return exportPack(reports, formats, directory, filePrefix);
+        }
+
+        int threads = Math.max(1, Math.min(reports.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "report-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<List<Path>>> futures = new ArrayList<>();
+            for (ReportDefinition report : reports) {
+                futures.add(pool.submit(() -> exportFanOut(report, formats, directory, filePrefix)));
+            }
+            List<Path> written = new ArrayList<>();
+            for (Future<List<Path>> future : futures) {
+                written.addAll(future.get());
+            }
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Report export interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Sales, items and cancellations for a day in every given format, from one scan
+    public static List<Path> exportEndOfDay(LocalDate day, List<ReportWriterProvider> formats,
+                                            Path directory) throws IOException {
+        return exportAll(OrderReports.endOfDayPack(day), formats, directory, "eod_" + day);
+    }
+
+    // One report, one read, every format
+    private static List<Path> exportFanOut(ReportDefinition report, List<ReportWriterProvider> formats,
+                                           Path directory, String filePrefix) throws IOException {
+        List<Path> written = new ArrayList<>();
+        List<ReportWriter> writers = new ArrayList<>();
+        boolean success = false;
+        try (Connection connection = connect()) {
+            openWriters(report, formats, directory, filePrefix, writers, written);
+            report.run(connection, fanOut(writers));
+            success = true;
+        } catch (SQLException e) {
+            throw new IOException("Error reading report " + report.getName() + ": " + e.getMessage(), e);
+        } finally {
+            finish(writers, written, success);
+        }
+        return written;
+    }
+
+    // Several order reports, one scan, every format
+    private static List<Path> exportPack(List<ReportDefinition> reports, List<ReportWriterProvider> formats,
+                                         Path directory, String filePrefix) throws IOException {
+        List<Path> written = new ArrayList<>();
+        List<ReportWriter> writers = new ArrayList<>();
+        boolean success = false;
+        try (Connection connection = connect()) {
+            Map<ReportDefinition, ReportDefinition.RowConsumer> outputs = new LinkedHashMap<>();
+            for (ReportDefinition report : reports) {
+                List<ReportWriter> reportWriters = new ArrayList<>();
+                openWriters(report, formats, directory, filePrefix, reportWriters, written);
+                writers.addAll(reportWriters);
+                outputs.put(report, fanOut(reportWriters));
+            }
+            OrderReports.runPack(connection, outputs);
+            success = true;
+        } catch (SQLException e) {
+            throw new IOException("Error reading report data: " + e.getMessage(), e);
+        } finally {
+            finish(writers, written, success);
+        }
+        return written;
+    }
+
+    private static void openWriters(ReportDefinition report, List<ReportWriterProvider> formats, Path directory,
+                                    String filePrefix, List<ReportWriter> writers, List<Path> written) throws IOException {
+        for (ReportWriterProvider format : formats) {
+            Path target = directory.resolve(fileName(filePrefix, report, format));
+            written.add(target);
+            ReportWriter writer = format.open(target);
+            writers.add(writer);
+            writer.begin(report.getName(), report.getColumns());
+        }
+    }
+
+    private static ReportDefinition.RowConsumer fanOut(List<ReportWriter> writers) {
+        if (writers.size() == 1) {
+            return writers.get(0)::writeRow;
+        }
+        return row -> {
+            for (ReportWriter writer : writers) {
+                writer.writeRow(row);
+            }
+        };
+    }
+
+    // Closes every writer; on failure the partial files are removed
+    private static void finish(List<ReportWriter> writers, List<Path> written, boolean success) throws IOException {
+        IOException closeError = null;
+        for (ReportWriter writer : writers) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (closeError == null) closeError = e;
+            }
+        }
+        if (!success || closeError != null) {
+            for (Path path : written) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        if (success && closeError != null) {
+            throw closeError;
+        }
+    }
+
+    private static String fileName(String filePrefix, ReportDefinition report, ReportWriterProvider format) {
+        String reportPart = report.getName().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "_");
+        String prefix = filePrefix == null || filePrefix.isEmpty() ? "" : filePrefix + "_";
+        return prefix + reportPart + "." + format.getFileExtension();
+    }
+
+    private static Connection connect() throws SQLException {
+        Connection connection = SqliteConnection.Connector();
+        if (connection == null) {
+            throw new SQLException("Could not connect to database");
+        }
+        return connection;
+    }
+}
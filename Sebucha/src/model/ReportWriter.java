@@ -0,0 +1,19 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/*
+ * Writes one report, a row at a time, in some output format. Implementations keep
+ * only a bounded buffer in memory; close() finishes the file (footer, zip entries,
+ * last PDF page) and must be called even when the export fails.
+ */
+public interface ReportWriter extends Closeable {
+
+    // Called once before any rows
+    void begin(String title, List<ReportColumn> columns) throws IOException;
+
+    // Values line up with the columns: String, Number or null
+    void writeRow(Object[] values) throws IOException;
+}
@@ -0,0 +1,57 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/*
+ * Service interface for report output formats. The built-in formats are registered
+ * by ReportExporter; more can be added on the module path with
+ * "provides model.ReportWriterProvider with ...".
+ */
+public interface ReportWriterProvider {
+
+    // Short format id, e.g. "csv"
+    String getFormatName();
+
+    // Human readable name for file choosers
+    String getDescription();
+
+    // File extension without the dot
+    String getFileExtension();
+
+    ReportWriter open(Path target) throws IOException;
+
+    // Opens a writer for a target file
+    interface Opener {
+        ReportWriter open(Path target) throws IOException;
+    }
+
+    static ReportWriterProvider of(String formatName, String description, String fileExtension, Opener opener) {
+        return new ReportWriterProvider() {
+            @Override
+            public String getFormatName() {
+                return formatName;
+            }
+
+            @Override
+            public String getDescription() {
+                return description;
+            }
+
+            @Override
+            public String getFileExtension() {
+                return fileExtension;
+            }
+
+            @Override
+            public ReportWriter open(Path target) throws IOException {
+                return opener.open(target);
+            }
+
+            @Override
+            public String toString() {
+                return description;
+            }
+        };
+    }
+}
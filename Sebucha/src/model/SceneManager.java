@@ -0,0 +1,131 @@
+package model;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Page navigation for the main window. Each FXML page is loaded once and kept
+ * (root and controller); switching pages swaps the root of the existing Scene
+ * instead of rebuilding the scene graph and re-running initialize() and its
+ * queries. Controllers implementing ManagedView get onHide()/onShow() calls so
+ * they can refresh just what changed. FX thread only.
+ */
+public class SceneManager {
+
+    public static final String APP_TITLE = "Sebucha Order Management System";
+
+    private static SceneManager instance;
+
+    private final Map<String, View> views = new HashMap<>();
+    private View current;
+
+    private SceneManager() {
+    }
+
+    public static synchronized SceneManager getInstance() {
+        if (instance == null) {
+            instance = new SceneManager();
+        }
+        return instance;
+    }
+
+    // Shows a page in the stage, loading it on first use
+    public void show(Stage stage, String fxmlPath) throws IOException {
+        show(stage, fxmlPath, APP_TITLE);
+    }
+
+    public void show(Stage stage, String fxmlPath, String title) throws IOException {
+        long started = System.nanoTime();
+        FlightEvents.SceneSwitch event = new FlightEvents.SceneSwitch();
+        event.begin();
+        event.page = fxmlPath;
+        event.loadedNow = !views.containsKey(fxmlPath);
+        View next = load(fxmlPath);
+        if (next == current && stage.getScene() != null && stage.getScene().getRoot() == next.root) {
+            notifyShown(next);
+            return;
+        }
+
+        if (current != null && current.controller instanceof ManagedView) {
+            ((ManagedView) current.controller).onHide();
+        }
+
+        Scene scene = stage.getScene();
+        if (scene == null) {
+            stage.setScene(new Scene(next.root));
+        } else {
+            scene.setRoot(next.root);
+        }
+        current = next;
+
+        stage.setTitle(title);
+        stage.sizeToScene();
+        stage.centerOnScreen();
+        stage.show();
+        notifyShown(next);
+        event.commit();
+        Metrics.recordSince("page_show", started);
+    }
+
+    // Loads (or returns the cached) page without showing it
+    public View load(String fxmlPath) throws IOException {
+        View view = views.get(fxmlPath);
+        if (view == null) {
+            URL resource = SceneManager.class.getResource(fxmlPath);
+            if (resource == null) {
+                throw new IOException("View not found: " + fxmlPath);
+            }
+            long started = System.nanoTime();
+            FXMLLoader loader = new FXMLLoader(resource);
+            Parent root = loader.load();
+            view = new View(root, loader.getController());
+            views.put(fxmlPath, view);
+            Metrics.recordSince("fxml_load", started);
+        }
+        return view;
+    }
+
+    // Drops a cached page so the next visit loads it fresh
+    public void evict(String fxmlPath) {
+        View view = views.remove(fxmlPath);
+        if (view == current) {
+            current = null;
+        }
+    }
+
+    public boolean isLoaded(String fxmlPath) {
+        return views.containsKey(fxmlPath);
+    }
+
+    private static void notifyShown(View view) {
+        if (view.controller instanceof ManagedView) {
+            ((ManagedView) view.controller).onShow();
+        }
+    }
+
+    // A loaded page: its root node and controller
+    public static class View {
+        private final Parent root;
+        private final Object controller;
+
+        View(Parent root, Object controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+
+        public Parent getRoot() {
+            return root;
+        }
+
+        public Object getController() {
+            return controller;
+        }
+    }
+}
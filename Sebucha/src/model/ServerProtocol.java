@@ -0,0 +1,370 @@
+package model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Wire format between OrderServer and OrderServerClient.
+ *
+ * Every message is a frame: int length (of what follows), int request id, then
+ * for requests a byte op and an int session, for replies a byte status. Ids let
+ * a terminal keep several requests in flight on one socket (pipelining) and
+ * match the replies as they come back; id 0 is reserved for server pushes.
+ *
+ * A session is one JDBC connection on the terminal; its queries run in order.
+ * Terminals only read through OP_QUERY. Everything they change goes through an
+ * op of its own, which the server applies in one request under its write lock.
+ */
+final class ServerProtocol {
+
+    static final int VERSION = 5;
+    static final int PUSH_ID = 0;
+    static final int MAX_FRAME = 64 * 1024 * 1024;
+
+    // Requests
+    static final byte OP_HELLO = 1;          // token -> OK(version)
+    static final byte OP_PING = 2;
+    static final byte OP_QUERY = 3;          // sql, params -> COLUMNS, ROWS... (reads only, see RemoteQueryPolicy)
+    static final byte OP_END_SESSION = 9;
+    static final byte OP_PLACE_ORDER = 10;   // order -> OK(order id)
+    static final byte OP_CANCEL_ORDERS = 11; // order ids -> OK(ids actually cancelled)
+    static final byte OP_SHIFT = 12;         // action (SHIFT_*), closed by / shift id -> OK(shift report)
+    static final byte OP_LOGIN = 13;         // username, password -> OK(role, or null if refused)
+    static final byte OP_UPDATE_STATUS = 14; // order id, status -> OK(updated)
+    static final byte OP_DELETE_ORDERS = 15; // -> OK(orders deleted)
+    static final byte OP_CATALOG = 16;       // action (CATALOG_*), product(s) -> OK(id / done / import result)
+    static final byte OP_RECIPES = 17;       // action (RECIPE_*), arguments -> OK
+
+    // OP_SHIFT actions
+    static final byte SHIFT_CURRENT = 0;
+    static final byte SHIFT_CLOSE = 1;
+    static final byte SHIFT_RECONCILE = 2;
+
+    // OP_CATALOG actions
+    static final byte CATALOG_ADD = 0;
+    static final byte CATALOG_UPDATE = 1;
+    static final byte CATALOG_DELETE = 2;
+    static final byte CATALOG_IMPORT = 3;
+
+    // OP_RECIPES actions
+    static final byte RECIPE_ADD_INGREDIENT = 0;
+    static final byte RECIPE_RECEIVE = 1;
+    static final byte RECIPE_SAVE = 2;
+
+    // Replies
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_ERROR = 1;      // message, vendor code, SQLState
+    static final byte STATUS_COLUMNS = 2;    // column labels
+    static final byte STATUS_ROWS = 3;       // row count, values, last flag
+    static final byte STATUS_PUSH = 4;       // DataVersions change flags
+
+    // Rows per ROWS frame
+    static final int ROWS_PER_FRAME = 256;
+
+    private static final byte NULL = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte TEXT = 3;
+    private static final byte BLOB = 4;
+
+    private ServerProtocol() {
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // A column or parameter value as SQLite stores it
+    static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.writeByte(LONG);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(LONG);
+            out.writeLong((Boolean) value ? 1 : 0);
+        } else if (value instanceof Number) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            out.writeByte(BLOB);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else {
+            out.writeByte(TEXT);
+            writeString(out, value.toString());
+        }
+    }
+
+    static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case TEXT:
+                return readString(in);
+            case BLOB:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return bytes;
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    static void writeParams(DataOutputStream out, List<Object> params) throws IOException {
+        out.writeInt(params.size());
+        for (Object param : params) {
+            writeValue(out, param);
+        }
+    }
+
+    static List<Object> readParams(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Object> params = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            params.add(readValue(in));
+        }
+        return params;
+    }
+
+    static void bind(PreparedStatement statement, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            Object value = params.get(i);
+            if (value == null) {
+                statement.setNull(i + 1, Types.NULL);
+            } else if (value instanceof Long) {
+                statement.setLong(i + 1, (Long) value);
+            } else if (value instanceof Double) {
+                statement.setDouble(i + 1, (Double) value);
+            } else if (value instanceof byte[]) {
+                statement.setBytes(i + 1, (byte[]) value);
+            } else {
+                statement.setString(i + 1, value.toString());
+            }
+        }
+    }
+
+    // Reads one frame body (after the length); null at a clean end of stream
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 4 || length > MAX_FRAME) {
+            throw new IOException("Bad frame length " + length);
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return frame;
+    }
+
+    static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    // Order requests travel as header fields plus lines with their modifiers
+    static void writeOrder(DataOutputStream out, OrderRequest request) throws IOException {
+        writeString(out, request.getCustomerName());
+        writeString(out, request.getOrderType());
+        writeString(out, request.getPaymentMethod());
+        writeString(out, request.getCashier());
+        out.writeInt(request.getItems().size());
+        for (OrderItem item : request.getItems()) {
+            out.writeInt(item.getProductId());
+            writeString(out, item.getProductName());
+            out.writeInt(item.getQuantity());
+            out.writeDouble(item.getUnitPrice());
+            out.writeDouble(item.getTotalPrice());
+            out.writeInt(item.getModifiers().size());
+            for (OrderItemModifier modifier : item.getModifiers()) {
+                out.writeInt(modifier.getModifierProductId());
+                writeString(out, modifier.getName());
+                out.writeDouble(modifier.getUnitPrice());
+                out.writeInt(modifier.getQuantity());
+            }
+        }
+    }
+
+    static OrderRequest readOrder(DataInputStream in) throws IOException {
+        String customerName = readString(in);
+        String orderType = readString(in);
+        String paymentMethod = readString(in);
+        String cashier = readString(in);
+        int lines = in.readInt();
+        List<OrderItem> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            OrderItem item = new OrderItem();
+            item.setProductId(in.readInt());
+            item.setProductName(readString(in));
+            int quantity = in.readInt();
+            item.setUnitPrice(in.readDouble());
+            item.setQuantity(quantity);
+            item.setTotalPrice(in.readDouble());
+            int modifiers = in.readInt();
+            for (int m = 0; m < modifiers; m++) {
+                item.getModifiers().add(new OrderItemModifier(in.readInt(), readString(in), in.readDouble(), in.readInt()));
+            }
+            items.add(item);
+        }
+        return new OrderRequest(customerName, orderType, paymentMethod, items, cashier);
+    }
+
+    // Shift reports: header, then every tally by dimension, then the differences if reconciled
+    static void writeShiftReport(DataOutputStream out, ShiftReport report) throws IOException {
+        out.writeLong(report.getShiftId());
+        writeString(out, report.getOpenedAt().toString());
+        writeString(out, report.getOpenedBy());
+        writeString(out, report.isClosed() ? report.getClosedAt().toString() : null);
+        writeString(out, report.getClosedBy());
+        Map<String, Map<String, ShiftReport.Tally>> dimensions = report.getTotals().all();
+        out.writeInt(dimensions.size());
+        for (Map.Entry<String, Map<String, ShiftReport.Tally>> dimension : dimensions.entrySet()) {
+            writeString(out, dimension.getKey());
+            out.writeInt(dimension.getValue().size());
+            for (Map.Entry<String, ShiftReport.Tally> row : dimension.getValue().entrySet()) {
+                writeString(out, row.getKey());
+                out.writeInt(row.getValue().getOrders());
+                out.writeLong(row.getValue().getCents());
+            }
+        }
+        out.writeBoolean(report.getDifferences() != null);
+        if (report.getDifferences() != null) {
+            writeStrings(out, report.getDifferences());
+        }
+    }
+
+    static ShiftReport readShiftReport(DataInputStream in) throws IOException {
+        long shiftId = in.readLong();
+        LocalDateTime openedAt = LocalDateTime.parse(readString(in));
+        String openedBy = readString(in);
+        String closedAt = readString(in);
+        String closedBy = readString(in);
+        ShiftReport.Totals totals = new ShiftReport.Totals();
+        int dimensions = in.readInt();
+        for (int d = 0; d < dimensions; d++) {
+            String dimension = readString(in);
+            int rows = in.readInt();
+            for (int r = 0; r < rows; r++) {
+                totals.add(dimension, readString(in), in.readInt(), in.readLong());
+            }
+        }
+        List<String> differences = in.readBoolean() ? readStrings(in) : null;
+        return new ShiftReport(shiftId, openedAt, openedBy, closedAt == null ? null : LocalDateTime.parse(closedAt),
+            closedBy, totals, differences);
+    }
+
+    // A product as the inventory page edits it; date_added is the server's business
+    static void writeProduct(DataOutputStream out, Product product) throws IOException {
+        out.writeInt(product.getId());
+        writeString(out, product.getName());
+        writeString(out, product.getCategory());
+        out.writeDouble(product.getPrice());
+        out.writeInt(product.getStock());
+        writeString(out, product.getStatus());
+        writeString(out, product.getImagePath());
+    }
+
+    static Product readProduct(DataInputStream in) throws IOException {
+        return new Product(in.readInt(), readString(in), readString(in), in.readDouble(), in.readInt(), readString(in),
+            readString(in), null);
+    }
+
+    // Checked catalog rows; an id of 0 means the server finds or assigns one
+    static void writeCatalogRows(DataOutputStream out, List<CatalogTransfer.Row> rows) throws IOException {
+        out.writeInt(rows.size());
+        for (CatalogTransfer.Row row : rows) {
+            writeString(out, row.where);
+            out.writeInt(row.id == null ? 0 : row.id);
+            writeString(out, row.name);
+            writeString(out, row.category);
+            out.writeDouble(row.price);
+            out.writeInt(row.stock);
+            writeString(out, row.status);
+            writeString(out, row.image);
+        }
+    }
+
+    static List<CatalogTransfer.Row> readCatalogRows(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<CatalogTransfer.Row> rows = new ArrayList<>(Math.min(count, 16 * 1024));
+        for (int i = 0; i < count; i++) {
+            CatalogTransfer.Row row = new CatalogTransfer.Row(readString(in));
+            int id = in.readInt();
+            row.id = id == 0 ? null : id;
+            row.name = readString(in);
+            row.category = readString(in);
+            row.price = in.readDouble();
+            row.stock = in.readInt();
+            row.status = readString(in);
+            row.image = readString(in);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // Recipe lines, ingredient id -> quantity per unit sold
+    static void writeRecipe(DataOutputStream out, Map<Integer, Double> lines) throws IOException {
+        out.writeInt(lines.size());
+        for (Map.Entry<Integer, Double> line : lines.entrySet()) {
+            out.writeInt(line.getKey());
+            out.writeDouble(line.getValue());
+        }
+    }
+
+    static Map<Integer, Double> readRecipe(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Map<Integer, Double> lines = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            lines.put(in.readInt(), in.readDouble());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,488 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Running totals of the open shift, kept in memory by whoever writes the orders
+ * (a standalone till, or the order server for all of its terminals). Every order
+ * and cancellation updates a few entries as it commits, so an X report copies
+ * the totals and closing a shift (Z report) saves them and starts the next
+ * shift, however many orders the shift had. There is always one open shift per
+ * database; new orders carry its id and the cashier who rang them up.
+ *
+ * The totals are saved to shift_totals as a checkpoint every CHECKPOINT_ORDERS
+ * orders or CHECKPOINT_MS, after cancellations and on exit. After a restart the
+ * checkpoint is loaded and only the orders placed since are added back.
+ * Reconciliation recounts a shift from the orders table (and its archive) and
+ * reports any figure that differs.
+ *
+ * LocalOrderService calls in here while holding its write lock, which keeps
+ * orders, cancellations and shift closes in one sequence.
+ */
+public class ShiftLedger {
+
+    private static final String CREATE_SHIFTS =
+        "CREATE TABLE IF NOT EXISTS shifts (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+        "opened_at TEXT NOT NULL, " +
+        "opened_by TEXT, " +
+        "closed_at TEXT, " +
+        "closed_by TEXT, " +
+        "checkpoint_rowid INTEGER NOT NULL DEFAULT 0)";
+
+    private static final String CREATE_TOTALS =
+        "CREATE TABLE IF NOT EXISTS shift_totals (" +
+        "shift_id INTEGER NOT NULL, " +
+        "dimension TEXT NOT NULL, " +
+        "name TEXT NOT NULL, " +
+        "orders INTEGER NOT NULL, " +
+        "cents INTEGER NOT NULL, " +
+        "PRIMARY KEY (shift_id, dimension, name))";
+
+    private static final String CREATE_ORDERS_SHIFT_INDEX =
+        "CREATE INDEX IF NOT EXISTS idx_orders_shift ON orders(shift_id)";
+
+    // Added to orders on first use; older databases don't have them
+    private static final String[][] ORDER_COLUMNS = {
+        {"shift_id", "INTEGER"},
+        {"cashier", "TEXT"},
+    };
+
+    private static final String SELECT_OPEN_SHIFT =
+        "SELECT id, opened_at, opened_by, checkpoint_rowid FROM shifts WHERE closed_at IS NULL ORDER BY id DESC LIMIT 1";
+
+    private static final String SELECT_SHIFT =
+        "SELECT opened_at, opened_by, closed_at, closed_by FROM shifts WHERE id = ?";
+
+    private static final String INSERT_SHIFT =
+        "INSERT INTO shifts (opened_at, opened_by, checkpoint_rowid) VALUES (?, ?, ?)";
+
+    private static final String CLOSE_SHIFT =
+        "UPDATE shifts SET closed_at = ?, closed_by = ?, checkpoint_rowid = ? WHERE id = ?";
+
+    private static final String UPDATE_CHECKPOINT = "UPDATE shifts SET checkpoint_rowid = ? WHERE id = ?";
+
+    private static final String SELECT_TOTALS = "SELECT dimension, name, orders, cents FROM shift_totals WHERE shift_id = ?";
+
+    private static final String DELETE_TOTALS = "DELETE FROM shift_totals WHERE shift_id = ?";
+
+    private static final String INSERT_TOTAL =
+        "INSERT INTO shift_totals (shift_id, dimension, name, orders, cents) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SELECT_ORDERS_SINCE =
+        "SELECT rowid AS order_rowid, payment_method, order_type, cashier, order_status, total_amount FROM orders " +
+        "WHERE shift_id = ? AND rowid > ? ORDER BY rowid";
+
+    // %s is the database holding the orders: main or an attached archive
+    private static final String RECOUNT =
+        "SELECT payment_method, order_type, cashier, order_status = 'Cancelled' AS cancelled, " +
+        "COUNT(*) AS orders, SUM(CAST(ROUND(total_amount * 100) AS INTEGER)) AS cents " +
+        "FROM %s.orders WHERE shift_id = ? GROUP BY 1, 2, 3, 4";
+
+    static final int CHECKPOINT_ORDERS = 50;
+    static final long CHECKPOINT_MS = 60_000;
+
+    private static ShiftLedger instance;
+
+    private boolean loaded;
+    private long shiftId;
+    private LocalDateTime openedAt;
+    private String openedBy;
+    private ShiftReport.Totals totals = new ShiftReport.Totals();
+
+    // Newest order counted in the totals, and what the last checkpoint saved
+    private long lastRowid;
+    private int ordersSinceCheckpoint;
+    private long lastCheckpointAt;
+    private boolean dirty;
+
+    private ShiftLedger() {
+    }
+
+    public static synchronized ShiftLedger getInstance() {
+        if (instance == null) {
+            instance = new ShiftLedger();
+        }
+        return instance;
+    }
+
+    // Saves the totals if anything changed since the last checkpoint (called on exit)
+    public static void checkpointOnExit() {
+        ShiftLedger ledger;
+        synchronized (ShiftLedger.class) {
+            ledger = instance;
+        }
+        if (ledger != null) {
+            ledger.checkpointIfDirty();
+        }
+    }
+
+    // The open shift's id for a new order; loads the ledger on first use
+    synchronized long currentShiftId() throws SQLException {
+        ensureLoaded();
+        return shiftId;
+    }
+
+    // Counts an order that has just committed
+    synchronized void orderPlaced(long orderShiftId, long rowid, OrderRequest request) {
+        if (!loaded || orderShiftId != shiftId) {
+            return;
+        }
+        totals.sale(request.getPaymentMethod(), request.getOrderType(), request.getCashier(), cents(request.getTotal()), 1);
+        lastRowid = Math.max(lastRowid, rowid);
+        dirty = true;
+        ordersSinceCheckpoint++;
+        if (ordersSinceCheckpoint >= CHECKPOINT_ORDERS || System.currentTimeMillis() - lastCheckpointAt >= CHECKPOINT_MS) {
+            checkpointIfDirty();
+        }
+    }
+
+    // Counts orders that have just been cancelled; rows come from CancelledOrder below
+    synchronized void ordersCancelled(List<CancelledOrder> cancelled) throws SQLException {
+        if (cancelled.isEmpty()) {
+            return;
+        }
+        ensureLoaded();
+        for (CancelledOrder order : cancelled) {
+            totals.cancellation(order.paymentMethod, order.orderType, order.cashier, order.cents,
+                order.shiftId != null && order.shiftId == shiftId);
+        }
+        dirty = true;
+        // Cancellations of already-saved orders can't be replayed after a restart, so save right away
+        checkpointIfDirty();
+    }
+
+    // X report: the open shift so far
+    public synchronized ShiftReport currentReport() throws SQLException {
+        ensureLoaded();
+        return new ShiftReport(shiftId, openedAt, openedBy, null, null, totals.copy(), null);
+    }
+
+    /*
+     * Z report: saves the final totals, closes the shift and opens the next one,
+     * all in one transaction. Costs the same however many orders the shift had.
+     */
+    synchronized ShiftReport close(String closedBy) throws SQLException {
+        ensureLoaded();
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        long nextShiftId;
+
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            try {
+                writeTotals(connection, shiftId, totals);
+                try (PreparedStatement statement = connection.prepareStatement(CLOSE_SHIFT)) {
+                    statement.setString(1, now.toString());
+                    statement.setString(2, closedBy);
+                    statement.setLong(3, lastRowid);
+                    statement.setLong(4, shiftId);
+                    statement.executeUpdate();
+                }
+                nextShiftId = insertShift(connection, now, closedBy, lastRowid);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+
+        ShiftReport report = new ShiftReport(shiftId, openedAt, openedBy, now, closedBy, totals, null);
+        shiftId = nextShiftId;
+        openedAt = now;
+        openedBy = closedBy;
+        totals = new ShiftReport.Totals();
+        markCheckpoint();
+        Metrics.recordSince("shift_close", started);
+        return report;
+    }
+
+    /*
+     * Recounts the shift from the orders it stamped, in the live database and in
+     * any archive covering its dates, and compares that with the running totals
+     * (or, for a closed shift, the totals saved when it closed).
+     */
+    synchronized ShiftReport reconcile(long id) throws SQLException {
+        ensureLoaded();
+        long started = System.nanoTime();
+        ShiftReport report = id == shiftId ? currentReport() : savedReport(id);
+
+        ShiftReport.Totals recounted = new ShiftReport.Totals();
+        LocalDate to = report.isClosed() ? report.getClosedAt().toLocalDate() : LocalDate.now();
+        try (Connection connection = connect()) {
+            for (String schema : OrderArchive.sources(report.getOpenedAt().toLocalDate(), to, false)) {
+                OrderArchive.attach(connection, schema);
+                if (!"main".equals(schema) && !hasShiftColumn(connection, schema)) {
+                    continue;
+                }
+                try (PreparedStatement statement = connection.prepareStatement(String.format(RECOUNT, schema))) {
+                    statement.setLong(1, id);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            int orders = resultSet.getInt("orders");
+                            long cents = resultSet.getLong("cents");
+                            if (resultSet.getBoolean("cancelled")) {
+                                recounted.add(ShiftReport.SUMMARY, ShiftReport.CANCELLED, orders, cents);
+                            } else {
+                                recounted.add(ShiftReport.SUMMARY, ShiftReport.SALES, orders, cents);
+                                recounted.add(ShiftReport.PAYMENT, resultSet.getString("payment_method"), orders, cents);
+                                recounted.add(ShiftReport.TYPE, resultSet.getString("order_type"), orders, cents);
+                                recounted.add(ShiftReport.CASHIER, resultSet.getString("cashier"), orders, cents);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        List<String> differences = report.getTotals().differencesFrom(recounted);
+        Metrics.recordSince("shift_reconcile", started);
+        if (!differences.isEmpty()) {
+            Metrics.increment("shift_reconcile_differences", differences.size());
+            System.err.println("Shift #" + id + " does not reconcile: " + differences);
+        }
+        return report.withDifferences(differences);
+    }
+
+    private ShiftReport savedReport(long id) throws SQLException {
+        try (Connection connection = connect()) {
+            LocalDateTime opened;
+            String opener;
+            LocalDateTime closed;
+            String closer;
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_SHIFT)) {
+                statement.setLong(1, id);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        throw new SQLException("No shift #" + id);
+                    }
+                    opened = LocalDateTime.parse(resultSet.getString("opened_at"));
+                    opener = resultSet.getString("opened_by");
+                    String closedAt = resultSet.getString("closed_at");
+                    closed = closedAt == null ? null : LocalDateTime.parse(closedAt);
+                    closer = resultSet.getString("closed_by");
+                }
+            }
+            return new ShiftReport(id, opened, opener, closed, closer, readTotals(connection, id), null);
+        }
+    }
+
+    private void ensureLoaded() throws SQLException {
+        if (loaded) {
+            return;
+        }
+        long started = System.nanoTime();
+        try (Connection connection = connect()) {
+            ensureSchema(connection);
+
+            long checkpointRowid = 0;
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_OPEN_SHIFT);
+                 ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    shiftId = resultSet.getLong("id");
+                    openedAt = LocalDateTime.parse(resultSet.getString("opened_at"));
+                    openedBy = resultSet.getString("opened_by");
+                    checkpointRowid = resultSet.getLong("checkpoint_rowid");
+                } else {
+                    shiftId = 0;
+                }
+            }
+            if (shiftId == 0) {
+                openedAt = LocalDateTime.now();
+                openedBy = UserSession.getInstance().getUsername();
+                shiftId = insertShift(connection, openedAt, openedBy, 0);
+                totals = new ShiftReport.Totals();
+            } else {
+                totals = readTotals(connection, shiftId);
+            }
+
+            // Orders placed after the last checkpoint, added back one by one
+            lastRowid = checkpointRowid;
+            int replayed = 0;
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_ORDERS_SINCE)) {
+                statement.setLong(1, shiftId);
+                statement.setLong(2, checkpointRowid);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        String payment = resultSet.getString("payment_method");
+                        String type = resultSet.getString("order_type");
+                        String cashier = resultSet.getString("cashier");
+                        long cents = cents(resultSet.getDouble("total_amount"));
+                        totals.sale(payment, type, cashier, cents, 1);
+                        if ("Cancelled".equals(resultSet.getString("order_status"))) {
+                            totals.cancellation(payment, type, cashier, cents, true);
+                        }
+                        lastRowid = resultSet.getLong("order_rowid");
+                        replayed++;
+                    }
+                }
+            }
+            loaded = true;
+            dirty = replayed > 0;
+            lastCheckpointAt = System.currentTimeMillis();
+            Metrics.increment("shift_orders_replayed", replayed);
+        }
+        Metrics.recordSince("shift_load", started);
+        checkpointIfDirty();
+    }
+
+    private synchronized void checkpointIfDirty() {
+        if (!loaded || !dirty) {
+            return;
+        }
+        long started = System.nanoTime();
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            try {
+                writeTotals(connection, shiftId, totals);
+                try (PreparedStatement statement = connection.prepareStatement(UPDATE_CHECKPOINT)) {
+                    statement.setLong(1, lastRowid);
+                    statement.setLong(2, shiftId);
+                    statement.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            markCheckpoint();
+            Metrics.recordSince("shift_checkpoint", started);
+        } catch (SQLException | RuntimeException e) {
+            // Still dirty, so the next order tries again; a restart replays from the previous checkpoint
+            Metrics.increment("shift_checkpoint_failures");
+            System.err.println("Could not save the shift totals: " + e.getMessage());
+        }
+    }
+
+    private void markCheckpoint() {
+        dirty = false;
+        ordersSinceCheckpoint = 0;
+        lastCheckpointAt = System.currentTimeMillis();
+    }
+
+    private static void ensureSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_SHIFTS);
+            statement.execute(CREATE_TOTALS);
+            Set<String> existing = new HashSet<>();
+            try (ResultSet resultSet = statement.executeQuery("PRAGMA table_info(orders)")) {
+                while (resultSet.next()) {
+                    existing.add(resultSet.getString("name").toLowerCase());
+                }
+            }
+            for (String[] column : ORDER_COLUMNS) {
+                if (!existing.contains(column[0])) {
+                    statement.execute("ALTER TABLE orders ADD COLUMN " + column[0] + " " + column[1]);
+                }
+            }
+            statement.execute(CREATE_ORDERS_SHIFT_INDEX);
+        }
+    }
+
+    // Archives made before shifts existed have no shift_id column
+    private static boolean hasShiftColumn(Connection connection, String schema) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("PRAGMA " + schema + ".table_info(orders)")) {
+            while (resultSet.next()) {
+                if ("shift_id".equalsIgnoreCase(resultSet.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long insertShift(Connection connection, LocalDateTime openedAt, String openedBy, long checkpointRowid)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SHIFT, Statement.RETURN_GENERATED_KEYS)) {
+            statement.setString(1, openedAt.toString());
+            statement.setString(2, openedBy);
+            statement.setLong(3, checkpointRowid);
+            statement.executeUpdate();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No id returned for the new shift");
+                }
+                return keys.getLong(1);
+            }
+        }
+    }
+
+    private static ShiftReport.Totals readTotals(Connection connection, long id) throws SQLException {
+        ShiftReport.Totals saved = new ShiftReport.Totals();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_TOTALS)) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    saved.add(resultSet.getString("dimension"), resultSet.getString("name"),
+                        resultSet.getInt("orders"), resultSet.getLong("cents"));
+                }
+            }
+        }
+        return saved;
+    }
+
+    // Replaces the saved totals of a shift; a few dozen rows, whatever the number of orders
+    private static void writeTotals(Connection connection, long id, ShiftReport.Totals totals) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement(DELETE_TOTALS)) {
+            delete.setLong(1, id);
+            delete.executeUpdate();
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_TOTAL)) {
+            for (Map.Entry<String, Map<String, ShiftReport.Tally>> dimension : totals.all().entrySet()) {
+                for (Map.Entry<String, ShiftReport.Tally> row : dimension.getValue().entrySet()) {
+                    insert.setLong(1, id);
+                    insert.setString(2, dimension.getKey());
+                    insert.setString(3, row.getKey());
+                    insert.setInt(4, row.getValue().getOrders());
+                    insert.setLong(5, row.getValue().getCents());
+                    insert.addBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        Connection connection = SqliteConnection.Connector();
+        if (connection == null) {
+            throw new SQLException("Could not connect to database");
+        }
+        return connection;
+    }
+
+    static long cents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    // What a cancellation takes back out of the totals: where the order was placed and what it came to
+    static final class CancelledOrder {
+        final Long shiftId;
+        final String paymentMethod;
+        final String orderType;
+        final String cashier;
+        final long cents;
+
+        CancelledOrder(Long shiftId, String paymentMethod, String orderType, String cashier, long cents) {
+            this.shiftId = shiftId;
+            this.paymentMethod = paymentMethod;
+            this.orderType = orderType;
+            this.cashier = cashier;
+            this.cents = cents;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/*
+ * Totals of one shift: net sales by payment method, order type and cashier,
+ * plus cancellations. An X report is the open shift so far, a Z report the
+ * closed shift. A reconciled report also lists every figure on which the
+ * running totals and a recount of the orders table disagree.
+ */
+public class ShiftReport {
+
+    public static final String PAYMENT = "payment";
+    public static final String TYPE = "type";
+    public static final String CASHIER = "cashier";
+
+    // Single-row figures are kept under this dimension, next to the breakdowns
+    static final String SUMMARY = "summary";
+    static final String SALES = "sales";
+    static final String CANCELLED = "cancelled";
+    static final String EARLIER_CANCELLED = "earlier_cancelled";
+
+    static final String NONE = "(none)";
+
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
+    private static final String[][] BREAKDOWNS = {
+        {PAYMENT, "BY PAYMENT METHOD"},
+        {TYPE, "BY ORDER TYPE"},
+        {CASHIER, "BY CASHIER"},
+    };
+
+    private final long shiftId;
+    private final LocalDateTime openedAt;
+    private final String openedBy;
+    private final LocalDateTime closedAt;
+    private final String closedBy;
+    private final Totals totals;
+    private final List<String> differences;
+
+    ShiftReport(long shiftId, LocalDateTime openedAt, String openedBy, LocalDateTime closedAt, String closedBy,
+                Totals totals, List<String> differences) {
+        this.shiftId = shiftId;
+        this.openedAt = openedAt;
+        this.openedBy = openedBy;
+        this.closedAt = closedAt;
+        this.closedBy = closedBy;
+        this.totals = totals;
+        this.differences = differences == null ? null : Collections.unmodifiableList(new ArrayList<>(differences));
+    }
+
+    ShiftReport withDifferences(List<String> found) {
+        return new ShiftReport(shiftId, openedAt, openedBy, closedAt, closedBy, totals, found);
+    }
+
+    public long getShiftId() {
+        return shiftId;
+    }
+
+    public LocalDateTime getOpenedAt() {
+        return openedAt;
+    }
+
+    public String getOpenedBy() {
+        return openedBy;
+    }
+
+    // Null while the shift is open
+    public LocalDateTime getClosedAt() {
+        return closedAt;
+    }
+
+    public String getClosedBy() {
+        return closedBy;
+    }
+
+    public boolean isClosed() {
+        return closedAt != null;
+    }
+
+    // Orders placed this shift and not cancelled
+    public Tally getSales() {
+        return totals.get(SUMMARY, SALES);
+    }
+
+    // Orders placed this shift and cancelled since
+    public Tally getCancelled() {
+        return totals.get(SUMMARY, CANCELLED);
+    }
+
+    // Orders from earlier shifts cancelled during this one (money handed back now)
+    public Tally getEarlierCancelled() {
+        return totals.get(SUMMARY, EARLIER_CANCELLED);
+    }
+
+    // Net sales per payment method, order type or cashier, by name
+    public Map<String, Tally> getBreakdown(String dimension) {
+        return totals.view(dimension);
+    }
+
+    Totals getTotals() {
+        return totals;
+    }
+
+    // Null unless the report was reconciled; empty when everything matched
+    public List<String> getDifferences() {
+        return differences;
+    }
+
+    // Plain text, one line per figure, at most the given number of characters wide
+    public String render(int columns) {
+        int amountWidth = 14;
+        int countWidth = 6;
+        int nameWidth = Math.max(10, columns - amountWidth - countWidth);
+        String rule = line('-', columns);
+        StringBuilder out = new StringBuilder(1024);
+
+        out.append(isClosed() ? "Z REPORT - SHIFT CLOSED" : "X REPORT - SHIFT SO FAR").append('\n');
+        out.append(ReceiptTemplate.CAFE_NAME).append('\n');
+        out.append("Shift #").append(shiftId).append('\n');
+        out.append("Opened: ").append(openedAt.format(DATE_TIME_FORMAT)).append(by(openedBy)).append('\n');
+        if (isClosed()) {
+            out.append("Closed: ").append(closedAt.format(DATE_TIME_FORMAT)).append(by(closedBy)).append('\n');
+        } else {
+            out.append("Printed: ").append(LocalDateTime.now().format(DATE_TIME_FORMAT)).append('\n');
+        }
+        out.append(rule);
+        appendRow(out, "Net sales", getSales(), nameWidth, countWidth, amountWidth);
+        appendRow(out, "Cancelled", getCancelled(), nameWidth, countWidth, amountWidth);
+        if (getEarlierCancelled().getOrders() != 0) {
+            appendRow(out, "Earlier orders cancelled", getEarlierCancelled(), nameWidth, countWidth, amountWidth);
+        }
+
+        for (String[] breakdown : BREAKDOWNS) {
+            Map<String, Tally> rows = getBreakdown(breakdown[0]);
+            if (rows.isEmpty()) {
+                continue;
+            }
+            out.append(rule).append(breakdown[1]).append('\n');
+            for (Map.Entry<String, Tally> row : rows.entrySet()) {
+                appendRow(out, row.getKey(), row.getValue(), nameWidth, countWidth, amountWidth);
+            }
+        }
+
+        out.append(rule);
+        if (differences == null) {
+            out.append("Not reconciled\n");
+        } else if (differences.isEmpty()) {
+            out.append("Reconciled: matches the orders table\n");
+        } else {
+            out.append("Reconciled: ").append(differences.size())
+                .append(differences.size() == 1 ? " difference\n" : " differences\n");
+            for (String difference : differences) {
+                out.append("* ").append(difference).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    private static void appendRow(StringBuilder out, String name, Tally tally, int nameWidth, int countWidth, int amountWidth) {
+        ReceiptTemplate.padRight(out, ReceiptTemplate.truncate(name, nameWidth), nameWidth);
+        ReceiptTemplate.padLeft(out, Integer.toString(tally.getOrders()), countWidth);
+        out.append(' ');
+        out.append('₱');
+        ReceiptTemplate.appendAmount(out, tally.getAmount(), amountWidth - 2).append('\n');
+    }
+
+    private static String by(String user) {
+        return user == null || user.isEmpty() ? "" : " by " + user;
+    }
+
+    private static String line(char c, int count) {
+        StringBuilder out = new StringBuilder(count + 1);
+        for (int i = 0; i < count; i++) {
+            out.append(c);
+        }
+        return out.append('\n').toString();
+    }
+
+    static String formatCents(long cents) {
+        return "₱" + ReceiptTemplate.appendAmount(new StringBuilder(), cents / 100.0, 0);
+    }
+
+    // An order count and the money they add up to
+    public static final class Tally {
+        static final Tally ZERO = new Tally(0, 0);
+
+        private final int orders;
+        private final long cents;
+
+        Tally(int orders, long cents) {
+            this.orders = orders;
+            this.cents = cents;
+        }
+
+        public int getOrders() {
+            return orders;
+        }
+
+        public long getCents() {
+            return cents;
+        }
+
+        public double getAmount() {
+            return cents / 100.0;
+        }
+
+        Tally plus(int moreOrders, long moreCents) {
+            return new Tally(orders + moreOrders, cents + moreCents);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Tally && ((Tally) other).orders == orders && ((Tally) other).cents == cents;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * orders + Long.hashCode(cents);
+        }
+
+        @Override
+        public String toString() {
+            return orders + (orders == 1 ? " order, " : " orders, ") + formatCents(cents);
+        }
+    }
+
+    /*
+     * The running figures behind a report, as dimension -> name -> tally. Each
+     * order touches a fixed handful of entries, so keeping them current costs the
+     * same however long the shift runs. Not thread-safe; ShiftLedger guards it.
+     */
+    static final class Totals {
+        private final Map<String, Map<String, Tally>> dimensions = new HashMap<>();
+
+        // An order placed this shift (sign 1), or taken back out of the sales (sign -1)
+        void sale(String payment, String type, String cashier, long cents, int sign) {
+            add(SUMMARY, SALES, sign, sign * cents);
+            add(PAYMENT, payment, sign, sign * cents);
+            add(TYPE, type, sign, sign * cents);
+            add(CASHIER, cashier, sign, sign * cents);
+        }
+
+        void cancellation(String payment, String type, String cashier, long cents, boolean placedThisShift) {
+            if (placedThisShift) {
+                sale(payment, type, cashier, cents, -1);
+                add(SUMMARY, CANCELLED, 1, cents);
+            } else {
+                add(SUMMARY, EARLIER_CANCELLED, 1, cents);
+            }
+        }
+
+        void add(String dimension, String name, int orders, long cents) {
+            String key = name == null || name.isEmpty() ? NONE : name;
+            dimensions.computeIfAbsent(dimension, d -> new TreeMap<>())
+                .merge(key, new Tally(orders, cents), (old, extra) -> old.plus(extra.orders, extra.cents));
+        }
+
+        Tally get(String dimension, String name) {
+            Map<String, Tally> rows = dimensions.get(dimension);
+            Tally tally = rows == null ? null : rows.get(name);
+            return tally == null ? Tally.ZERO : tally;
+        }
+
+        // Rows that net out to nothing (e.g. a cashier whose only order was cancelled) are left out
+        Map<String, Tally> view(String dimension) {
+            Map<String, Tally> rows = new TreeMap<>();
+            Map<String, Tally> source = dimensions.get(dimension);
+            if (source != null) {
+                for (Map.Entry<String, Tally> row : source.entrySet()) {
+                    if (!row.getValue().equals(Tally.ZERO)) {
+                        rows.put(row.getKey(), row.getValue());
+                    }
+                }
+            }
+            return Collections.unmodifiableMap(rows);
+        }
+
+        Map<String, Map<String, Tally>> all() {
+            return dimensions;
+        }
+
+        Totals copy() {
+            Totals copy = new Totals();
+            for (Map.Entry<String, Map<String, Tally>> dimension : dimensions.entrySet()) {
+                copy.dimensions.put(dimension.getKey(), new TreeMap<>(dimension.getValue()));
+            }
+            return copy;
+        }
+
+        /*
+         * Every figure where these totals and the recounted ones differ, as
+         * readable lines. Cancellations of earlier orders leave no trace in the
+         * orders table of this shift, so they are not compared.
+         */
+        List<String> differencesFrom(Totals recounted) {
+            List<String> found = new ArrayList<>();
+            compare(found, SUMMARY, SALES, "Net sales", recounted);
+            compare(found, SUMMARY, CANCELLED, "Cancelled", recounted);
+            for (String[] breakdown : BREAKDOWNS) {
+                TreeSet<String> names = new TreeSet<>(view(breakdown[0]).keySet());
+                names.addAll(recounted.view(breakdown[0]).keySet());
+                for (String name : names) {
+                    compare(found, breakdown[0], name, breakdown[0] + " " + name, recounted);
+                }
+            }
+            return found;
+        }
+
+        private void compare(List<String> found, String dimension, String name, String label, Totals recounted) {
+            Tally kept = get(dimension, name);
+            Tally counted = recounted.get(dimension, name);
+            if (!kept.equals(counted)) {
+                found.add(label + ": running totals " + kept + ", orders table " + counted);
+            }
+        }
+    }
+}
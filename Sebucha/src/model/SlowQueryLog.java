@@ -0,0 +1,260 @@
+package model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+ * Log of statements that took longer than -Dsebucha.sql.slowMs (default 100 ms;
+ * 0 logs everything, a negative value turns tracing off). For each one the SQL,
+ * bind count, duration and row count are queued and a background thread adds
+ * the EXPLAIN QUERY PLAN and appends the entry to logs/slow-queries.log, which
+ * rolls over at -Dsebucha.sql.slowLogMaxKb (default 5 MB) keeping five old
+ * files. Entries look like
+ *
+ *   2026-10-19T14:02:11.512  ms=152.418  rows=9300  binds=2  thread=JavaFX Application Thread
+ *     SQL: SELECT ... FROM orders o WHERE ...
+ *     PLAN: SCAN o
+ *
+ * and SlowQueryReport groups them by statement. The caller never waits on the
+ * log: when the queue is full the entry is dropped and counted.
+ */
+public final class SlowQueryLog {
+
+    public static final String THRESHOLD_PROPERTY = "sebucha.sql.slowMs";
+    public static final String DIR_PROPERTY = "sebucha.sql.logDir";
+    public static final String MAX_KB_PROPERTY = "sebucha.sql.slowLogMaxKb";
+    public static final String FILE_NAME = "slow-queries.log";
+
+    static final int KEPT_FILES = 5;
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private static final long THRESHOLD_NANOS = thresholdNanos();
+    private static final Path LOG_DIR = Paths.get(System.getProperty(DIR_PROPERTY, "logs"));
+    private static final long MAX_BYTES = Long.getLong(MAX_KB_PROPERTY, 5 * 1024) * 1024;
+
+    private static final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static Thread writer;
+
+    private SlowQueryLog() {
+    }
+
+    public static boolean isEnabled() {
+        return THRESHOLD_NANOS >= 0;
+    }
+
+    public static Path getLogDirectory() {
+        return LOG_DIR;
+    }
+
+    // A statement finished; queues it for the log if it was slow
+    static void completed(String sql, int bindCount, long startNanos, long rows) {
+        if (THRESHOLD_NANOS < 0) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        if (elapsed < THRESHOLD_NANOS || Thread.currentThread() == writer) {
+            return;
+        }
+        Metrics.increment("sql_slow_statements");
+        ensureWriter();
+        Entry entry = new Entry(LocalDateTime.now(), sql, bindCount, elapsed, rows, Thread.currentThread().getName());
+        if (!queue.offer(entry)) {
+            Metrics.increment("sql_slow_log_dropped");
+        }
+    }
+
+    // Wraps a query's result set so the statement is timed (and its rows counted) until the set is closed
+    static ResultSet track(ResultSet resultSet, String sql, int bindCount, long startNanos) {
+        if (THRESHOLD_NANOS < 0 || resultSet == null) {
+            return resultSet;
+        }
+        return (ResultSet) Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(),
+            new Class<?>[] { ResultSet.class },
+            new TrackedResultSet(resultSet, sql, bindCount, startNanos)
+        );
+    }
+
+    private static long thresholdNanos() {
+        long millis = Long.getLong(THRESHOLD_PROPERTY, 100);
+        return millis < 0 ? -1 : millis * 1_000_000;
+    }
+
+    private static synchronized void ensureWriter() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(SlowQueryLog::drain, "slow-query-log");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+    }
+
+    private static void drain() {
+        while (true) {
+            try {
+                Entry entry = queue.take();
+                write(entry.format(explain(entry.sql)));
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not write slow query log: " + e.getMessage());
+            }
+        }
+    }
+
+    // Plan lines for the statement; parameters are left unbound, which SQLite treats as NULL
+    private static List<String> explain(String sql) {
+        List<String> plan = new ArrayList<>();
+        if (sql == null || sql.startsWith("(")) {
+            return plan;
+        }
+        try (Connection connection = SqliteConnection.Connector()) {
+            if (connection == null) {
+                plan.add("(unavailable: no connection)");
+                return plan;
+            }
+            // Not prepared, so the plan statements don't push real ones out of the statement cache
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+                while (resultSet.next()) {
+                    plan.add(resultSet.getString("detail"));
+                }
+            }
+        } catch (SQLException e) {
+            plan.add("(unavailable: " + e.getMessage() + ")");
+        }
+        return plan;
+    }
+
+    private static void write(String text) throws IOException {
+        Files.createDirectories(LOG_DIR);
+        Path current = LOG_DIR.resolve(FILE_NAME);
+        if (Files.exists(current) && Files.size(current) >= MAX_BYTES) {
+            roll();
+        }
+        try (Writer out = Files.newBufferedWriter(current, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write(text);
+        }
+    }
+
+    // slow-queries.log -> .1 -> .2 ... the oldest is dropped
+    private static void roll() throws IOException {
+        Files.deleteIfExists(LOG_DIR.resolve(FILE_NAME + "." + KEPT_FILES));
+        for (int i = KEPT_FILES - 1; i >= 1; i--) {
+            Path older = LOG_DIR.resolve(FILE_NAME + "." + i);
+            if (Files.exists(older)) {
+                Files.move(older, LOG_DIR.resolve(FILE_NAME + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(LOG_DIR.resolve(FILE_NAME), LOG_DIR.resolve(FILE_NAME + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Statement text on one line
+    static String singleLine(String sql) {
+        return sql.trim().replaceAll("\\s+", " ");
+    }
+
+    private static final class Entry {
+        private final LocalDateTime time;
+        private final String sql;
+        private final int bindCount;
+        private final long nanos;
+        private final long rows;
+        private final String thread;
+
+        Entry(LocalDateTime time, String sql, int bindCount, long nanos, long rows, String thread) {
+            this.time = time;
+            this.sql = sql;
+            this.bindCount = bindCount;
+            this.nanos = nanos;
+            this.rows = rows;
+            this.thread = thread;
+        }
+
+        String format(List<String> plan) {
+            StringBuilder text = new StringBuilder(256);
+            text.append(TIMESTAMP.format(time))
+                .append("  ms=").append(String.format(Locale.ROOT, "%.3f", nanos / 1e6))
+                .append("  rows=").append(rows)
+                .append("  binds=").append(bindCount)
+                .append("  thread=").append(thread).append('\n');
+            text.append("  SQL: ").append(singleLine(sql)).append('\n');
+            for (String line : plan) {
+                text.append("  PLAN: ").append(line).append('\n');
+            }
+            return text.toString();
+        }
+    }
+
+    // Counts rows and reports the statement when the caller closes the result set
+    private static final class TrackedResultSet implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final String sql;
+        private final int bindCount;
+        private final long startNanos;
+        private long rows;
+        private boolean reported;
+
+        TrackedResultSet(ResultSet resultSet, String sql, int bindCount, long startNanos) {
+            this.resultSet = resultSet;
+            this.sql = sql;
+            this.bindCount = bindCount;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    boolean hasRow = resultSet.next();
+                    if (hasRow) {
+                        rows++;
+                    }
+                    return hasRow;
+                case "close":
+                    if (!reported) {
+                        reported = true;
+                        completed(sql, bindCount, startNanos, rows);
+                    }
+                    resultSet.close();
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(resultSet, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
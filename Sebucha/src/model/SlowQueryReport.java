@@ -0,0 +1,172 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Summarises the slow-query log: entries are grouped by statement with literals
+ * and IN lists normalised away, ranked by total time, and shown with their
+ * latest query plan plus a hint wherever SQLite scans a whole table or sorts
+ * without an index.
+ *
+ *   java -cp bin model.SlowQueryReport [logDir] [top]
+ */
+public class SlowQueryReport {
+
+    private static final Pattern HEADER =
+        Pattern.compile("^(\\S+)  ms=([0-9.]+)  rows=(-?\\d+)  binds=(\\d+)  thread=(.*)$");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (?:TABLE )?(?!CONSTANT ROW)(\\S+)(?!.*\\bUSING (?:COVERING )?INDEX\\b)");
+
+    public static void main(String[] args) throws IOException {
+        Path directory = args.length > 0 ? Paths.get(args[0]) : SlowQueryLog.getLogDirectory();
+        int top = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        System.out.print(report(directory, top));
+    }
+
+    // Text report of the top statements by total time
+    public static String report(Path directory, int top) throws IOException {
+        Map<String, Group> groups = new LinkedHashMap<>();
+        int entries = 0;
+        for (Path file : logFiles(directory)) {
+            entries += read(file, groups);
+        }
+
+        StringBuilder text = new StringBuilder();
+        if (groups.isEmpty()) {
+            return text.append("No slow queries logged in ").append(directory.toAbsolutePath()).append('\n').toString();
+        }
+        List<Group> ranked = new ArrayList<>(groups.values());
+        ranked.sort((a, b) -> Double.compare(b.totalMs, a.totalMs));
+
+        text.append(String.format(Locale.ROOT, "%d slow statements in %d distinct queries (%s)%n%n",
+            entries, groups.size(), directory.toAbsolutePath()));
+        int rank = 0;
+        for (Group group : ranked) {
+            if (++rank > top) {
+                break;
+            }
+            text.append(String.format(Locale.ROOT,
+                "#%d  total %.1f ms  count %d  avg %.1f ms  max %.1f ms  avg rows %.0f%n",
+                rank, group.totalMs, group.count, group.totalMs / group.count, group.maxMs,
+                (double) group.totalRows / group.count));
+            text.append("  ").append(group.sql).append('\n');
+            for (String line : group.plan) {
+                text.append("    plan: ").append(line).append('\n');
+            }
+            for (String hint : hints(group.plan)) {
+                text.append("    hint: ").append(hint).append('\n');
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    // Literals become ?, IN lists of any length become IN (?...)
+    static String normalize(String sql) {
+        String normalized = SlowQueryLog.singleLine(sql);
+        normalized = STRING_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        return IN_LIST.matcher(normalized).replaceAll("IN (?...)");
+    }
+
+    static Set<String> hints(List<String> plan) {
+        Set<String> hints = new LinkedHashSet<>();
+        for (String line : plan) {
+            String step = line.trim();
+            Matcher scan = FULL_SCAN.matcher(step);
+            if (scan.find()) {
+                hints.add("full scan of " + scan.group(1) + "; an index on the columns it is filtered or joined on would avoid it");
+            }
+            if (step.startsWith("USE TEMP B-TREE")) {
+                hints.add("sorted in a temporary b-tree (" + step.substring("USE TEMP B-TREE ".length()).toLowerCase(Locale.ROOT)
+                    + "); an index matching that order would avoid it");
+            }
+        }
+        return hints;
+    }
+
+    // Oldest rolled file first, the current log last
+    private static List<Path> logFiles(Path directory) {
+        List<Path> files = new ArrayList<>();
+        for (int i = SlowQueryLog.KEPT_FILES; i >= 1; i--) {
+            Path rolled = directory.resolve(SlowQueryLog.FILE_NAME + "." + i);
+            if (Files.exists(rolled)) {
+                files.add(rolled);
+            }
+        }
+        Path current = directory.resolve(SlowQueryLog.FILE_NAME);
+        if (Files.exists(current)) {
+            files.add(current);
+        }
+        return files;
+    }
+
+    private static int read(Path file, Map<String, Group> groups) throws IOException {
+        int entries = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            double ms = 0;
+            long rows = 0;
+            Group group = null;
+            boolean newPlan = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher header = HEADER.matcher(line);
+                if (header.matches()) {
+                    ms = Double.parseDouble(header.group(2));
+                    rows = Math.max(0, Long.parseLong(header.group(3)));
+                    group = null;
+                } else if (line.startsWith("  SQL: ")) {
+                    String sql = normalize(line.substring("  SQL: ".length()));
+                    group = groups.computeIfAbsent(sql, Group::new);
+                    group.add(ms, rows);
+                    newPlan = true;
+                    entries++;
+                } else if (line.startsWith("  PLAN: ") && group != null) {
+                    // Keep the plan of the latest entry, it reflects the current indexes
+                    if (newPlan) {
+                        group.plan.clear();
+                        newPlan = false;
+                    }
+                    group.plan.add(line.substring("  PLAN: ".length()));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static final class Group {
+        private final String sql;
+        private final List<String> plan = new ArrayList<>();
+        private int count;
+        private double totalMs;
+        private double maxMs;
+        private long totalRows;
+
+        Group(String sql) {
+            this.sql = sql;
+        }
+
+        void add(double ms, long rows) {
+            count++;
+            totalMs += ms;
+            maxMs = Math.max(maxMs, ms);
+            totalRows += rows;
+        }
+    }
+}
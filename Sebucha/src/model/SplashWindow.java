@@ -0,0 +1,38 @@
+package model;
+
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+
+// Small undecorated window shown while the login page is being prepared
+public class SplashWindow {
+
+    public static Stage show(Image logo) {
+        ImageView logoView = new ImageView(logo);
+        logoView.setFitWidth(120);
+        logoView.setFitHeight(120);
+        logoView.setPreserveRatio(true);
+
+        Label title = new Label("Sebucha Order Management System");
+        title.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: #1f2937;");
+        ProgressBar progress = new ProgressBar();
+        progress.setPrefWidth(220);
+
+        VBox content = new VBox(14, logoView, title, progress);
+        content.setAlignment(Pos.CENTER);
+        content.setStyle("-fx-background-color: white; -fx-padding: 24; -fx-border-color: #e5e7eb;");
+
+        Stage splash = new Stage(StageStyle.UNDECORATED);
+        splash.getIcons().add(logo);
+        splash.setScene(new Scene(content, 360, 240));
+        splash.centerOnScreen();
+        splash.show();
+        return splash;
+    }
+}
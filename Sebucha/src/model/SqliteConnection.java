@@ -1,35 +1,140 @@
 package model;
 
+import java.nio.file.Path;
 import java.sql.Connection;
 
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
+/*
+ * Hands out SQLite connections from a small pool. Callers still close() what they
+ * get from Connector(); that returns the connection to the pool together with its
+ * compiled statements instead of tearing it down.
+ *
+ * On a terminal started with -Dsebucha.server=host:port the connections run
+ * their statements on the order server instead (see OrderServerClient).
+ */
 public class SqliteConnection {
     private static final String DATABASE_URL = "jdbc:sqlite:sebucha.db";
-    private static Connection connection;
-    
+
+    // Idle connections kept open between uses, extra ones are closed on return
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+
+    // Compiled statements kept per connection (LRU)
+    private static final int STATEMENT_CACHE_SIZE = 32;
+
+    private static final Deque<PooledConnection> idleConnections = new ArrayDeque<>();
+    private static boolean driverLoaded;
+    private static int openConnections;
+
+    static {
+        Metrics.gauge("db_pool_idle_connections", SqliteConnection::getIdleConnectionCount);
+        Metrics.gauge("db_pool_open_connections", SqliteConnection::getOpenConnectionCount);
+    }
+
     public static Connection Connector() {
+        if (OrderServerClient.isConfigured()) {
+            return OrderServerClient.getInstance().openConnection();
+        }
         try {
-            Class.forName("org.sqlite.JDBC");
-            connection = DriverManager.getConnection(DATABASE_URL);
-            System.out.println("Database connection successful!");
-            return connection;
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = openPhysical();
+            } else {
+                Metrics.increment("db_pool_reuses");
+            }
+            return pooled.checkOut();
         } catch (Exception e) {
+            Metrics.increment("db_connect_errors");
             System.err.println("Error connecting to database: " + e.getMessage());
             e.printStackTrace();
             return null;
         }
     }
-    
-    public static void closeConnection() {
+
+    private static synchronized PooledConnection takeIdle() {
+        while (!idleConnections.isEmpty()) {
+            PooledConnection pooled = idleConnections.pop();
+            if (pooled.isUsable()) {
+                return pooled;
+            }
+            openConnections--;
+        }
+        return null;
+    }
+
+    private static PooledConnection openPhysical() throws Exception {
+        loadDriver();
+        long started = System.nanoTime();
+        Connection physical = DriverManager.getConnection(DATABASE_URL);
+        synchronized (SqliteConnection.class) {
+            openConnections++;
+        }
+        Metrics.recordSince("db_connect", started);
+        return new PooledConnection(physical, STATEMENT_CACHE_SIZE);
+    }
+
+    /*
+     * A connection of its own for statements SQLite refuses while any other
+     * statement on the connection is unfinished (VACUUM). Pooled connections keep
+     * their compiled statements, so they can't be trusted with those. Opens
+     * sebucha.db, or the given database file; the caller closes it.
+     */
+    static Connection openUnpooled() throws SQLException {
+        return openUnpooled(null);
+    }
+
+    static Connection openUnpooled(Path file) throws SQLException {
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
+            loadDriver();
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("SQLite driver not found", e);
+        }
+        return DriverManager.getConnection(file == null ? DATABASE_URL : "jdbc:sqlite:" + file.toAbsolutePath());
+    }
+
+    private static synchronized void loadDriver() throws ClassNotFoundException {
+        if (!driverLoaded) {
+            Class.forName("org.sqlite.JDBC");
+            driverLoaded = true;
+        }
+    }
+
+    // Called by PooledConnection.close(); keeps the connection warm unless the pool is full
+    static void returnToPool(PooledConnection pooled) {
+        synchronized (SqliteConnection.class) {
+            if (idleConnections.size() < MAX_IDLE_CONNECTIONS && pooled.isUsable()) {
+                idleConnections.push(pooled);
+                return;
             }
-        } catch (SQLException e) {
-            System.err.println("Error closing database connection: " + e.getMessage());
+            openConnections--;
+        }
+        pooled.closePhysical();
+    }
+
+    public static synchronized int getIdleConnectionCount() {
+        return idleConnections.size();
+    }
+
+    public static synchronized int getOpenConnectionCount() {
+        return openConnections;
+    }
+
+    // Closes all idle pooled connections (e.g. on shutdown)
+    public static void closeConnection() {
+        Deque<PooledConnection> toClose;
+        synchronized (SqliteConnection.class) {
+            toClose = new ArrayDeque<>(idleConnections);
+            openConnections -= idleConnections.size();
+            idleConnections.clear();
+        }
+        for (PooledConnection pooled : toClose) {
+            pooled.closePhysical();
+        }
+        if (!toClose.isEmpty()) {
+            System.out.println("Database connection closed.");
         }
     }
 }
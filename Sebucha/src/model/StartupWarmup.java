@@ -0,0 +1,141 @@
+package model;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.util.Duration;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Work done while the login page is on screen, so the first visit to each page
+ * doesn't pay for it:
+ * - database: loads the SQLite driver, opens a pooled connection, creates the
+ *   schema additions and reads the catalog (warming SQLite's page cache), then
+ *   decodes the product card images;
+ * - classes: loads the page controllers, the heavier JavaFX controls and the
+ *   Ikonli icon font, which is read on first use of an icon.
+ * When both are done, the pages people go to after logging in are loaded into
+ * SceneManager one at a time on the FX thread, with a pause in between so the
+ * login page stays responsive.
+ */
+public class StartupWarmup {
+
+    private static final String[] PRELOADED_VIEWS = {"/view/fxml/Order.fxml", "/view/fxml/Dashboard.fxml"};
+
+    private static final String[] WARM_CLASSES = {
+        "controller.OrderController", "controller.ProductCardController", "controller.DashboardController",
+        "controller.RecentOrderController", "controller.InventoryController",
+        "javafx.scene.control.TableView", "javafx.scene.control.DatePicker", "javafx.scene.control.ComboBox",
+        "javafx.scene.control.ScrollPane", "javafx.scene.chart.BarChart", "javafx.scene.chart.LineChart",
+        "javafx.scene.layout.FlowPane"
+    };
+
+    private static final String CATALOG_QUERY =
+        "SELECT image_path FROM products WHERE status IN ('Available', 'Low Stock') AND stock > 0";
+
+    private static CompletableFuture<Void> warmup;
+
+    // Starts the background warmup; later calls return the same run
+    public static synchronized CompletableFuture<Void> start() {
+        if (warmup != null) {
+            return warmup;
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "startup-warmup");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        long started = System.nanoTime();
+        CompletableFuture<Void> database = CompletableFuture.runAsync(StartupWarmup::warmDatabase, workers);
+        CompletableFuture<Void> classes = CompletableFuture.runAsync(StartupWarmup::warmClasses, workers);
+        warmup = CompletableFuture.allOf(database, classes).whenComplete((ignored, error) -> {
+            workers.shutdown();
+            if (error != null) {
+                System.err.println("Startup warmup incomplete: " + error.getMessage());
+            } else {
+                Metrics.recordSince("startup_warmup", started);
+            }
+        });
+        return warmup;
+    }
+
+    // Loads the post-login pages once the background warmup is done
+    public static void preloadViewsWhenReady() {
+        start().handle((ignored, error) -> null).thenRun(() -> Platform.runLater(() ->
+            preloadNext(new ArrayDeque<>(Arrays.asList(PRELOADED_VIEWS)))));
+    }
+
+    private static void preloadNext(Deque<String> remaining) {
+        String view = remaining.poll();
+        if (view == null) {
+            return;
+        }
+        try {
+            if (!SceneManager.getInstance().isLoaded(view)) {
+                SceneManager.getInstance().load(view);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The page will just load when it is opened
+            System.err.println("Could not preload " + view + ": " + e.getMessage());
+        }
+        PauseTransition pause = new PauseTransition(Duration.millis(150));
+        pause.setOnFinished(event -> preloadNext(remaining));
+        pause.play();
+    }
+
+    private static void warmDatabase() {
+        List<String> imagePaths = new ArrayList<>();
+        try (Connection connection = SqliteConnection.Connector()) {
+            if (connection == null) {
+                return;
+            }
+            OrderItemStore.ensureSchema(connection);
+            try (PreparedStatement statement = connection.prepareStatement(CATALOG_QUERY);
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    String imagePath = resultSet.getString(1);
+                    if (imagePath != null && !imagePath.isEmpty()) {
+                        imagePaths.add(imagePath);
+                    }
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM orders");
+                 ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+            }
+        } catch (SQLException e) {
+            System.err.println("Database warmup failed: " + e.getMessage());
+        }
+        ProductImages.preload(imagePaths);
+    }
+
+    private static void warmClasses() {
+        ClassLoader loader = StartupWarmup.class.getClassLoader();
+        for (String className : WARM_CLASSES) {
+            try {
+                Class.forName(className, true, loader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                System.err.println("Warmup could not load " + className + ": " + e.getMessage());
+            }
+        }
+        try {
+            // Resolves the Bootstrap icon pack and reads its font, as the first icon on a page would
+            new org.kordamp.ikonli.javafx.FontIcon("bi-house");
+        } catch (RuntimeException e) {
+            System.err.println("Icon font warmup failed: " + e.getMessage());
+        }
+    }
+}
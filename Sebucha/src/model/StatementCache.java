@@ -0,0 +1,254 @@
+package model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * LRU cache of prepared statements for one pooled connection, keyed by SQL text.
+ * Callers keep using prepareStatement()/close() as usual: close() on a cached
+ * statement only resets it (parameters, batch, open result set) so the next
+ * prepare of the same SQL skips SQLite statement compilation. Every prepare
+ * hands out a fresh handle, so closing a handle from an earlier use again does
+ * nothing to whoever holds the statement now.
+ */
+public final class StatementCache {
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+
+    static {
+        Metrics.gauge("db_statement_cache_hit_ratio", StatementCache::getHitRate);
+    }
+
+    private final Connection physical;
+    private final Connection owner;
+    private final int maxSize;
+    private final Map<String, CachedStatement> entries;
+
+    // Statements handed out while the cached copy of the same SQL was still in use
+    private final List<PreparedStatement> uncached = new ArrayList<>();
+
+    StatementCache(Connection physical, Connection owner, int maxSize) {
+        this.physical = physical;
+        this.owner = owner;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+                eldest.getValue().evict();
+                EVICTIONS.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    // Returns the cached statement for this SQL, compiling it on first use
+    PreparedStatement prepare(String sql) throws SQLException {
+        CachedStatement entry = entries.get(sql);
+        if (entry != null && !entry.inUse) {
+            HITS.incrementAndGet();
+            return entry.checkOut();
+        }
+
+        MISSES.incrementAndGet();
+        if (entry != null) {
+            // Same SQL is already open on this connection (e.g. nested use), hand out a private copy
+            PreparedStatement statement = TracedStatement.wrap(physical.prepareStatement(sql), owner, sql);
+            uncached.add(statement);
+            return statement;
+        }
+
+        entry = new CachedStatement(physical.prepareStatement(sql), sql);
+        entries.put(sql, entry);
+        return entry.checkOut();
+    }
+
+    // Called when the owning connection goes back to the pool; reclaims statements callers never closed
+    void releaseAll() {
+        for (CachedStatement entry : entries.values()) {
+            if (entry.inUse) {
+                entry.reset();
+            }
+        }
+        for (PreparedStatement statement : uncached) {
+            closeQuietly(statement);
+        }
+        uncached.clear();
+    }
+
+    // Physically closes every statement, used when the connection itself is closed
+    void closeAll() {
+        Iterator<CachedStatement> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            closeQuietly(iterator.next().statement);
+            iterator.remove();
+        }
+        for (PreparedStatement statement : uncached) {
+            closeQuietly(statement);
+        }
+        uncached.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    public static long getHitCount() {
+        return HITS.get();
+    }
+
+    public static long getMissCount() {
+        return MISSES.get();
+    }
+
+    public static long getEvictionCount() {
+        return EVICTIONS.get();
+    }
+
+    // Fraction of prepareStatement calls served from cache, 0 when nothing was prepared yet
+    public static double getHitRate() {
+        long hits = HITS.get();
+        long total = hits + MISSES.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing cached statement: " + e.getMessage());
+        }
+    }
+
+    // One compiled statement; each checkout gets its own proxy handle
+    private final class CachedStatement {
+        private final PreparedStatement statement;
+        private final String sql;
+        private ResultSet lastResult;
+        private int bindCount;
+        private boolean inUse;
+        private boolean evicted;
+
+        // Numbers the checkouts; only the handle of the latest one still works
+        private long checkout;
+
+        CachedStatement(PreparedStatement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        PreparedStatement checkOut() {
+            inUse = true;
+            long token = ++checkout;
+            InvocationHandler handler = (proxy, method, args) -> invoke(token, proxy, method, args);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                handler
+            );
+        }
+
+        private Object invoke(long token, Object proxy, Method method, Object[] args) throws Throwable {
+            boolean current = inUse && token == checkout;
+            switch (method.getName()) {
+                case "close":
+                    if (!current) {
+                        return null;
+                    }
+                    if (evicted) {
+                        inUse = false;
+                        closeQuietly(statement);
+                    } else {
+                        reset();
+                    }
+                    return null;
+                case "isClosed":
+                    return !current;
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + statement + "]";
+                default:
+                    break;
+            }
+
+            if (!current) {
+                throw new SQLException("Statement is closed");
+            }
+            if (method.getName().equals("clearParameters")) {
+                bindCount = 0;
+            } else {
+                bindCount = Math.max(bindCount, TracedStatement.bindIndex(method.getName(), args));
+            }
+
+            // Executions are timed; for queries that covers compiling the plan and finding the first row
+            String timerName = TracedStatement.timerName(method.getName());
+            long started = timerName == null ? 0 : System.nanoTime();
+            try {
+                Object result = method.invoke(statement, args);
+                if (timerName != null) {
+                    result = TracedStatement.traced(sql, bindCount, started, result);
+                }
+                if (result instanceof ResultSet) {
+                    lastResult = (ResultSet) result;
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                if (timerName != null) {
+                    Metrics.increment("db_errors");
+                }
+                throw e.getCause();
+            } finally {
+                if (timerName != null) {
+                    Metrics.recordSince(timerName, started);
+                }
+            }
+        }
+
+        // Clears per-use state so the compiled statement can be handed out again
+        void reset() {
+            try {
+                if (lastResult != null) {
+                    lastResult.close();
+                    lastResult = null;
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+                bindCount = 0;
+            } catch (SQLException e) {
+                System.err.println("Error resetting cached statement: " + e.getMessage());
+            }
+            inUse = false;
+        }
+
+        // Dropped from the LRU map: close now, or once the current caller is done with it
+        void evict() {
+            evicted = true;
+            if (inUse) {
+                uncached.add(statement);
+            } else {
+                closeQuietly(statement);
+            }
+        }
+    }
+}
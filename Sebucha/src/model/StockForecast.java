@@ -0,0 +1,515 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Sets product status from stock and sales velocity, and raises reorder alerts.
+ *
+ * Velocity is an exponentially weighted moving average of units sold per
+ * selling hour, one per product. Sales are added to the current bucket as
+ * orders commit; every bucket (-Dsebucha.forecast.minutes, default 15, 0 turns
+ * it off) each average moves toward what the bucket sold, with a half-life of
+ * HALF_LIFE_BUCKETS. A bucket in which the whole shop sold nothing is taken as
+ * closed time and doesn't pull the averages down, so the morning starts from
+ * yesterday's pace. Averages are saved to stock_velocity each bucket and on exit;
+ * a crash loses at most the bucket in progress.
+ *
+ * Stock divided by velocity gives the selling hours left. A product is Out of
+ * Stock at zero, Low Stock under LOW_STOCK_HOURS or MIN_STOCK units, and
+ * Available otherwise. Its status is written only when that level changes, so a
+ * status set by hand stays until the next crossing, and Discontinued (or any
+ * other status) is never touched. Products with one of the three statuses and
+ * under REORDER_HOURS get a row in reorder_alerts, removed again once they are
+ * restocked.
+ *
+ * Only products whose stock or velocity moved are looked at; a change made
+ * elsewhere (Inventory, another terminal) re-reads the catalog once. Nothing
+ * reads the order history. All state lives on the "stock-forecast" thread.
+ *
+ * Runs where the orders are written: a standalone till or the order server.
+ */
+public class StockForecast implements DataVersions.Listener {
+
+    public static final String MINUTES_PROPERTY = "sebucha.forecast.minutes";
+    public static final int DEFAULT_MINUTES = 15;
+
+    public static final String AVAILABLE = "Available";
+    public static final String LOW_STOCK = "Low Stock";
+    public static final String OUT_OF_STOCK = "Out of Stock";
+
+    static final int HALF_LIFE_BUCKETS = 8;
+    static final double LOW_STOCK_HOURS = 3;
+    static final double REORDER_HOURS = 12;
+    static final int MIN_STOCK = 5;
+
+    // Changes arriving together are looked at once
+    private static final long EVALUATE_DELAY_MS = 1_000;
+
+    private static final String CREATE_VELOCITY =
+        "CREATE TABLE IF NOT EXISTS stock_velocity (" +
+        "product_id INTEGER PRIMARY KEY, " +
+        "units_per_hour REAL NOT NULL, " +
+        "level TEXT, " +
+        "updated_at TEXT NOT NULL)";
+
+    private static final String CREATE_ALERTS =
+        "CREATE TABLE IF NOT EXISTS reorder_alerts (" +
+        "product_id INTEGER PRIMARY KEY, " +
+        "raised_at TEXT NOT NULL)";
+
+    private static final String SELECT_VELOCITY = "SELECT product_id, units_per_hour, level FROM stock_velocity";
+
+    private static final String SELECT_ALERTED = "SELECT product_id FROM reorder_alerts";
+
+    private static final String SELECT_PRODUCTS = "SELECT id, stock, status FROM products";
+
+    private static final String SAVE_VELOCITY =
+        "INSERT OR REPLACE INTO stock_velocity (product_id, units_per_hour, level, updated_at) VALUES (?, ?, ?, ?)";
+
+    // Guarded by the old status, so a change made by hand in the meantime wins
+    private static final String UPDATE_STATUS = "UPDATE products SET status = ? WHERE id = ? AND status = ?";
+
+    private static final String INSERT_ALERT = "INSERT OR IGNORE INTO reorder_alerts (product_id, raised_at) VALUES (?, ?)";
+
+    private static final String DELETE_ALERT = "DELETE FROM reorder_alerts WHERE product_id = ?";
+
+    private static final String SELECT_REORDERS =
+        "SELECT p.id, p.name, p.stock, COALESCE(v.units_per_hour, 0) AS units_per_hour, a.raised_at " +
+        "FROM reorder_alerts a JOIN products p ON p.id = a.product_id " +
+        "LEFT JOIN stock_velocity v ON v.product_id = a.product_id ORDER BY p.stock, p.name";
+
+    private static final String HAS_ALERTS_TABLE =
+        "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'reorder_alerts'";
+
+    private static StockForecast running;
+
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-forecast");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean evaluationQueued = new AtomicBoolean();
+    private final double alpha = 1 - Math.pow(0.5, 1.0 / HALF_LIFE_BUCKETS);
+    private volatile Thread workerThread;
+
+    // Worker thread only
+    private final Map<Integer, Double> unitsPerHour = new HashMap<>();
+    private final Map<Integer, String> levels = new HashMap<>();
+    private final Set<Integer> alerted = new HashSet<>();
+    private final Map<Integer, Integer> bucket = new HashMap<>();
+    private final Set<Integer> pending = new HashSet<>();
+    private final Set<Integer> unsaved = new HashSet<>();
+    private boolean pendingAll = true;
+    private long bucketStartedAt;
+    private volatile int alertCount;
+
+    private StockForecast() {
+    }
+
+    // Starts the engine unless turned off or running as a terminal (called from Main and OrderServer)
+    public static synchronized void startIfConfigured() {
+        int minutes = Integer.getInteger(MINUTES_PROPERTY, DEFAULT_MINUTES);
+        if (minutes <= 0 || running != null || OrderServerClient.isConfigured()) {
+            return;
+        }
+        StockForecast forecast = new StockForecast();
+        forecast.worker.execute(() -> {
+            forecast.workerThread = Thread.currentThread();
+            forecast.load();
+        });
+        long interval = TimeUnit.MINUTES.toMillis(minutes);
+        forecast.worker.scheduleAtFixedRate(forecast::closeBucket, interval, interval, TimeUnit.MILLISECONDS);
+        DataVersions.addListener(forecast);
+        Metrics.gauge("forecast_reorder_alerts", () -> forecast.alertCount);
+        running = forecast;
+    }
+
+    // Saves the averages and stops (called on exit)
+    public static synchronized void stopRunning() {
+        StockForecast forecast = running;
+        if (forecast == null) {
+            return;
+        }
+        running = null;
+        DataVersions.removeListener(forecast);
+        forecast.worker.execute(forecast::saveVelocity);
+        forecast.worker.shutdown();
+        try {
+            forecast.worker.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Units an order has just taken from stock, per product (add-ons included)
+    static void sold(Map<Integer, Integer> units) {
+        StockForecast forecast = running;
+        if (forecast == null || units.isEmpty()) {
+            return;
+        }
+        Map<Integer, Integer> copy = new HashMap<>(units);
+        forecast.worker.execute(() -> {
+            for (Map.Entry<Integer, Integer> entry : copy.entrySet()) {
+                forecast.bucket.merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+            forecast.pending.addAll(copy.keySet());
+        });
+        forecast.scheduleEvaluation();
+    }
+
+    // Products whose stock moved without a sale: a cancellation, or ingredients used or delivered
+    static void stockChanged(Collection<Integer> productIds) {
+        StockForecast forecast = running;
+        if (forecast == null || productIds.isEmpty()) {
+            return;
+        }
+        List<Integer> copy = new ArrayList<>(productIds);
+        forecast.worker.execute(() -> forecast.pending.addAll(copy));
+        forecast.scheduleEvaluation();
+    }
+
+    // Stock or status edited somewhere we can't see which product: look at them all once
+    @Override
+    public void dataChanged(int changes, boolean elsewhere) {
+        if ((changes & DataVersions.PRODUCTS) == 0 || Thread.currentThread() == workerThread) {
+            return;
+        }
+        worker.execute(() -> pendingAll = true);
+        scheduleEvaluation();
+    }
+
+    /*
+     * The products on reorder alert with their current stock and pace, lowest
+     * stock first. Reads through any connection, so terminals see the server's
+     * alerts; empty if the engine has never run on this database.
+     */
+    public static List<Reorder> reorders(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(HAS_ALERTS_TABLE);
+             ResultSet resultSet = statement.executeQuery()) {
+            if (!resultSet.next()) {
+                return Collections.emptyList();
+            }
+        }
+        List<Reorder> reorders = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_REORDERS);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                reorders.add(new Reorder(resultSet.getInt("id"), resultSet.getString("name"), resultSet.getInt("stock"),
+                    resultSet.getDouble("units_per_hour"), LocalDateTime.parse(resultSet.getString("raised_at"))));
+            }
+        }
+        return reorders;
+    }
+
+    private void scheduleEvaluation() {
+        if (evaluationQueued.compareAndSet(false, true)) {
+            worker.schedule(() -> {
+                evaluationQueued.set(false);
+                evaluate();
+            }, EVALUATE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        bucketStartedAt = System.currentTimeMillis();
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_VELOCITY);
+            statement.execute(CREATE_ALERTS);
+            try (ResultSet resultSet = statement.executeQuery(SELECT_VELOCITY)) {
+                while (resultSet.next()) {
+                    int id = resultSet.getInt("product_id");
+                    unitsPerHour.put(id, resultSet.getDouble("units_per_hour"));
+                    String level = resultSet.getString("level");
+                    if (level != null) {
+                        levels.put(id, level);
+                    }
+                }
+            }
+            try (ResultSet resultSet = statement.executeQuery(SELECT_ALERTED)) {
+                while (resultSet.next()) {
+                    alerted.add(resultSet.getInt("product_id"));
+                }
+            }
+            alertCount = alerted.size();
+            Metrics.recordSince("forecast_load", started);
+        } catch (SQLException | RuntimeException e) {
+            Metrics.increment("forecast_failures");
+            System.err.println("Could not load the stock forecast: " + e.getMessage());
+        }
+        pendingAll = true;
+        evaluate();
+    }
+
+    /*
+     * Folds the bucket that just ended into every average. Each product moves
+     * toward its rate in the bucket, including the ones that sold nothing, unless
+     * the whole shop sold nothing.
+     */
+    private void closeBucket() {
+        long now = System.currentTimeMillis();
+        double hours = (now - bucketStartedAt) / 3_600_000.0;
+        bucketStartedAt = now;
+        if (bucket.isEmpty() || hours <= 0) {
+            bucket.clear();
+            return;
+        }
+        Set<Integer> products = new HashSet<>(unitsPerHour.keySet());
+        products.addAll(bucket.keySet());
+        for (Integer id : products) {
+            double rate = bucket.getOrDefault(id, 0) / hours;
+            double average = unitsPerHour.getOrDefault(id, 0.0);
+            double next = average + alpha * (rate - average);
+            if (next < 0.01) {
+                next = 0;
+            }
+            if (next != average) {
+                unitsPerHour.put(id, next);
+                unsaved.add(id);
+                pending.add(id);
+            }
+        }
+        bucket.clear();
+        evaluate();
+        saveVelocity();
+    }
+
+    private void evaluate() {
+        if (!pendingAll && pending.isEmpty()) {
+            return;
+        }
+        long started = System.nanoTime();
+        boolean all = pendingAll;
+        Set<Integer> ids = new HashSet<>(pending);
+        pendingAll = false;
+        pending.clear();
+
+        Map<Integer, String> crossed = new HashMap<>();
+        List<Object[]> statusChanges = new ArrayList<>();
+        List<Integer> raise = new ArrayList<>();
+        List<Integer> clear = new ArrayList<>();
+        try (Connection connection = connect()) {
+            // Read before the transaction, so it only ever writes (see LocalOrderService on lock upgrades)
+            try (PreparedStatement statement = connection.prepareStatement(selectProducts(all, ids.size()))) {
+                if (!all) {
+                    int index = 1;
+                    for (Integer id : ids) {
+                        statement.setInt(index++, id);
+                    }
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        int id = resultSet.getInt("id");
+                        int stock = resultSet.getInt("stock");
+                        String status = resultSet.getString("status");
+                        double hoursLeft = hoursLeft(stock, unitsPerHour.getOrDefault(id, 0.0));
+                        String level = level(stock, hoursLeft);
+
+                        if (!level.equals(levels.get(id))) {
+                            crossed.put(id, level);
+                            if (isManaged(status) && !level.equals(status)) {
+                                statusChanges.add(new Object[] {level, id, status});
+                            }
+                        }
+                        // Discontinued products aren't reordered
+                        boolean reorder = isManaged(status) && (!AVAILABLE.equals(level) || hoursLeft < REORDER_HOURS);
+                        if (reorder && !alerted.contains(id)) {
+                            raise.add(id);
+                        } else if (!reorder && alerted.contains(id)) {
+                            clear.add(id);
+                        }
+                    }
+                }
+            }
+
+            if (!statusChanges.isEmpty() || !raise.isEmpty() || !clear.isEmpty()) {
+                write(connection, statusChanges, raise, clear);
+            }
+            levels.putAll(crossed);
+            unsaved.addAll(crossed.keySet());
+            alerted.addAll(raise);
+            alerted.removeAll(clear);
+            alertCount = alerted.size();
+
+            if (!statusChanges.isEmpty() || !raise.isEmpty() || !clear.isEmpty()) {
+                Metrics.increment("forecast_status_changes", statusChanges.size());
+                Metrics.increment("forecast_reorders_raised", raise.size());
+                DataVersions.productsChanged();
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Looked at again with the next change
+            pendingAll |= all;
+            pending.addAll(ids);
+            Metrics.increment("forecast_failures");
+            System.err.println("Stock forecast update failed: " + e.getMessage());
+        } finally {
+            Metrics.recordSince("forecast_evaluate", started);
+        }
+    }
+
+    // Status changes and alerts of one evaluation, in one transaction
+    private static void write(Connection connection, List<Object[]> statusChanges, List<Integer> raise, List<Integer> clear)
+            throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_STATUS)) {
+                for (Object[] change : statusChanges) {
+                    statement.setString(1, (String) change[0]);
+                    statement.setInt(2, (Integer) change[1]);
+                    statement.setString(3, (String) change[2]);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            String now = LocalDateTime.now().toString();
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_ALERT)) {
+                for (Integer id : raise) {
+                    statement.setInt(1, id);
+                    statement.setString(2, now);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(DELETE_ALERT)) {
+                for (Integer id : clear) {
+                    statement.setInt(1, id);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void saveVelocity() {
+        if (unsaved.isEmpty()) {
+            return;
+        }
+        String now = LocalDateTime.now().toString();
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(SAVE_VELOCITY)) {
+                for (Integer id : unsaved) {
+                    statement.setInt(1, id);
+                    statement.setDouble(2, unitsPerHour.getOrDefault(id, 0.0));
+                    statement.setString(3, levels.get(id));
+                    statement.setString(4, now);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            unsaved.clear();
+        } catch (SQLException | RuntimeException e) {
+            Metrics.increment("forecast_failures");
+            System.err.println("Could not save the sales velocity: " + e.getMessage());
+        }
+    }
+
+    static double hoursLeft(int stock, double unitsPerHour) {
+        return unitsPerHour > 0 ? Math.max(stock, 0) / unitsPerHour : Double.POSITIVE_INFINITY;
+    }
+
+    static String level(int stock, double hoursLeft) {
+        if (stock <= 0) {
+            return OUT_OF_STOCK;
+        }
+        if (stock <= MIN_STOCK || hoursLeft < LOW_STOCK_HOURS) {
+            return LOW_STOCK;
+        }
+        return AVAILABLE;
+    }
+
+    private static boolean isManaged(String status) {
+        return AVAILABLE.equals(status) || LOW_STOCK.equals(status) || OUT_OF_STOCK.equals(status);
+    }
+
+    private static String selectProducts(boolean all, int count) {
+        if (all) {
+            return SELECT_PRODUCTS;
+        }
+        StringBuilder sql = new StringBuilder(SELECT_PRODUCTS).append(" WHERE id IN (");
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    private static Connection connect() throws SQLException {
+        Connection connection = SqliteConnection.Connector();
+        if (connection == null) {
+            throw new SQLException("Could not connect to database");
+        }
+        return connection;
+    }
+
+    // A product on reorder alert, as Inventory lists it
+    public static final class Reorder {
+        private final int productId;
+        private final String name;
+        private final int stock;
+        private final double unitsPerHour;
+        private final LocalDateTime raisedAt;
+
+        Reorder(int productId, String name, int stock, double unitsPerHour, LocalDateTime raisedAt) {
+            this.productId = productId;
+            this.name = name;
+            this.stock = stock;
+            this.unitsPerHour = unitsPerHour;
+            this.raisedAt = raisedAt;
+        }
+
+        public int getProductId() {
+            return productId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getStock() {
+            return stock;
+        }
+
+        public double getUnitsPerHour() {
+            return unitsPerHour;
+        }
+
+        // Selling hours until it runs out at the current pace; infinite when it isn't selling
+        public double getHoursLeft() {
+            return hoursLeft(stock, unitsPerHour);
+        }
+
+        public LocalDateTime getRaisedAt() {
+            return raisedAt;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package model;
+
+import java.net.InetAddress;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Runs an order server and several terminals in one process against the
+ * sebucha.db in the working directory (use a copy):
+ *   java model.TerminalSimulator [terminals] [orders per terminal]
+ * Every terminal rings up orders through the server at the same time, without
+ * looking at stock first, so products run out under contention. The server
+ * must refuse those orders (OutOfStockException) rather than oversell: at the
+ * end no stock may be below zero, the stock used and the orders written must
+ * match the orders it accepted, and each terminal must have been told about
+ * the other terminals' sales.
+ */
+public class TerminalSimulator {
+
+    public static void main(String[] args) throws Exception {
+        int terminals = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int ordersEach = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        OrderServer server = new OrderServer(0, InetAddress.getLoopbackAddress(), "simulator");
+        server.start();
+
+        OrderServerClient catalog = new OrderServerClient("localhost", server.getPort(), "simulator");
+        catalog.setPushListener(changes -> { });
+        List<Product> products = loadProducts(catalog);
+        catalog.close();
+        if (products.isEmpty()) {
+            System.err.println("No products with stock in this database");
+            server.stop();
+            return;
+        }
+        long stockBefore = totalStock();
+        long ordersBefore = countOrders();
+
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicInteger itemsSold = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        List<AtomicInteger> accepted = new ArrayList<>();
+        List<AtomicInteger> pushes = new ArrayList<>();
+        List<OrderServerClient> clients = new ArrayList<>();
+        for (int t = 0; t < terminals; t++) {
+            OrderServerClient client = new OrderServerClient("localhost", server.getPort(), "simulator");
+            AtomicInteger received = new AtomicInteger();
+            client.setPushListener(changes -> received.incrementAndGet());
+            client.ping();
+            pushes.add(received);
+            accepted.add(new AtomicInteger());
+            clients.add(client);
+        }
+
+        ExecutorService tills = Executors.newFixedThreadPool(terminals);
+        List<Future<?>> running = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int t = 0; t < terminals; t++) {
+            OrderServerClient client = clients.get(t);
+            AtomicInteger placedHere = accepted.get(t);
+            running.add(tills.submit(() -> {
+                for (int i = 0; i < ordersEach; i++) {
+                    List<OrderItem> items = new ArrayList<>();
+                    int lines = 1 + ThreadLocalRandom.current().nextInt(3);
+                    for (int l = 0; l < lines; l++) {
+                        Product product = products.get(ThreadLocalRandom.current().nextInt(products.size()));
+                        OrderItem item = new OrderItem();
+                        item.setProductId(product.getId());
+                        item.setProductName(product.getName());
+                        item.setUnitPrice(product.getPrice());
+                        item.setQuantity(1);
+                        item.setTotalPrice(product.getPrice());
+                        items.add(item);
+                    }
+                    long orderStarted = System.nanoTime();
+                    try {
+                        client.placeOrder(new OrderRequest("Simulator", "Dine In", "Cash", items));
+                        placedHere.incrementAndGet();
+                        itemsSold.addAndGet(items.size());
+                    } catch (OutOfStockException e) {
+                        refused.incrementAndGet();
+                    }
+                    latency.recordSince(orderStarted);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> till : running) {
+            till.get();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        tills.shutdown();
+        tills.awaitTermination(10, TimeUnit.SECONDS);
+
+        // Each terminal hears about every order the others got through; pushes are
+        // sent after each reply, so give the last ones a moment to land
+        int placed = accepted.stream().mapToInt(AtomicInteger::get).sum();
+        int[] expectedPushes = new int[terminals];
+        for (int t = 0; t < terminals; t++) {
+            expectedPushes[t] = placed - accepted.get(t).get();
+        }
+        long waitUntil = System.currentTimeMillis() + 2000;
+        while (System.currentTimeMillis() < waitUntil && !allTold(pushes, expectedPushes)) {
+            Thread.sleep(20);
+        }
+
+        long ordersWritten = countOrders() - ordersBefore;
+        long stockUsed = stockBefore - totalStock();
+        long lowestStock = lowestStock();
+        System.out.printf("%d terminals x %d orders in %.2f s (%.0f orders/s), %d refused for stock%n",
+            terminals, ordersEach, seconds, terminals * ordersEach / seconds, refused.get());
+        System.out.printf("order round trip p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+            latency.getValueAtQuantile(0.50) / 1e6, latency.getValueAtQuantile(0.99) / 1e6, latency.getMaxNanos() / 1e6);
+        System.out.println("orders written " + ordersWritten + " of " + placed + ", stock used " + stockUsed + " of " + itemsSold.get()
+            + ", lowest stock " + lowestStock);
+        for (int t = 0; t < terminals; t++) {
+            System.out.println("terminal " + (t + 1) + " was told about " + pushes.get(t).get() + " of " + expectedPushes[t] + " sales elsewhere");
+        }
+        boolean consistent = ordersWritten == placed && stockUsed == itemsSold.get() && lowestStock >= 0
+            && allTold(pushes, expectedPushes);
+        System.out.println(consistent ? "OK" : "MISMATCH");
+
+        for (OrderServerClient client : clients) {
+            client.close();
+        }
+        server.stop();
+        SqliteConnection.closeConnection();
+        System.exit(consistent ? 0 : 1);
+    }
+
+    // Catalog read through a terminal, the way the order page does it
+    private static List<Product> loadProducts(OrderServerClient client) throws SQLException {
+        List<Product> products = new ArrayList<>();
+        try (Connection connection = client.openConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT id, name, category, price, stock, status FROM products WHERE stock > 0");
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                products.add(new Product(resultSet.getInt("id"), resultSet.getString("name"), resultSet.getString("category"),
+                    resultSet.getDouble("price"), resultSet.getInt("stock"), resultSet.getString("status"), null, null));
+            }
+        }
+        return products;
+    }
+
+    private static boolean allTold(List<AtomicInteger> pushes, int[] expected) {
+        for (int t = 0; t < expected.length; t++) {
+            if (pushes.get(t).get() != expected[t]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Lowest stock of any product, or ingredient where recipes are in use
+    private static long lowestStock() throws SQLException {
+        long lowest = queryLong("SELECT COALESCE(MIN(stock), 0) FROM products");
+        if (queryLong("SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = 'ingredients'") > 0) {
+            lowest = Math.min(lowest, queryLong("SELECT COALESCE(MIN(FLOOR(stock)), 0) FROM ingredients"));
+        }
+        return lowest;
+    }
+
+    private static long totalStock() throws SQLException {
+        return queryLong("SELECT COALESCE(SUM(stock), 0) FROM products");
+    }
+
+    private static long countOrders() throws SQLException {
+        return queryLong("SELECT COUNT(*) FROM orders");
+    }
+
+    private static long queryLong(String sql) throws SQLException {
+        try (Connection connection = SqliteConnection.Connector();
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+}
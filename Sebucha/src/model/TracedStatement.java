@@ -0,0 +1,141 @@
+package model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/*
+ * Timing and slow-query tracing for statements the StatementCache doesn't own:
+ * plain createStatement() statements and prepareStatement() calls with extra
+ * arguments (generated keys and the like). The static helpers are shared with
+ * the cached statements so both record the same metrics and log entries.
+ */
+final class TracedStatement implements InvocationHandler {
+
+    private final Statement statement;
+    private final Connection owner;
+    private final String sql;
+    private int bindCount;
+
+    private TracedStatement(Statement statement, Connection owner, String sql) {
+        this.statement = statement;
+        this.owner = owner;
+        this.sql = sql;
+    }
+
+    static PreparedStatement wrap(PreparedStatement statement, Connection owner, String sql) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(),
+            new Class<?>[] { PreparedStatement.class },
+            new TracedStatement(statement, owner, sql)
+        );
+    }
+
+    // SQL for a plain Statement arrives with each execute call
+    static Statement wrap(Statement statement, Connection owner) {
+        return (Statement) Proxy.newProxyInstance(
+            Statement.class.getClassLoader(),
+            new Class<?>[] { Statement.class },
+            new TracedStatement(statement, owner, null)
+        );
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch (name) {
+            case "getConnection":
+                return owner;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "TracedStatement[" + statement + "]";
+            case "clearParameters":
+                bindCount = 0;
+                break;
+            default:
+                bindCount = Math.max(bindCount, bindIndex(name, args));
+                break;
+        }
+
+        String timerName = timerName(name);
+        if (timerName == null) {
+            return call(method, args);
+        }
+        String executed = sql != null ? sql : (args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : "(batch)");
+        long started = System.nanoTime();
+        try {
+            return traced(executed, bindCount, started, call(method, args));
+        } catch (SQLException e) {
+            Metrics.increment("db_errors");
+            throw e;
+        } finally {
+            Metrics.recordSince(timerName, started);
+        }
+    }
+
+    private Object call(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Metric name for an execute method, null for everything else
+    static String timerName(String methodName) {
+        switch (methodName) {
+            case "executeQuery":
+                return "db_query";
+            case "executeBatch":
+            case "executeLargeBatch":
+                return "db_batch";
+            case "execute":
+            case "executeUpdate":
+            case "executeLargeUpdate":
+                return "db_update";
+            default:
+                return null;
+        }
+    }
+
+    // Parameter index for setXxx(index, value) calls, 0 for anything else
+    static int bindIndex(String methodName, Object[] args) {
+        if (methodName.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+            return (Integer) args[0];
+        }
+        return 0;
+    }
+
+    /*
+     * Hands the result of an execute call to the slow-query log. Queries are
+     * timed until their result set is closed (SQLite produces rows lazily, so
+     * that is when the work is really done); updates and batches are complete
+     * when they return.
+     */
+    static Object traced(String sql, int bindCount, long started, Object result) {
+        if (result instanceof ResultSet) {
+            return SlowQueryLog.track((ResultSet) result, sql, bindCount, started);
+        }
+        if (result instanceof Integer || result instanceof Long) {
+            SlowQueryLog.completed(sql, bindCount, started, ((Number) result).longValue());
+        } else if (result instanceof int[]) {
+            long rows = 0;
+            for (int count : (int[]) result) {
+                rows += Math.max(count, 0);
+            }
+            SlowQueryLog.completed(sql, bindCount, started, rows);
+        } else {
+            SlowQueryLog.completed(sql, bindCount, started, -1);
+        }
+        return result;
+    }
+}
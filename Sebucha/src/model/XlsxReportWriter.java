@@ -0,0 +1,204 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/*
+ * Report output as a single-sheet .xlsx workbook, written without a spreadsheet
+ * library. The fixed package parts go out first and the sheet XML is streamed
+ * row by row into the last zip entry, using inline strings so nothing has to be
+ * collected into a shared-strings table.
+ */
+public class XlsxReportWriter implements ReportWriter {
+
+    public static final ReportWriterProvider PROVIDER =
+        ReportWriterProvider.of("xlsx", "Excel Workbook", "xlsx", XlsxReportWriter::new);
+
+    private static final String CONTENT_TYPES =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+        "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" +
+        "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" +
+        "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" +
+        "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>" +
+        "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>" +
+        "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>" +
+        "</Types>";
+
+    private static final String ROOT_RELS =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+        "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+        "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>" +
+        "</Relationships>";
+
+    private static final String WORKBOOK_RELS =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+        "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+        "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>" +
+        "<Relationship Id=\"rId2\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>" +
+        "</Relationships>";
+
+    // Style 0 = default, 1 = bold header, 2 = two-decimal number
+    private static final String STYLES =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+        "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">" +
+        "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>" +
+        "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>" +
+        "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>" +
+        "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>" +
+        "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>" +
+        "<cellXfs count=\"3\">" +
+        "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>" +
+        "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>" +
+        "<xf numFmtId=\"4\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>" +
+        "</cellXfs></styleSheet>";
+
+    private final ZipOutputStream zip;
+    private final Writer sheet;
+    private final StringBuilder row = new StringBuilder(512);
+    private List<ReportColumn> columns;
+    private String[] columnLetters;
+    private int rowNumber;
+
+    public XlsxReportWriter(Path target) throws IOException {
+        this.zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(target), 256 * 1024));
+        this.sheet = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void begin(String title, List<ReportColumn> columns) throws IOException {
+        this.columns = columns;
+        this.columnLetters = new String[columns.size()];
+        for (int i = 0; i < columnLetters.length; i++) {
+            columnLetters[i] = columnLetter(i);
+        }
+
+        putEntry("[Content_Types].xml", CONTENT_TYPES);
+        putEntry("_rels/.rels", ROOT_RELS);
+        putEntry("xl/_rels/workbook.xml.rels", WORKBOOK_RELS);
+        putEntry("xl/styles.xml", STYLES);
+        putEntry("xl/workbook.xml",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+            "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" " +
+            "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">" +
+            "<sheets><sheet name=\"" + escape(sheetName(title)) + "\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>");
+
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+        sheet.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+            "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">" +
+            "<sheetViews><sheetView workbookViewId=\"0\"><pane ySplit=\"1\" topLeftCell=\"A2\" activePane=\"bottomLeft\" state=\"frozen\"/></sheetView></sheetViews>" +
+            "<cols>");
+        for (int i = 0; i < columns.size(); i++) {
+            int width = Math.round(columns.get(i).getRelativeWidth() * 12);
+            sheet.write("<col min=\"" + (i + 1) + "\" max=\"" + (i + 1) + "\" width=\"" + width + "\" customWidth=\"1\"/>");
+        }
+        sheet.write("</cols><sheetData>");
+
+        Object[] header = new Object[columns.size()];
+        for (int i = 0; i < header.length; i++) {
+            header[i] = columns.get(i).getName();
+        }
+        writeCells(header, true);
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        writeCells(values, false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (columns != null) {
+                sheet.write("</sheetData></worksheet>");
+                sheet.flush();
+                zip.closeEntry();
+            }
+        } finally {
+            zip.close();
+        }
+    }
+
+    private void writeCells(Object[] values, boolean header) throws IOException {
+        rowNumber++;
+        row.setLength(0);
+        row.append("<row r=\"").append(rowNumber).append("\">");
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            String ref = columnLetters[i] + rowNumber;
+            ReportColumn.Type type = columns.get(i).getType();
+            if (!header && value instanceof Number && type != ReportColumn.Type.TEXT) {
+                row.append("<c r=\"").append(ref).append('"');
+                if (type == ReportColumn.Type.DECIMAL) {
+                    row.append(" s=\"2\"");
+                }
+                row.append("><v>");
+                if (type == ReportColumn.Type.DECIMAL) {
+                    row.append(String.format(Locale.ROOT, "%.2f", ((Number) value).doubleValue()));
+                } else {
+                    row.append(((Number) value).longValue());
+                }
+                row.append("</v></c>");
+            } else {
+                row.append("<c r=\"").append(ref).append("\" t=\"inlineStr\"");
+                if (header) {
+                    row.append(" s=\"1\"");
+                }
+                row.append("><is><t xml:space=\"preserve\">").append(escape(value.toString())).append("</t></is></c>");
+            }
+        }
+        row.append("</row>");
+        sheet.write(row.toString());
+    }
+
+    private void putEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    // 0 -> A, 25 -> Z, 26 -> AA
+    private static String columnLetter(int index) {
+        StringBuilder letters = new StringBuilder();
+        for (int n = index + 1; n > 0; n = (n - 1) / 26) {
+            letters.insert(0, (char) ('A' + (n - 1) % 26));
+        }
+        return letters.toString();
+    }
+
+    // Excel sheet names: max 31 chars, none of []:*?/\
+    private static String sheetName(String title) {
+        String name = title == null || title.isEmpty() ? "Report" : title.replaceAll("[\\[\\]:*?/\\\\]", " ");
+        return name.length() > 31 ? name.substring(0, 31) : name;
+    }
+
+    // XML escaping; characters XML 1.0 cannot carry are dropped
+    private static String escape(String text) {
+        StringBuilder out = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&': out.append("&amp;"); break;
+                case '<': out.append("&lt;"); break;
+                case '>': out.append("&gt;"); break;
+                case '"': out.append("&quot;"); break;
+                default:
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.toString();
+    }
+}
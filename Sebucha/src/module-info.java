@@ -1,3 +1,5 @@
+// iText is an automatic module (no module-info of its own); that is expected, see below
+@SuppressWarnings("requires-automatic")
 module Sebucha {
 	// JavaFX modules
 	requires javafx.controls;
@@ -9,9 +11,19 @@ module Sebucha {
 	// SQLite database
 	requires java.sql;
 	
+	// Flight recorder events and the continuous recording
+	requires jdk.jfr;
+	
+	// Built-in HTTP server for the kiosk/delivery API
+	requires jdk.httpserver;
+	
 	// Desktop integration for opening PDFs
 	requires java.desktop;
 	
+	// iText (Forprinting/) for PDF reports and receipts; an automatic module,
+	// needed at run time, so not "requires static"
+	requires itextpdf;
+	
 	// Ikonli for icons
 	requires org.kordamp.ikonli.core;
 	requires org.kordamp.ikonli.javafx;
@@ -24,4 +36,7 @@ module Sebucha {
 	// Open packages to JavaFX for reflection access
 	opens model to javafx.base, javafx.fxml;
 	opens controller to javafx.fxml;
+	
+	// Extra report formats can be plugged in as services
+	uses model.ReportWriterProvider;
 }